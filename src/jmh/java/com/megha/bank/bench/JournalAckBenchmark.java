@@ -0,0 +1,118 @@
+package com.megha.bank.bench;
+
+import com.megha.bank.MiddleOfficeTradesApplication;
+import com.megha.bank.model.Trade;
+import com.megha.bank.service.TradeSequencer;
+import com.megha.bank.service.TradeService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ACK latency of a BUY: the database path (sequencer, JPA commit of trade, audit and dedup rows) against journal mode
+ * (append to the memory-mapped journal, group-committed fsync, projection in the background), with and without a
+ * group-commit wait. Runs in-process without HTTP, so the numbers are what processing adds to a request; every variant
+ * gets a fresh context and database.
+ *
+ * Usage: mvn -Pjmh test-compile exec:exec -Dbench.main=com.megha.bank.bench.JournalAckBenchmark
+ *        -Djmh.args="[requests] [concurrency]"
+ */
+public class JournalAckBenchmark {
+
+    private static final AtomicLong SEQ = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        Path dir = Files.createTempDirectory("journal-bench");
+
+        List<String> report = new ArrayList<>();
+        report.add(run("jpa", requests, concurrency, "--mt.journal.enabled=false", "--mt.sequencer.enabled=true"));
+        report.add(run("journal", requests, concurrency, "--mt.journal.enabled=true",
+                "--mt.journal.file=" + dir.resolve("a.log"), "--mt.journal.fsync-interval-us=0"));
+        report.add(run("journal+200us", requests, concurrency, "--mt.journal.enabled=true",
+                "--mt.journal.file=" + dir.resolve("b.log"), "--mt.journal.fsync-interval-us=200"));
+        System.out.println();
+        System.out.printf("%d BUYs, concurrency %d, journal in %s%n", requests, concurrency, dir);
+        report.forEach(System.out::println);
+    }
+
+    private static String run(String name, int requests, int concurrency, String... props) throws Exception {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:journalbench-" + name + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+                "--logging.level.root=WARN",
+                "--logging.level.com.megha.bank=WARN"));
+        args.addAll(Arrays.asList(props));
+        ConfigurableApplicationContext ctx = new SpringApplicationBuilder(MiddleOfficeTradesApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(String[]::new));
+        try {
+            TradeService tradeService = ctx.getBean(TradeService.class);
+            TradeSequencer sequencer = ctx.getBeanProvider(TradeSequencer.class).getIfAvailable();
+            Ack ack = tradeService.journaling() ? tradeService::journalMtMessage
+                    : sequencer != null ? sequencer::process : tradeService::processMtMessage;
+
+            fire(ack, Math.min(2_000, requests), concurrency); // warm-up
+
+            long start = System.nanoTime();
+            long[] latencies = fire(ack, requests, concurrency);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            Arrays.sort(latencies);
+            String line = String.format("%-13s p50=%.3f ms  p99=%.3f ms  p99.9=%.3f ms  throughput=%.0f/s", name,
+                    latencies[latencies.length / 2] / 1e6,
+                    latencies[(int) (latencies.length * 0.99)] / 1e6,
+                    latencies[(int) (latencies.length * 0.999)] / 1e6,
+                    requests / seconds);
+            DistributionSummary perFsync = ctx.getBean(MeterRegistry.class).find("mt.journal.fsync.entries").summary();
+            if (perFsync != null) line += String.format("  entries/fsync=%.1f", perFsync.mean());
+            return line;
+        } finally {
+            ctx.close();
+        }
+    }
+
+    private static long[] fire(Ack ack, int requests, int concurrency) throws Exception {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<?>> workers = new ArrayList<>(concurrency);
+            for (int w = 0; w < concurrency; w++) {
+                workers.add(pool.submit(() -> {
+                    int i;
+                    while ((i = next.getAndIncrement()) < requests) {
+                        String msg = "TYPE:BUY\nREF:JB-" + SEQ.incrementAndGet() + "\nINST:INFY\nQTY:100\nPRC:123.45";
+                        long t0 = System.nanoTime();
+                        TradeService.ProcessResult res = ack.process(msg, Trade.Type.BUY);
+                        latencies[i] = System.nanoTime() - t0;
+                        if (!res.isSuccess()) throw new IllegalStateException(res.getMtResponse());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : workers) f.get();
+        } finally {
+            pool.shutdown();
+        }
+        return latencies;
+    }
+
+    @FunctionalInterface
+    private interface Ack {
+        TradeService.ProcessResult process(String mtMessage, Trade.Type type);
+    }
+}
@@ -0,0 +1,48 @@
+package com.megha.bank.bench;
+
+import com.megha.bank.util.MTMessageParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same trade as key:value lines and as an MT199 FIN block message, through MTMessageParser (which picks the
+ * format per message), plus the REF-only scan used for routing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MTBlockParserBenchmark {
+
+    private static final String KEY_VALUE = "TYPE:BUY\nREF:TR-1001\nINST:INFY\nQTY:100\nPRC:123.45\nORIG_REF:OR-77";
+
+    private static final String BLOCK = "{1:F01CPTYBANKAXXX0000000000}{2:I199MEGHABANKXXXXN}{4:\r\n"
+            + ":20:TR-1001\r\n:21:OR-77\r\n:22H::BUSE//BUYI\r\n:35B:INFY\r\n"
+            + ":36B::SETT//UNIT/100,\r\n:90B::DEAL//ACTU/INR123,45\r\n-}";
+
+    private final MTMessageParser parser = new MTMessageParser();
+    private final MTMessageParser.ParsedMT reused = new MTMessageParser.ParsedMT();
+
+    @Benchmark
+    public MTMessageParser.ParsedMT keyValue() {
+        return parser.parseInto(KEY_VALUE, reused);
+    }
+
+    @Benchmark
+    public MTMessageParser.ParsedMT block() {
+        return parser.parseInto(BLOCK, reused);
+    }
+
+    @Benchmark
+    public String keyValueReference() {
+        return parser.reference(KEY_VALUE);
+    }
+
+    @Benchmark
+    public String blockReference() {
+        return parser.reference(BLOCK);
+    }
+}
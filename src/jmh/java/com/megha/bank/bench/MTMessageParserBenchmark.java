@@ -0,0 +1,65 @@
+package com.megha.bank.bench;
+
+import com.megha.bank.util.LegacyMTMessageParser;
+import com.megha.bank.util.MTMessageParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MTMessageParser on small, large and malformed messages, next to the original split/regex parser.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MTMessageParserBenchmark {
+
+    @Param({"small", "large", "malformed"})
+    public String kind;
+
+    private String message;
+    private final MTMessageParser parser = new MTMessageParser();
+    private final LegacyMTMessageParser legacy = new LegacyMTMessageParser();
+    private final MTMessageParser.ParsedMT reused = new MTMessageParser.ParsedMT();
+
+    @Setup
+    public void setup() {
+        switch (kind) {
+            case "small":
+                message = "TYPE:BUY\nREF:TR-1001\nINST:INFY\nQTY:100\nPRC:123.45";
+                break;
+            case "large": {
+                StringBuilder sb = new StringBuilder("TYPE:SELL\r\nREF:TR-1002\r\nINST:TCS\r\nQTY:2500\r\nPRC:2500.125\r\n");
+                sb.append("ORIG_REF:OR-77\r\n");
+                for (int i = 0; i < 40; i++) {
+                    sb.append("FIELD_").append(i).append(" : value-").append(i).append("-").append("x".repeat(20)).append("\r\n");
+                }
+                message = sb.toString();
+                break;
+            }
+            case "malformed":
+                message = "TYPE BUY\n:REF\nINST:\nQTY:12x4\nPRC:1,234.5\nno colon here\n\n   \nQTY:99999999999999999999\nPRC:abc";
+                break;
+            default:
+                throw new IllegalArgumentException(kind);
+        }
+    }
+
+    @Benchmark
+    public MTMessageParser.ParsedMT parse() {
+        return parser.parse(message);
+    }
+
+    @Benchmark
+    public MTMessageParser.ParsedMT parseIntoReused() {
+        return parser.parseInto(message, reused);
+    }
+
+    @Benchmark
+    public MTMessageParser.ParsedMT legacyParse() {
+        return legacy.parse(message);
+    }
+}
@@ -0,0 +1,54 @@
+package com.megha.bank.bench;
+
+import com.megha.bank.util.MTResponseBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ACK/NAK generation: String-returning variants and the allocation-free StringBuilder/ByteBuffer writers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MTResponseBuilderBenchmark {
+
+    private static final String REF = "TR-1001";
+    private static final String ORIG = "OR-77";
+    private static final String REASON = "MISSING_FIELDS: instrument/quantity/price\r\n{detail}|code=7";
+
+    private final StringBuilder sb = new StringBuilder(256);
+    private final ByteBuffer buf = ByteBuffer.allocateDirect(512);
+
+    @Benchmark
+    public String ack() {
+        return MTResponseBuilder.ack(REF, "RECEIVED", ORIG);
+    }
+
+    @Benchmark
+    public String nak() {
+        return MTResponseBuilder.nak(REF, REASON, ORIG);
+    }
+
+    @Benchmark
+    public StringBuilder appendAckReused() {
+        sb.setLength(0);
+        return MTResponseBuilder.appendAck(sb, REF, "RECEIVED", ORIG);
+    }
+
+    @Benchmark
+    public ByteBuffer writeAckDirect() {
+        buf.clear();
+        return MTResponseBuilder.writeAck(buf, REF, "RECEIVED", ORIG);
+    }
+
+    @Benchmark
+    public ByteBuffer writeNakDirect() {
+        buf.clear();
+        return MTResponseBuilder.writeNak(buf, REF, REASON, ORIG);
+    }
+}
@@ -0,0 +1,57 @@
+package com.megha.bank.bench;
+
+import com.megha.bank.service.PositionEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Position updates from one and from 8 threads, and the latency of a full snapshot and a single-instrument read,
+ * with 1000 instruments held.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PositionEngineBenchmark {
+
+    private static final int INSTRUMENTS = 1000;
+
+    private PositionEngine engine;
+    private String[] instruments;
+
+    @Setup
+    public void setup() {
+        engine = new PositionEngine(16, new SimpleMeterRegistry());
+        instruments = new String[INSTRUMENTS];
+        for (int i = 0; i < INSTRUMENTS; i++) {
+            instruments[i] = "INST" + i;
+            engine.apply(instruments[i], 100, 1000.0);
+        }
+    }
+
+    @Benchmark
+    public void apply() {
+        engine.apply(instruments[ThreadLocalRandom.current().nextInt(INSTRUMENTS)], 10, 101.5);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void applyContended() {
+        engine.apply(instruments[ThreadLocalRandom.current().nextInt(INSTRUMENTS)], 10, 101.5);
+    }
+
+    @Benchmark
+    public PositionEngine.Position get() {
+        return engine.get(instruments[ThreadLocalRandom.current().nextInt(INSTRUMENTS)]);
+    }
+
+    @Benchmark
+    public PositionEngine.Snapshot snapshot() {
+        return engine.snapshot();
+    }
+}
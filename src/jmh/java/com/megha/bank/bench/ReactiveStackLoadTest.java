@@ -0,0 +1,110 @@
+package com.megha.bank.bench;
+
+import com.megha.bank.MiddleOfficeTradesApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Side-by-side load test for /api/trade/buy: runs the service once on the servlet stack (Tomcat, JPA) and once on
+ * the reactive stack (Netty, WebFlux, R2DBC), both against the in-memory H2 database, fires the same requests at
+ * the same concurrency and prints p50/p99 latency, throughput and the number of 503s (reactive in-flight limit).
+ *
+ * Usage: mvn -Pjmh test-compile exec:exec -Dbench.main=com.megha.bank.bench.ReactiveStackLoadTest
+ *        -Djmh.args="[requests] [concurrency]"
+ */
+public class ReactiveStackLoadTest {
+
+    private static final AtomicLong SEQ = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        List<String> report = new ArrayList<>();
+        report.add(run("servlet", requests, concurrency));
+        report.add(run("reactive", requests, concurrency));
+        System.out.println();
+        System.out.printf("%d requests, concurrency %d%n", requests, concurrency);
+        report.forEach(System.out::println);
+    }
+
+    private static String run(String stack, int requests, int concurrency) throws Exception {
+        ConfigurableApplicationContext ctx = new SpringApplicationBuilder(MiddleOfficeTradesApplication.class)
+                .properties("server.port=0",
+                        "spring.main.web-application-type=" + stack,
+                        "logging.level.root=WARN",
+                        "logging.level.com.megha.bank=WARN")
+                .run();
+        try {
+            int port = ((WebServerApplicationContext) ctx).getWebServer().getPort();
+            URI uri = URI.create("http://localhost:" + port + "/api/trade/buy");
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+
+            // warm-up
+            fire(client, uri, Math.min(2_000, requests), Math.min(50, concurrency), new AtomicInteger());
+
+            AtomicInteger rejected = new AtomicInteger();
+            long start = System.nanoTime();
+            long[] latencies = fire(client, uri, requests, concurrency, rejected);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            Arrays.sort(latencies);
+            return String.format("%-9s p50=%.2f ms  p99=%.2f ms  throughput=%.0f req/s  503=%d", stack,
+                    latencies[latencies.length / 2] / 1e6,
+                    latencies[(int) (latencies.length * 0.99)] / 1e6,
+                    requests / seconds, rejected.get());
+        } finally {
+            ctx.close();
+        }
+    }
+
+    private static long[] fire(HttpClient client, URI uri, int requests, int concurrency, AtomicInteger rejected)
+            throws Exception {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<?>> workers = new ArrayList<>(concurrency);
+            for (int w = 0; w < concurrency; w++) {
+                workers.add(pool.submit(() -> {
+                    int i;
+                    while ((i = next.getAndIncrement()) < requests) {
+                        String body = "TYPE:BUY\nREF:RL-" + SEQ.incrementAndGet() + "\nINST:INFY\nQTY:100\nPRC:123.45";
+                        HttpRequest req = HttpRequest.newBuilder(uri)
+                                .header("Content-Type", "text/plain")
+                                .POST(HttpRequest.BodyPublishers.ofString(body))
+                                .build();
+                        long t0 = System.nanoTime();
+                        HttpResponse<Void> res = client.send(req, HttpResponse.BodyHandlers.discarding());
+                        latencies[i] = System.nanoTime() - t0;
+                        if (res.statusCode() == 503) {
+                            rejected.incrementAndGet();
+                        } else if (res.statusCode() != 200) {
+                            throw new IllegalStateException("HTTP " + res.statusCode());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : workers) f.get();
+        } finally {
+            pool.shutdown();
+        }
+        return latencies;
+    }
+}
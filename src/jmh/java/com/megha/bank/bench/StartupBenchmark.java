@@ -0,0 +1,133 @@
+package com.megha.bank.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cold-start benchmark: launches the service as a fresh JVM, polls /api/trade/buy until the first ACK comes back and
+ * reports that time (from process launch) plus the process RSS at that point. Each variant is started several times
+ * and the median is printed:
+ * <ul>
+ *   <li>fat jar, default profile (ddl-auto=update, H2 console, springdoc) - the starting point</li>
+ *   <li>plain jar + target/lib, prod profile</li>
+ *   <li>the same with Spring AOT ({@code -Dspring.aot.enabled=true})</li>
+ *   <li>the same with the AppCDS archive ({@code -XX:SharedArchiveFile})</li>
+ * </ul>
+ * Needs the {@code aot-cds} build first; RSS is read from /proc and shown as n/a elsewhere.
+ *
+ * Usage: mvn -Paot-cds -DskipTests package
+ *        mvn -Pjmh test-compile exec:exec -Dbench.main=com.megha.bank.bench.StartupBenchmark -Djmh.args="[runs]"
+ */
+public class StartupBenchmark {
+
+    private static final Path TARGET = Path.of("target");
+    private static final String JAR = "middleoffice-trades-0.0.1-SNAPSHOT";
+    private static final Duration START_TIMEOUT = Duration.ofMinutes(3);
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        String fatJar = TARGET.resolve(JAR + "-exec.jar").toString();
+        String jar = TARGET.resolve(JAR + ".jar").toString();
+        String archive = TARGET.resolve("app-cds.jsa").toString();
+        for (String required : List.of(fatJar, jar, archive)) {
+            if (!Files.exists(Path.of(required))) {
+                throw new IllegalStateException(required + " not found; build with: mvn -Paot-cds -DskipTests package");
+            }
+        }
+
+        List<String> report = new ArrayList<>();
+        report.add(run("fat jar, default profile", runs, List.of("-jar", fatJar)));
+        report.add(run("prod profile", runs, List.of("-Dspring.profiles.active=prod", "-jar", jar)));
+        report.add(run("prod + AOT", runs,
+                List.of("-Dspring.profiles.active=prod", "-Dspring.aot.enabled=true", "-jar", jar)));
+        report.add(run("prod + AOT + AppCDS", runs, List.of("-XX:SharedArchiveFile=" + archive, "-Xlog:cds=error",
+                "-Dspring.profiles.active=prod", "-Dspring.aot.enabled=true", "-jar", jar)));
+        System.out.println();
+        System.out.printf("median of %d cold starts%n", runs);
+        report.forEach(System.out::println);
+    }
+
+    private static String run(String variant, int runs, List<String> jvmArgs) throws Exception {
+        long[] firstAckMillis = new long[runs];
+        long[] rssKb = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long[] result = startOnce(variant, jvmArgs);
+            firstAckMillis[i] = result[0];
+            rssKb[i] = result[1];
+            System.out.printf("%-26s run %d: first ACK %d ms, RSS %s%n", variant, i + 1, result[0], rss(result[1]));
+        }
+        Arrays.sort(firstAckMillis);
+        Arrays.sort(rssKb);
+        return String.format("%-26s first ACK=%6d ms  RSS=%s", variant, firstAckMillis[runs / 2], rss(rssKb[runs / 2]));
+    }
+
+    /** Returns {milliseconds from launch to first ACK, RSS in kB or -1}. */
+    private static long[] startOnce(String variant, List<String> jvmArgs) throws Exception {
+        int port;
+        try (ServerSocket s = new ServerSocket(0)) {
+            port = s.getLocalPort();
+        }
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("--server.port=" + port);
+        File log = TARGET.resolve("startup-" + variant.replaceAll("[^A-Za-z]+", "-") + ".log").toFile();
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest buy = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/trade/buy"))
+                .header("Content-Type", "text/plain")
+                .POST(HttpRequest.BodyPublishers.ofString("TYPE:BUY\nREF:STARTUP-1\nINST:INFY\nQTY:100\nPRC:123.45"))
+                .build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+        try {
+            long deadline = start + START_TIMEOUT.toNanos();
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(variant + " exited with " + process.exitValue() + ", see " + log);
+                }
+                if (System.nanoTime() > deadline) throw new IllegalStateException(variant + " did not start, see " + log);
+                try {
+                    HttpResponse<String> res = client.send(buy, HttpResponse.BodyHandlers.ofString());
+                    if (res.statusCode() == 200 && res.body().contains("\"success\":true")) break;
+                } catch (ConnectException e) {
+                    // not listening yet
+                }
+                Thread.sleep(5);
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            return new long[]{millis, rssKb(process.pid())};
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static long rssKb(long pid) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc", Long.toString(pid), "status"))) {
+                if (line.startsWith("VmRSS:")) return Long.parseLong(line.replaceAll("[^0-9]", ""));
+            }
+        } catch (IOException | NumberFormatException e) {
+            // not Linux
+        }
+        return -1;
+    }
+
+    private static String rss(long kb) {
+        return kb < 0 ? "n/a" : String.format("%.0f MB", kb / 1024.0);
+    }
+}
@@ -0,0 +1,42 @@
+package com.megha.bank.bench;
+
+import com.megha.bank.util.TradeRefGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trade ref generation from one thread and from 8 threads sharing one generator (CAS contention).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TradeRefGeneratorBenchmark {
+
+    private final TradeRefGenerator generator = new TradeRefGenerator(1);
+
+    @Benchmark
+    public long nextId() {
+        return generator.nextId();
+    }
+
+    @Benchmark
+    public String nextRef() {
+        return generator.nextRef();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long nextIdContended() {
+        return generator.nextId();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String nextRefContended() {
+        return generator.nextRef();
+    }
+}
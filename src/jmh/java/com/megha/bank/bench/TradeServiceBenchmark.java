@@ -0,0 +1,61 @@
+package com.megha.bank.bench;
+
+import com.megha.bank.MiddleOfficeTradesApplication;
+import com.megha.bank.model.Trade;
+import com.megha.bank.service.TradeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TradeService.processMtMessage end to end (parse, persist trade + audit, build and publish the response)
+ * against the in-memory H2 datasource from application.properties, with the web layer switched off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TradeServiceBenchmark {
+
+    private final AtomicLong seq = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private TradeService tradeService;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(MiddleOfficeTradesApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=WARN", "logging.level.com.megha.bank=WARN")
+                .run();
+        tradeService = context.getBean(TradeService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public TradeService.ProcessResult buy() {
+        String msg = "TYPE:BUY\nREF:BM-" + seq.incrementAndGet() + "\nINST:INFY\nQTY:100\nPRC:123.45";
+        return tradeService.processMtMessage(msg, Trade.Type.BUY);
+    }
+
+    @Benchmark
+    public TradeService.ProcessResult buyThenCancel() {
+        String ref = "BC-" + seq.incrementAndGet();
+        tradeService.processMtMessage("TYPE:BUY\nREF:" + ref + "\nINST:TCS\nQTY:10\nPRC:2500.00", Trade.Type.BUY);
+        return tradeService.processMtMessage("TYPE:CANCEL\nREF:" + ref, Trade.Type.CANCEL);
+    }
+
+    @Benchmark
+    public TradeService.ProcessResult nakMissingFields() {
+        return tradeService.processMtMessage("TYPE:SELL\nREF:NK-" + seq.incrementAndGet() + "\nINST:TCS", Trade.Type.SELL);
+    }
+}
@@ -2,8 +2,12 @@ package com.megha.bank;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// R2DBC is wired by ReactiveStackConfig: an auto-configured ConnectionFactory bean would switch off the JDBC DataSource
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
+@EnableScheduling
 public class MiddleOfficeTradesApplication {
     public static void main(String[] args) {
         SpringApplication.run(MiddleOfficeTradesApplication.class, args);
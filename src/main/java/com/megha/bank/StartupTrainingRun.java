@@ -0,0 +1,55 @@
+package com.megha.bank;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * Training run for the AppCDS archive built by the {@code aot-cds} Maven profile: starts the service on a random port,
+ * sends a BUY and a CANCEL through the HTTP API so the request path (Tomcat, MVC, Jackson, TradeService, JPA) is
+ * loaded as well as the startup path, then shuts down. The JVM writes the archive on exit
+ * ({@code -XX:ArchiveClassesAtExit}).
+ */
+public class StartupTrainingRun {
+
+    public static void main(String[] args) throws Exception {
+        SpringApplication app = new SpringApplication(MiddleOfficeTradesApplication.class);
+        // the AOT initializer is looked up by main application class name
+        app.setMainApplicationClass(MiddleOfficeTradesApplication.class);
+        ConfigurableApplicationContext ctx = app.run(concat(args, "--server.port=0"));
+        int code;
+        try {
+            int port = ((WebServerApplicationContext) ctx).getWebServer().getPort();
+            HttpClient client = HttpClient.newHttpClient();
+            post(client, port, "buy", "TYPE:BUY\nREF:CDS-TRAINING\nINST:TRAIN\nQTY:1\nPRC:1.0");
+            post(client, port, "cancel", "TYPE:CANCEL\nREF:CDS-TRAINING");
+        } finally {
+            code = SpringApplication.exit(ctx);
+        }
+        System.exit(code);
+    }
+
+    private static void post(HttpClient client, int port, String endpoint, String body) throws Exception {
+        HttpResponse<String> res = client.send(HttpRequest.newBuilder()
+                        .uri(URI.create("http://localhost:" + port + "/api/trade/" + endpoint))
+                        .header("Content-Type", "text/plain")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (res.statusCode() != 200) {
+            throw new IllegalStateException("Training request to /" + endpoint + " failed: " + res.statusCode());
+        }
+    }
+
+    private static String[] concat(String[] args, String extra) {
+        String[] all = new String[args.length + 1];
+        System.arraycopy(args, 0, all, 0, args.length);
+        all[args.length] = extra;
+        return all;
+    }
+}
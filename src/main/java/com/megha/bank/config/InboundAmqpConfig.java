@@ -0,0 +1,73 @@
+package com.megha.bank.config;
+
+import com.megha.bank.messaging.InboundMessageListener;
+import com.megha.bank.service.TradeService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Opt-in RabbitMQ inbound channel ({@code mt.inbound.enabled=true}, with {@code spring.rabbitmq.host} set). MT
+ * messages queued on {@code mt.inbound.queue} are consumed by {@code mt.inbound.concurrency} consumers, each with its
+ * own channel and a prefetch of {@code mt.inbound.prefetch} unacked deliveries, and handed to
+ * {@link InboundMessageListener} in batches of up to {@code mt.inbound.batch-size} (a partial batch is passed on
+ * after {@code mt.inbound.receive-timeout-ms}). The queue absorbs bursts: consumers take work at the rate the
+ * database commits it.
+ *
+ * The queue and its dead-letter queue ({@code mt.inbound.dead-letter-queue}) are declared on connect, the inbound
+ * queue dead-lettering through the default exchange. A prefetch below the batch size is raised to it, since a
+ * consumer can never hold a bigger batch than its prefetch.
+ *
+ * Ordering: one consumer keeps queue order; with more, messages for the same tradeRef can be processed out of
+ * order (unlike the HTTP endpoints with mt.sequencer.enabled=true).
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "mt.inbound.enabled", havingValue = "true")
+public class InboundAmqpConfig {
+
+    @Bean
+    public Declarables inboundQueues(@Value("${mt.inbound.queue:mt.inbound}") String queue,
+                                     @Value("${mt.inbound.dead-letter-queue:mt.inbound.dlq}") String deadLetterQueue) {
+        Queue inbound = QueueBuilder.durable(queue)
+                .deadLetterExchange("")
+                .deadLetterRoutingKey(deadLetterQueue)
+                .build();
+        return new Declarables(inbound, QueueBuilder.durable(deadLetterQueue).build());
+    }
+
+    @Bean
+    public InboundMessageListener inboundMessageListener(TradeService tradeService, MeterRegistry meterRegistry,
+                                                         @Value("${mt.inbound.retry-delay-ms:1000}") long retryDelayMs) {
+        return new InboundMessageListener(tradeService, meterRegistry, retryDelayMs);
+    }
+
+    @Bean
+    public SimpleMessageListenerContainer inboundListenerContainer(
+            ConnectionFactory connectionFactory,
+            InboundMessageListener listener,
+            @Value("${mt.inbound.queue:mt.inbound}") String queue,
+            @Value("${mt.inbound.concurrency:4}") int concurrency,
+            @Value("${mt.inbound.prefetch:250}") int prefetch,
+            @Value("${mt.inbound.batch-size:50}") int batchSize,
+            @Value("${mt.inbound.receive-timeout-ms:20}") long receiveTimeoutMs) {
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer(connectionFactory);
+        container.setQueueNames(queue);
+        container.setConcurrentConsumers(concurrency);
+        container.setPrefetchCount(Math.max(prefetch, batchSize));
+        container.setConsumerBatchEnabled(true);
+        container.setBatchSize(batchSize);
+        container.setReceiveTimeout(receiveTimeoutMs);
+        container.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        container.setDefaultRequeueRejected(false);
+        container.setMessageListener(listener);
+        return container;
+    }
+}
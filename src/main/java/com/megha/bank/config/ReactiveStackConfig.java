@@ -0,0 +1,70 @@
+package com.megha.bank.config;
+
+import com.megha.bank.messaging.BlockingPublisherAdapter;
+import com.megha.bank.messaging.MessagePublisher;
+import com.megha.bank.messaging.ReactiveMessagePublisher;
+import com.megha.bank.reactive.ReactiveDatabase;
+import com.megha.bank.reactive.ReactiveTradeService;
+import com.megha.bank.service.IdempotencyService;
+import com.megha.bank.service.PositionEngine;
+import com.megha.bank.util.MTMessageParser;
+import com.megha.bank.util.TradeRefGenerator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+
+/**
+ * Reactive stack, selected with {@code spring.main.web-application-type=reactive}: Netty + WebFlux serve
+ * /api/trade/buy|sell|cancel through {@link ReactiveTradeService}, which writes over R2DBC instead of JPA.
+ * The servlet stack (Tomcat, TradeController, TradeService) stays the default.
+ *
+ * Concurrency is capped in three places: messages in flight ({@code mt.reactive.max-in-flight}, excess is
+ * rejected with 503), R2DBC connections ({@code mt.reactive.db-pool-size}, acquisition bounded by
+ * {@code mt.reactive.db-acquire-timeout-ms}) and the threads that run the blocking MessagePublisher.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveStackConfig {
+
+    @Bean
+    public ReactiveDatabase reactiveDatabase(
+            @Value("${mt.reactive.r2dbc-url:r2dbc:h2:mem:///meghabankdb?options=DB_CLOSE_DELAY=-1;MODE=PostgreSQL}") String url,
+            @Value("${spring.datasource.username:sa}") String username,
+            @Value("${spring.datasource.password:}") String password,
+            @Value("${mt.reactive.db-pool-size:20}") int poolSize,
+            @Value("${mt.reactive.db-acquire-timeout-ms:2000}") long acquireTimeoutMs) {
+        return new ReactiveDatabase(url, username, password, poolSize, Duration.ofMillis(acquireTimeoutMs));
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler publisherScheduler(@Value("${mt.reactive.publisher-threads:4}") int threads,
+                                        @Value("${mt.reactive.max-in-flight:256}") int maxInFlight) {
+        return Schedulers.newBoundedElastic(threads, maxInFlight, "mt-reactive-publish");
+    }
+
+    @Bean
+    public ReactiveMessagePublisher reactiveMessagePublisher(MessagePublisher messagePublisher,
+                                                             Scheduler publisherScheduler) {
+        return new BlockingPublisherAdapter(messagePublisher, publisherScheduler);
+    }
+
+    @Bean
+    public ReactiveTradeService reactiveTradeService(ReactiveDatabase reactiveDatabase,
+                                                     ReactiveMessagePublisher reactiveMessagePublisher,
+                                                     MTMessageParser parser,
+                                                     TradeRefGenerator refGenerator,
+                                                     ObjectProvider<PositionEngine> positions,
+                                                     ObjectProvider<IdempotencyService> idempotency,
+                                                     MeterRegistry meterRegistry,
+                                                     @Value("${mt.reactive.max-in-flight:256}") int maxInFlight) {
+        return new ReactiveTradeService(reactiveDatabase, reactiveMessagePublisher, parser, refGenerator,
+                positions.getIfAvailable(), idempotency.getIfAvailable(), meterRegistry, maxInFlight);
+    }
+}
@@ -0,0 +1,78 @@
+package com.megha.bank.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in virtual-thread mode ({@code mt.virtual-threads.enabled=true}, Java 21+). Tomcat serves every request,
+ * and with it the TradeService call, on a new virtual thread; the application task executor is virtual as well.
+ *
+ * With no thread-pool cap any more, the JDBC pool becomes the real concurrency limit: it is sized explicitly
+ * ({@code mt.virtual-threads.db-pool-size}) and waits for a connection are bounded
+ * ({@code mt.virtual-threads.db-connection-timeout-ms}) so a DB slowdown fails requests instead of parking an
+ * unbounded number of threads. Pinned virtual threads are reported by {@link VirtualThreadPinningMonitor}.
+ *
+ * The project is compiled for Java 17, so the virtual-thread factory is looked up reflectively; enabling the mode
+ * on an older runtime fails at startup.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "mt.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            log.info("Virtual-thread mode enabled for web requests and application tasks");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("mt.virtual-threads.enabled requires Java 21+, running on "
+                    + Runtime.version(), e);
+        }
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandler(ExecutorService virtualThreadExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor(ExecutorService virtualThreadExecutor) {
+        return new TaskExecutorAdapter(virtualThreadExecutor);
+    }
+
+    @Bean
+    public static BeanPostProcessor virtualThreadPoolSizing(
+            @Value("${mt.virtual-threads.db-pool-size:20}") int poolSize,
+            @Value("${mt.virtual-threads.db-connection-timeout-ms:2000}") long connectionTimeoutMs) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource ds) {
+                    ds.setMaximumPoolSize(poolSize);
+                    ds.setMinimumIdle(poolSize);
+                    ds.setConnectionTimeout(connectionTimeoutMs);
+                    log.info("JDBC pool sized to {} connections for virtual threads (wait limit {} ms)",
+                            poolSize, connectionTimeoutMs);
+                }
+                return bean;
+            }
+        };
+    }
+}
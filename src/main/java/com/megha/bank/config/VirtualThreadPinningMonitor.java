@@ -0,0 +1,71 @@
+package com.megha.bank.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Reports virtual threads that stay pinned to their carrier (typically blocking inside a {@code synchronized}
+ * block or a native frame) for longer than {@code mt.virtual-threads.pinned-threshold-ms}. Listens to the JDK's
+ * {@code jdk.VirtualThreadPinned} JFR event in-process; each occurrence is logged with the top of its stack and
+ * counted in {@code mt.vthreads.pinned}.
+ */
+@Component
+@ConditionalOnProperty(name = "mt.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+    private static final int REPORTED_FRAMES = 8;
+
+    private final Counter pinned;
+    private final Duration threshold;
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${mt.virtual-threads.pinned-threshold-ms:20}") long thresholdMs) {
+        this.pinned = Counter.builder("mt.vthreads.pinned")
+                .description("Virtual threads pinned to their carrier longer than the threshold")
+                .register(meterRegistry);
+        this.threshold = Duration.ofMillis(thresholdMs);
+    }
+
+    @PostConstruct
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+        stream.onEvent("jdk.VirtualThreadPinned", this::report);
+        stream.startAsync();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) stream.close();
+    }
+
+    private void report(RecordedEvent event) {
+        pinned.increment();
+        StringBuilder sb = new StringBuilder();
+        if (event.getStackTrace() != null) {
+            List<RecordedFrame> frames = event.getStackTrace().getFrames();
+            for (int i = 0; i < Math.min(REPORTED_FRAMES, frames.size()); i++) {
+                RecordedFrame f = frames.get(i);
+                sb.append("\n\tat ").append(f.getMethod().getType().getName()).append('.')
+                        .append(f.getMethod().getName()).append(" line ").append(f.getLineNumber());
+            }
+        }
+        log.warn("Virtual thread pinned for {} ms on {}{}", event.getDuration().toMillis(),
+                event.getThread() == null ? "?" : event.getThread().getJavaName(), sb);
+    }
+}
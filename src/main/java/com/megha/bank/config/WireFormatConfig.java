@@ -0,0 +1,51 @@
+package com.megha.bank.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.megha.bank.controller.ContentEncodingFilter;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Compact wire formats for the servlet API.
+ *
+ * <ul>
+ *   <li>CBOR: requests and responses are negotiated via {@code Content-Type}/{@code Accept: application/cbor}.
+ *       The ObjectMapper is built from Boot's Jackson settings, so field names and date handling match the JSON
+ *       API.</li>
+ *   <li>Compression: {@link ContentEncodingFilter} decodes gzip request bodies, and zstd ones when
+ *       {@code mt.http.zstd.enabled=true}, up to {@code mt.http.max-decoded-body} decoded bytes. Responses over
+ *       {@code mt.http.compression.min-response-size} bytes are compressed for clients that accept it: zstd
+ *       (level {@code mt.http.zstd.level}) if enabled, else gzip ({@code mt.http.compression.enabled}).</li>
+ * </ul>
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class WireFormatConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public FilterRegistrationBean<ContentEncodingFilter> contentEncodingFilter(
+            @Value("${mt.http.compression.enabled:true}") boolean gzip,
+            @Value("${mt.http.compression.min-response-size:1024}") int minResponseSize,
+            @Value("${mt.http.zstd.enabled:false}") boolean zstd,
+            @Value("${mt.http.zstd.level:3}") int zstdLevel,
+            @Value("${mt.http.max-decoded-body:10485760}") long maxDecodedBody) {
+        FilterRegistrationBean<ContentEncodingFilter> registration = new FilterRegistrationBean<>(
+                new ContentEncodingFilter(gzip, zstd, zstdLevel, minResponseSize, maxDecodedBody));
+        registration.addUrlPatterns("/api/*");
+        registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
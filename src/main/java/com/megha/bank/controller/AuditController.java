@@ -0,0 +1,43 @@
+package com.megha.bank.controller;
+
+import com.megha.bank.model.AuditRecord;
+import com.megha.bank.service.AuditService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Audit lookups for the rows still in mt_audit (archived days are in the files written by AuditArchiver).
+ * With a tradeRef: that trade's history. Without: every row in the time range, up to {@code limit}.
+ * {@code from} defaults to 24 hours ago and {@code to} to now; both are ISO date-times.
+ */
+@RestController
+@RequestMapping("/api/audit")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class AuditController {
+
+    private static final int MAX_LIMIT = 10_000;
+
+    private final AuditService auditService;
+
+    public AuditController(AuditService auditService) {
+        this.auditService = auditService;
+    }
+
+    @GetMapping
+    public List<AuditRecord> find(
+            @RequestParam(required = false) String tradeRef,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "1000") int limit) {
+        LocalDateTime end = to == null ? LocalDateTime.now() : to;
+        LocalDateTime start = from == null ? end.minusHours(24) : from;
+        if (tradeRef != null) {
+            return auditService.history(tradeRef, start, end);
+        }
+        return auditService.range(start, end, Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+}
@@ -0,0 +1,72 @@
+package com.megha.bank.controller;
+
+import com.megha.bank.service.ClusterMembership;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * Membership of this node's hash ring: view it, add or remove members, and look up the owner of a tradeRef. Changes
+ * apply to this node only; send the same join/leave to every member.
+ */
+@RestController
+@RequestMapping("/api/cluster")
+@ConditionalOnProperty(name = "mt.cluster.enabled", havingValue = "true")
+public class ClusterController {
+
+    private final ClusterMembership cluster;
+
+    public ClusterController(ClusterMembership cluster) {
+        this.cluster = cluster;
+    }
+
+    @GetMapping
+    public ClusterView view() {
+        return new ClusterView(cluster.localNode(), cluster.mode().name(), cluster.members());
+    }
+
+    @GetMapping("/owner/{tradeRef}")
+    public Map<String, String> owner(@PathVariable String tradeRef) {
+        return Map.of("tradeRef", tradeRef, "owner", cluster.owner(tradeRef));
+    }
+
+    // Body: {"id": "c", "url": "http://host:port"}
+    @PostMapping("/members")
+    public ClusterView join(@RequestBody Map<String, String> member) {
+        String id = member.get("id"), url = member.get("url");
+        if (id == null || id.isBlank() || url == null || url.isBlank()) {
+            throw new IllegalArgumentException("id and url are required");
+        }
+        cluster.join(id, url);
+        return view();
+    }
+
+    @DeleteMapping("/members/{id}")
+    public ResponseEntity<ClusterView> leave(@PathVariable String id) {
+        return cluster.leave(id) ? ResponseEntity.ok(view()) : ResponseEntity.notFound().build();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    public static class ClusterView {
+        private final String node;
+        private final String mode;
+        private final Map<String, URI> members;
+
+        public ClusterView(String node, String mode, Map<String, URI> members) {
+            this.node = node;
+            this.mode = mode;
+            this.members = members;
+        }
+
+        public String getNode() { return node; }
+        public String getMode() { return mode; }
+        public Map<String, URI> getMembers() { return members; }
+    }
+}
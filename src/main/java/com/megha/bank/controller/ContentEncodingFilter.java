@@ -0,0 +1,417 @@
+package com.megha.bank.controller;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content-Encoding for the HTTP API (see WireFormatConfig).
+ *
+ * Requests: a {@code gzip} body, or a {@code zstd} one when zstd is enabled, is decoded before it reaches the
+ * controllers; any other encoding is answered with 415. A decoded body longer than {@code maxDecodedBody} bytes is
+ * answered with 413, so a small compressed request cannot expand into an unbounded {@code @RequestBody}.
+ *
+ * Responses: compressed with zstd (when enabled) or gzip, whichever the client's Accept-Encoding allows, zstd
+ * first. The first {@code minResponseSize} bytes are held back so that small responses (a single ACK) go out
+ * uncompressed. This replaces Tomcat's own compression ({@code server.compression.*}), which would gzip a zstd body a
+ * second time.
+ */
+public class ContentEncodingFilter extends OncePerRequestFilter {
+
+    // a compressed response whose body is written asynchronously (StreamingResponseBody); finished on the async dispatch
+    private static final String PENDING = ContentEncodingFilter.class.getName() + ".PENDING";
+
+    private final boolean gzip;
+    private final boolean zstd;
+    private final int zstdLevel;
+    private final int minResponseSize;
+    private final long maxDecodedBody;
+
+    public ContentEncodingFilter(boolean gzip, boolean zstd, int zstdLevel, int minResponseSize, long maxDecodedBody) {
+        this.gzip = gzip;
+        this.zstd = zstd;
+        this.zstdLevel = zstdLevel;
+        this.minResponseSize = minResponseSize;
+        this.maxDecodedBody = maxDecodedBody;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            CompressedResponse pending = (CompressedResponse) request.getAttribute(PENDING);
+            chain.doFilter(request, pending != null ? pending : response);
+            if (pending != null && !request.isAsyncStarted()) {
+                request.removeAttribute(PENDING);
+                pending.finish();
+            }
+            return;
+        }
+        String encoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        if (encoding != null && !encoding.equalsIgnoreCase("identity")) {
+            if (encoding.equalsIgnoreCase("gzip")) {
+                request = new DecodedRequest(request, GZIPInputStream::new, maxDecodedBody);
+            } else if (zstd && encoding.equalsIgnoreCase("zstd")) {
+                request = new DecodedRequest(request, ZstdInputStream::new, maxDecodedBody);
+            } else {
+                response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE,
+                        "Unsupported Content-Encoding: " + encoding);
+                return;
+            }
+        }
+        if (!gzip && !zstd) {
+            chain.doFilter(request, response);
+            return;
+        }
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        Encoder encoder = null;
+        String coding = null;
+        if (zstd && accepts(acceptEncoding, "zstd")) {
+            encoder = out -> new ZstdOutputStream(out, zstdLevel);
+            coding = "zstd";
+        } else if (gzip && accepts(acceptEncoding, "gzip")) {
+            encoder = out -> new GZIPOutputStream(out, 8192, true);
+            coding = "gzip";
+        }
+        if (encoder == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        CompressedResponse compressed = new CompressedResponse(response, coding, encoder, minResponseSize);
+        chain.doFilter(request, compressed);
+        if (request.isAsyncStarted()) {
+            request.setAttribute(PENDING, compressed);
+        } else {
+            compressed.finish();
+        }
+    }
+
+    /**
+     * True if the Accept-Encoding header lists {@code coding} without q=0. A q-value that does not parse counts as 1.
+     */
+    static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) return false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.trim().split(";");
+            if (!params[0].trim().equalsIgnoreCase(coding)) continue;
+            for (int i = 1; i < params.length; i++) {
+                String p = params[i].trim().replace(" ", "");
+                if (p.startsWith("q=") && qValue(p.substring(2)) == 0) return false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static double qValue(String q) {
+        try {
+            return Double.parseDouble(q);
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    private interface Decoder {
+        InputStream open(InputStream in) throws IOException;
+    }
+
+    private interface Encoder {
+        OutputStream open(OutputStream out) throws IOException;
+    }
+
+    /**
+     * The request with its body decoded; Content-Encoding and Content-Length no longer apply. Reading past
+     * {@code maxBytes} decoded bytes throws a 413 {@link ResponseStatusException}.
+     */
+    private static final class DecodedRequest extends HttpServletRequestWrapper {
+        private static final List<String> HIDDEN = List.of(HttpHeaders.CONTENT_ENCODING, HttpHeaders.CONTENT_LENGTH);
+
+        private final Decoder decoder;
+        private final long maxBytes;
+        private ServletInputStream body;
+
+        DecodedRequest(HttpServletRequest request, Decoder decoder, long maxBytes) {
+            super(request);
+            this.decoder = decoder;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (body == null) {
+                InputStream in = decoder.open(super.getInputStream());
+                body = new ServletInputStream() {
+                    private boolean finished;
+                    private long decoded;
+
+                    @Override
+                    public int read() throws IOException {
+                        int b = in.read();
+                        finished = b < 0;
+                        if (!finished) count(1);
+                        return b;
+                    }
+
+                    @Override
+                    public int read(byte[] buf, int off, int len) throws IOException {
+                        int n = in.read(buf, off, len);
+                        finished = n < 0;
+                        if (n > 0) count(n);
+                        return n;
+                    }
+
+                    private void count(int n) {
+                        decoded += n;
+                        if (decoded > maxBytes) {
+                            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                                    "Decoded request body exceeds " + maxBytes + " bytes");
+                        }
+                    }
+
+                    @Override
+                    public boolean isFinished() {
+                        return finished;
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return true;
+                    }
+
+                    @Override
+                    public void setReadListener(ReadListener listener) {
+                        throw new UnsupportedOperationException("Non-blocking reads of encoded bodies");
+                    }
+                };
+            }
+            return body;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String charset = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    charset == null ? StandardCharsets.UTF_8 : Charset.forName(charset)));
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return hidden(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return hidden(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            List<String> names = Collections.list(super.getHeaderNames());
+            names.removeIf(DecodedRequest::hidden);
+            return Collections.enumeration(names);
+        }
+
+        private static boolean hidden(String name) {
+            for (String h : HIDDEN) {
+                if (h.equalsIgnoreCase(name)) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Buffers up to {@code minSize} bytes; past that the response switches to the encoding. Anything smaller is
+     * written as is when the request completes.
+     */
+    private static final class CompressedResponse extends HttpServletResponseWrapper {
+        private final String coding;
+        private final Encoder encoder;
+        private final int minSize;
+        private final ByteArrayOutputStream head;
+        private OutputStream target;          // null while undecided
+        private long contentLength = -1;
+        private ServletOutputStream stream;
+        private PrintWriter writer;
+
+        CompressedResponse(HttpServletResponse response, String coding, Encoder encoder, int minSize) {
+            super(response);
+            this.coding = coding;
+            this.encoder = encoder;
+            this.minSize = minSize;
+            this.head = new ByteArrayOutputStream(Math.max(minSize, 64));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            if (stream == null) {
+                stream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        write(new byte[]{(byte) b}, 0, 1);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        if (target != null) {
+                            target.write(b, off, len);
+                            return;
+                        }
+                        head.write(b, off, len);
+                        if (head.size() > minSize) compress();
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        // undecided: a small response is still being held back, nothing to flush yet
+                        if (target != null) target.flush();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return true;
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener listener) {
+                        throw new UnsupportedOperationException("Non-blocking writes of encoded bodies");
+                    }
+                };
+            }
+            return stream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) writer.flush();
+            if (target != null) {
+                target.flush();
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            contentLength = len;
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            contentLength = len;
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                contentLength = value == null ? -1 : Long.parseLong(value);
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setHeader(name, value);
+            } else {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            if (target == null) head.reset();
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            if (target == null) head.reset();
+            contentLength = -1;
+        }
+
+        private void compress() throws IOException {
+            super.setHeader(HttpHeaders.CONTENT_ENCODING, coding);
+            OutputStream raw = new FilterOutputStream(super.getOutputStream()) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    // the container closes the response stream
+                    flush();
+                }
+            };
+            target = encoder.open(raw);
+            head.writeTo(target);
+            head.reset();
+        }
+
+        void finish() throws IOException {
+            if (writer != null) writer.flush();
+            if (target != null) {
+                target.close();
+                return;
+            }
+            if (head.size() == 0 && contentLength < 0) return;
+            super.setContentLengthLong(head.size());
+            head.writeTo(super.getOutputStream());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.megha.bank.controller;
+
+import com.megha.bank.service.PositionEngine;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/** Read API over the in-memory {@link PositionEngine}; no database access. */
+@RestController
+@RequestMapping("/api/positions")
+@ConditionalOnProperty(name = "mt.positions.enabled", havingValue = "true", matchIfMissing = true)
+public class PositionController {
+
+    private final PositionEngine positions;
+
+    public PositionController(PositionEngine positions) {
+        this.positions = positions;
+    }
+
+    // Every instrument at one instant
+    @GetMapping
+    public PositionEngine.Snapshot all() {
+        return positions.snapshot();
+    }
+
+    @GetMapping("/{instrument}")
+    public ResponseEntity<PositionEngine.Position> one(@PathVariable String instrument) {
+        PositionEngine.Position p = positions.get(instrument);
+        return p == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(p);
+    }
+}
@@ -0,0 +1,61 @@
+package com.megha.bank.controller;
+
+import com.megha.bank.model.Trade;
+import com.megha.bank.reactive.ReactiveTradeService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * WebFlux version of {@link TradeController}'s single-message endpoints, active on the reactive stack only
+ * (see ReactiveStackConfig). Same paths, body, X-MT-RESPONSE header and ApiResponse JSON.
+ */
+@RestController
+@RequestMapping("/api/trade")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveTradeController {
+
+    private final ReactiveTradeService tradeService;
+
+    @Value("${mt.http.echo-response-header:true}")
+    private boolean echoResponseHeader = true;
+
+    public ReactiveTradeController(ReactiveTradeService tradeService) {
+        this.tradeService = tradeService;
+    }
+
+    @PostMapping(value = "/buy", consumes = MediaType.TEXT_PLAIN_VALUE)
+    public Mono<ResponseEntity<TradeController.ApiResponse>> buy(@RequestBody String mtMessage) {
+        return handle(mtMessage, Trade.Type.BUY);
+    }
+
+    @PostMapping(value = "/sell", consumes = MediaType.TEXT_PLAIN_VALUE)
+    public Mono<ResponseEntity<TradeController.ApiResponse>> sell(@RequestBody String mtMessage) {
+        return handle(mtMessage, Trade.Type.SELL);
+    }
+
+    @PostMapping(value = "/cancel", consumes = MediaType.TEXT_PLAIN_VALUE)
+    public Mono<ResponseEntity<TradeController.ApiResponse>> cancel(@RequestBody String mtMessage) {
+        return handle(mtMessage, Trade.Type.CANCEL);
+    }
+
+    private Mono<ResponseEntity<TradeController.ApiResponse>> handle(String mtMessage, Trade.Type type) {
+        return tradeService.processMtMessage(mtMessage, type)
+                .map(res -> (echoResponseHeader
+                        ? ResponseEntity.ok().header("X-MT-RESPONSE", res.getMtResponse())
+                        : ResponseEntity.ok())
+                        .body(new TradeController.ApiResponse(res.getTrade(), res.getMtResponse(), res.isSuccess())));
+    }
+
+    // Over mt.reactive.max-in-flight: fail fast so the client backs off
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<String> overloaded(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+    }
+}
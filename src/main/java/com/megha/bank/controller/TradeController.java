@@ -1,18 +1,60 @@
 package com.megha.bank.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.megha.bank.model.Trade;
+import com.megha.bank.service.AdmissionControl;
+import com.megha.bank.service.ClusterMembership;
+import com.megha.bank.service.TradeSequencer;
 import com.megha.bank.service.TradeService;
+import com.megha.bank.util.MTMessageParser;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/trade")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class TradeController {
 
     private final TradeService tradeService;
 
+    // Orders BUY/SELL/CANCEL per tradeRef (mt.sequencer.enabled=true)
+    @Autowired(required = false)
+    private TradeSequencer sequencer;
+
+    // X-MT-RESPONSE repeats mtResponse from the body; clients that read the body can turn it off
+    @Value("${mt.http.echo-response-header:true}")
+    private boolean echoResponseHeader = true;
+
+    // mt.cluster.enabled: messages whose REF another node owns are forwarded there or rejected with 421
+    @Autowired(required = false)
+    private ClusterMembership cluster;
+
+    @Autowired(required = false)
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    // mt.admission.enabled: requests over the adaptive concurrency limit are NAKed with 503/429 instead of queueing
+    @Autowired(required = false)
+    private AdmissionControl admission;
+
     public TradeController(TradeService tradeService) {
         this.tradeService = tradeService;
     }
@@ -20,30 +62,212 @@ public class TradeController {
     // Endpoint to receive a BUY MT message (raw MT format text in body)
     @PostMapping(value = "/buy", consumes = MediaType.TEXT_PLAIN_VALUE)
     public ResponseEntity<?> buy(@RequestBody String mtMessage) {
-        TradeService.ProcessResult res = tradeService.processMtMessage(mtMessage, Trade.Type.BUY);
-        HttpHeaders headers = new HttpHeaders();
-        headers.add("X-MT-RESPONSE", res.getMtResponse());
-        return ResponseEntity.ok().headers(headers).body(new ApiResponse(res.getTrade(), res.getMtResponse(), res.isSuccess()));
+        return handle(mtMessage, Trade.Type.BUY);
     }
 
     // Endpoint to receive a SELL MT message
     @PostMapping(value = "/sell", consumes = MediaType.TEXT_PLAIN_VALUE)
     public ResponseEntity<?> sell(@RequestBody String mtMessage) {
-        TradeService.ProcessResult res = tradeService.processMtMessage(mtMessage, Trade.Type.SELL);
-        HttpHeaders headers = new HttpHeaders();
-        headers.add("X-MT-RESPONSE", res.getMtResponse());
-        return ResponseEntity.ok().headers(headers).body(new ApiResponse(res.getTrade(), res.getMtResponse(), res.isSuccess()));
+        return handle(mtMessage, Trade.Type.SELL);
     }
 
     // Endpoint to receive a CANCEL MT message
     @PostMapping(value = "/cancel", consumes = MediaType.TEXT_PLAIN_VALUE)
     public ResponseEntity<?> cancel(@RequestBody String mtMessage) {
-        TradeService.ProcessResult res = tradeService.processMtMessage(mtMessage, Trade.Type.CANCEL);
+        return handle(mtMessage, Trade.Type.CANCEL);
+    }
+
+    // Binary variants: the message fields as a CBOR map (see TradeRequest) instead of MT text
+    @PostMapping(value = "/buy", consumes = MediaType.APPLICATION_CBOR_VALUE)
+    public ResponseEntity<?> buy(@RequestBody TradeRequest request) {
+        return handle(request.toMtMessage(Trade.Type.BUY), Trade.Type.BUY);
+    }
+
+    @PostMapping(value = "/sell", consumes = MediaType.APPLICATION_CBOR_VALUE)
+    public ResponseEntity<?> sell(@RequestBody TradeRequest request) {
+        return handle(request.toMtMessage(Trade.Type.SELL), Trade.Type.SELL);
+    }
+
+    @PostMapping(value = "/cancel", consumes = MediaType.APPLICATION_CBOR_VALUE)
+    public ResponseEntity<?> cancel(@RequestBody TradeRequest request) {
+        return handle(request.toMtMessage(Trade.Type.CANCEL), Trade.Type.CANCEL);
+    }
+
+    // Endpoint to receive many MT messages separated by blank lines; each message carries its own TYPE
+    @PostMapping(value = "/batch", consumes = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<BatchResponse> batch(@RequestBody String mtMessages) {
+        return processBatch(MTMessageParser.splitMessages(mtMessages));
+    }
+
+    // CBOR array of TradeRequest, each with its type
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_CBOR_VALUE)
+    public ResponseEntity<BatchResponse> batch(@RequestBody List<TradeRequest> requests) {
+        List<String> messages = new ArrayList<>(requests.size());
+        for (TradeRequest r : requests) messages.add(r.toMtMessage(null));
+        return processBatch(messages);
+    }
+
+    private ResponseEntity<BatchResponse> processBatch(List<String> mtMessages) {
+        AdmissionControl.Permit permit = null;
+        if (admission != null && (permit = admission.tryAcquireBatch()) == null) return overloadedBatch(mtMessages);
+        try {
+            return processAdmittedBatch(mtMessages);
+        } finally {
+            if (permit != null) permit.release(false);
+        }
+    }
+
+    private ResponseEntity<BatchResponse> processAdmittedBatch(List<String> mtMessages) {
+        BatchItem[] items = new BatchItem[mtMessages.size()];
+        // indexes of messages owned by another node, by owner
+        Map<String, List<Integer>> remote = new TreeMap<>();
+        List<Integer> local = new ArrayList<>(mtMessages.size());
+        for (int i = 0; i < mtMessages.size(); i++) {
+            String owner = cluster == null ? null : cluster.remoteOwner(mtMessages.get(i));
+            if (owner == null) local.add(i);
+            else remote.computeIfAbsent(owner, o -> new ArrayList<>()).add(i);
+        }
+
+        // sub-batches go out before the local part runs, so the owners work on them at the same time
+        Map<String, CompletableFuture<ClusterMembership.Forwarded>> forwarded = new TreeMap<>();
+        if (!remote.isEmpty() && forwardToOwners()) {
+            remote.forEach((owner, indexes) -> forwarded.put(owner, cluster.forward(owner, "/api/trade/batch",
+                    String.join("\n\n", select(mtMessages, indexes)), MediaType.APPLICATION_JSON_VALUE)));
+        }
+
+        List<TradeService.ProcessResult> results = tradeService.processBatch(
+                remote.isEmpty() ? mtMessages : select(mtMessages, local));
+        for (int i = 0; i < results.size(); i++) {
+            TradeService.ProcessResult r = results.get(i);
+            int index = local.get(i);
+            String tradeRef = r.getTrade() == null ? null : r.getTrade().getTradeRef();
+            items[index] = new BatchItem(index, tradeRef, r.getMtResponse(), r.isSuccess());
+        }
+        remote.forEach((owner, indexes) -> mergeRemote(owner, indexes, forwarded.get(owner), mtMessages, items));
+
+        int accepted = 0;
+        for (BatchItem item : items) {
+            if (item.isSuccess()) accepted++;
+        }
+        return ResponseEntity.ok(new BatchResponse(accepted, items.length - accepted, Arrays.asList(items)));
+    }
+
+    // Fills in the owner's answers for its sub-batch; NAKs them if it was not forwarded or the owner failed
+    private void mergeRemote(String owner, List<Integer> indexes, CompletableFuture<ClusterMembership.Forwarded> pending,
+                             List<String> mtMessages, BatchItem[] items) {
+        JsonNode results = null;
+        String reason = "NOT_OWNER: " + owner;
+        if (pending != null) {
+            reason = "OWNER_UNAVAILABLE: " + owner;
+            try {
+                ClusterMembership.Forwarded f = pending.join();
+                if (f.getStatus() == 200) results = objectMapper.readTree(f.getBody()).path("results");
+            } catch (CompletionException | IOException e) {
+                // answered below as OWNER_UNAVAILABLE
+            }
+        }
+        for (int i = 0; i < indexes.size(); i++) {
+            int index = indexes.get(i);
+            JsonNode r = results == null ? null : results.get(i);
+            items[index] = r != null
+                    ? new BatchItem(index, r.path("tradeRef").textValue(), r.path("mtResponse").textValue(),
+                            r.path("success").asBoolean())
+                    : new BatchItem(index, null, cluster.reject(mtMessages.get(index), reason), false);
+        }
+    }
+
+    private ResponseEntity<?> handle(String mtMessage, Trade.Type type) {
+        String owner = cluster == null ? null : cluster.remoteOwner(mtMessage);
+        if (owner != null) return routeToOwner(owner, mtMessage, type);
+        TradeService.ProcessResult res;
+        if (admission == null) {
+            res = process(mtMessage, type);
+        } else {
+            AdmissionControl.Permit permit = admission.tryAcquire(type);
+            if (permit == null) return overloaded(mtMessage);
+            boolean dropped = true;
+            try {
+                res = process(mtMessage, type);
+                dropped = res.getOutcome() == TradeService.Outcome.ERROR;
+            } finally {
+                permit.release(dropped);
+            }
+        }
         HttpHeaders headers = new HttpHeaders();
-        headers.add("X-MT-RESPONSE", res.getMtResponse());
+        if (echoResponseHeader) headers.add("X-MT-RESPONSE", res.getMtResponse());
         return ResponseEntity.ok().headers(headers).body(new ApiResponse(res.getTrade(), res.getMtResponse(), res.isSuccess()));
     }
 
+    private TradeService.ProcessResult process(String mtMessage, Trade.Type type) {
+        if (tradeService.journaling()) {
+            // the journal orders messages itself; no sequencer needed
+            return tradeService.journalMtMessage(mtMessage, type);
+        }
+        if (sequencer != null) return sequencer.process(mtMessage, type);
+        return tradeService.processMtMessage(mtMessage, type);
+    }
+
+    // Not admitted: an OVERLOADED NAK with mt.admission.reject-status and Retry-After, without touching the database
+    private ResponseEntity<?> overloaded(String mtMessage) {
+        String nak = admission.reject(mtMessage);
+        HttpHeaders headers = overloadedHeaders();
+        if (echoResponseHeader) headers.add("X-MT-RESPONSE", nak);
+        return ResponseEntity.status(admission.rejectStatus()).headers(headers).body(new ApiResponse(null, nak, false));
+    }
+
+    private ResponseEntity<BatchResponse> overloadedBatch(List<String> mtMessages) {
+        List<BatchItem> items = new ArrayList<>(mtMessages.size());
+        for (int i = 0; i < mtMessages.size(); i++) items.add(new BatchItem(i, null, admission.reject(mtMessages.get(i)), false));
+        return ResponseEntity.status(admission.rejectStatus()).headers(overloadedHeaders())
+                .body(new BatchResponse(0, items.size(), items));
+    }
+
+    private HttpHeaders overloadedHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.RETRY_AFTER, Long.toString(admission.retryAfterSeconds()));
+        return headers;
+    }
+
+    // Relays the owner's response as it is, or answers 421 (reject mode) / 503 (owner unreachable) with a NAK
+    private ResponseEntity<?> routeToOwner(String owner, String mtMessage, Trade.Type type) {
+        if (!forwardToOwners()) return notProcessed(421, owner, mtMessage, "NOT_OWNER: " + owner);
+        ClusterMembership.Forwarded f;
+        try {
+            f = cluster.forward(owner, "/api/trade/" + type.name().toLowerCase(), mtMessage,
+                    currentRequest().getHeader(HttpHeaders.ACCEPT)).join();
+        } catch (CompletionException e) {
+            return notProcessed(HttpStatus.SERVICE_UNAVAILABLE.value(), owner, mtMessage, "OWNER_UNAVAILABLE: " + owner);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        if (f.getContentType() != null) headers.add(HttpHeaders.CONTENT_TYPE, f.getContentType());
+        if (echoResponseHeader && f.getMtResponseHeader() != null) headers.add("X-MT-RESPONSE", f.getMtResponseHeader());
+        return ResponseEntity.status(f.getStatus()).headers(headers).body(f.getBody());
+    }
+
+    private ResponseEntity<?> notProcessed(int status, String owner, String mtMessage, String reason) {
+        String nak = cluster.reject(mtMessage, reason);
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(ClusterMembership.OWNER_HEADER, owner);
+        if (echoResponseHeader) headers.add("X-MT-RESPONSE", nak);
+        return ResponseEntity.status(status).headers(headers).body(new ApiResponse(null, nak, false));
+    }
+
+    // A request another member already forwarded is never forwarded again, so members with different rings cannot loop
+    private boolean forwardToOwners() {
+        return cluster.mode() == ClusterMembership.Mode.FORWARD
+                && currentRequest().getHeader(ClusterMembership.FORWARDED_HEADER) == null;
+    }
+
+    private static HttpServletRequest currentRequest() {
+        return ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+    }
+
+    private static List<String> select(List<String> messages, List<Integer> indexes) {
+        List<String> out = new ArrayList<>(indexes.size());
+        for (int i : indexes) out.add(messages.get(i));
+        return out;
+    }
+
     public static class ApiResponse {
         private final Trade trade;
         private final String mtResponse;
@@ -59,4 +283,83 @@ public class TradeController {
         public String getMtResponse() { return mtResponse; }
         public boolean isSuccess() { return success; }
     }
+
+    /**
+     * Binary (CBOR) request body: the fields of an MT message. It is turned into the equivalent key:value text, so
+     * parsing, audit and replay detection work exactly as for text requests. {@code type} is only read on /batch.
+     */
+    public static class TradeRequest {
+        private String type;
+        private String ref;
+        private String instrument;
+        private Long quantity;
+        private Double price;
+        private String origRef;
+
+        public String getType() { return type; }
+        public void setType(String type) { this.type = type; }
+        public String getRef() { return ref; }
+        public void setRef(String ref) { this.ref = ref; }
+        public String getInstrument() { return instrument; }
+        public void setInstrument(String instrument) { this.instrument = instrument; }
+        public Long getQuantity() { return quantity; }
+        public void setQuantity(Long quantity) { this.quantity = quantity; }
+        public Double getPrice() { return price; }
+        public void setPrice(Double price) { this.price = price; }
+        public String getOrigRef() { return origRef; }
+        public void setOrigRef(String origRef) { this.origRef = origRef; }
+
+        /** The MT text for this request; {@code endpointType} overrides {@code type} when not null. */
+        public String toMtMessage(Trade.Type endpointType) {
+            StringBuilder sb = new StringBuilder(96);
+            line(sb, "TYPE", endpointType != null ? endpointType.name() : type);
+            line(sb, "REF", ref);
+            line(sb, "INST", instrument);
+            line(sb, "QTY", quantity);
+            line(sb, "PRC", price);
+            line(sb, "ORIG_REF", origRef);
+            return sb.toString();
+        }
+
+        private static void line(StringBuilder sb, String key, Object value) {
+            if (value == null) return;
+            if (sb.length() > 0) sb.append('\n');
+            sb.append(key).append(':').append(value);
+        }
+    }
+
+    public static class BatchItem {
+        private final int index;
+        private final String tradeRef;
+        private final String mtResponse;
+        private final boolean success;
+
+        public BatchItem(int index, String tradeRef, String mtResponse, boolean success) {
+            this.index = index;
+            this.tradeRef = tradeRef;
+            this.mtResponse = mtResponse;
+            this.success = success;
+        }
+
+        public int getIndex() { return index; }
+        public String getTradeRef() { return tradeRef; }
+        public String getMtResponse() { return mtResponse; }
+        public boolean isSuccess() { return success; }
+    }
+
+    public static class BatchResponse {
+        private final int accepted;
+        private final int rejected;
+        private final List<BatchItem> results;
+
+        public BatchResponse(int accepted, int rejected, List<BatchItem> results) {
+            this.accepted = accepted;
+            this.rejected = rejected;
+            this.results = results;
+        }
+
+        public int getAccepted() { return accepted; }
+        public int getRejected() { return rejected; }
+        public List<BatchItem> getResults() { return results; }
+    }
 }
@@ -0,0 +1,148 @@
+package com.megha.bank.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.megha.bank.model.Trade;
+import com.megha.bank.model.TradeView;
+import com.megha.bank.repository.TradeQueryRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Read API over trades: filter by instrument, status, type and createdAt range ({@code from} inclusive, {@code to}
+ * exclusive, ISO date-times), ordered by (createdAt, id).
+ *
+ * JSON: one page of up to {@code limit} trades plus a {@code next} cursor; pass it back as {@code after} for the
+ * following page (null on the last page). With {@code Accept: application/x-ndjson}: every matching trade, one JSON
+ * object per line, read and written {@value #STREAM_PAGE} rows at a time so memory stays flat for any extract size.
+ */
+@RestController
+@RequestMapping("/api/trade")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class TradeQueryController {
+
+    static final String NDJSON = "application/x-ndjson";
+    static final int STREAM_PAGE = 500;
+    private static final int MAX_LIMIT = 1000;
+
+    private final TradeQueryRepository queries;
+    private final ObjectMapper lineMapper;
+
+    public TradeQueryController(TradeQueryRepository queries, ObjectMapper objectMapper) {
+        this.queries = queries;
+        // one object per line, never pretty-printed; the response stream stays open and is flushed once per page
+        this.lineMapper = objectMapper.copy()
+                .disable(SerializationFeature.INDENT_OUTPUT)
+                .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public TradePage page(@RequestParam(required = false) String instrument,
+                          @RequestParam(required = false) Trade.Status status,
+                          @RequestParam(required = false) Trade.Type type,
+                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                          @RequestParam(required = false) String after,
+                          @RequestParam(defaultValue = "100") int limit) {
+        TradeQueryRepository.Filter f = filter(instrument, status, type, from, to);
+        int n = Math.max(1, Math.min(limit, MAX_LIMIT));
+        List<TradeView> items;
+        if (after == null) {
+            items = queries.page(f, null, null, n);
+        } else {
+            Cursor c = Cursor.parse(after);
+            items = queries.page(f, c.createdAt, c.id, n);
+        }
+        String next = items.size() < n ? null : Cursor.of(items.get(items.size() - 1));
+        return new TradePage(items, next);
+    }
+
+    @GetMapping(produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> stream(
+            @RequestParam(required = false) String instrument,
+            @RequestParam(required = false) Trade.Status status,
+            @RequestParam(required = false) Trade.Type type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        TradeQueryRepository.Filter f = filter(instrument, status, type, from, to);
+        StreamingResponseBody body = out -> {
+            LocalDateTime afterCreatedAt = null;
+            Long afterId = null;
+            List<TradeView> page;
+            do {
+                // each page is its own short read; no transaction or cursor stays open while the client reads
+                page = queries.page(f, afterCreatedAt, afterId, STREAM_PAGE);
+                for (TradeView t : page) {
+                    lineMapper.writeValue(out, t);
+                    out.write('\n');
+                }
+                out.flush();
+                if (!page.isEmpty()) {
+                    TradeView last = page.get(page.size() - 1);
+                    afterCreatedAt = last.getCreatedAt();
+                    afterId = last.getId();
+                }
+            } while (page.size() == STREAM_PAGE);
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    private static TradeQueryRepository.Filter filter(String instrument, Trade.Status status, Trade.Type type,
+                                                      LocalDateTime from, LocalDateTime to) {
+        TradeQueryRepository.Filter f = new TradeQueryRepository.Filter();
+        f.instrument = instrument;
+        f.status = status;
+        f.type = type;
+        f.from = from;
+        f.to = to;
+        return f;
+    }
+
+    /** Position after a row: {@code <createdAt ISO>_<id>}. */
+    static final class Cursor {
+        final LocalDateTime createdAt;
+        final long id;
+
+        private Cursor(LocalDateTime createdAt, long id) {
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+
+        static String of(TradeView t) {
+            return t.getCreatedAt() + "_" + t.getId();
+        }
+
+        static Cursor parse(String s) {
+            int sep = s.lastIndexOf('_');
+            try {
+                return new Cursor(LocalDateTime.parse(s.substring(0, sep)), Long.parseLong(s.substring(sep + 1)));
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor: " + s);
+            }
+        }
+    }
+
+    public static class TradePage {
+        private final List<TradeView> items;
+        private final String next;
+
+        public TradePage(List<TradeView> items, String next) {
+            this.items = items;
+            this.next = next;
+        }
+
+        public List<TradeView> getItems() { return items; }
+        public String getNext() { return next; }
+    }
+}
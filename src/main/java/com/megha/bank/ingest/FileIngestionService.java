@@ -0,0 +1,188 @@
+package com.megha.bank.ingest;
+
+import com.megha.bank.service.TradeService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * File ingestion channel ({@code mt.ingest.enabled=true}). A background thread polls {@code mt.ingest.directory}
+ * every {@code mt.ingest.poll-interval-ms} for files matching {@code mt.ingest.pattern} (default {@code *.mt}) holding
+ * blank-line separated MT messages. Producers should write files elsewhere and move them in, so a file is never
+ * picked up half-written.
+ *
+ * Each file is read through a memory-mapped window ({@link MappedMessageReader}) and processed in chunks of
+ * {@code mt.ingest.chunk-size} messages, one {@link TradeService#processBatch} transaction per chunk, so memory use
+ * is bounded by the chunk and the window, not the file. The ACK/NAK for each message is appended, in input order and
+ * blank-line separated, to {@code <file>.result}. After each chunk the result file is forced to disk and
+ * {@code <file>.ckpt} records the input offset and result length. After a crash, processing resumes from the
+ * checkpoint: the result file is truncated back to the checkpointed length and at most the last chunk is processed
+ * again. Finished files are renamed to {@code <file>.done} and their checkpoint is removed.
+ */
+@Service
+@ConditionalOnProperty(name = "mt.ingest.enabled", havingValue = "true")
+public class FileIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(FileIngestionService.class);
+
+    private static final String SEPARATOR = "\n\n";
+
+    private final TradeService tradeService;
+    private final Path directory;
+    private final String pattern;
+    private final int chunkSize;
+    private final int windowBytes;
+    private final long pollIntervalMs;
+    private final Counter messages;
+    private final Counter files;
+    private final ReentrantLock scanLock = new ReentrantLock();
+    private final Thread pollerThread;
+    private volatile boolean running = true;
+
+    public FileIngestionService(TradeService tradeService,
+                                MeterRegistry meterRegistry,
+                                @Value("${mt.ingest.directory:data/inbound}") String directory,
+                                @Value("${mt.ingest.pattern:*.mt}") String pattern,
+                                @Value("${mt.ingest.chunk-size:500}") int chunkSize,
+                                @Value("${mt.ingest.map-window-mb:64}") int mapWindowMb,
+                                @Value("${mt.ingest.poll-interval-ms:1000}") long pollIntervalMs) {
+        this.tradeService = tradeService;
+        this.directory = Path.of(directory);
+        this.pattern = pattern;
+        this.chunkSize = chunkSize;
+        this.windowBytes = mapWindowMb << 20;
+        this.pollIntervalMs = pollIntervalMs;
+        this.messages = Counter.builder("mt.ingest.messages").register(meterRegistry);
+        this.files = Counter.builder("mt.ingest.files").register(meterRegistry);
+        this.pollerThread = new Thread(this::pollLoop, "mt-ingest");
+        this.pollerThread.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        pollerThread.start();
+    }
+
+    /** Processes every matching file in the directory; returns how many were completed. */
+    public int scan() {
+        scanLock.lock();
+        try {
+            List<Path> inputs = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, pattern)) {
+                for (Path p : stream) {
+                    if (Files.isRegularFile(p)) inputs.add(p);
+                }
+            } catch (IOException e) {
+                log.error("Cannot list {}", directory, e);
+                return 0;
+            }
+            inputs.sort(null);
+            int completed = 0;
+            for (Path input : inputs) {
+                if (!running) break;
+                try {
+                    if (ingest(input)) completed++;
+                } catch (Exception e) {
+                    // progress up to the last checkpoint is kept; the file is retried on the next poll
+                    log.error("Ingestion of {} failed, will resume from its checkpoint", input, e);
+                }
+            }
+            return completed;
+        } finally {
+            scanLock.unlock();
+        }
+    }
+
+    /** Processes {@code input} from its checkpoint; returns true once the whole file is done. */
+    boolean ingest(Path input) throws IOException {
+        Path resultFile = sibling(input, ".result");
+        Path checkpointFile = sibling(input, ".ckpt");
+        IngestCheckpoint checkpoint = IngestCheckpoint.read(checkpointFile);
+        if (checkpoint.inputOffset > 0) {
+            log.info("Resuming {} at offset {}", input, checkpoint.inputOffset);
+        }
+
+        boolean eof = false;
+        try (MappedMessageReader reader = new MappedMessageReader(input, checkpoint.inputOffset, windowBytes);
+             FileChannel out = FileChannel.open(resultFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // drop results written after the last checkpoint; their messages are processed again
+            out.truncate(checkpoint.resultLength);
+            out.position(checkpoint.resultLength);
+
+            List<String> chunk = new ArrayList<>(chunkSize);
+            while (running) {
+                chunk.clear();
+                String m;
+                while (chunk.size() < chunkSize && (m = reader.next()) != null) chunk.add(m);
+                if (chunk.isEmpty()) {
+                    eof = true;
+                    break;
+                }
+                List<TradeService.ProcessResult> results = tradeService.processBatch(chunk);
+                writeResults(out, results);
+                out.force(false);
+                new IngestCheckpoint(reader.position(), out.position()).write(checkpointFile);
+                messages.increment(chunk.size());
+            }
+        }
+        if (!eof) return false;
+
+        Files.move(input, sibling(input, ".done"), StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(checkpointFile);
+        files.increment();
+        log.info("Ingested {}", input);
+        return true;
+    }
+
+    // one write per chunk
+    private static void writeResults(FileChannel out, List<TradeService.ProcessResult> results) throws IOException {
+        StringBuilder sb = new StringBuilder(results.size() * 128);
+        for (TradeService.ProcessResult r : results) {
+            sb.append(r.getMtResponse()).append(SEPARATOR);
+        }
+        ByteBuffer buf = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        while (buf.hasRemaining()) out.write(buf);
+    }
+
+    private static Path sibling(Path input, String suffix) {
+        return input.resolveSibling(input.getFileName() + suffix);
+    }
+
+    private void pollLoop() {
+        while (running) {
+            scan();
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(pollIntervalMs));
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // stops after the current chunk; the file resumes from its checkpoint on the next start. No interrupt: it
+        // would close the FileChannels mid-write.
+        running = false;
+        LockSupport.unpark(pollerThread);
+        pollerThread.join();
+    }
+}
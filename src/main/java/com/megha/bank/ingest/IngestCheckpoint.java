@@ -0,0 +1,38 @@
+package com.megha.bank.ingest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Progress of one input file: the input offset up to which messages have been committed and the length of the
+ * result file at that point. Stored as one text line ({@code <inputOffset> <resultLength>}) and replaced atomically
+ * via a temp file and rename, so a crash leaves either the old or the new checkpoint.
+ */
+final class IngestCheckpoint {
+
+    static final IngestCheckpoint START = new IngestCheckpoint(0, 0);
+
+    final long inputOffset;
+    final long resultLength;
+
+    IngestCheckpoint(long inputOffset, long resultLength) {
+        this.inputOffset = inputOffset;
+        this.resultLength = resultLength;
+    }
+
+    static IngestCheckpoint read(Path file) throws IOException {
+        if (!Files.exists(file)) return START;
+        String[] parts = Files.readString(file, StandardCharsets.US_ASCII).trim().split(" ");
+        if (parts.length != 2) throw new IOException("Corrupt checkpoint " + file);
+        return new IngestCheckpoint(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+    }
+
+    void write(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(tmp, inputOffset + " " + resultLength + "\n", StandardCharsets.US_ASCII);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
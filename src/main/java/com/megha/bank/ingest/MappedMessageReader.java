@@ -0,0 +1,123 @@
+package com.megha.bank.ingest;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads blank-line separated MT messages (the framing of {@code MTMessageParser.splitMessages}) from a file through
+ * a sliding memory-mapped window, starting at a byte offset. Only the window and the current message are in memory,
+ * so files larger than the heap (or 2 GB) can be read. Text is decoded as UTF-8 one message at a time.
+ *
+ * The window is remapped at the start of a message that runs past its end, and doubled when a single message is
+ * larger than the window.
+ */
+class MappedMessageReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final long size;
+    private int windowBytes;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+
+    MappedMessageReader(Path file, long startOffset, int windowBytes) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowBytes = windowBytes;
+        this.position = Math.min(startOffset, size);
+    }
+
+    /** Byte offset just after the last message returned; resuming here continues with the next message. */
+    long position() {
+        return position;
+    }
+
+    long size() {
+        return size;
+    }
+
+    /** Next message (without its trailing blank lines), or null at end of file. */
+    String next() throws IOException {
+        long start = -1;
+        long pos = position;
+        while (pos < size) {
+            long keep = start >= 0 ? start : pos;
+            long lineEnd = indexOfNewline(keep, pos);
+            boolean blank = isBlank(keep, pos, lineEnd);
+            if (blank && start >= 0) {
+                return message(start, pos);
+            }
+            if (!blank && start < 0) {
+                start = pos;
+            }
+            pos = lineEnd < size ? lineEnd + 1 : size;
+        }
+        if (start < 0) {
+            position = size;
+            return null;
+        }
+        return message(start, size);
+    }
+
+    private String message(long start, long end) throws IOException {
+        byte[] bytes = new byte[(int) (end - start)];
+        if (bytes.length > 0) {
+            ensureMapped(start, end - 1);
+            window.get((int) (start - windowStart), bytes, 0, bytes.length);
+        }
+        position = end;
+        // drop the line break that ends the last line, as splitMessages does
+        int len = bytes.length;
+        if (len > 0 && bytes[len - 1] == '\n') len--;
+        return new String(bytes, 0, len, StandardCharsets.UTF_8);
+    }
+
+    /** Index of the next '\n' at or after {@code from}, or {@code size}. */
+    private long indexOfNewline(long keep, long from) throws IOException {
+        for (long pos = from; pos < size; pos++) {
+            if (byteAt(keep, pos) == '\n') return pos;
+        }
+        return size;
+    }
+
+    private boolean isBlank(long keep, long from, long to) throws IOException {
+        for (long pos = from; pos < to; pos++) {
+            if (!isWhitespace(byteAt(keep, pos))) return false;
+        }
+        return true;
+    }
+
+    private byte byteAt(long keep, long pos) throws IOException {
+        ensureMapped(keep, pos);
+        return window.get((int) (pos - windowStart));
+    }
+
+    /**
+     * Makes sure {@code pos} is inside the window. If not, remaps starting at {@code keepFrom} (the start of the
+     * current message) so the whole message stays addressable from one window, growing the window if needed.
+     */
+    private void ensureMapped(long keepFrom, long pos) throws IOException {
+        if (window != null && keepFrom >= windowStart && pos < windowStart + window.limit()) return;
+        while (pos - keepFrom >= windowBytes) {
+            windowBytes = (int) Math.min((long) windowBytes * 2, Integer.MAX_VALUE - 8);
+        }
+        long length = Math.min(windowBytes, size - keepFrom);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, keepFrom, length);
+        windowStart = keepFrom;
+    }
+
+    // ASCII subset of Character.isWhitespace, which splitMessages uses for blank lines
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1C && b <= 0x1F);
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,197 @@
+package com.megha.bank.messaging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous MessagePublisher: {@link #publish} only enqueues, a background thread sends the queued messages in
+ * batches grouped by routing key through a {@link ConfirmingSender} and tracks the publisher confirm of every message.
+ *
+ * When called inside a transaction the message is enqueued only after the transaction commits (and dropped on
+ * rollback), so no ACK leaves for a trade that was never saved and the broker round-trip is off the request path.
+ * Nacked or unconfirmed messages go to a bounded retry buffer and are re-sent up to {@code maxAttempts} times;
+ * when the retry buffer is full the message is dropped and counted.
+ */
+public class AsyncBatchingPublisher implements MessagePublisher, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncBatchingPublisher.class);
+
+    private final ConfirmingSender sender;
+    private final BlockingQueue<Pending> queue;
+    private final BlockingQueue<Pending> retries;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final int maxAttempts;
+    private final Counter confirmed;
+    private final Counter nacked;
+    private final Counter dropped;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    public AsyncBatchingPublisher(ConfirmingSender sender, MeterRegistry meterRegistry, int queueCapacity,
+                                  int batchSize, long flushIntervalMs, int retryCapacity, int maxAttempts) {
+        this.sender = sender;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.retries = new ArrayBlockingQueue<>(retryCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxAttempts = maxAttempts;
+        Gauge.builder("mt.publisher.pending", queue, BlockingQueue::size).register(meterRegistry);
+        Gauge.builder("mt.publisher.retry.pending", retries, BlockingQueue::size).register(meterRegistry);
+        this.confirmed = Counter.builder("mt.publisher.confirmed").register(meterRegistry);
+        this.nacked = Counter.builder("mt.publisher.nacked").register(meterRegistry);
+        this.dropped = Counter.builder("mt.publisher.dropped").register(meterRegistry);
+        this.flusher = new Thread(this::flushLoop, "mt-publisher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    @Override
+    public void publish(String routingKey, String message) {
+        Pending p = new Pending(routingKey, message);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(p);
+                }
+            });
+        } else {
+            enqueue(p);
+        }
+    }
+
+    /** Sends on the caller's thread and waits for every confirm; no queue, no retry buffer, nothing dropped. */
+    @Override
+    public void publishAndConfirm(String routingKey, List<String> messages) {
+        List<CompletableFuture<Boolean>> confirms = sender.send(routingKey, messages);
+        int failed = 0;
+        for (CompletableFuture<Boolean> confirm : confirms) {
+            boolean ack;
+            try {
+                ack = Boolean.TRUE.equals(confirm.join());
+            } catch (RuntimeException e) {
+                ack = false; // not confirmed in time
+            }
+            if (ack) {
+                confirmed.increment();
+            } else {
+                nacked.increment();
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            throw new IllegalStateException(failed + " of " + messages.size() + " messages to " + routingKey
+                    + " were not confirmed");
+        }
+    }
+
+    /** Messages accepted but not yet handed to the sender. */
+    public int pending() {
+        return queue.size() + retries.size();
+    }
+
+    /** Stops the flusher after sending what is still queued; confirms still in flight are not waited for. */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    private void enqueue(Pending p) {
+        try {
+            // bounded: a slow broker pushes back on publishers instead of growing the heap
+            queue.put(p);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dropped.increment();
+            log.error("Interrupted while queueing message for {}, dropped", p.routingKey);
+        }
+    }
+
+    private void flushLoop() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (true) {
+            batch.clear();
+            retries.drainTo(batch, batchSize);
+            try {
+                // waiting here also spaces out retries while the broker is failing
+                if (running && batch.size() < batchSize) {
+                    Pending first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                    if (first != null) batch.add(first);
+                }
+            } catch (InterruptedException e) {
+                // only close() stops the loop
+            }
+            queue.drainTo(batch, batchSize - batch.size());
+            if (batch.isEmpty()) {
+                if (!running) return;
+                continue;
+            }
+            send(batch);
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        Map<String, List<Pending>> byKey = new LinkedHashMap<>();
+        for (Pending p : batch) {
+            byKey.computeIfAbsent(p.routingKey, k -> new ArrayList<>()).add(p);
+        }
+        for (Map.Entry<String, List<Pending>> e : byKey.entrySet()) {
+            List<Pending> group = e.getValue();
+            List<String> messages = new ArrayList<>(group.size());
+            for (Pending p : group) messages.add(p.message);
+            List<CompletableFuture<Boolean>> confirms;
+            try {
+                confirms = sender.send(e.getKey(), messages);
+            } catch (RuntimeException ex) {
+                log.warn("Send of {} messages to {} failed: {}", group.size(), e.getKey(), ex.toString());
+                group.forEach(this::retry);
+                continue;
+            }
+            for (int i = 0; i < group.size(); i++) {
+                Pending p = group.get(i);
+                confirms.get(i).whenComplete((ack, ex) -> {
+                    if (ex == null && Boolean.TRUE.equals(ack)) {
+                        confirmed.increment();
+                    } else {
+                        nacked.increment();
+                        retry(p);
+                    }
+                });
+            }
+        }
+    }
+
+    private void retry(Pending p) {
+        if (++p.attempts >= maxAttempts || !retries.offer(p)) {
+            dropped.increment();
+            log.error("Dropping message for {} after {} attempts", p.routingKey, p.attempts);
+        }
+    }
+
+    private static final class Pending {
+        final String routingKey;
+        final String message;
+        int attempts;
+
+        Pending(String routingKey, String message) {
+            this.routingKey = routingKey;
+            this.message = message;
+        }
+    }
+}
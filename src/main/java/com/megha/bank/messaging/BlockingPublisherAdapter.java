@@ -0,0 +1,24 @@
+package com.megha.bank.messaging;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Runs a blocking {@link MessagePublisher} (RabbitTemplate send, or the logging publisher) on a bounded scheduler so
+ * it never blocks an event-loop thread. The scheduler's task cap bounds how many publishes can be waiting.
+ */
+public class BlockingPublisherAdapter implements ReactiveMessagePublisher {
+
+    private final MessagePublisher delegate;
+    private final Scheduler scheduler;
+
+    public BlockingPublisherAdapter(MessagePublisher delegate, Scheduler scheduler) {
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Mono<Void> publish(String routingKey, String message) {
+        return Mono.<Void>fromRunnable(() -> delegate.publish(routingKey, message)).subscribeOn(scheduler);
+    }
+}
@@ -0,0 +1,13 @@
+package com.megha.bank.messaging;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends a batch of messages for one routing key and reports the broker's publisher confirm for each of them
+ * (true = acked, false = nacked or not confirmed in time).
+ */
+@FunctionalInterface
+public interface ConfirmingSender {
+    List<CompletableFuture<Boolean>> send(String routingKey, List<String> messages);
+}
@@ -0,0 +1,148 @@
+package com.megha.bank.messaging;
+
+import com.megha.bank.service.TradeService;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareBatchMessageListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Consumes MT messages from RabbitMQ in batches (manual acknowledgement). Each message carries its own TYPE, as on
+ * the {@code /batch} endpoint, and the whole batch goes through one {@link TradeService#processBatch} transaction.
+ * Deliveries are acked with a single multiple-ack after that transaction has committed, so a crash before the ack
+ * redelivers them; a redelivered message is then answered as a replay (IdempotencyService) instead of being booked
+ * twice. The ACK/NAKs are published by TradeService as for every other channel.
+ *
+ * A NAK is a processed message and is acked like an ACK. If the batch transaction fails, its messages are retried
+ * one at a time so that one bad message does not hold back the others; a message that still fails (the poison
+ * message) is rejected without requeue and the broker moves it to the dead-letter queue.
+ *
+ * Failures that say nothing about the message - the database is unreachable, a connection or transaction cannot be
+ * had, a lock timed out - are not dead-lettered: the unsettled messages are requeued after a pause of
+ * {@code retryDelayMs}, which also holds this consumer back while the outage lasts.
+ */
+public class InboundMessageListener implements ChannelAwareBatchMessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(InboundMessageListener.class);
+
+    private final TradeService tradeService;
+    private final Counter messages;
+    private final Counter deadLettered;
+    private final Counter fallbacks;
+    private final Counter requeued;
+    private final long retryDelayMs;
+
+    public InboundMessageListener(TradeService tradeService, MeterRegistry meterRegistry, long retryDelayMs) {
+        this.tradeService = tradeService;
+        this.retryDelayMs = retryDelayMs;
+        this.messages = Counter.builder("mt.inbound.messages").register(meterRegistry);
+        this.deadLettered = Counter.builder("mt.inbound.dead-lettered").register(meterRegistry);
+        this.fallbacks = Counter.builder("mt.inbound.batch.fallbacks").register(meterRegistry);
+        this.requeued = Counter.builder("mt.inbound.requeued").register(meterRegistry);
+    }
+
+    @Override
+    public void onMessageBatch(List<Message> batch, Channel channel) {
+        List<String> bodies = new ArrayList<>(batch.size());
+        for (Message m : batch) bodies.add(new String(m.getBody(), StandardCharsets.UTF_8));
+        try {
+            tradeService.processBatch(bodies);
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                requeue(batch, 0, channel, e);
+                return;
+            }
+            fallbacks.increment();
+            log.warn("Batch of {} inbound messages failed, retrying them one by one", batch.size(), e);
+            processOneByOne(batch, bodies, channel);
+            return;
+        }
+        messages.increment(batch.size());
+        try {
+            // committed: settle every delivery of the batch in one frame
+            channel.basicAck(tag(batch.get(batch.size() - 1)), true);
+        } catch (IOException e) {
+            // the channel is gone and the broker redelivers; replays are answered with their original ACK
+            throw new IllegalStateException("Ack of " + batch.size() + " inbound messages failed", e);
+        }
+    }
+
+    private void processOneByOne(List<Message> batch, List<String> bodies, Channel channel) {
+        for (int i = 0; i < batch.size(); i++) {
+            long tag = tag(batch.get(i));
+            try {
+                boolean processed;
+                try {
+                    tradeService.processBatch(List.of(bodies.get(i)));
+                    processed = true;
+                } catch (RuntimeException e) {
+                    if (isTransient(e)) {
+                        requeue(batch, i, channel, e);
+                        return;
+                    }
+                    log.error("Inbound message {} cannot be processed, dead-lettering it", tag, e);
+                    processed = false;
+                }
+                if (processed) {
+                    channel.basicAck(tag, false);
+                    messages.increment();
+                } else {
+                    channel.basicNack(tag, false, false);
+                    deadLettered.increment();
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Settling inbound message " + tag + " failed", e);
+            }
+        }
+    }
+
+    // Puts batch[from..] back on the queue; the pause keeps a consumer from spinning on redeliveries during an outage
+    private void requeue(List<Message> batch, int from, Channel channel, RuntimeException cause) {
+        int n = batch.size() - from;
+        log.warn("Transient failure, requeueing {} inbound messages in {} ms", n, retryDelayMs, cause);
+        try {
+            Thread.sleep(retryDelayMs);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            // the messages before from are settled already, so a multiple nack covers exactly the rest
+            channel.basicNack(tag(batch.get(batch.size() - 1)), true, true);
+        } catch (IOException e) {
+            // the channel is gone and the broker redelivers them anyway
+            throw new IllegalStateException("Requeue of " + n + " inbound messages failed", e);
+        }
+        requeued.increment(n);
+    }
+
+    // The database or a connection to it is unavailable for now; the message itself may well be fine
+    static boolean isTransient(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof TransientDataAccessException || t instanceof RecoverableDataAccessException
+                    || t instanceof DataAccessResourceFailureException || t instanceof CannotCreateTransactionException
+                    || t instanceof SQLTransientException || t instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (t.getCause() == t) break;
+        }
+        return false;
+    }
+
+    private static long tag(Message m) {
+        return m.getMessageProperties().getDeliveryTag();
+    }
+}
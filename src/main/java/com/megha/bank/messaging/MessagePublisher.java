@@ -1,5 +1,17 @@
 package com.megha.bank.messaging;
 
+import java.util.List;
+
 public interface MessagePublisher {
     void publish(String routingKey, String message);
+
+    /**
+     * Sends the messages before returning, bypassing any queueing or after-commit deferral, and throws if one of them
+     * may not have reached the broker. For callers that drop their own copy once this returns (the outbox relay).
+     */
+    default void publishAndConfirm(String routingKey, List<String> messages) {
+        for (String message : messages) {
+            publish(routingKey, message);
+        }
+    }
 }
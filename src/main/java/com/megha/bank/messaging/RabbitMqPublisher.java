@@ -1,32 +1,71 @@
 package com.megha.bank.messaging;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Primary;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.beans.factory.ObjectProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 /**
- * RabbitMqPublisher will only be created when a RabbitTemplate bean is present (i.e., RabbitMQ configured).
+ * RabbitMqPublisher is created when RabbitMQ is configured (spring.rabbitmq.host is set).
  * It is marked @Primary so that, when present, it is the preferred MessagePublisher implementation.
  *
  * This version uses ObjectProvider<RabbitTemplate> to avoid IDE/autowire warnings when RabbitTemplate is absent.
+ *
+ * With mt.publisher.mode=async, publish() hands messages to an {@link AsyncBatchingPublisher}: they are sent after
+ * the surrounding transaction commits, in batches per routing key, with publisher confirms
+ * (spring.rabbitmq.publisher-confirm-type=correlated) and a bounded retry buffer for nacked messages. Without
+ * correlated confirms no confirm would ever arrive and every message would time out, so startup fails instead.
+ * {@link #publishAndConfirm} (the outbox relay) bypasses that queue and waits for the confirms, because the
+ * relay deletes its rows once it returns.
  */
 @Component
 @Primary
-@ConditionalOnBean(RabbitTemplate.class)
+@ConditionalOnProperty(prefix = "spring.rabbitmq", name = "host")
 public class RabbitMqPublisher implements MessagePublisher {
 
     private static final Logger log = LoggerFactory.getLogger(RabbitMqPublisher.class);
 
     private final RabbitTemplate rabbitTemplate;
+    private final AsyncBatchingPublisher async;
+    private final long confirmTimeoutMs;
 
     @Autowired
-    public RabbitMqPublisher(ObjectProvider<RabbitTemplate> rabbitTemplateProvider) {
+    public RabbitMqPublisher(ObjectProvider<RabbitTemplate> rabbitTemplateProvider,
+                             ObjectProvider<MeterRegistry> meterRegistryProvider,
+                             @Value("${mt.publisher.mode:sync}") String mode,
+                             @Value("${mt.publisher.queue-capacity:10000}") int queueCapacity,
+                             @Value("${mt.publisher.batch-size:100}") int batchSize,
+                             @Value("${mt.publisher.flush-interval-ms:20}") long flushIntervalMs,
+                             @Value("${mt.publisher.retry-capacity:1000}") int retryCapacity,
+                             @Value("${mt.publisher.max-attempts:5}") int maxAttempts,
+                             @Value("${mt.publisher.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
         this.rabbitTemplate = rabbitTemplateProvider.getIfAvailable();
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        if ("async".equalsIgnoreCase(mode) && rabbitTemplate != null) {
+            if (!rabbitTemplate.getConnectionFactory().isPublisherConfirms()) {
+                throw new IllegalStateException("mt.publisher.mode=async needs publisher confirms: "
+                        + "set spring.rabbitmq.publisher-confirm-type=correlated");
+            }
+            MeterRegistry registry = meterRegistryProvider.getIfAvailable(SimpleMeterRegistry::new);
+            this.async = new AsyncBatchingPublisher(this::sendConfirmed, registry, queueCapacity, batchSize,
+                    flushIntervalMs, retryCapacity, maxAttempts);
+        } else {
+            this.async = null;
+        }
     }
 
     @Override
@@ -35,8 +74,42 @@ public class RabbitMqPublisher implements MessagePublisher {
             log.warn("RabbitTemplate not available, falling back to logging. Message to {}: {}", routingKey, message);
             return;
         }
+        if (async != null) {
+            async.publish(routingKey, message);
+            return;
+        }
         // Publish to default exchange with routing key
         rabbitTemplate.convertAndSend(routingKey, message);
-        log.info("Published message to rabbit with routingKey={}", routingKey);
+        log.debug("Published message to rabbit with routingKey={}", routingKey);
+    }
+
+    @Override
+    public void publishAndConfirm(String routingKey, List<String> messages) {
+        if (async != null && rabbitTemplate != null) {
+            async.publishAndConfirm(routingKey, messages);
+        } else {
+            MessagePublisher.super.publishAndConfirm(routingKey, messages);
+        }
+    }
+
+    // Sends one batch for a routing key; each message carries its own CorrelationData so its confirm can be tracked
+    private List<CompletableFuture<Boolean>> sendConfirmed(String routingKey, List<String> messages) {
+        List<CompletableFuture<Boolean>> confirms = new ArrayList<>(messages.size());
+        for (String message : messages) {
+            CorrelationData correlation = new CorrelationData();
+            rabbitTemplate.convertAndSend("", routingKey, message, correlation);
+            confirms.add(correlation.getFuture()
+                    .thenApply(CorrelationData.Confirm::isAck)
+                    .orTimeout(confirmTimeoutMs, TimeUnit.MILLISECONDS));
+        }
+        log.debug("Published {} messages to rabbit with routingKey={}", messages.size(), routingKey);
+        return confirms;
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (async != null) {
+            async.close();
+        }
     }
 }
@@ -0,0 +1,8 @@
+package com.megha.bank.messaging;
+
+import reactor.core.publisher.Mono;
+
+/** Non-blocking counterpart of {@link MessagePublisher}, used by the reactive stack. */
+public interface ReactiveMessagePublisher {
+    Mono<Void> publish(String routingKey, String message);
+}
@@ -5,20 +5,45 @@ import lombok.Data;
 
 import java.time.LocalDateTime;
 
+/**
+ * Audit row per processed message. Rows are bucketed by day ({@code auditDay}, yyyymmdd of createdAt): lookups by
+ * time range are narrowed to their days first, and retention archives and deletes whole days (AuditArchiver).
+ * Message bodies are stored compressed, see {@link CompressedTextConverter}.
+ */
 @Entity
-@Table(name = "mt_audit")
+@Table(name = "mt_audit", indexes = {
+        @Index(name = "ix_mt_audit_ref_created", columnList = "tradeRef, createdAt"),
+        @Index(name = "ix_mt_audit_day_created", columnList = "auditDay, createdAt")
+})
 @Data
 public class AuditRecord {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "mt_audit_seq")
+    @SequenceGenerator(name = "mt_audit_seq", sequenceName = "mt_audit_seq", allocationSize = 50)
     private Long id;
 
     private String tradeRef;
-    @Column(length = 4000)
+    // Bodies up to 4000 chars; the compressed form is never more than one varint header above the UTF-8 size
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(length = 16010)
     private String incomingMessage;
-    @Column(length = 4000)
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(length = 16010)
     private String outgoingMessage;
     private String status; // ACK/NAK
     private LocalDateTime createdAt;
+    private Integer auditDay;
+
+    @PrePersist
+    void assignDay() {
+        if (auditDay == null && createdAt != null) {
+            auditDay = dayOf(createdAt);
+        }
+    }
+
+    /** Day bucket of a timestamp, as yyyymmdd. */
+    public static int dayOf(LocalDateTime t) {
+        return t.getYear() * 10000 + t.getMonthValue() * 100 + t.getDayOfMonth();
+    }
 }
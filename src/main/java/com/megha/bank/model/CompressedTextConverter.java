@@ -0,0 +1,20 @@
+package com.megha.bank.model;
+
+import com.megha.bank.util.CompressedText;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/** Stores a text attribute in its {@link CompressedText} form. */
+@Converter
+public class CompressedTextConverter implements AttributeConverter<String, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(String attribute) {
+        return CompressedText.encode(attribute);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] dbData) {
+        return CompressedText.decode(dbData);
+    }
+}
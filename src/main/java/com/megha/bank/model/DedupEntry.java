@@ -0,0 +1,45 @@
+package com.megha.bank.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Processed inbound message, keyed by the hash of its type and content, pointing at the audit row that holds the
+ * ACK it was answered with. A replay of the same message is answered from that row.
+ */
+@Entity
+@Table(name = "mt_dedup", indexes = @Index(name = "ix_mt_dedup_created", columnList = "createdAt"))
+@Data
+public class DedupEntry implements Persistable<String> {
+
+    // 128-bit message hash as 32 hex chars, see IdempotencyService.Key
+    @Id
+    @Column(length = 32)
+    private String messageHash;
+
+    private String tradeRef;
+    private Long auditId;
+    private LocalDateTime createdAt;
+
+    // Assigned ids: without this, save() would run a select to decide between insert and merge
+    @Transient
+    private boolean isNew = true;
+
+    @Override
+    public String getId() {
+        return messageHash;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    void loaded() {
+        isNew = false;
+    }
+}
@@ -0,0 +1,24 @@
+package com.megha.bank.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Last trade-journal sequence number projected into the database, per journal. Updated in the same transaction as the
+ * projected trades and audit rows, so a restart replays exactly the entries after it.
+ */
+@Entity
+@Table(name = "mt_journal_checkpoint")
+@Data
+public class JournalCheckpoint {
+
+    // mt.journal.id; one row per node journal
+    @Id
+    @Column(length = 64)
+    private String journalId;
+
+    private long lastSeq;
+    private LocalDateTime updatedAt;
+}
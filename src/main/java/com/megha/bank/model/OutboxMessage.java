@@ -0,0 +1,26 @@
+package com.megha.bank.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outgoing message written in the same transaction as the trade/audit rows and relayed to the broker afterwards.
+ * Rows are deleted once published.
+ */
+@Entity
+@Table(name = "mt_outbox")
+@Data
+public class OutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "mt_outbox_seq")
+    @SequenceGenerator(name = "mt_outbox_seq", sequenceName = "mt_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    private String routingKey;
+    @Column(length = 4000)
+    private String payload;
+    private LocalDateTime createdAt;
+}
@@ -6,15 +6,23 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "trades")
+// (filter, createdAt, id) indexes serve the keyset-paginated query API (TradeQueryRepository)
+@Table(name = "trades", indexes = {
+        @Index(name = "ix_trades_created_id", columnList = "createdAt, id"),
+        @Index(name = "ix_trades_instrument_created_id", columnList = "instrument, createdAt, id"),
+        @Index(name = "ix_trades_status_created_id", columnList = "status, createdAt, id"),
+        @Index(name = "ix_trades_type_created_id", columnList = "type, createdAt, id")
+})
 @Data
 public class Trade {
 
     public enum Type { BUY, SELL, CANCEL }
     public enum Status { NEW, ACKED, REJECTED, CANCELLED }
 
+    // Sequence (not IDENTITY) so Hibernate can allocate ids up front and batch the inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trades_seq")
+    @SequenceGenerator(name = "trades_seq", sequenceName = "trades_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true)
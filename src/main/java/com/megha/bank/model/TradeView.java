@@ -0,0 +1,36 @@
+package com.megha.bank.model;
+
+import java.time.LocalDateTime;
+
+/** Read-only projection of a trade for the query API; built directly by the query, never a managed entity. */
+public class TradeView {
+    private final Long id;
+    private final String tradeRef;
+    private final Trade.Type type;
+    private final Trade.Status status;
+    private final String instrument;
+    private final Long quantity;
+    private final Double price;
+    private final LocalDateTime createdAt;
+
+    public TradeView(Long id, String tradeRef, Trade.Type type, Trade.Status status, String instrument,
+                     Long quantity, Double price, LocalDateTime createdAt) {
+        this.id = id;
+        this.tradeRef = tradeRef;
+        this.type = type;
+        this.status = status;
+        this.instrument = instrument;
+        this.quantity = quantity;
+        this.price = price;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() { return id; }
+    public String getTradeRef() { return tradeRef; }
+    public Trade.Type getType() { return type; }
+    public Trade.Status getStatus() { return status; }
+    public String getInstrument() { return instrument; }
+    public Long getQuantity() { return quantity; }
+    public Double getPrice() { return price; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
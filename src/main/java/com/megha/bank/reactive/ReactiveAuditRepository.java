@@ -0,0 +1,44 @@
+package com.megha.bank.reactive;
+
+import com.megha.bank.model.AuditRecord;
+import com.megha.bank.util.CompressedText;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+import static com.megha.bank.reactive.ReactiveTradeRepository.bindNullable;
+
+/**
+ * R2DBC inserts into {@code mt_audit}; ids from {@code mt_audit_seq}, see {@link ReactiveTradeRepository}. Bodies and
+ * the day bucket are written the way the JPA entity writes them (CompressedText, AuditRecord.dayOf).
+ */
+public class ReactiveAuditRepository {
+
+    private final DatabaseClient client;
+
+    public ReactiveAuditRepository(DatabaseClient client) {
+        this.client = client;
+    }
+
+    /** Inserts the record and returns its id. */
+    public Mono<Long> insert(AuditRecord record) {
+        return client.sql("select nextval('mt_audit_seq')")
+                .map((row, meta) -> row.get(0, Long.class))
+                .one()
+                .flatMap(id -> {
+                    DatabaseClient.GenericExecuteSpec spec = client.sql("insert into mt_audit "
+                                    + "(id, trade_ref, incoming_message, outgoing_message, status, created_at, audit_day) "
+                                    + "values (:id, :ref, :incoming, :outgoing, :status, :createdAt, :day)")
+                            .bind("id", id);
+                    spec = bindNullable(spec, "ref", record.getTradeRef(), String.class);
+                    spec = bindNullable(spec, "incoming", CompressedText.encode(record.getIncomingMessage()), byte[].class);
+                    spec = bindNullable(spec, "outgoing", CompressedText.encode(record.getOutgoingMessage()), byte[].class);
+                    spec = bindNullable(spec, "status", record.getStatus(), String.class);
+                    spec = bindNullable(spec, "createdAt", record.getCreatedAt(), LocalDateTime.class);
+                    spec = bindNullable(spec, "day",
+                            record.getCreatedAt() == null ? null : AuditRecord.dayOf(record.getCreatedAt()), Integer.class);
+                    return spec.then().thenReturn(id);
+                });
+    }
+}
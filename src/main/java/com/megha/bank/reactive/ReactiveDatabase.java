@@ -0,0 +1,53 @@
+package com.megha.bank.reactive;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import java.time.Duration;
+
+/**
+ * R2DBC access for the reactive stack: a bounded connection pool, a DatabaseClient and a TransactionalOperator.
+ *
+ * Deliberately not a ConnectionFactory or TransactionManager bean: either would make Spring Boot back off from the
+ * JDBC DataSource or the JPA transaction manager that the rest of the application still uses. Both stacks point at
+ * the same H2 database, whose schema is created by Hibernate.
+ */
+public class ReactiveDatabase implements DisposableBean {
+
+    private final ConnectionPool pool;
+    private final DatabaseClient client;
+    private final TransactionalOperator tx;
+
+    public ReactiveDatabase(String url, String username, String password, int maxSize, Duration maxAcquireTime) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        this.pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .initialSize(Math.min(4, maxSize))
+                .maxSize(maxSize)
+                .maxAcquireTime(maxAcquireTime)
+                .build());
+        this.client = DatabaseClient.create(pool);
+        this.tx = TransactionalOperator.create(new R2dbcTransactionManager(pool));
+    }
+
+    public DatabaseClient client() {
+        return client;
+    }
+
+    public TransactionalOperator tx() {
+        return tx;
+    }
+
+    @Override
+    public void destroy() {
+        pool.dispose();
+    }
+}
@@ -0,0 +1,49 @@
+package com.megha.bank.reactive;
+
+import com.megha.bank.model.DedupEntry;
+import com.megha.bank.util.CompressedText;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * R2DBC access to {@code mt_dedup}, the same lookup and insert as the JPA {@code DedupRepository}. The original ACK
+ * is read from the compressed audit body, see {@link ReactiveAuditRepository}.
+ */
+public class ReactiveDedupRepository {
+
+    private final DatabaseClient client;
+
+    public ReactiveDedupRepository(DatabaseClient client) {
+        this.client = client;
+    }
+
+    /** The original ACK of a message processed since {@code since}, or empty. */
+    public Mono<String> findResponse(String messageHash, LocalDateTime since) {
+        return client.sql("select a.outgoing_message from mt_dedup d join mt_audit a on a.id = d.audit_id "
+                        + "where d.message_hash = :hash and d.created_at >= :since")
+                .bind("hash", messageHash)
+                .bind("since", since)
+                .map((row, meta) -> CompressedText.decode(row.get(0, byte[].class)))
+                .one();
+    }
+
+    /** Removes the row for {@code messageHash} if it is older than {@code before}, see IdempotencyService. */
+    public Mono<Void> deleteExpired(String messageHash, LocalDateTime before) {
+        return client.sql("delete from mt_dedup where message_hash = :hash and created_at < :before")
+                .bind("hash", messageHash)
+                .bind("before", before)
+                .then();
+    }
+
+    public Mono<Void> insert(DedupEntry entry) {
+        return client.sql("insert into mt_dedup (message_hash, trade_ref, audit_id, created_at) "
+                        + "values (:hash, :ref, :auditId, :createdAt)")
+                .bind("hash", entry.getMessageHash())
+                .bind("ref", entry.getTradeRef())
+                .bind("auditId", entry.getAuditId())
+                .bind("createdAt", entry.getCreatedAt())
+                .then();
+    }
+}
@@ -0,0 +1,88 @@
+package com.megha.bank.reactive;
+
+import com.megha.bank.model.Trade;
+import io.r2dbc.spi.Row;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * R2DBC access to the {@code trades} table written by the JPA {@code TradeRepository}. Ids come from the same
+ * {@code trades_seq}: Hibernate uses each sequence value as the low end of a block of 50 (pooled-lo), so a value
+ * fetched here is never handed out by Hibernate and can be used as an id directly.
+ */
+public class ReactiveTradeRepository {
+
+    private static final String COLUMNS =
+            "id, trade_ref, type, status, instrument, quantity, price, created_at, updated_at";
+
+    private final DatabaseClient client;
+
+    public ReactiveTradeRepository(DatabaseClient client) {
+        this.client = client;
+    }
+
+    public Mono<Trade> findByTradeRef(String tradeRef) {
+        return client.sql("select " + COLUMNS + " from trades where trade_ref = :ref")
+                .bind("ref", tradeRef)
+                .map((row, meta) -> toTrade(row))
+                .one();
+    }
+
+    /** Inserts the trade with a new id from trades_seq and returns it with the id set. */
+    public Mono<Trade> insert(Trade trade) {
+        return client.sql("select nextval('trades_seq')")
+                .map((row, meta) -> row.get(0, Long.class))
+                .one()
+                .flatMap(id -> {
+                    DatabaseClient.GenericExecuteSpec spec = client.sql("insert into trades (" + COLUMNS + ") values "
+                                    + "(:id, :ref, :type, :status, :instrument, :quantity, :price, :createdAt, :updatedAt)")
+                            .bind("id", id)
+                            .bind("ref", trade.getTradeRef())
+                            .bind("type", trade.getType().name())
+                            .bind("status", trade.getStatus().name());
+                    spec = bindNullable(spec, "instrument", trade.getInstrument(), String.class);
+                    spec = bindNullable(spec, "quantity", trade.getQuantity(), Long.class);
+                    spec = bindNullable(spec, "price", trade.getPrice(), Double.class);
+                    spec = bindNullable(spec, "createdAt", trade.getCreatedAt(), LocalDateTime.class);
+                    spec = bindNullable(spec, "updatedAt", trade.getUpdatedAt(), LocalDateTime.class);
+                    return spec.then().then(Mono.fromSupplier(() -> {
+                        trade.setId(id);
+                        return trade;
+                    }));
+                });
+    }
+
+    /** Sets the status unless the trade already has it; emits the number of rows changed (0 or 1). */
+    public Mono<Long> updateStatus(Long id, Trade.Status status, LocalDateTime updatedAt) {
+        return client.sql("update trades set status = :status, updated_at = :updatedAt "
+                        + "where id = :id and status <> :status")
+                .bind("status", status.name())
+                .bind("updatedAt", updatedAt)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    static <T> DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec, String name,
+                                                              T value, Class<T> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+
+    private static Trade toTrade(Row row) {
+        Trade t = new Trade();
+        t.setId(row.get("id", Long.class));
+        t.setTradeRef(row.get("trade_ref", String.class));
+        String type = row.get("type", String.class);
+        t.setType(type == null ? null : Trade.Type.valueOf(type));
+        String status = row.get("status", String.class);
+        t.setStatus(status == null ? null : Trade.Status.valueOf(status));
+        t.setInstrument(row.get("instrument", String.class));
+        t.setQuantity(row.get("quantity", Long.class));
+        t.setPrice(row.get("price", Double.class));
+        t.setCreatedAt(row.get("created_at", LocalDateTime.class));
+        t.setUpdatedAt(row.get("updated_at", LocalDateTime.class));
+        return t;
+    }
+}
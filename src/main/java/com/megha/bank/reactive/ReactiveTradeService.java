@@ -0,0 +1,178 @@
+package com.megha.bank.reactive;
+
+import com.megha.bank.messaging.ReactiveMessagePublisher;
+import com.megha.bank.model.Trade;
+import com.megha.bank.service.AuditService;
+import com.megha.bank.service.IdempotencyService;
+import com.megha.bank.service.PositionEngine;
+import com.megha.bank.service.TradeService;
+import com.megha.bank.util.MTMessageParser;
+import com.megha.bank.util.MTResponseBuilder;
+import com.megha.bank.util.TradeRefGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Non-blocking version of {@link TradeService#processMtMessage}: same validation, ACK/NAK and audit rules, with the
+ * trade and its audit row written through R2DBC in one reactive transaction and the response published after commit.
+ * With {@link IdempotencyService} present, a resent message is answered with its original ACK (outcome REPLAY) and
+ * nothing is written or published; ACKed messages are recorded in {@code mt_dedup} in the same transaction.
+ *
+ * Backpressure: at most {@code mt.reactive.max-in-flight} messages are in process; beyond that a message fails
+ * immediately with RejectedExecutionException (HTTP 503) instead of queueing without bound. Below the limit,
+ * waiting happens in the R2DBC pool ({@code mt.reactive.db-pool-size}, bounded by
+ * {@code mt.reactive.db-acquire-timeout-ms}), and the publisher never has more than max-in-flight messages pending.
+ */
+public class ReactiveTradeService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveTradeService.class);
+
+    private final ReactiveTradeRepository trades;
+    private final ReactiveAuditRepository audits;
+    private final ReactiveDedupRepository dedups;
+    private final ReactiveDatabase db;
+    private final ReactiveMessagePublisher publisher;
+    private final MTMessageParser parser;
+    private final TradeRefGenerator refGenerator;
+    private final PositionEngine positions;
+    private final IdempotencyService idempotency;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejected;
+    private final Counter publishFailures;
+
+    public ReactiveTradeService(ReactiveDatabase db,
+                                ReactiveMessagePublisher publisher,
+                                MTMessageParser parser,
+                                TradeRefGenerator refGenerator,
+                                PositionEngine positions,
+                                IdempotencyService idempotency,
+                                MeterRegistry meterRegistry,
+                                int maxInFlight) {
+        this.db = db;
+        this.trades = new ReactiveTradeRepository(db.client());
+        this.audits = new ReactiveAuditRepository(db.client());
+        this.dedups = new ReactiveDedupRepository(db.client());
+        this.publisher = publisher;
+        this.parser = parser;
+        this.refGenerator = refGenerator;
+        this.positions = positions;
+        this.idempotency = idempotency;
+        this.maxInFlight = maxInFlight;
+        this.rejected = Counter.builder("mt.reactive.rejected").register(meterRegistry);
+        this.publishFailures = Counter.builder("mt.reactive.publish.failures").register(meterRegistry);
+        Gauge.builder("mt.reactive.in-flight", inFlight, AtomicInteger::get).register(meterRegistry);
+    }
+
+    public Mono<TradeService.ProcessResult> processMtMessage(String mtMessage, Trade.Type expectedType) {
+        return Mono.defer(() -> {
+            if (inFlight.incrementAndGet() > maxInFlight) {
+                inFlight.decrementAndGet();
+                rejected.increment();
+                return Mono.error(new RejectedExecutionException("Too many trade messages in flight"));
+            }
+            IdempotencyService.Key key = idempotency == null ? null : IdempotencyService.key(mtMessage, expectedType);
+            // an open trade taken back out of its position by a CANCEL
+            AtomicReference<Trade> unwound = new AtomicReference<>();
+            return replay(key)
+                    .switchIfEmpty(Mono.defer(() -> process(mtMessage, expectedType, key, unwound)
+                            .as(db.tx()::transactional)
+                            .doOnNext(res -> {
+                                if (key != null && res.getOutcome() == TradeService.Outcome.ACK) idempotency.recorded(key);
+                                updatePositions(res, expectedType, unwound.get());
+                            })
+                            // after commit; a failed publish does not undo the trade (same as the blocking publisher)
+                            .flatMap(res -> publisher.publish("mt.acks", res.getMtResponse())
+                                    .onErrorResume(e -> {
+                                        publishFailures.increment();
+                                        log.warn("Publishing response for {} failed", res.getMtResponse(), e);
+                                        return Mono.empty();
+                                    })
+                                    .thenReturn(res))))
+                    .doFinally(signal -> inFlight.decrementAndGet());
+        });
+    }
+
+    /** The original ACK as a REPLAY result if the message was processed within the replay window, else empty. */
+    private Mono<TradeService.ProcessResult> replay(IdempotencyService.Key key) {
+        if (key == null || !idempotency.mightHaveSeen(key)) return Mono.empty();
+        return dedups.findResponse(key.id(), idempotency.windowStart())
+                .doOnSuccess(idempotency::counted)
+                .map(ack -> new TradeService.ProcessResult(null, ack, TradeService.Outcome.REPLAY));
+    }
+
+    private Mono<Void> remember(IdempotencyService.Key key, String tradeRef, long auditId) {
+        Mono<Void> expired = idempotency.mightHaveSeen(key)
+                ? dedups.deleteExpired(key.id(), idempotency.windowStart())
+                : Mono.empty();
+        return expired.then(dedups.insert(IdempotencyService.newEntry(key, tradeRef, auditId)));
+    }
+
+    private void updatePositions(TradeService.ProcessResult res, Trade.Type type, Trade unwound) {
+        if (positions == null || !res.isSuccess()) return;
+        if (type != Trade.Type.CANCEL) {
+            positions.onTrade(res.getTrade(), 1);
+        } else if (unwound != null) {
+            positions.onTrade(unwound, -1);
+        }
+    }
+
+    private Mono<TradeService.ProcessResult> process(String mtMessage, Trade.Type expectedType,
+                                                     IdempotencyService.Key key, AtomicReference<Trade> unwound) {
+        MTMessageParser.ParsedMT parsed = parser.parse(mtMessage);
+        parsed.type = expectedType.name();
+        String originRef = parsed.others.get("ORIG_REF");
+
+        if ((expectedType == Trade.Type.BUY || expectedType == Trade.Type.SELL)
+                && (parsed.instrument == null || parsed.quantity == null || parsed.price == null)) {
+            String nak = MTResponseBuilder.nak(parsed.reference, "MISSING_FIELDS: instrument/quantity/price", originRef);
+            return audits.insert(AuditService.newRecord(parsed.reference, mtMessage, nak, "NAK"))
+                    .thenReturn(new TradeService.ProcessResult(null, nak, TradeService.Outcome.MISSING_FIELDS));
+        }
+
+        Mono<Trade> trade;
+        String status;
+        if (expectedType == Trade.Type.CANCEL) {
+            status = "CANCELLED";
+            trade = parsed.reference == null
+                    ? trades.insert(TradeService.newTrade(refGenerator.nextRef(), Trade.Type.CANCEL,
+                            Trade.Status.CANCELLED, parsed))
+                    : trades.findByTradeRef(parsed.reference)
+                            .flatMap(t -> {
+                                TradeService.markCancelled(t);
+                                // of two CANCELs racing for one trade, only the one whose update changed the row
+                                // takes it out of its position
+                                return trades.updateStatus(t.getId(), t.getStatus(), t.getUpdatedAt())
+                                        .doOnNext(changed -> {
+                                            if (changed == 1) unwound.set(t);
+                                        })
+                                        .thenReturn(t);
+                            })
+                            // unknown reference: record the cancel itself
+                            .switchIfEmpty(Mono.defer(() -> trades.insert(TradeService.newTrade(parsed.reference,
+                                    Trade.Type.CANCEL, Trade.Status.CANCELLED, parsed))));
+        } else {
+            status = "RECEIVED";
+            String ref = parsed.reference == null ? refGenerator.nextRef() : parsed.reference;
+            trade = trades.insert(TradeService.newTrade(ref, expectedType, Trade.Status.NEW, parsed));
+        }
+        return trade.flatMap(t -> {
+            String ack = MTResponseBuilder.ack(t.getTradeRef(), status, originRef);
+            return audits.insert(AuditService.newRecord(t.getTradeRef(), mtMessage, ack, "ACK"))
+                    .flatMap(auditId -> key == null ? Mono.<Void>empty() : remember(key, t.getTradeRef(), auditId))
+                    .thenReturn(new TradeService.ProcessResult(t, ack, TradeService.Outcome.ACK));
+        });
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+}
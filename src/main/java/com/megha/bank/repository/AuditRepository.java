@@ -1,7 +1,28 @@
 package com.megha.bank.repository;
 
 import com.megha.bank.model.AuditRecord;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 public interface AuditRepository extends JpaRepository<AuditRecord, Long> {
+
+    // A trade's history in a time range (index ix_mt_audit_ref_created)
+    @Query("select a from AuditRecord a where a.tradeRef = :ref and a.createdAt >= :from and a.createdAt < :to "
+            + "order by a.createdAt, a.id")
+    List<AuditRecord> findHistory(@Param("ref") String tradeRef, @Param("from") LocalDateTime from,
+                                  @Param("to") LocalDateTime to);
+
+    // All rows in a time range; the day bounds restrict the scan to those days (index ix_mt_audit_day_created)
+    @Query("select a from AuditRecord a where a.auditDay between :fromDay and :toDay "
+            + "and a.createdAt >= :from and a.createdAt < :to order by a.createdAt, a.id")
+    List<AuditRecord> findRange(@Param("fromDay") int fromDay, @Param("toDay") int toDay,
+                                @Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Pageable page);
+
+    @Query("select distinct a.auditDay from AuditRecord a where a.auditDay < ?1 order by a.auditDay")
+    List<Integer> findDaysBefore(int day);
 }
@@ -0,0 +1,43 @@
+package com.megha.bank.repository;
+
+import com.megha.bank.model.DedupEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface DedupRepository extends JpaRepository<DedupEntry, String> {
+
+    // The original ACK of a message processed since the given time, read straight from its audit row
+    @Query("select a.outgoingMessage from DedupEntry d, AuditRecord a "
+            + "where d.messageHash = ?1 and d.createdAt >= ?2 and a.id = d.auditId")
+    Optional<String> findResponse(String messageHash, LocalDateTime since);
+
+    // [messageHash, outgoingMessage] pairs for the hashes processed since the given time
+    @Query("select d.messageHash, a.outgoingMessage from DedupEntry d, AuditRecord a "
+            + "where d.messageHash in ?1 and d.createdAt >= ?2 and a.id = d.auditId")
+    List<Object[]> findResponses(Collection<String> messageHashes, LocalDateTime since);
+
+    @Query("select d.messageHash from DedupEntry d where d.createdAt >= ?1")
+    Stream<String> streamHashes(LocalDateTime since);
+
+    // A chunk of rows older than the replay window, for the periodic purge
+    @Query("select d.messageHash from DedupEntry d where d.createdAt < ?1")
+    List<String> findExpiredHashes(LocalDateTime before, Pageable page);
+
+    // Rows older than the replay window; the createdAt condition keeps a row that was just recorded again
+    @Modifying
+    @Query("delete from DedupEntry d where d.messageHash in ?1 and d.createdAt < ?2")
+    int deleteExpired(Collection<String> messageHashes, LocalDateTime before);
+
+    // Used when the audit rows they point at are archived
+    @Modifying
+    @Query("delete from DedupEntry d where d.auditId in ?1")
+    int deleteByAuditIdIn(Collection<Long> auditIds);
+}
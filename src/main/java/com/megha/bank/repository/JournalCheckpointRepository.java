@@ -0,0 +1,7 @@
+package com.megha.bank.repository;
+
+import com.megha.bank.model.JournalCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface JournalCheckpointRepository extends JpaRepository<JournalCheckpoint, String> {
+}
@@ -0,0 +1,22 @@
+package com.megha.bank.repository;
+
+import com.megha.bank.model.OutboxMessage;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.util.List;
+
+public interface OutboxRepository extends JpaRepository<OutboxMessage, Long> {
+
+    // Oldest unpublished rows, locked for this relay; lock timeout -2 is SKIP LOCKED where the dialect supports it,
+    // so several relays can drain the table without handing out the same rows
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select o from OutboxMessage o order by o.id")
+    List<OutboxMessage> claimBatch(Pageable page);
+}
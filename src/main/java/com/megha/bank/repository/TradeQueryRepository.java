@@ -0,0 +1,64 @@
+package com.megha.bank.repository;
+
+import com.megha.bank.model.Trade;
+import com.megha.bank.model.TradeView;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Filtered trade reads for the query API, as {@link TradeView} projections in (createdAt, id) order.
+ *
+ * Pages are found by seeking past the last row of the previous page ({@code createdAt > x or (createdAt = x and
+ * id > y)}) rather than with OFFSET, so every page costs the same however deep it is. The JPQL only contains the
+ * filters that are set, so each combination gets a plan that can use the matching (filter, createdAt, id) index
+ * on {@link Trade}.
+ */
+@Repository
+public class TradeQueryRepository {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /** Filter values; null means no restriction. {@code from} is inclusive, {@code to} exclusive. */
+    public static class Filter {
+        public String instrument;
+        public Trade.Status status;
+        public Trade.Type type;
+        public LocalDateTime from;
+        public LocalDateTime to;
+    }
+
+    /** Up to {@code limit} trades after the (afterCreatedAt, afterId) position, or from the start if null. */
+    @Transactional(readOnly = true)
+    public List<TradeView> page(Filter f, LocalDateTime afterCreatedAt, Long afterId, int limit) {
+        StringBuilder jpql = new StringBuilder("select new com.megha.bank.model.TradeView(t.id, t.tradeRef, t.type, "
+                + "t.status, t.instrument, t.quantity, t.price, t.createdAt) from Trade t where 1 = 1");
+        if (f.instrument != null) jpql.append(" and t.instrument = :instrument");
+        if (f.status != null) jpql.append(" and t.status = :status");
+        if (f.type != null) jpql.append(" and t.type = :type");
+        if (f.from != null) jpql.append(" and t.createdAt >= :from");
+        if (f.to != null) jpql.append(" and t.createdAt < :to");
+        if (afterCreatedAt != null) {
+            jpql.append(" and (t.createdAt > :afterCreatedAt or (t.createdAt = :afterCreatedAt and t.id > :afterId))");
+        }
+        jpql.append(" order by t.createdAt, t.id");
+
+        TypedQuery<TradeView> q = em.createQuery(jpql.toString(), TradeView.class);
+        if (f.instrument != null) q.setParameter("instrument", f.instrument);
+        if (f.status != null) q.setParameter("status", f.status);
+        if (f.type != null) q.setParameter("type", f.type);
+        if (f.from != null) q.setParameter("from", f.from);
+        if (f.to != null) q.setParameter("to", f.to);
+        if (afterCreatedAt != null) {
+            q.setParameter("afterCreatedAt", afterCreatedAt);
+            q.setParameter("afterId", afterId);
+        }
+        return q.setMaxResults(limit).getResultList();
+    }
+}
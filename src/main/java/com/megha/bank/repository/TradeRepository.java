@@ -2,9 +2,33 @@ package com.megha.bank.repository;
 
 import com.megha.bank.model.Trade;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface TradeRepository extends JpaRepository<Trade, Long> {
     Optional<Trade> findByTradeRef(String tradeRef);
+
+    List<Trade> findByTradeRefIn(Collection<String> tradeRefs);
+
+    boolean existsByTradeRef(String tradeRef);
+
+    // Status change by id without loading the entity. Conditional: 0 when the trade already has that status, so of two
+    // concurrent CANCELs only one sees 1 (and unwinds the position)
+    @Modifying
+    @Query("update Trade t set t.status = :status, t.updatedAt = :updatedAt where t.id = :id and t.status <> :status")
+    int updateStatus(@Param("id") Long id, @Param("status") Trade.Status status, @Param("updatedAt") LocalDateTime updatedAt);
+
+    // [instrument, type, sum(quantity), sum(quantity * price)] of open BUY/SELL trades; rebuilds PositionEngine
+    @Query("select t.instrument, t.type, sum(t.quantity), sum(t.quantity * t.price) from Trade t "
+            + "where t.type <> com.megha.bank.model.Trade$Type.CANCEL "
+            + "and t.status <> com.megha.bank.model.Trade$Status.CANCELLED "
+            + "and t.instrument is not null and t.quantity is not null and t.price is not null "
+            + "group by t.instrument, t.type")
+    List<Object[]> sumOpenPositions();
 }
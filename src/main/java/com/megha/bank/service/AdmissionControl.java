@@ -0,0 +1,146 @@
+package com.megha.bank.service;
+
+import com.megha.bank.model.Trade;
+import com.megha.bank.util.AdaptiveLimit;
+import com.megha.bank.util.MTMessageParser;
+import com.megha.bank.util.MTResponseBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control for the /api/trade endpoints. At most {@link #limit()} requests are processed at once; the limit
+ * adapts to the measured processing latency ({@link AdaptiveLimit}, {@code mt.admission.algorithm=gradient|aimd}), so
+ * when the database slows down fewer requests are let in instead of all of them queueing for threads and connections.
+ *
+ * A share of the limit ({@code mt.admission.cancel-reserve}) is kept for CANCELs: BUY/SELL and /batch are admitted
+ * only while fewer than {@code limit * (1 - cancel-reserve)} requests are in flight, a CANCEL up to the full limit.
+ * Requests over the limit are not queued; the controller answers them with {@link #reject} and
+ * {@code mt.admission.reject-status}.
+ */
+@Component
+@ConditionalOnProperty(name = "mt.admission.enabled", havingValue = "true")
+public class AdmissionControl {
+
+    private final AdaptiveLimit limit;
+    private final double cancelReserve;
+    private final int rejectStatus;
+    private final long retryAfterSeconds;
+    private final MTMessageParser parser;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<Trade.Type, Counter> rejected = new EnumMap<>(Trade.Type.class);
+    private final Counter rejectedBatches;
+
+    public AdmissionControl(@Value("${mt.admission.algorithm:gradient}") String algorithm,
+                            @Value("${mt.admission.initial-limit:20}") int initialLimit,
+                            @Value("${mt.admission.min-limit:4}") int minLimit,
+                            @Value("${mt.admission.max-limit:200}") int maxLimit,
+                            @Value("${mt.admission.gradient.tolerance:1.5}") double tolerance,
+                            @Value("${mt.admission.aimd.latency-threshold-ms:250}") long latencyThresholdMs,
+                            @Value("${mt.admission.aimd.backoff-ratio:0.9}") double backoffRatio,
+                            @Value("${mt.admission.cancel-reserve:0.2}") double cancelReserve,
+                            @Value("${mt.admission.reject-status:503}") int rejectStatus,
+                            @Value("${mt.admission.retry-after-s:1}") long retryAfterSeconds,
+                            MTMessageParser parser,
+                            MeterRegistry meterRegistry) {
+        this.limit = switch (algorithm.trim().toLowerCase()) {
+            case "gradient" -> AdaptiveLimit.gradient(initialLimit, minLimit, maxLimit, tolerance);
+            case "aimd" -> AdaptiveLimit.aimd(initialLimit, minLimit, maxLimit, latencyThresholdMs, backoffRatio);
+            default -> throw new IllegalArgumentException("mt.admission.algorithm must be gradient or aimd: " + algorithm);
+        };
+        if (cancelReserve < 0 || cancelReserve >= 1) {
+            throw new IllegalArgumentException("mt.admission.cancel-reserve must be in [0, 1): " + cancelReserve);
+        }
+        if (rejectStatus != 429 && rejectStatus != 503) {
+            throw new IllegalArgumentException("mt.admission.reject-status must be 429 or 503: " + rejectStatus);
+        }
+        this.cancelReserve = cancelReserve;
+        this.rejectStatus = rejectStatus;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.parser = parser;
+        for (Trade.Type type : Trade.Type.values()) {
+            rejected.put(type, Counter.builder("mt.admission.rejected").tag("type", type.name()).register(meterRegistry));
+        }
+        this.rejectedBatches = Counter.builder("mt.admission.rejected").tag("type", "BATCH").register(meterRegistry);
+        Gauge.builder("mt.admission.limit", limit, AdaptiveLimit::limit).register(meterRegistry);
+        Gauge.builder("mt.admission.in-flight", inFlight, AtomicInteger::get).register(meterRegistry);
+    }
+
+    public int limit() {
+        return limit.limit();
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public int rejectStatus() {
+        return rejectStatus;
+    }
+
+    public long retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /**
+     * Admits one /buy, /sell or /cancel request, or returns null (counted as rejected) when {@code type}'s share of the
+     * limit is in use. The permit has to be released when processing ends.
+     */
+    public Permit tryAcquire(Trade.Type type) {
+        Permit p = acquire(type == Trade.Type.CANCEL ? limit() : newTradeLimit(), true);
+        if (p == null) rejected.get(type).increment();
+        return p;
+    }
+
+    /**
+     * Admits a /batch as one request with the BUY/SELL share. Its latency grows with the batch size, so it is not fed
+     * to the limit.
+     */
+    public Permit tryAcquireBatch() {
+        Permit p = acquire(newTradeLimit(), false);
+        if (p == null) rejectedBatches.increment();
+        return p;
+    }
+
+    /** MT199 NAK for a message that was not admitted. */
+    public String reject(String mtMessage) {
+        MTMessageParser.ParsedMT parsed = parser.parse(mtMessage);
+        return MTResponseBuilder.nak(parsed.reference, "OVERLOADED", parsed.others.get("ORIG_REF"));
+    }
+
+    private int newTradeLimit() {
+        return Math.max(1, (int) (limit() * (1 - cancelReserve)));
+    }
+
+    private Permit acquire(int cap, boolean sampled) {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= cap) return null;
+            if (inFlight.compareAndSet(current, current + 1)) return new Permit(current + 1, sampled);
+        }
+    }
+
+    public final class Permit {
+        private final long start = System.nanoTime();
+        private final int inFlightAtStart;
+        private final boolean sampled;
+
+        private Permit(int inFlightAtStart, boolean sampled) {
+            this.inFlightAtStart = inFlightAtStart;
+            this.sampled = sampled;
+        }
+
+        /** Ends the request; {@code dropped} when it failed rather than completed (an ACK or NAK both complete). */
+        public void release(boolean dropped) {
+            inFlight.decrementAndGet();
+            if (sampled) limit.onSample(System.nanoTime() - start, inFlightAtStart, dropped);
+        }
+    }
+}
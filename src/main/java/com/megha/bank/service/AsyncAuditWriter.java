@@ -0,0 +1,209 @@
+package com.megha.bank.service;
+
+import com.megha.bank.model.AuditRecord;
+import com.megha.bank.repository.AuditRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Audit pipeline mode ({@code mt.audit.mode=async}): {@link AuditService#record} hands records to a bounded
+ * in-memory queue instead of inserting them inside the trade transaction. A single writer thread drains the queue in
+ * batches of up to {@code mt.audit.batch-size} and writes each batch in its own transaction (batched inserts via
+ * hibernate.jdbc.batch_size).
+ *
+ * Backpressure: when the queue is full, producers wait up to {@code mt.audit.offer-timeout-ms}; after that the
+ * record is written synchronously on the caller's thread. Durability: every record is appended to a local spill
+ * file (fsynced unless {@code mt.audit.spill-fsync=false}, once per submitted group) before the trade transaction
+ * commits ({@link #spill}), queued once it has committed ({@link #enqueue}) and marked committed in the file after
+ * its batch is written, so records lost in a crash are re-inserted on the next start. Records of a transaction that
+ * rolls back are marked in the file as well ({@link #discard}). The queue is flushed on shutdown.
+ */
+@Component
+@ConditionalOnProperty(name = "mt.audit.mode", havingValue = "async")
+public class AsyncAuditWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncAuditWriter.class);
+
+    private final AuditRepository auditRepository;
+    private final TransactionTemplate tx;
+    private final BlockingQueue<Entry> queue;
+    private final AuditSpillFile spillFile;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final Timer writeLatency;
+    private final Counter written;
+    private final Counter callerRuns;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    @Autowired
+    public AsyncAuditWriter(AuditRepository auditRepository,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${mt.audit.queue-capacity:10000}") int queueCapacity,
+                            @Value("${mt.audit.batch-size:200}") int batchSize,
+                            @Value("${mt.audit.flush-interval-ms:50}") long flushIntervalMs,
+                            @Value("${mt.audit.offer-timeout-ms:100}") long offerTimeoutMs,
+                            @Value("${mt.audit.spill-file:data/audit-spill.log}") String spillFile,
+                            @Value("${mt.audit.spill-fsync:true}") boolean spillFsync) {
+        this.auditRepository = auditRepository;
+        this.tx = new TransactionTemplate(transactionManager);
+        // enqueue() runs in afterCommit, where the caller's transaction is still bound; caller-runs writes need their own
+        this.tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.spillFile = new AuditSpillFile(Path.of(spillFile), spillFsync);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        Gauge.builder("mt.audit.queue.depth", queue, BlockingQueue::size)
+                .description("Audit records waiting to be written")
+                .register(meterRegistry);
+        this.writeLatency = Timer.builder("mt.audit.write.latency")
+                .description("Time to write one audit batch")
+                .register(meterRegistry);
+        this.written = Counter.builder("mt.audit.records.written").register(meterRegistry);
+        this.callerRuns = Counter.builder("mt.audit.records.caller_runs")
+                .description("Records written on the caller thread because the queue stayed full")
+                .register(meterRegistry);
+        this.writerThread = new Thread(this::drainLoop, "audit-writer");
+        this.writerThread.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        List<AuditRecord> recovered = spillFile.readUncommitted();
+        if (!recovered.isEmpty()) {
+            log.warn("Recovering {} audit records from spill file", recovered.size());
+            for (int i = 0; i < recovered.size(); i += batchSize) {
+                List<AuditRecord> chunk = recovered.subList(i, Math.min(recovered.size(), i + batchSize));
+                tx.executeWithoutResult(s -> auditRepository.saveAll(chunk));
+            }
+        }
+        spillFile.reset();
+        writerThread.start();
+    }
+
+    /** Queues a record for writing; blocks for up to the offer timeout when the queue is full. */
+    public void submit(AuditRecord record) {
+        submitAll(List.of(record));
+    }
+
+    /** Like {@link #submit} for several records, which share one spill-file fsync. */
+    public void submitAll(List<AuditRecord> records) {
+        enqueue(spill(records), records);
+    }
+
+    /** Appends records to the spill file, with one fsync, and returns their sequence numbers for {@link #enqueue}. */
+    public long[] spill(List<AuditRecord> records) {
+        return spillFile.appendAll(records);
+    }
+
+    /** Queues spilled records for writing; blocks for up to the offer timeout when the queue is full. */
+    public void enqueue(long[] seqs, List<AuditRecord> records) {
+        for (int i = 0; i < seqs.length; i++) {
+            Entry e = new Entry(seqs[i], records.get(i));
+            try {
+                if (queue.offer(e, offerTimeoutMs, TimeUnit.MILLISECONDS)) continue;
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            // queue stayed full (or we were interrupted): don't drop, write it ourselves
+            callerRuns.increment();
+            write(List.of(e));
+        }
+    }
+
+    /** Marks spilled records that will never be queued (their transaction rolled back), so they are not recovered. */
+    public void discard(long[] seqs) {
+        spillFile.commit(seqs, seqs.length);
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        // no interrupt: the writer notices within one flush interval, and interrupting JDBC work is not safe
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        if (!queue.isEmpty()) {
+            log.warn("{} audit records not flushed at shutdown; they stay in the spill file", queue.size());
+        }
+        spillFile.close();
+    }
+
+    private void drainLoop() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = running ? queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS) : queue.poll();
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+            } catch (InterruptedException ie) {
+                continue;
+            }
+            while (!write(batch)) {
+                if (!running) return; // leave it to spill-file recovery
+                try {
+                    Thread.sleep(Math.max(flushIntervalMs, 100));
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private boolean write(List<Entry> batch) {
+        List<AuditRecord> records = new ArrayList<>(batch.size());
+        long[] seqs = new long[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            records.add(batch.get(i).record);
+            seqs[i] = batch.get(i).seq;
+        }
+        long start = System.nanoTime();
+        try {
+            tx.executeWithoutResult(s -> auditRepository.saveAll(records));
+        } catch (RuntimeException ex) {
+            log.error("Failed to write {} audit records, will retry", records.size(), ex);
+            return false;
+        }
+        writeLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        written.increment(records.size());
+        spillFile.commit(seqs, seqs.length);
+        return true;
+    }
+
+    private static final class Entry {
+        final long seq;
+        final AuditRecord record;
+
+        Entry(long seq, AuditRecord record) {
+            this.seq = seq;
+            this.record = record;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.megha.bank.service;
+
+import com.megha.bank.model.AuditRecord;
+import com.megha.bank.util.CompressedText;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * File format of archived audit days. Message bodies are copied in their stored {@link CompressedText} form, so
+ * archiving neither decompresses nor recompresses.
+ *
+ * Layout: magic {@code MTA1}, then per row {@code 1, id, createdAt (epoch second, nano, UTC), tradeRef, status,
+ * incoming, outgoing} (strings as length + UTF-8, bodies as length + bytes, length -1 for null), then {@code 0},
+ * the row count and a CRC32 of everything before it. A file without a valid trailer is rejected.
+ */
+final class AuditArchiveFile {
+
+    private static final int MAGIC = 0x4D544131; // "MTA1"
+
+    /** Appends rows to a temporary file; {@link #commit} forces it to disk and moves it to its final name. */
+    static final class Writer implements AutoCloseable {
+        private final Path target;
+        private final Path tmp;
+        private final FileChannel channel;
+        private final CheckedOutputStream checked;
+        private final DataOutputStream out;
+        private long rows;
+
+        Writer(Path target) throws IOException {
+            this.target = target;
+            this.tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            this.channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.checked = new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16),
+                    new CRC32());
+            this.out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+        }
+
+        void write(long id, LocalDateTime createdAt, String tradeRef, String status, byte[] incoming, byte[] outgoing)
+                throws IOException {
+            out.writeByte(1);
+            out.writeLong(id);
+            out.writeLong(createdAt.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(createdAt.getNano());
+            writeBytes(tradeRef == null ? null : tradeRef.getBytes(StandardCharsets.UTF_8));
+            writeBytes(status == null ? null : status.getBytes(StandardCharsets.UTF_8));
+            writeBytes(incoming);
+            writeBytes(outgoing);
+            rows++;
+        }
+
+        long rows() {
+            return rows;
+        }
+
+        void commit() throws IOException {
+            out.writeByte(0);
+            out.writeLong(rows);
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            channel.force(true);
+            channel.close();
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private void writeBytes(byte[] b) throws IOException {
+            if (b == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(b.length);
+                out.write(b);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel.isOpen()) {
+                channel.close();
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    private AuditArchiveFile() {
+    }
+
+    /** Reads every row of an archive file, bodies decompressed; returns the row count. */
+    static long read(Path file, Consumer<AuditRecord> rows) throws IOException {
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            CheckedInputStream checked = new CheckedInputStream(raw, new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != MAGIC) throw new IOException("Not an audit archive: " + file);
+            long n = 0;
+            try {
+                while (in.readByte() == 1) {
+                    AuditRecord r = new AuditRecord();
+                    r.setId(in.readLong());
+                    r.setCreatedAt(LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC));
+                    r.setAuditDay(AuditRecord.dayOf(r.getCreatedAt()));
+                    r.setTradeRef(string(readBytes(in)));
+                    r.setStatus(string(readBytes(in)));
+                    r.setIncomingMessage(CompressedText.decode(readBytes(in)));
+                    r.setOutgoingMessage(CompressedText.decode(readBytes(in)));
+                    rows.accept(r);
+                    n++;
+                }
+                long count = in.readLong();
+                long crc = checked.getChecksum().getValue();
+                if (count != n || in.readLong() != crc) throw new IOException("Corrupt audit archive: " + file);
+            } catch (EOFException e) {
+                throw new IOException("Truncated audit archive: " + file, e);
+            }
+            return n;
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0) return null;
+        byte[] b = new byte[len];
+        in.readFully(b);
+        return b;
+    }
+
+    private static String string(byte[] b) {
+        return b == null ? null : new String(b, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,146 @@
+package com.megha.bank.service;
+
+import com.megha.bank.model.AuditRecord;
+import com.megha.bank.repository.AuditRepository;
+import com.megha.bank.repository.DedupRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Audit retention ({@code mt.audit.archive.enabled=true}). On {@code mt.audit.archive.cron}, every day bucket older
+ * than {@code mt.audit.archive.retention-days} is copied to {@code audit-<yyyymmdd>.arc} in
+ * {@code mt.audit.archive.directory} (format: AuditArchiveFile) and then deleted from mt_audit, one day at a time.
+ *
+ * The file is forced to disk and renamed into place before any row is deleted, and only the rows written to it are
+ * deleted, so a crash at any point loses nothing: at worst a day is archived again into a new file
+ * ({@code audit-<yyyymmdd>.1.arc}, ...). Rows that arrive late for an archived day end up in such a file too.
+ * Dedup rows pointing at archived audit rows are deleted with them; replays are not expected after retention.
+ */
+@Service
+@ConditionalOnProperty(name = "mt.audit.archive.enabled", havingValue = "true")
+public class AuditArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditArchiver.class);
+
+    private static final int DELETE_CHUNK = 1000;
+
+    private final AuditRepository auditRepository;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final Path directory;
+    private final int retentionDays;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Counter archivedRows;
+    private final Counter archivedDays;
+
+    @Autowired(required = false)
+    private DedupRepository dedupRepository;
+
+    public AuditArchiver(AuditRepository auditRepository,
+                         JdbcTemplate jdbc,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${mt.audit.archive.directory:data/audit-archive}") String directory,
+                         @Value("${mt.audit.archive.retention-days:30}") int retentionDays) {
+        this.auditRepository = auditRepository;
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.directory = Path.of(directory);
+        this.retentionDays = retentionDays;
+        this.archivedRows = Counter.builder("mt.audit.archived.rows").register(meterRegistry);
+        this.archivedDays = Counter.builder("mt.audit.archived.days").register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${mt.audit.archive.cron:0 15 1 * * *}")
+    public void scheduledRun() {
+        try {
+            archiveExpired();
+        } catch (RuntimeException e) {
+            log.warn("Audit archiving failed, will retry on next run: {}", e.toString());
+        }
+    }
+
+    /** Archives every day older than the retention period; returns the number of rows moved. */
+    public long archiveExpired() {
+        return archiveBefore(LocalDate.now().minusDays(retentionDays));
+    }
+
+    /** Archives every day before {@code day} (exclusive); returns the number of rows moved. */
+    public long archiveBefore(LocalDate day) {
+        lock.lock();
+        try {
+            long total = 0;
+            for (int d : auditRepository.findDaysBefore(AuditRecord.dayOf(day.atStartOfDay()))) {
+                total += archiveDay(d);
+            }
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long archiveDay(int day) {
+        List<Long> ids = new ArrayList<>();
+        Path file;
+        try {
+            Files.createDirectories(directory);
+            file = freeName(day);
+            try (AuditArchiveFile.Writer w = new AuditArchiveFile.Writer(file)) {
+                jdbc.query("select id, created_at, trade_ref, status, incoming_message, outgoing_message "
+                        + "from mt_audit where audit_day = ? order by id", rs -> {
+                    try {
+                        long id = rs.getLong(1);
+                        w.write(id, rs.getObject(2, LocalDateTime.class), rs.getString(3), rs.getString(4),
+                                rs.getBytes(5), rs.getBytes(6));
+                        ids.add(id);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, day);
+                w.commit();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write audit archive for day " + day, e);
+        }
+
+        for (int i = 0; i < ids.size(); i += DELETE_CHUNK) {
+            List<Long> chunk = ids.subList(i, Math.min(ids.size(), i + DELETE_CHUNK));
+            tx.executeWithoutResult(s -> {
+                if (dedupRepository != null) dedupRepository.deleteByAuditIdIn(chunk);
+                auditRepository.deleteAllByIdInBatch(chunk);
+            });
+        }
+        archivedDays.increment();
+        archivedRows.increment(ids.size());
+        log.info("Archived {} audit rows of {} to {}", ids.size(), day, file);
+        return ids.size();
+    }
+
+    private Path freeName(int day) {
+        Path p = directory.resolve("audit-" + day + ".arc");
+        for (int n = 1; Files.exists(p); n++) {
+            p = directory.resolve("audit-" + day + "." + n + ".arc");
+        }
+        return p;
+    }
+}
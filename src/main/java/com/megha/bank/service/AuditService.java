@@ -2,26 +2,94 @@ package com.megha.bank.service;
 
 import com.megha.bank.model.AuditRecord;
 import com.megha.bank.repository.AuditRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Service
 public class AuditService {
 
     private final AuditRepository auditRepository;
 
+    // Present only with mt.audit.mode=async; records are then spilled before and queued after the caller's commit
+    @Autowired(required = false)
+    private AsyncAuditWriter asyncWriter;
+
     public AuditService(AuditRepository auditRepository) {
         this.auditRepository = auditRepository;
     }
 
     public AuditRecord record(String tradeRef, String incoming, String outgoing, String status) {
+        AuditRecord r = newRecord(tradeRef, incoming, outgoing, status);
+        if (asyncWriter != null) {
+            submitWithTransaction(List.of(r));
+            return r;
+        }
+        return auditRepository.save(r);
+    }
+
+    // Persists a batch of records in one go; relies on hibernate.jdbc.batch_size for batched inserts
+    public List<AuditRecord> recordAll(List<AuditRecord> records) {
+        if (asyncWriter != null) {
+            submitWithTransaction(records);
+            return records;
+        }
+        return auditRepository.saveAll(records);
+    }
+
+    // The records are in the spill file before the caller's transaction commits, so a crash after the commit cannot
+    // lose them (at worst, a crash between the two leaves the audit rows of a transaction that did not commit). They
+    // are queued once it has committed; if it rolls back they are discarded, as in sync mode, and a retry audits once.
+    private void submitWithTransaction(List<AuditRecord> records) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<AuditRecord> copy = List.copyOf(records);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private long[] seqs;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    seqs = asyncWriter.spill(copy);
+                }
+
+                @Override
+                public void afterCommit() {
+                    asyncWriter.enqueue(seqs != null ? seqs : asyncWriter.spill(copy), copy);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    // STATUS_UNKNOWN: the trade may have committed, so leave the records to spill-file recovery
+                    if (status == STATUS_ROLLED_BACK && seqs != null) asyncWriter.discard(seqs);
+                }
+            });
+        } else {
+            asyncWriter.submitAll(records);
+        }
+    }
+
+    /** A trade's audit rows with createdAt in [from, to), oldest first. */
+    public List<AuditRecord> history(String tradeRef, LocalDateTime from, LocalDateTime to) {
+        return auditRepository.findHistory(tradeRef, from, to);
+    }
+
+    /** Up to {@code limit} audit rows with createdAt in [from, to), oldest first. */
+    public List<AuditRecord> range(LocalDateTime from, LocalDateTime to, int limit) {
+        return auditRepository.findRange(AuditRecord.dayOf(from), AuditRecord.dayOf(to), from, to,
+                PageRequest.of(0, limit));
+    }
+
+    public static AuditRecord newRecord(String tradeRef, String incoming, String outgoing, String status) {
         AuditRecord r = new AuditRecord();
         r.setTradeRef(tradeRef);
         r.setIncomingMessage(incoming);
         r.setOutgoingMessage(outgoing);
         r.setStatus(status);
         r.setCreatedAt(LocalDateTime.now());
-        return auditRepository.save(r);
+        return r;
     }
 }
@@ -0,0 +1,221 @@
+package com.megha.bank.service;
+
+import com.megha.bank.model.AuditRecord;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only spill file backing the async audit queue. Every queued record is appended (with a sequence number)
+ * before it is handed to the writer thread; once a batch is committed to the database a commit entry listing its
+ * sequence numbers is appended. After a crash, {@link #readUncommitted()} returns the records that were never
+ * committed. The file is truncated whenever everything in it has been committed.
+ *
+ * Entry layout: {@code [type:1][length:4][body][crc32:4]}; a torn entry at the tail ends the read.
+ */
+class AuditSpillFile implements AutoCloseable {
+
+    private static final byte RECORD = 'R';
+    private static final byte COMMIT = 'C';
+
+    private final Path path;
+    private final boolean fsync;
+    private final FileChannel channel;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer buf = ByteBuffer.allocate(16 * 1024);
+    private long nextSeq = 1;
+    private long pending; // appended but not yet committed
+
+    AuditSpillFile(Path path, boolean fsync) {
+        this.path = path;
+        this.fsync = fsync;
+        try {
+            if (path.getParent() != null) Files.createDirectories(path.getParent());
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.channel.position(channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open audit spill file " + path, e);
+        }
+    }
+
+    /** Appends a record and returns its sequence number. */
+    long append(AuditRecord r) {
+        return appendAll(List.of(r))[0];
+    }
+
+    /** Appends records with one fsync for all of them and returns their sequence numbers. */
+    long[] appendAll(List<AuditRecord> records) {
+        lock.lock();
+        try {
+            long[] seqs = new long[records.size()];
+            for (int i = 0; i < seqs.length; i++) seqs[i] = appendRecord(records.get(i));
+            force();
+            return seqs;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long appendRecord(AuditRecord r) {
+        long seq = nextSeq++;
+        byte[][] fields = {utf8(r.getTradeRef()), utf8(r.getIncomingMessage()), utf8(r.getOutgoingMessage()), utf8(r.getStatus())};
+        int size = 8 + 8 + 4;
+        for (byte[] f : fields) size += 4 + (f == null ? 0 : f.length);
+        begin(RECORD, size);
+        buf.putLong(seq);
+        LocalDateTime at = r.getCreatedAt() == null ? LocalDateTime.now() : r.getCreatedAt();
+        buf.putLong(at.toEpochSecond(ZoneOffset.UTC)).putInt(at.getNano());
+        for (byte[] f : fields) {
+            if (f == null) {
+                buf.putInt(-1);
+            } else {
+                buf.putInt(f.length).put(f);
+            }
+        }
+        write();
+        pending++;
+        return seq;
+    }
+
+    /** Marks the given sequence numbers as written to the database. */
+    void commit(long[] seqs, int count) {
+        lock.lock();
+        try {
+            pending -= count;
+            if (pending == 0) {
+                // everything in the file is in the database: start over instead of growing forever
+                channel.truncate(0);
+                channel.position(0);
+                return;
+            }
+            begin(COMMIT, 4 + 8 * count);
+            buf.putInt(count);
+            for (int i = 0; i < count; i++) buf.putLong(seqs[i]);
+            write();
+            force();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Records appended by a previous run that have no commit entry, in append order. */
+    List<AuditRecord> readUncommitted() {
+        lock.lock();
+        try {
+            Map<Long, AuditRecord> records = new LinkedHashMap<>();
+            Set<Long> committed = new HashSet<>();
+            ByteBuffer in = ByteBuffer.allocate((int) Math.min(channel.size(), Integer.MAX_VALUE));
+            channel.read(in, 0);
+            in.flip();
+            while (in.remaining() >= 5) {
+                int start = in.position();
+                byte type = in.get();
+                int len = in.getInt();
+                if (len < 0 || in.remaining() < len + 4) break;
+                crc.reset();
+                crc.update(in.array(), start, 5 + len);
+                int bodyStart = in.position();
+                in.position(bodyStart + len);
+                if ((int) crc.getValue() != in.getInt()) break;
+                ByteBuffer body = ByteBuffer.wrap(in.array(), bodyStart, len);
+                if (type == RECORD) {
+                    long seq = body.getLong();
+                    AuditRecord r = new AuditRecord();
+                    r.setCreatedAt(LocalDateTime.ofEpochSecond(body.getLong(), body.getInt(), ZoneOffset.UTC));
+                    r.setTradeRef(readString(body));
+                    r.setIncomingMessage(readString(body));
+                    r.setOutgoingMessage(readString(body));
+                    r.setStatus(readString(body));
+                    records.put(seq, r);
+                } else if (type == COMMIT) {
+                    int n = body.getInt();
+                    for (int i = 0; i < n; i++) committed.add(body.getLong());
+                }
+            }
+            committed.forEach(records::remove);
+            return new ArrayList<>(records.values());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read audit spill file " + path, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Drops the file content; used once recovered records have been written. */
+    void reset() {
+        lock.lock();
+        try {
+            channel.truncate(0);
+            channel.position(0);
+            pending = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void begin(byte type, int bodyLength) {
+        int needed = 1 + 4 + bodyLength + 4;
+        if (buf.capacity() < needed) buf = ByteBuffer.allocate(Math.max(needed, buf.capacity() * 2));
+        buf.clear();
+        buf.put(type).putInt(bodyLength);
+    }
+
+    private void write() {
+        crc.reset();
+        crc.update(buf.array(), 0, buf.position());
+        buf.putInt((int) crc.getValue());
+        buf.flip();
+        try {
+            while (buf.hasRemaining()) channel.write(buf);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write audit spill file " + path, e);
+        }
+    }
+
+    private void force() {
+        if (!fsync) return;
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot sync audit spill file " + path, e);
+        }
+    }
+
+    private static byte[] utf8(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuffer body) {
+        int len = body.getInt();
+        if (len < 0) return null;
+        String s = new String(body.array(), body.arrayOffset() + body.position(), len, StandardCharsets.UTF_8);
+        body.position(body.position() + len);
+        return s;
+    }
+}
@@ -0,0 +1,233 @@
+package com.megha.bank.service;
+
+import com.megha.bank.util.HashRing;
+import com.megha.bank.util.MTMessageParser;
+import com.megha.bank.util.MTResponseBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Partition ownership of trade references across nodes. Refs are assigned to members with a consistent-hash
+ * {@link HashRing} ({@code mt.cluster.virtual-nodes} points per node); the members and their base URLs come from
+ * {@code mt.cluster.nodes} ({@code id=url,id=url}) and this node is {@code mt.cluster.node-id}.
+ *
+ * A request for a ref owned by another member is either forwarded to its owner over HTTP or rejected
+ * ({@code mt.cluster.mode=forward|reject}); see TradeController. Members can join and leave at runtime
+ * ({@link #join}, {@link #leave}): the ring is rebuilt and swapped in, so only the keys of the joining or leaving node
+ * change owner, and trade-cache entries for refs this node no longer owns are dropped. The change applies to this node
+ * only; every member has to be told.
+ */
+@Component
+@ConditionalOnProperty(name = "mt.cluster.enabled", havingValue = "true")
+public class ClusterMembership {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterMembership.class);
+
+    /** Marks a request already forwarded by another member; it is never forwarded again. */
+    public static final String FORWARDED_HEADER = "X-MT-FORWARDED-BY";
+    /** Node id of the owning member on rejected requests. */
+    public static final String OWNER_HEADER = "X-MT-OWNER";
+
+    public enum Mode { FORWARD, REJECT }
+
+    private final String localNode;
+    private final Mode mode;
+    private final MTMessageParser parser;
+    private final HttpClient http;
+    private final Duration forwardTimeout;
+    private final ReentrantLock lock = new ReentrantLock();
+    // ring and URLs are swapped together, so a reader never sees an owner without its URL
+    private volatile View view;
+    private final Counter forwarded;
+    private final Counter rejected;
+    private final Counter forwardFailures;
+
+    @Autowired(required = false)
+    private TradeRefCache tradeCache;
+
+    public ClusterMembership(@Value("${mt.cluster.node-id}") String localNode,
+                             @Value("${mt.cluster.nodes}") String nodes,
+                             @Value("${mt.cluster.mode:forward}") String mode,
+                             @Value("${mt.cluster.virtual-nodes:128}") int virtualNodes,
+                             @Value("${mt.cluster.forward-timeout-ms:2000}") long forwardTimeoutMs,
+                             MTMessageParser parser,
+                             MeterRegistry meterRegistry) {
+        Map<String, URI> members = parseNodes(nodes);
+        if (!members.containsKey(localNode)) {
+            throw new IllegalArgumentException("mt.cluster.node-id " + localNode + " is not in mt.cluster.nodes: " + nodes);
+        }
+        this.localNode = localNode;
+        this.mode = Mode.valueOf(mode.trim().toUpperCase());
+        this.parser = parser;
+        this.forwardTimeout = Duration.ofMillis(forwardTimeoutMs);
+        this.http = HttpClient.newBuilder().connectTimeout(forwardTimeout).build();
+        this.view = new View(new HashRing(members.keySet(), virtualNodes), members);
+        this.forwarded = Counter.builder("mt.cluster.requests").tag("route", "forwarded").register(meterRegistry);
+        this.rejected = Counter.builder("mt.cluster.requests").tag("route", "rejected").register(meterRegistry);
+        this.forwardFailures = Counter.builder("mt.cluster.forward.failures").register(meterRegistry);
+        Gauge.builder("mt.cluster.members", this, m -> m.view.members.size()).register(meterRegistry);
+        log.info("Cluster node {} ({} mode), members {}", localNode, this.mode, members.keySet());
+    }
+
+    public String localNode() {
+        return localNode;
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    /** Member ids and base URLs, sorted by id. */
+    public Map<String, URI> members() {
+        return view.members;
+    }
+
+    /** Owning member of {@code tradeRef}. */
+    public String owner(String tradeRef) {
+        return view.ring.owner(tradeRef);
+    }
+
+    public boolean isLocal(String tradeRef) {
+        return tradeRef == null || localNode.equals(owner(tradeRef));
+    }
+
+    /** The member owning the message's REF when that is another node; null when it is ours or there is no REF. */
+    public String remoteOwner(String mtMessage) {
+        String ref = parser.reference(mtMessage);
+        if (ref == null) return null;
+        String owner = owner(ref);
+        return localNode.equals(owner) ? null : owner;
+    }
+
+    /** Adds (or re-addresses) a member and moves its share of the ring to it. */
+    public void join(String node, String url) {
+        URI uri = URI.create(url);
+        lock.lock();
+        try {
+            Map<String, URI> members = new TreeMap<>(view.members);
+            members.put(node, uri);
+            rebalance(new View(view.ring.with(node), members), node + " joined");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Removes a member; its refs are spread over the remaining ones. This node cannot leave its own ring. */
+    public boolean leave(String node) {
+        if (localNode.equals(node)) throw new IllegalArgumentException("the local node cannot leave its own ring");
+        lock.lock();
+        try {
+            if (!view.members.containsKey(node)) return false;
+            Map<String, URI> members = new TreeMap<>(view.members);
+            members.remove(node);
+            rebalance(new View(view.ring.without(node), members), node + " left");
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rebalance(View next, String reason) {
+        view = next;
+        int evicted = tradeCache == null ? 0 : tradeCache.evictIf(ref -> !isLocal(ref));
+        log.info("Cluster membership changed ({}): members {}, {} cached trades no longer owned here",
+                reason, next.members.keySet(), evicted);
+    }
+
+    /**
+     * POSTs MT text to {@code path} on the member {@code node}, marked as forwarded by this node. Completes with the
+     * owner's response, or exceptionally when it cannot be reached within {@code mt.cluster.forward-timeout-ms}.
+     */
+    public CompletableFuture<Forwarded> forward(String node, String path, String mtText, String accept) {
+        URI base = view.members.get(node);
+        if (base == null) {
+            forwardFailures.increment();
+            return CompletableFuture.failedFuture(new IllegalStateException("unknown member " + node));
+        }
+        HttpRequest request = HttpRequest.newBuilder(base.resolve(path))
+                .timeout(forwardTimeout)
+                .header("Content-Type", "text/plain;charset=UTF-8")
+                .header("Accept", accept == null ? "application/json" : accept)
+                .header(FORWARDED_HEADER, localNode)
+                .POST(HttpRequest.BodyPublishers.ofString(mtText, StandardCharsets.UTF_8))
+                .build();
+        forwarded.increment();
+        return http.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(r -> new Forwarded(r.statusCode(),
+                        r.headers().firstValue("Content-Type").orElse(null),
+                        r.headers().firstValue("X-MT-RESPONSE").orElse(null),
+                        r.body()))
+                .whenComplete((r, e) -> {
+                    if (e != null) forwardFailures.increment();
+                });
+    }
+
+    /** NAK for a message this node did not process ({@code reason} e.g. {@code NOT_OWNER: b}); counted as rejected. */
+    public String reject(String mtMessage, String reason) {
+        rejected.increment();
+        MTMessageParser.ParsedMT parsed = parser.parse(mtMessage);
+        return MTResponseBuilder.nak(parsed.reference, reason, parsed.others.get("ORIG_REF"));
+    }
+
+    static Map<String, URI> parseNodes(String nodes) {
+        Map<String, URI> members = new TreeMap<>();
+        for (String entry : nodes.split(",")) {
+            String e = entry.trim();
+            if (e.isEmpty()) continue;
+            int eq = e.indexOf('=');
+            if (eq <= 0) throw new IllegalArgumentException("mt.cluster.nodes entries are id=url: " + e);
+            members.put(e.substring(0, eq).trim(), URI.create(e.substring(eq + 1).trim()));
+        }
+        return members;
+    }
+
+    private static final class View {
+        final HashRing ring;
+        final Map<String, URI> members;
+
+        View(HashRing ring, Map<String, URI> members) {
+            this.ring = ring;
+            this.members = Collections.unmodifiableMap(new LinkedHashMap<>(members));
+        }
+    }
+
+    /** Status, content type, X-MT-RESPONSE and body of a forwarded request as returned by the owner. */
+    public static class Forwarded {
+        private final int status;
+        private final String contentType;
+        private final String mtResponseHeader;
+        private final byte[] body;
+
+        public Forwarded(int status, String contentType, String mtResponseHeader, byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.mtResponseHeader = mtResponseHeader;
+            this.body = body;
+        }
+
+        public int getStatus() { return status; }
+        public String getContentType() { return contentType; }
+        public String getMtResponseHeader() { return mtResponseHeader; }
+        public byte[] getBody() { return body; }
+    }
+}
@@ -0,0 +1,301 @@
+package com.megha.bank.service;
+
+import com.megha.bank.model.AuditRecord;
+import com.megha.bank.model.DedupEntry;
+import com.megha.bank.model.Trade;
+import com.megha.bank.repository.DedupRepository;
+import com.megha.bank.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replay detection for inbound messages. Every ACKed message is recorded in {@code mt_dedup} under a hash of its
+ * type and content, together with the id of the audit row holding its ACK. When the same message comes in again,
+ * TradeService answers with that ACK and leaves the trade tables alone.
+ *
+ * A Bloom filter in front of the table keeps first-time messages (the normal case) off the database: only a
+ * "maybe seen" answer costs a lookup. The filter is filled from the table at startup; until then every message is
+ * looked up.
+ *
+ * Only messages processed within {@code mt.idempotency.replay-window-hours} count: the same text sent again after
+ * that is a new order, not a retry. Older rows are ignored by the lookups and deleted in chunks every
+ * {@code mt.idempotency.purge-interval-ms}, and at startup before the filter is loaded with the rows still in the
+ * window. Every row left in the table is therefore in the filter, so only a message the filter may have seen can
+ * have an expired row that has to be replaced when it is recorded again; first-time messages skip that delete.
+ *
+ * The hash is SHA-256 truncated to 128 bits, so a crafted message cannot pass as a replay of another one.
+ * Dedup rows need the audit id, so with {@code mt.audit.mode=async} (audit rows written later) nothing is recorded
+ * and replays are processed as new messages; a warning is logged at startup.
+ *
+ * The reactive stack (ReactiveTradeService) does its own R2DBC lookup and insert against the same table, using
+ * {@link #mightHaveSeen}, {@link #windowStart} and {@link #recorded} to share the filter and the window.
+ */
+@Component
+@ConditionalOnProperty(name = "mt.idempotency.enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final int DELETE_CHUNK = 1000;
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final DedupRepository dedupRepository;
+    private final TransactionTemplate tx;
+    private final TransactionTemplate readOnlyTx;
+    private final BloomFilter filter;
+    private final Counter replays;
+    private final Counter falsePositives;
+    private final Counter purged;
+    private final Duration replayWindow;
+    private volatile boolean warmed;
+
+    public IdempotencyService(DedupRepository dedupRepository,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${mt.idempotency.expected-entries:1000000}") long expectedEntries,
+                              @Value("${mt.idempotency.false-positive-rate:0.001}") double fpp,
+                              @Value("${mt.idempotency.replay-window-hours:24}") long replayWindowHours,
+                              @Value("${mt.audit.mode:sync}") String auditMode) {
+        this.dedupRepository = dedupRepository;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.filter = new BloomFilter(expectedEntries, fpp);
+        this.replays = Counter.builder("mt.idempotency.replays").register(meterRegistry);
+        this.falsePositives = Counter.builder("mt.idempotency.false-positives").register(meterRegistry);
+        this.purged = Counter.builder("mt.idempotency.purged").register(meterRegistry);
+        if (replayWindowHours <= 0) {
+            throw new IllegalArgumentException("mt.idempotency.replay-window-hours must be > 0: " + replayWindowHours);
+        }
+        this.replayWindow = Duration.ofHours(replayWindowHours);
+        if ("async".equalsIgnoreCase(auditMode.trim())) {
+            log.warn("mt.audit.mode=async: processed messages are not recorded, so resent messages are processed "
+                    + "again instead of being answered as replays");
+        }
+    }
+
+    /** Dedup key of a message; the expected type is part of it, so the same text on /buy and /cancel differs. */
+    public static Key key(String mtMessage, Trade.Type type) {
+        MessageDigest md = SHA256.get();
+        md.update(type.name().getBytes(StandardCharsets.US_ASCII));
+        md.update((byte) '\n');
+        md.update(mtMessage.getBytes(StandardCharsets.UTF_8));
+        ByteBuffer digest = ByteBuffer.wrap(md.digest());
+        return new Key(digest.getLong(), digest.getLong());
+    }
+
+    /** The original ACK if this message was processed within the replay window, else null. */
+    public String replay(Key key) {
+        if (!mightHaveSeen(key)) {
+            return null;
+        }
+        String ack = dedupRepository.findResponse(key.id(), windowStart()).orElse(null);
+        counted(ack);
+        return ack;
+    }
+
+    /** Original ACKs by key for the keys processed before; one query for all the "maybe seen" keys. */
+    public Map<Key, String> replays(Collection<Key> keys) {
+        Map<String, Key> candidates = new HashMap<>();
+        for (Key k : keys) {
+            if (mightHaveSeen(k)) {
+                candidates.put(k.id(), k);
+            }
+        }
+        Map<Key, String> found = new HashMap<>();
+        if (candidates.isEmpty()) {
+            return found;
+        }
+        for (Object[] row : dedupRepository.findResponses(candidates.keySet(), windowStart())) {
+            found.put(candidates.get((String) row[0]), (String) row[1]);
+        }
+        replays.increment(found.size());
+        falsePositives.increment(candidates.size() - found.size());
+        return found;
+    }
+
+    /** Records an ACKed message in the caller's transaction. Skipped when the audit row has no id (async audit). */
+    public void remember(Key key, String tradeRef, AuditRecord audit) {
+        DedupEntry e = entry(key, tradeRef, audit);
+        if (e != null) {
+            if (mightHaveSeen(key)) dedupRepository.deleteExpired(List.of(e.getMessageHash()), windowStart());
+            dedupRepository.save(e);
+            recorded(key);
+        }
+    }
+
+    /** Batch form of {@link #remember}; keys and audits are parallel lists. */
+    public void rememberAll(List<Key> keys, List<String> tradeRefs, List<AuditRecord> audits) {
+        List<DedupEntry> entries = new ArrayList<>(keys.size());
+        List<String> maybeExpired = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            DedupEntry e = entry(keys.get(i), tradeRefs.get(i), audits.get(i));
+            if (e == null) continue;
+            entries.add(e);
+            if (mightHaveSeen(keys.get(i))) maybeExpired.add(e.getMessageHash());
+        }
+        if (!maybeExpired.isEmpty()) dedupRepository.deleteExpired(maybeExpired, windowStart());
+        dedupRepository.saveAll(entries);
+        for (DedupEntry e : entries) {
+            recorded(Key.parse(e.getMessageHash()));
+        }
+    }
+
+    /** False if the message has certainly not been processed; true means it has to be looked up. */
+    public boolean mightHaveSeen(Key key) {
+        return !warmed || filter.mightContain(key.hi, key.lo);
+    }
+
+    /** Oldest processing time that still makes a resend a replay. */
+    public LocalDateTime windowStart() {
+        return LocalDateTime.now().minus(replayWindow);
+    }
+
+    /** Adds a message recorded in {@code mt_dedup} to the filter; call once its transaction has committed. */
+    public void recorded(Key key) {
+        filter.put(key.hi, key.lo);
+    }
+
+    /** Counts the result of a lookup: the original ACK, or null when the filter's "maybe" was wrong. */
+    public void counted(String ack) {
+        if (ack != null) {
+            replays.increment();
+        } else if (warmed) {
+            falsePositives.increment();
+        }
+    }
+
+    /** The mt_dedup row for an ACKed message whose ACK is in audit row {@code auditId}. */
+    public static DedupEntry newEntry(Key key, String tradeRef, long auditId) {
+        DedupEntry e = new DedupEntry();
+        e.setMessageHash(key.id());
+        e.setTradeRef(tradeRef);
+        e.setAuditId(auditId);
+        e.setCreatedAt(LocalDateTime.now());
+        return e;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        // one cut-off for both: every row is either purged or loaded
+        LocalDateTime since = windowStart();
+        long expired = purgeBefore(since);
+        long n = readOnlyTx.execute(s -> {
+            long count = 0;
+            try (var hashes = dedupRepository.streamHashes(since)) {
+                for (var it = hashes.iterator(); it.hasNext(); count++) {
+                    Key k = Key.parse(it.next());
+                    filter.put(k.hi, k.lo);
+                }
+            }
+            return count;
+        });
+        warmed = true;
+        log.info("Replay filter loaded with {} processed messages ({} bits, {} hashes), {} expired removed", n,
+                filter.bitSize(), filter.hashCount(), expired);
+    }
+
+    @Scheduled(fixedDelayString = "${mt.idempotency.purge-interval-ms:600000}",
+            initialDelayString = "${mt.idempotency.purge-interval-ms:600000}")
+    public void scheduledPurge() {
+        try {
+            purgeExpired();
+        } catch (RuntimeException e) {
+            log.warn("Purging expired dedup rows failed, will retry on next run: {}", e.toString());
+        }
+    }
+
+    /** Deletes the rows older than the replay window; returns how many were deleted. */
+    public long purgeExpired() {
+        return purgeBefore(windowStart());
+    }
+
+    private long purgeBefore(LocalDateTime before) {
+        long total = 0;
+        while (true) {
+            Integer n = tx.execute(s -> {
+                List<String> chunk = dedupRepository.findExpiredHashes(before, PageRequest.of(0, DELETE_CHUNK));
+                return chunk.isEmpty() ? 0 : dedupRepository.deleteExpired(chunk, before);
+            });
+            if (n == null || n == 0) break;
+            total += n;
+            purged.increment(n);
+        }
+        return total;
+    }
+
+    private static DedupEntry entry(Key key, String tradeRef, AuditRecord audit) {
+        if (audit == null || audit.getId() == null) {
+            return null;
+        }
+        return newEntry(key, tradeRef, audit.getId());
+    }
+
+    /** 128-bit message hash; {@link #id()} is its 32-char hex form used as the mt_dedup primary key. */
+    public static final class Key {
+        final long hi;
+        final long lo;
+
+        Key(long hi, long lo) {
+            this.hi = hi;
+            this.lo = lo;
+        }
+
+        public String id() {
+            StringBuilder sb = new StringBuilder(32);
+            hex(sb, hi);
+            hex(sb, lo);
+            return sb.toString();
+        }
+
+        static Key parse(String id) {
+            return new Key(Long.parseUnsignedLong(id, 0, 16, 16), Long.parseUnsignedLong(id, 16, 32, 16));
+        }
+
+        private static void hex(StringBuilder sb, long v) {
+            for (int shift = 60; shift >= 0; shift -= 4) {
+                sb.append(Character.forDigit((int) (v >>> shift) & 0xF, 16));
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && k.hi == hi && k.lo == lo;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hi ^ lo);
+        }
+    }
+}
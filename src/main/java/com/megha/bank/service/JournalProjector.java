@@ -0,0 +1,147 @@
+package com.megha.bank.service;
+
+import com.megha.bank.model.JournalCheckpoint;
+import com.megha.bank.repository.JournalCheckpointRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes journaled trades into the database (journal mode). A single thread takes durable entries from the
+ * {@link TradeJournal} in order, up to {@code mt.journal.projection.batch-size} at a time, and applies each batch with
+ * {@link TradeService#applyJournaled} in one transaction that also moves this journal's row in
+ * {@code mt_journal_checkpoint} to the batch's last sequence number. A failed batch is retried until it goes through.
+ *
+ * At startup, before the journal accepts anything, entries after the checkpoint are replayed the same way, so every
+ * acknowledged message reaches the database exactly once.
+ */
+@Component
+@ConditionalOnProperty(name = "mt.journal.enabled", havingValue = "true")
+public class JournalProjector {
+
+    private static final Logger log = LoggerFactory.getLogger(JournalProjector.class);
+
+    private final TradeJournal journal;
+    private final TradeService tradeService;
+    private final JournalCheckpointRepository checkpoints;
+    private final TransactionTemplate tx;
+    private final String journalId;
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final Counter projected;
+    private final Counter conflicts;
+    private final Timer lag;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public JournalProjector(TradeJournal journal,
+                            TradeService tradeService,
+                            JournalCheckpointRepository checkpoints,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${mt.journal.id:default}") String journalId,
+                            @Value("${mt.journal.projection.batch-size:500}") int batchSize,
+                            @Value("${mt.journal.projection.poll-interval-ms:20}") long pollIntervalMs) {
+        this.journal = journal;
+        this.tradeService = tradeService;
+        this.checkpoints = checkpoints;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.journalId = journalId;
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.projected = Counter.builder("mt.journal.projected").register(meterRegistry);
+        this.conflicts = Counter.builder("mt.journal.projection.conflicts")
+                .description("Acknowledged BUY/SELLs whose ref already existed; answered with a late DUPLICATE_REF NAK")
+                .register(meterRegistry);
+        this.lag = Timer.builder("mt.journal.projection.lag")
+                .description("Acceptance to database commit")
+                .register(meterRegistry);
+        this.thread = new Thread(this::loop, "journal-projector");
+        this.thread.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        long checkpoint = checkpoints.findById(journalId).map(JournalCheckpoint::getLastSeq).orElse(0L);
+        List<TradeJournal.Entry> recovered = journal.recover(checkpoint);
+        if (!recovered.isEmpty()) {
+            log.warn("Replaying {} journaled trades after sequence {}", recovered.size(), checkpoint);
+            for (int i = 0; i < recovered.size(); i += batchSize) {
+                // at startup a failure is not retried: the context fails and the entries stay in the journal
+                project(recovered.subList(i, Math.min(recovered.size(), i + batchSize)));
+            }
+        }
+        journal.start();
+        thread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // no interrupt, as in AsyncAuditWriter; whatever is left is replayed on the next start
+        running = false;
+        thread.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    private void loop() {
+        List<TradeJournal.Entry> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                if (journal.drainTo(batch, batchSize, pollIntervalMs) == 0) continue;
+            } catch (InterruptedException ie) {
+                return;
+            }
+            long backoff = pollIntervalMs;
+            while (true) {
+                try {
+                    project(batch);
+                    break;
+                } catch (RuntimeException ex) {
+                    log.error("Projecting {} journaled trades failed, will retry", batch.size(), ex);
+                }
+                if (!running) return;
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, 1000);
+            }
+            batch.clear();
+        }
+    }
+
+    private void project(List<TradeJournal.Entry> batch) {
+        long last = batch.get(batch.size() - 1).getSeq();
+        int conflicted = tx.execute(s -> {
+            int n = tradeService.applyJournaled(batch);
+            JournalCheckpoint cp = checkpoints.findById(journalId).orElseGet(() -> {
+                JournalCheckpoint c = new JournalCheckpoint();
+                c.setJournalId(journalId);
+                return c;
+            });
+            cp.setLastSeq(last);
+            cp.setUpdatedAt(LocalDateTime.now());
+            checkpoints.save(cp);
+            return n;
+        });
+        journal.projected(batch);
+        projected.increment(batch.size());
+        if (conflicted > 0) conflicts.increment(conflicted);
+        lag.record(Duration.between(batch.get(0).getCreatedAt(), LocalDateTime.now()));
+    }
+}
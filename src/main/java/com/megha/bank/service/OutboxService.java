@@ -0,0 +1,95 @@
+package com.megha.bank.service;
+
+import com.megha.bank.model.OutboxMessage;
+import com.megha.bank.repository.OutboxRepository;
+import com.megha.bank.messaging.MessagePublisher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transactional outbox ({@code mt.outbox.enabled=true}). TradeService stores outgoing ACK/NAKs with
+ * {@link #enqueue} inside its own transaction, so they exist only if the trade commits. A relay polls the table
+ * every {@code mt.outbox.poll-interval-ms}, claims up to {@code mt.outbox.batch-size} rows, publishes them to the
+ * MessagePublisher and deletes them in the same transaction. A failure rolls the claim back and the rows are sent
+ * again on the next poll, so delivery is at-least-once.
+ *
+ * The rows go out through {@link MessagePublisher#publishAndConfirm}, not publish(): with
+ * {@code mt.publisher.mode=async}, publish() would only queue them after the relay's commit, and a message the
+ * publisher later drops (full queue or retry buffer, too many attempts) would be gone from the outbox as well. The
+ * relay therefore waits for the broker's confirms before it deletes anything.
+ */
+@Service
+@ConditionalOnProperty(name = "mt.outbox.enabled", havingValue = "true")
+public class OutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxService.class);
+
+    private final OutboxRepository outboxRepository;
+    private final MessagePublisher messagePublisher;
+    private final TransactionTemplate tx;
+    private final int batchSize;
+    private final Counter relayed;
+
+    public OutboxService(OutboxRepository outboxRepository,
+                         MessagePublisher messagePublisher,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${mt.outbox.batch-size:100}") int batchSize) {
+        this.outboxRepository = outboxRepository;
+        this.messagePublisher = messagePublisher;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.relayed = Counter.builder("mt.outbox.relayed").register(meterRegistry);
+    }
+
+    /** Stores a message to be published; joins the caller's transaction. */
+    public void enqueue(String routingKey, String payload) {
+        OutboxMessage m = new OutboxMessage();
+        m.setRoutingKey(routingKey);
+        m.setPayload(payload);
+        m.setCreatedAt(LocalDateTime.now());
+        outboxRepository.save(m);
+    }
+
+    @Scheduled(fixedDelayString = "${mt.outbox.poll-interval-ms:100}")
+    public void relay() {
+        try {
+            int n;
+            do {
+                n = tx.execute(s -> relayBatch());
+            } while (n == batchSize); // keep draining while there is a backlog
+        } catch (RuntimeException e) {
+            log.warn("Outbox relay failed, will retry on next poll: {}", e.toString());
+        }
+    }
+
+    private int relayBatch() {
+        List<OutboxMessage> batch = outboxRepository.claimBatch(PageRequest.of(0, batchSize));
+        // one call per run of rows with the same routing key, so their order is kept
+        int i = 0;
+        while (i < batch.size()) {
+            String routingKey = batch.get(i).getRoutingKey();
+            List<String> payloads = new ArrayList<>();
+            while (i < batch.size() && routingKey.equals(batch.get(i).getRoutingKey())) {
+                payloads.add(batch.get(i++).getPayload());
+            }
+            messagePublisher.publishAndConfirm(routingKey, payloads);
+        }
+        outboxRepository.deleteAllInBatch(batch);
+        relayed.increment(batch.size());
+        return batch.size();
+    }
+}
@@ -0,0 +1,247 @@
+package com.megha.bank.service;
+
+import com.megha.bank.model.Trade;
+import com.megha.bank.repository.TradeRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Net quantity and notional (quantity x price) per instrument over all open trades: BUY adds, SELL subtracts, and
+ * cancelling a BUY/SELL takes its contribution back out. TradeService feeds it after each commit; at startup it is
+ * rebuilt from the trades table with one aggregate query.
+ *
+ * Instruments are spread over {@code mt.positions.stripes} stripes, each an open-addressing table of parallel
+ * String / long / double arrays behind its own lock, so an update is a hash probe and two primitive adds with no
+ * boxing. {@link #snapshot} takes every stripe lock (in order) for the time it takes to copy the arrays, which gives
+ * a consistent cut: each trade is either fully in it or not at all.
+ */
+@Component
+@ConditionalOnProperty(name = "mt.positions.enabled", havingValue = "true", matchIfMissing = true)
+public class PositionEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(PositionEngine.class);
+
+    private final Stripe[] stripes;
+    private final int mask;
+
+    @Autowired(required = false)
+    private TradeRepository tradeRepository;
+
+    public PositionEngine(@Value("${mt.positions.stripes:16}") int stripes, MeterRegistry meterRegistry) {
+        int n = Integer.highestOneBit(Math.max(1, stripes - 1) << 1);
+        this.stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) this.stripes[i] = new Stripe();
+        this.mask = n - 1;
+        Gauge.builder("mt.positions.instruments", this, PositionEngine::instruments).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        if (tradeRepository == null) return;
+        long t0 = System.nanoTime();
+        int rows = 0;
+        for (Object[] row : tradeRepository.sumOpenPositions()) {
+            String instrument = (String) row[0];
+            boolean sell = row[1] == Trade.Type.SELL;
+            long qty = ((Number) row[2]).longValue();
+            double notional = ((Number) row[3]).doubleValue();
+            apply(instrument, sell ? -qty : qty, sell ? -notional : notional);
+            rows++;
+        }
+        log.info("Positions rebuilt for {} instruments from {} aggregate rows in {} ms", instruments(), rows,
+                (System.nanoTime() - t0) / 1_000_000);
+    }
+
+    /** Adds a BUY/SELL trade ({@code sign} 1) or takes it back out ({@code sign} -1, cancel); others are ignored. */
+    public void onTrade(Trade t, int sign) {
+        if (t.getInstrument() == null || t.getQuantity() == null || t.getPrice() == null) return;
+        long qty;
+        if (t.getType() == Trade.Type.BUY) qty = t.getQuantity();
+        else if (t.getType() == Trade.Type.SELL) qty = -t.getQuantity();
+        else return;
+        qty *= sign;
+        apply(t.getInstrument(), qty, qty * t.getPrice());
+    }
+
+    /** {@link #onTrade} once the current transaction commits (right away if there is none). */
+    public void onTradeAfterCommit(Trade t, int sign) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    onTrade(t, sign);
+                }
+            });
+        } else {
+            onTrade(t, sign);
+        }
+    }
+
+    public void apply(String instrument, long quantityDelta, double notionalDelta) {
+        int h = spread(instrument.hashCode());
+        Stripe s = stripes[h & mask];
+        s.lock.lock();
+        try {
+            s.add(instrument, h >>> 4, quantityDelta, notionalDelta);
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    /** Current position of one instrument, or null if it never traded. */
+    public Position get(String instrument) {
+        int h = spread(instrument.hashCode());
+        Stripe s = stripes[h & mask];
+        s.lock.lock();
+        try {
+            int i = s.find(instrument, h >>> 4);
+            return i < 0 ? null : new Position(instrument, s.qty[i], s.notional[i]);
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    /** All positions at one instant, sorted by instrument. */
+    public Snapshot snapshot() {
+        String[][] keys = new String[stripes.length][];
+        long[][] qty = new long[stripes.length][];
+        double[][] notional = new double[stripes.length][];
+        long version = 0;
+        for (Stripe s : stripes) s.lock.lock();
+        try {
+            for (int i = 0; i < stripes.length; i++) {
+                Stripe s = stripes[i];
+                keys[i] = s.keys.clone();
+                qty[i] = s.qty.clone();
+                notional[i] = s.notional.clone();
+                version += s.updates;
+            }
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) stripes[i].lock.unlock();
+        }
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            for (int j = 0; j < keys[i].length; j++) {
+                if (keys[i][j] != null) positions.add(new Position(keys[i][j], qty[i][j], notional[i][j]));
+            }
+        }
+        positions.sort(Comparator.comparing(Position::getInstrument));
+        return new Snapshot(version, positions);
+    }
+
+    public int instruments() {
+        int n = 0;
+        for (Stripe s : stripes) {
+            s.lock.lock();
+            try {
+                n += s.size;
+            } finally {
+                s.lock.unlock();
+            }
+        }
+        return n;
+    }
+
+    private static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        String[] keys = new String[16];
+        long[] qty = new long[16];
+        double[] notional = new double[16];
+        int size;
+        long updates;
+
+        int find(String key, int h) {
+            int m = keys.length - 1;
+            for (int i = h & m; ; i = (i + 1) & m) {
+                String k = keys[i];
+                if (k == null) return -1;
+                if (k.equals(key)) return i;
+            }
+        }
+
+        void add(String key, int h, long dq, double dn) {
+            int m = keys.length - 1;
+            int i = h & m;
+            for (String k; (k = keys[i]) != null && !k.equals(key); i = (i + 1) & m) { }
+            if (keys[i] == null) {
+                if (size + 1 > keys.length >>> 1) {
+                    grow();
+                    add(key, h, dq, dn);
+                    return;
+                }
+                keys[i] = key;
+                size++;
+            }
+            qty[i] += dq;
+            notional[i] += dn;
+            updates++;
+        }
+
+        private void grow() {
+            String[] oldKeys = keys;
+            long[] oldQty = qty;
+            double[] oldNotional = notional;
+            keys = new String[oldKeys.length << 1];
+            qty = new long[keys.length];
+            notional = new double[keys.length];
+            int m = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] == null) continue;
+                int i = (spread(oldKeys[j].hashCode()) >>> 4) & m;
+                while (keys[i] != null) i = (i + 1) & m;
+                keys[i] = oldKeys[j];
+                qty[i] = oldQty[j];
+                notional[i] = oldNotional[j];
+            }
+        }
+    }
+
+    public static class Position {
+        private final String instrument;
+        private final long netQuantity;
+        private final double notional;
+
+        public Position(String instrument, long netQuantity, double notional) {
+            this.instrument = instrument;
+            this.netQuantity = netQuantity;
+            this.notional = notional;
+        }
+
+        public String getInstrument() { return instrument; }
+        public long getNetQuantity() { return netQuantity; }
+        public double getNotional() { return notional; }
+    }
+
+    public static class Snapshot {
+        private final long version;
+        private final List<Position> positions;
+
+        public Snapshot(long version, List<Position> positions) {
+            this.version = version;
+            this.positions = positions;
+        }
+
+        /** Number of updates applied so far; equal versions mean identical snapshots. */
+        public long getVersion() { return version; }
+        public List<Position> getPositions() { return positions; }
+    }
+}
@@ -0,0 +1,337 @@
+package com.megha.bank.service;
+
+import com.megha.bank.model.Trade;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-ahead journal for journal mode ({@code mt.journal.enabled=true}): accepted messages are appended to a
+ * memory-mapped file ({@code mt.journal.file}, {@code mt.journal.size-mb}) and acknowledged as soon as they are on
+ * disk; {@link JournalProjector} writes them into the trade and audit tables afterwards.
+ *
+ * Group commit: appenders copy their entry into the mapping and wait. A single flusher thread forces everything
+ * appended so far to disk in one call, then wakes all the appenders it covered. It waits
+ * {@code mt.journal.fsync-interval-us} after the first pending append so more can join the same fsync; appends that
+ * arrive while a force is running always go into the next one. Durable entries are handed to the projector in order.
+ *
+ * The file is reused from the start once everything in it has been projected. When it fills up before that, appends
+ * wait up to {@code mt.journal.append-timeout-ms} for the projector and then fail.
+ */
+@Component
+@ConditionalOnProperty(name = "mt.journal.enabled", havingValue = "true")
+public class TradeJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(TradeJournal.class);
+
+    private final TradeJournalFile file;
+    private final boolean fsync;
+    private final long fsyncIntervalNanos;
+    private final long appendTimeoutNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pending = lock.newCondition();
+    private final Condition durable = lock.newCondition();
+    private final Condition space = lock.newCondition();
+    private final List<Entry> unforced = new ArrayList<>();
+    private final BlockingQueue<Entry> toProject = new LinkedBlockingQueue<>();
+    // original responses of messages not projected yet, so a resend is recognised before the dedup table has it
+    private final Map<IdempotencyService.Key, String> pendingResponses = new ConcurrentHashMap<>();
+    // refs of BUY/SELLs reserved or acknowledged but not projected yet, so a second one is NAKed before it is ACKed
+    private final Set<String> pendingRefs = ConcurrentHashMap.newKeySet();
+    private final Thread flusher;
+    private final Timer appendLatency;
+    private final Timer fsyncLatency;
+    private final DistributionSummary fsyncBatch;
+    private long lastSeq;
+    private long durableSeq;
+    private long projectedSeq;
+    private int forcedPosition;
+    private RuntimeException failure;
+    private volatile boolean running = true;
+
+    public TradeJournal(@Value("${mt.journal.file:data/trade-journal.log}") String path,
+                        @Value("${mt.journal.size-mb:64}") int sizeMb,
+                        @Value("${mt.journal.fsync:true}") boolean fsync,
+                        @Value("${mt.journal.fsync-interval-us:200}") long fsyncIntervalUs,
+                        @Value("${mt.journal.append-timeout-ms:1000}") long appendTimeoutMs,
+                        MeterRegistry meterRegistry) {
+        this.file = new TradeJournalFile(Path.of(path), sizeMb * 1024 * 1024);
+        this.fsync = fsync;
+        this.fsyncIntervalNanos = TimeUnit.MICROSECONDS.toNanos(fsyncIntervalUs);
+        this.appendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(appendTimeoutMs);
+        this.appendLatency = Timer.builder("mt.journal.append")
+                .description("Append until durable, i.e. what an ACK waits for")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(meterRegistry);
+        this.fsyncLatency = Timer.builder("mt.journal.fsync").register(meterRegistry);
+        this.fsyncBatch = DistributionSummary.builder("mt.journal.fsync.entries")
+                .description("Entries made durable by one fsync")
+                .register(meterRegistry);
+        Gauge.builder("mt.journal.unprojected", this, TradeJournal::unprojected)
+                .description("Durable entries not yet written to the database")
+                .register(meterRegistry);
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        this.flusher.setDaemon(true);
+    }
+
+    /**
+     * Entries of the journal file with a sequence number after {@code projectedSeq} (the database checkpoint), for
+     * replay before {@link #start}.
+     */
+    public List<Entry> recover(long projectedSeq) {
+        lock.lock();
+        try {
+            List<Entry> all = file.read();
+            List<Entry> unprojected = new ArrayList<>();
+            for (Entry e : all) {
+                if (e.seq > projectedSeq) unprojected.add(e);
+            }
+            lastSeq = Math.max(projectedSeq, all.isEmpty() ? 0 : all.get(all.size() - 1).seq);
+            return unprojected;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Starts accepting appends; everything recovered must have been projected by now. */
+    public void start() {
+        lock.lock();
+        try {
+            durableSeq = projectedSeq = lastSeq;
+            file.rewind();
+            forcedPosition = 0;
+        } finally {
+            lock.unlock();
+        }
+        flusher.start();
+    }
+
+    /** Assigns the next sequence number, appends the entry and returns once it is on disk. */
+    public Entry append(Entry e) {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            if (!running) throw new IllegalStateException("Trade journal is closed");
+            // start over while the file is idle, so a burst later does not have to wait for space
+            if (projectedSeq == lastSeq && file.position() > file.capacity() / 2) {
+                file.rewind();
+                forcedPosition = 0;
+            }
+            long deadline = start + appendTimeoutNanos;
+            while (!file.write(e.withSeq(lastSeq + 1))) {
+                if (projectedSeq == lastSeq) {
+                    file.rewind();
+                    forcedPosition = 0;
+                    continue;
+                }
+                long left = deadline - System.nanoTime();
+                if (left <= 0) throw new IllegalStateException("Trade journal full: projection is behind");
+                space.awaitNanos(left);
+            }
+            long seq = ++lastSeq;
+            if (e.key != null) pendingResponses.put(e.key, e.mtResponse);
+            unforced.add(e);
+            pending.signal();
+            while (durableSeq < seq) {
+                if (failure != null) throw new IllegalStateException("Trade journal write failed", failure);
+                durable.await();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while appending to the trade journal", ie);
+        } finally {
+            lock.unlock();
+        }
+        appendLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return e;
+    }
+
+    /** The response already given to a message that is journaled but not projected yet, or null. */
+    public String pendingResponse(IdempotencyService.Key key) {
+        return pendingResponses.get(key);
+    }
+
+    /**
+     * Reserves {@code tradeRef} for a new BUY/SELL until it is projected; false when another journaled BUY/SELL holds
+     * it. A reservation that is not followed by a successful {@link #append} must be given back with
+     * {@link #releaseRef}.
+     */
+    public boolean reserveRef(String tradeRef) {
+        return pendingRefs.add(tradeRef);
+    }
+
+    public void releaseRef(String tradeRef) {
+        pendingRefs.remove(tradeRef);
+    }
+
+    /** Moves up to {@code max} durable entries into {@code batch}, waiting up to {@code timeoutMs} for the first. */
+    int drainTo(List<Entry> batch, int max, long timeoutMs) throws InterruptedException {
+        Entry first = toProject.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (first == null) return 0;
+        batch.add(first);
+        return 1 + toProject.drainTo(batch, max - 1);
+    }
+
+    /** Called once the batch (in journal order) has been committed to the database. */
+    void projected(List<Entry> batch) {
+        lock.lock();
+        try {
+            projectedSeq = batch.get(batch.size() - 1).seq;
+            space.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Entry e : batch) {
+            if (e.key != null) pendingResponses.remove(e.key);
+            if (e.reservesRef()) pendingRefs.remove(e.tradeRef);
+        }
+    }
+
+    public long unprojected() {
+        lock.lock();
+        try {
+            return lastSeq - projectedSeq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws Exception {
+        lock.lock();
+        try {
+            running = false;
+            pending.signal();
+        } finally {
+            lock.unlock();
+        }
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+        if (unprojected() > 0) {
+            log.info("{} journaled trades not projected yet; they are replayed on the next start", unprojected());
+        }
+        file.close();
+    }
+
+    private void flushLoop() {
+        while (true) {
+            List<Entry> batch;
+            int from, to;
+            lock.lock();
+            try {
+                while (unforced.isEmpty()) {
+                    if (!running) return;
+                    pending.awaitUninterruptibly();
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (fsyncIntervalNanos > 0) LockSupport.parkNanos(fsyncIntervalNanos);
+            lock.lock();
+            try {
+                batch = new ArrayList<>(unforced);
+                unforced.clear();
+                from = forcedPosition;
+                to = file.position();
+            } finally {
+                lock.unlock();
+            }
+            long t0 = System.nanoTime();
+            RuntimeException error = null;
+            try {
+                if (fsync) file.force(from, to);
+            } catch (RuntimeException ex) {
+                error = ex;
+                log.error("Trade journal fsync failed; no further appends are acknowledged", ex);
+            }
+            fsyncLatency.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+            fsyncBatch.record(batch.size());
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                    durable.signalAll();
+                    return;
+                }
+                forcedPosition = to;
+                durableSeq = batch.get(batch.size() - 1).seq;
+                durable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            toProject.addAll(batch);
+        }
+    }
+
+    /** One accepted message: the trade (or NAK) as acknowledged, in the order it was accepted. */
+    public static final class Entry {
+        long seq;
+        private final Trade.Type type;
+        private final TradeService.Outcome outcome;
+        private final String tradeRef;
+        private final String instrument;
+        private final Long quantity;
+        private final Double price;
+        private final String mtMessage;
+        private final String mtResponse;
+        private final LocalDateTime createdAt;
+        // dedup key of the message; not written to the file (recomputed from the message on replay)
+        final IdempotencyService.Key key;
+
+        public Entry(Trade.Type type, TradeService.Outcome outcome, String tradeRef, String instrument, Long quantity,
+                     Double price, String mtMessage, String mtResponse, LocalDateTime createdAt,
+                     IdempotencyService.Key key) {
+            this.type = type;
+            this.outcome = outcome;
+            this.tradeRef = tradeRef;
+            this.instrument = instrument;
+            this.quantity = quantity;
+            this.price = price;
+            this.mtMessage = mtMessage;
+            this.mtResponse = mtResponse;
+            this.createdAt = createdAt;
+            this.key = key;
+        }
+
+        // an acknowledged BUY/SELL holds its ref in pendingRefs until projected
+        boolean reservesRef() {
+            return outcome == TradeService.Outcome.ACK && type != Trade.Type.CANCEL && tradeRef != null;
+        }
+
+        private Entry withSeq(long seq) {
+            this.seq = seq;
+            return this;
+        }
+
+        public long getSeq() { return seq; }
+        public Trade.Type getType() { return type; }
+        public TradeService.Outcome getOutcome() { return outcome; }
+        public String getTradeRef() { return tradeRef; }
+        public String getInstrument() { return instrument; }
+        public Long getQuantity() { return quantity; }
+        public Double getPrice() { return price; }
+        public String getMtMessage() { return mtMessage; }
+        public String getMtResponse() { return mtResponse; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+    }
+}
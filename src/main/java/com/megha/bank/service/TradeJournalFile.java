@@ -0,0 +1,166 @@
+package com.megha.bank.service;
+
+import com.megha.bank.model.Trade;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Fixed-size, memory-mapped file behind {@link TradeJournal}. Entries are written one after the other from the start
+ * of the file; once everything in it has been projected the journal starts over at offset 0 ({@link #rewind}).
+ * Sequence numbers keep increasing across rewinds, so on reading, the current lap ends at the first entry that is torn,
+ * fails its CRC, or does not carry the next sequence number (an older lap's leftovers).
+ *
+ * Entry layout: {@code [length:4][crc32:4][body]}, body = seq, created-at, type, outcome, quantity, price, then
+ * tradeRef, instrument, message and response as length-prefixed UTF-8. Not thread-safe; TradeJournal locks.
+ */
+class TradeJournalFile implements AutoCloseable {
+
+    private static final int HEADER = 8;
+    private static final byte HAS_QUANTITY = 1;
+    private static final byte HAS_PRICE = 2;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int capacity;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer buf = ByteBuffer.allocate(4096);
+    private int position;
+
+    TradeJournalFile(Path path, int capacity) {
+        this.path = path;
+        this.capacity = capacity;
+        try {
+            if (path.getParent() != null) Files.createDirectories(path.getParent());
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.map = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open trade journal " + path, e);
+        }
+    }
+
+    /** Entries of the current lap, in order. */
+    List<TradeJournal.Entry> read() {
+        List<TradeJournal.Entry> entries = new ArrayList<>();
+        int pos = 0;
+        long prevSeq = -1;
+        while (pos + HEADER <= capacity) {
+            int len = map.getInt(pos);
+            if (len <= 0 || len > capacity - pos - HEADER) break;
+            byte[] body = new byte[len];
+            map.get(pos + HEADER, body);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != map.getInt(pos + 4)) break;
+            TradeJournal.Entry e = decode(ByteBuffer.wrap(body));
+            if (prevSeq >= 0 && e.getSeq() != prevSeq + 1) break;
+            entries.add(e);
+            prevSeq = e.getSeq();
+            pos += HEADER + len;
+        }
+        return entries;
+    }
+
+    /** Appends the entry at the current position; false when it does not fit in the rest of the file. */
+    boolean write(TradeJournal.Entry e) {
+        buf.clear();
+        encode(e);
+        int len = buf.position();
+        if (HEADER + len > capacity - position) {
+            if (HEADER + len > capacity) throw new IllegalArgumentException("journal entry larger than the journal: " + len);
+            return false;
+        }
+        crc.reset();
+        crc.update(buf.array(), 0, len);
+        map.put(position + HEADER, buf.array(), 0, len);
+        map.putInt(position + 4, (int) crc.getValue());
+        // length last: a reader never sees a length without the body behind it
+        map.putInt(position, len);
+        position += HEADER + len;
+        return true;
+    }
+
+    /** Writes the dirty pages of {@code [from, to)} to disk. */
+    void force(int from, int to) {
+        if (to > from) map.force(from, to - from);
+    }
+
+    /** Next entries go to the start of the file again; the caller makes sure everything before was projected. */
+    void rewind() {
+        position = 0;
+    }
+
+    int position() {
+        return position;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void encode(TradeJournal.Entry e) {
+        byte[][] strings = {utf8(e.getTradeRef()), utf8(e.getInstrument()), utf8(e.getMtMessage()), utf8(e.getMtResponse())};
+        int size = 8 + 8 + 4 + 3 + 8 + 8;
+        for (byte[] s : strings) size += 4 + (s == null ? 0 : s.length);
+        if (buf.capacity() < size) buf = ByteBuffer.allocate(Math.max(size, buf.capacity() * 2));
+        buf.putLong(e.getSeq());
+        buf.putLong(e.getCreatedAt().toEpochSecond(ZoneOffset.UTC)).putInt(e.getCreatedAt().getNano());
+        buf.put((byte) e.getType().ordinal());
+        buf.put((byte) e.getOutcome().ordinal());
+        buf.put((byte) ((e.getQuantity() != null ? HAS_QUANTITY : 0) | (e.getPrice() != null ? HAS_PRICE : 0)));
+        buf.putLong(e.getQuantity() == null ? 0 : e.getQuantity());
+        buf.putDouble(e.getPrice() == null ? 0 : e.getPrice());
+        for (byte[] s : strings) {
+            if (s == null) {
+                buf.putInt(-1);
+            } else {
+                buf.putInt(s.length).put(s);
+            }
+        }
+    }
+
+    private static TradeJournal.Entry decode(ByteBuffer in) {
+        long seq = in.getLong();
+        LocalDateTime createdAt = LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+        Trade.Type type = Trade.Type.values()[in.get()];
+        TradeService.Outcome outcome = TradeService.Outcome.values()[in.get()];
+        byte flags = in.get();
+        long quantity = in.getLong();
+        double price = in.getDouble();
+        TradeJournal.Entry e = new TradeJournal.Entry(type, outcome, readString(in), readString(in),
+                (flags & HAS_QUANTITY) != 0 ? quantity : null, (flags & HAS_PRICE) != 0 ? price : null,
+                readString(in), readString(in), createdAt, null);
+        e.seq = seq;
+        return e;
+    }
+
+    private static byte[] utf8(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int len = in.getInt();
+        if (len < 0) return null;
+        String s = new String(in.array(), in.arrayOffset() + in.position(), len, StandardCharsets.UTF_8);
+        in.position(in.position() + len);
+        return s;
+    }
+}
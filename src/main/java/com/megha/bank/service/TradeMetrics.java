@@ -0,0 +1,134 @@
+package com.megha.bank.service;
+
+import com.megha.bank.model.Trade;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers and counters for every stage of trade processing. All meters are registered up front and looked up by
+ * enum ordinal, so recording is an array access plus {@code Timer.record} - no tag strings are built and no
+ * registry lookups happen per message.
+ *
+ * <ul>
+ *   <li>{@code mt.process{type,outcome,reason}} - processMtMessage end to end, including the commit</li>
+ *   <li>{@code mt.messages{type,outcome,reason}} - processed messages (single and batch)</li>
+ *   <li>{@code mt.stage{stage,type}} - parse, trade find/save/update, audit record, publish</li>
+ * </ul>
+ * Batch work is tagged {@code type=BATCH}.
+ */
+@Component
+public class TradeMetrics {
+
+    public enum Stage {
+        PARSE("parse"), TRADE_FIND("trade.find"), TRADE_SAVE("trade.save"), TRADE_UPDATE("trade.update"),
+        AUDIT("audit.record"), PUBLISH("publish"), DEDUP("dedup");
+
+        final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private static final int BATCH = Trade.Type.values().length;
+    private static final int TYPES = BATCH + 1;
+
+    private final Timer[][] process;
+    private final Counter[][] messages;
+    private final Timer[][] stages;
+
+    public TradeMetrics(MeterRegistry registry) {
+        TradeService.Outcome[] outcomes = TradeService.Outcome.values();
+        Stage[] stageValues = Stage.values();
+        process = new Timer[TYPES][outcomes.length];
+        messages = new Counter[TYPES][outcomes.length];
+        stages = new Timer[stageValues.length][TYPES];
+        for (int t = 0; t < TYPES; t++) {
+            String type = t == BATCH ? "BATCH" : Trade.Type.values()[t].name();
+            for (TradeService.Outcome o : outcomes) {
+                process[t][o.ordinal()] = Timer.builder("mt.process")
+                        .description("processMtMessage including commit")
+                        .tag("type", type).tag("outcome", o.status).tag("reason", o.reason)
+                        .register(registry);
+                messages[t][o.ordinal()] = Counter.builder("mt.messages")
+                        .tag("type", type).tag("outcome", o.status).tag("reason", o.reason)
+                        .register(registry);
+            }
+            for (Stage s : stageValues) {
+                stages[s.ordinal()][t] = Timer.builder("mt.stage")
+                        .tag("stage", s.tag).tag("type", type)
+                        .register(registry);
+            }
+        }
+    }
+
+    /** Meters that record into nothing; used when TradeService runs without a Spring context. */
+    static TradeMetrics noop() {
+        return new TradeMetrics(new CompositeMeterRegistry());
+    }
+
+    /** Records a stage that started at {@code startNanos} (from System.nanoTime); null type means batch. */
+    public void stage(Stage stage, Trade.Type type, long startNanos) {
+        stages[stage.ordinal()][index(type)].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void message(Trade.Type type, TradeService.Outcome outcome) {
+        messages[index(type)][outcome.ordinal()].increment();
+    }
+
+    /**
+     * Starts timing one processMtMessage call. Inside a transaction the sample completes after commit/rollback
+     * (a rollback is recorded as ERROR); otherwise it completes in {@link ProcessSample#end()}.
+     */
+    public ProcessSample startProcess(Trade.Type type) {
+        ProcessSample sample = new ProcessSample(type, System.nanoTime());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(sample);
+            sample.synchronizedWithTx = true;
+        }
+        return sample;
+    }
+
+    private static int index(Trade.Type type) {
+        return type == null ? BATCH : type.ordinal();
+    }
+
+    public final class ProcessSample implements TransactionSynchronization {
+        private final Trade.Type type;
+        private final long start;
+        private TradeService.Outcome outcome = TradeService.Outcome.ERROR;
+        private boolean synchronizedWithTx;
+
+        private ProcessSample(Trade.Type type, long start) {
+            this.type = type;
+            this.start = start;
+        }
+
+        public void outcome(TradeService.Outcome outcome) {
+            this.outcome = outcome;
+        }
+
+        /** Call in a finally block; records immediately unless the transaction will do it. */
+        public void end() {
+            if (!synchronizedWithTx) record(outcome);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            record(status == STATUS_COMMITTED ? outcome : TradeService.Outcome.ERROR);
+        }
+
+        private void record(TradeService.Outcome o) {
+            int t = index(type);
+            process[t][o.ordinal()].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            messages[t][o.ordinal()].increment();
+        }
+    }
+}
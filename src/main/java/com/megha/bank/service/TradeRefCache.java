@@ -0,0 +1,156 @@
+package com.megha.bank.service;
+
+import com.megha.bank.model.Trade;
+import com.megha.bank.repository.TradeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Bounded LRU cache of trades keyed by tradeRef, so a CANCEL for a recent trade can skip the findByTradeRef query.
+ * Entries are detached copies; {@link #get} returns a fresh copy each time. TradeService updates the cache after its
+ * transaction commits, so rolled-back inserts never show up here. Optionally warmed at startup with the most recent
+ * {@code mt.trade-cache.warm-size} trades.
+ */
+@Component
+@ConditionalOnProperty(name = "mt.trade-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class TradeRefCache {
+
+    private static final Logger log = LoggerFactory.getLogger(TradeRefCache.class);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Trade> entries;
+    private final Counter hits;
+    private final Counter misses;
+
+    @Autowired(required = false)
+    private TradeRepository tradeRepository;
+
+    @Value("${mt.trade-cache.warm-size:0}")
+    private int warmSize;
+
+    public TradeRefCache(@Value("${mt.trade-cache.max-size:100000}") int maxSize, MeterRegistry meterRegistry) {
+        this.entries = new LinkedHashMap<>(Math.min(maxSize, 1 << 16), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Trade> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.hits = Counter.builder("mt.trade-cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("mt.trade-cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("mt.trade-cache.size", this, TradeRefCache::size).register(meterRegistry);
+    }
+
+    /** Copy of the cached trade, or null (counted as a miss). */
+    public Trade get(String tradeRef) {
+        Trade t;
+        lock.lock();
+        try {
+            t = entries.get(tradeRef);
+        } finally {
+            lock.unlock();
+        }
+        if (t == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return copy(t);
+    }
+
+    /** Caches a copy of the trade once the current transaction (if any) has committed. */
+    public void putAfterCommit(Trade trade) {
+        Trade snapshot = copy(trade);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(snapshot);
+                }
+            });
+        } else {
+            put(snapshot);
+        }
+    }
+
+    public void evict(String tradeRef) {
+        lock.lock();
+        try {
+            entries.remove(tradeRef);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Drops every entry whose tradeRef matches; returns how many were dropped. */
+    public int evictIf(Predicate<String> tradeRef) {
+        lock.lock();
+        try {
+            int before = entries.size();
+            entries.keySet().removeIf(tradeRef);
+            return before - entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        if (warmSize <= 0 || tradeRepository == null) return;
+        var recent = tradeRepository.findAll(PageRequest.of(0, warmSize, Sort.by(Sort.Direction.DESC, "createdAt")));
+        // oldest first so the most recent trades end up as the most recently used entries
+        for (int i = recent.getNumberOfElements() - 1; i >= 0; i--) {
+            put(copy(recent.getContent().get(i)));
+        }
+        log.info("Trade cache warmed with {} trades", recent.getNumberOfElements());
+    }
+
+    private void put(Trade t) {
+        lock.lock();
+        try {
+            entries.put(t.getTradeRef(), t);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Trade copy(Trade t) {
+        Trade c = new Trade();
+        c.setId(t.getId());
+        c.setTradeRef(t.getTradeRef());
+        c.setType(t.getType());
+        c.setStatus(t.getStatus());
+        c.setInstrument(t.getInstrument());
+        c.setQuantity(t.getQuantity());
+        c.setPrice(t.getPrice());
+        c.setCreatedAt(t.getCreatedAt());
+        c.setUpdatedAt(t.getUpdatedAt());
+        return c;
+    }
+}
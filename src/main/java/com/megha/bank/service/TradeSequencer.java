@@ -0,0 +1,69 @@
+package com.megha.bank.service;
+
+import com.megha.bank.model.Trade;
+import com.megha.bank.util.MTMessageParser;
+import com.megha.bank.util.PartitionedExecutor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Serializes trade messages per tradeRef. Each message is routed by its REF to one of {@code mt.sequencer.partitions}
+ * single-threaded partitions, so a BUY and a CANCEL for the same reference are processed (and committed) one after
+ * the other in arrival order, while different references run in parallel. Without this, a concurrent CANCEL can miss
+ * the BUY and insert a placeholder with the same ref, and one of the two transactions fails on the unique tradeRef.
+ *
+ * Opt-in ({@code mt.sequencer.enabled=true}): the partition count caps how many messages hit the database at once,
+ * whatever the Tomcat and JDBC pool sizes, a slow message holds up every other ref on its partition, and
+ * TradeService runs on the partition threads rather than on the request thread (so not on virtual threads in
+ * {@code mt.virtual-threads} mode). Size {@code mt.sequencer.partitions} close to the JDBC pool size.
+ * Messages without a REF get a generated one and are spread round-robin.
+ */
+@Component
+@ConditionalOnProperty(name = "mt.sequencer.enabled", havingValue = "true")
+public class TradeSequencer {
+
+    private final TradeService tradeService;
+    private final MTMessageParser parser;
+    private final PartitionedExecutor executor;
+
+    public TradeSequencer(TradeService tradeService,
+                          MTMessageParser parser,
+                          MeterRegistry meterRegistry,
+                          @Value("${mt.sequencer.partitions:8}") int partitions,
+                          @Value("${mt.sequencer.queue-capacity:1024}") int queueCapacity) {
+        this.tradeService = tradeService;
+        this.parser = parser;
+        this.executor = new PartitionedExecutor("trade-seq", partitions, queueCapacity);
+        Gauge.builder("mt.sequencer.queued", executor, PartitionedExecutor::queued)
+                .description("Messages waiting for their tradeRef partition")
+                .register(meterRegistry);
+    }
+
+    /** Queues the message on its tradeRef partition; the future completes once the transaction has committed. */
+    public CompletableFuture<TradeService.ProcessResult> submit(String mtMessage, Trade.Type type) {
+        return executor.submit(parser.reference(mtMessage), () -> tradeService.processMtMessage(mtMessage, type));
+    }
+
+    /** Like {@link TradeService#processMtMessage}, but ordered with other messages for the same tradeRef. */
+    public TradeService.ProcessResult process(String mtMessage, Trade.Type type) {
+        try {
+            return submit(mtMessage, type).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.close();
+    }
+}
@@ -5,12 +5,24 @@ import com.megha.bank.model.AuditRecord;
 import com.megha.bank.repository.TradeRepository;
 import com.megha.bank.util.MTMessageParser;
 import com.megha.bank.util.MTResponseBuilder;
+import com.megha.bank.util.TradeRefGenerator;
 import com.megha.bank.messaging.MessagePublisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * TradeService processes incoming MT messages, persists trades, generates MT-style FIN responses (ACK/NAK),
@@ -19,6 +31,8 @@ import java.time.LocalDateTime;
 @Service
 public class TradeService {
 
+    private static final Logger log = LoggerFactory.getLogger(TradeService.class);
+
     private final TradeRepository tradeRepository;
     private final MTMessageParser parser;
 
@@ -28,6 +42,36 @@ public class TradeService {
     @Autowired(required = false)
     private MessagePublisher messagePublisher;
 
+    // Present with mt.outbox.enabled=true: responses are stored in the outbox table instead of published directly
+    @Autowired(required = false)
+    private OutboxService outboxService;
+
+    // Recently seen trades by reference; lets CANCEL skip the findByTradeRef lookup
+    @Autowired(required = false)
+    private TradeRefCache tradeCache;
+
+    @Autowired(required = false)
+    private TradeMetrics metrics = TradeMetrics.noop();
+
+    @Autowired(required = false)
+    private TradeRefGenerator refGenerator = new TradeRefGenerator(0);
+
+    // Replay detection (mt.idempotency.enabled, on by default): a resent message gets its original ACK back
+    @Autowired(required = false)
+    private IdempotencyService idempotency;
+
+    // Net quantity/notional per instrument (mt.positions.enabled, on by default), updated after commit
+    @Autowired(required = false)
+    private PositionEngine positions;
+
+    // mt.cluster.enabled: generated refs are drawn until one hashes to this node
+    @Autowired(required = false)
+    private ClusterMembership cluster;
+
+    // mt.journal.enabled: single messages are acknowledged from the journal and written to the tables afterwards
+    @Autowired(required = false)
+    private TradeJournal journal;
+
     @Autowired
     public TradeService(TradeRepository tradeRepository, MTMessageParser parser) {
         this.tradeRepository = tradeRepository;
@@ -36,8 +80,33 @@ public class TradeService {
 
     @Transactional
     public ProcessResult processMtMessage(String mtMessage, Trade.Type expectedType) {
+        TradeMetrics.ProcessSample sample = metrics.startProcess(expectedType);
+        try {
+            ProcessResult res = process(mtMessage, expectedType);
+            sample.outcome(res.getOutcome());
+            return res;
+        } finally {
+            sample.end();
+        }
+    }
+
+    private ProcessResult process(String mtMessage, Trade.Type expectedType) {
+        // A replay is answered with the original ACK, before parsing and without touching the trade tables
+        IdempotencyService.Key key = null;
+        if (idempotency != null) {
+            long t0 = System.nanoTime();
+            key = IdempotencyService.key(mtMessage, expectedType);
+            String original = idempotency.replay(key);
+            metrics.stage(TradeMetrics.Stage.DEDUP, expectedType, t0);
+            if (original != null) {
+                return new ProcessResult(null, original, Outcome.REPLAY);
+            }
+        }
+
         // Parse MT message into structured DTO
+        long t0 = System.nanoTime();
         MTMessageParser.ParsedMT parsed = parser.parse(mtMessage);
+        metrics.stage(TradeMetrics.Stage.PARSE, expectedType, t0);
 
         // Basic validation: ensure message type matches expectedType
         if (parsed.type == null || !parsed.type.equalsIgnoreCase(expectedType.name())) {
@@ -52,13 +121,9 @@ public class TradeService {
             if (parsed.instrument == null || parsed.quantity == null || parsed.price == null) {
                 String nak = MTResponseBuilder.nak(parsed.reference, "MISSING_FIELDS: instrument/quantity/price", originRef);
                 // Audit and publish NAK
-                if (auditService != null) {
-                    auditService.record(parsed.reference, mtMessage, nak, "NAK");
-                }
-                if (messagePublisher != null) {
-                    messagePublisher.publish("mt.acks", nak);
-                }
-                return new ProcessResult(null, nak, false);
+                audit(parsed.reference, mtMessage, nak, "NAK", expectedType);
+                publish(nak, expectedType);
+                return new ProcessResult(null, nak, Outcome.MISSING_FIELDS);
             }
         }
 
@@ -66,88 +131,541 @@ public class TradeService {
         if (expectedType == Trade.Type.CANCEL) {
             // For cancel, find original trade by reference and mark cancelled
             String ref = parsed.reference;
-            if (ref != null) {
-                trade = tradeRepository.findByTradeRef(ref)
+            Trade cached = ref == null || tradeCache == null ? null : tradeCache.get(ref);
+            if (cached != null && updateStatus(cached, Trade.Status.CANCELLED)) {
+                // Known trade: status updated by id, no lookup or entity load needed
+                unwindPosition(cached);
+                markCancelled(cached);
+                trade = cached;
+            } else if (ref != null) {
+                trade = findByTradeRef(ref)
                         .map(t -> {
-                            t.setStatus(Trade.Status.CANCELLED);
-                            t.setUpdatedAt(LocalDateTime.now());
-                            return tradeRepository.save(t);
-                        }).orElseGet(() -> {
-                            // If not found, create a cancel record with reference
-                            Trade c = new Trade();
-                            c.setTradeRef(ref);
-                            c.setType(Trade.Type.CANCEL);
-                            c.setStatus(Trade.Status.CANCELLED);
-                            c.setInstrument(parsed.instrument);
-                            c.setQuantity(parsed.quantity);
-                            c.setPrice(parsed.price);
-                            c.setCreatedAt(LocalDateTime.now());
-                            c.setUpdatedAt(LocalDateTime.now());
-                            return tradeRepository.save(c);
-                        });
+                            cancel(t);
+                            return save(t);
+                        })
+                        // If not found, create a cancel record with reference
+                        .orElseGet(() -> save(newTrade(ref, Trade.Type.CANCEL, Trade.Status.CANCELLED, parsed)));
             } else {
                 // No reference provided: create a cancel placeholder
-                Trade c = new Trade();
-                c.setTradeRef(generateRef());
-                c.setType(Trade.Type.CANCEL);
-                c.setStatus(Trade.Status.CANCELLED);
-                c.setInstrument(parsed.instrument);
-                c.setQuantity(parsed.quantity);
-                c.setPrice(parsed.price);
-                c.setCreatedAt(LocalDateTime.now());
-                c.setUpdatedAt(LocalDateTime.now());
-                trade = tradeRepository.save(c);
+                trade = save(newTrade(generateRef(), Trade.Type.CANCEL, Trade.Status.CANCELLED, parsed));
             }
+            cache(trade);
             String ack = MTResponseBuilder.ack(trade.getTradeRef(), "CANCELLED", originRef);
             // Audit and publish ACK
-            if (auditService != null) {
-                auditService.record(trade.getTradeRef(), mtMessage, ack, "ACK");
-            }
-            if (messagePublisher != null) {
-                messagePublisher.publish("mt.acks", ack);
-            }
-            return new ProcessResult(trade, ack, true);
+            remember(key, trade, audit(trade.getTradeRef(), mtMessage, ack, "ACK", expectedType));
+            publish(ack, expectedType);
+            return new ProcessResult(trade, ack, Outcome.ACK);
         } else {
-            trade = new Trade();
-            trade.setTradeRef(parsed.reference == null ? generateRef() : parsed.reference);
-            trade.setType(expectedType);
-            trade.setInstrument(parsed.instrument);
-            trade.setQuantity(parsed.quantity);
-            trade.setPrice(parsed.price);
-            trade.setStatus(Trade.Status.NEW);
-            trade.setCreatedAt(LocalDateTime.now());
-            trade.setUpdatedAt(LocalDateTime.now());
-            trade = tradeRepository.save(trade);
+            String ref = parsed.reference == null ? generateRef() : parsed.reference;
+            trade = save(newTrade(ref, expectedType, Trade.Status.NEW, parsed));
+            cache(trade);
+            if (positions != null) positions.onTradeAfterCommit(trade, 1);
 
             String ack = MTResponseBuilder.ack(trade.getTradeRef(), "RECEIVED", originRef);
             // Audit and publish ACK
-            if (auditService != null) {
-                auditService.record(trade.getTradeRef(), mtMessage, ack, "ACK");
+            remember(key, trade, audit(trade.getTradeRef(), mtMessage, ack, "ACK", expectedType));
+            publish(ack, expectedType);
+            return new ProcessResult(trade, ack, Outcome.ACK);
+        }
+    }
+
+    /** True in journal mode: callers should use {@link #journalMtMessage} for single messages. */
+    public boolean journaling() {
+        return journal != null;
+    }
+
+    /**
+     * Journal-mode counterpart of {@link #processMtMessage}: the same validation and ACK/NAK, but the result is
+     * appended to the {@link TradeJournal} and returned as soon as it is on disk. The database is written later by
+     * {@link #applyJournaled}, so the returned trade has no id yet, and a CANCEL returns the cancel itself rather than
+     * the trade it cancels. A BUY/SELL whose REF is already booked, or already journaled and not projected yet, gets
+     * its DUPLICATE_REF NAK here rather than an ACK.
+     */
+    public ProcessResult journalMtMessage(String mtMessage, Trade.Type expectedType) {
+        TradeMetrics.ProcessSample sample = metrics.startProcess(expectedType);
+        try {
+            ProcessResult res = journalMessage(mtMessage, expectedType);
+            sample.outcome(res.getOutcome());
+            return res;
+        } finally {
+            sample.end();
+        }
+    }
+
+    private ProcessResult journalMessage(String mtMessage, Trade.Type expectedType) {
+        IdempotencyService.Key key = null;
+        if (idempotency != null) {
+            long t0 = System.nanoTime();
+            key = IdempotencyService.key(mtMessage, expectedType);
+            String original = journal.pendingResponse(key);
+            if (original == null) original = idempotency.replay(key);
+            metrics.stage(TradeMetrics.Stage.DEDUP, expectedType, t0);
+            if (original != null) {
+                return new ProcessResult(null, original, Outcome.REPLAY);
+            }
+        }
+
+        long t0 = System.nanoTime();
+        MTMessageParser.ParsedMT parsed = parser.parse(mtMessage);
+        metrics.stage(TradeMetrics.Stage.PARSE, expectedType, t0);
+        String originRef = parsed.others.getOrDefault("ORIG_REF", null);
+        LocalDateTime now = LocalDateTime.now();
+
+        if (expectedType != Trade.Type.CANCEL
+                && (parsed.instrument == null || parsed.quantity == null || parsed.price == null)) {
+            String nak = MTResponseBuilder.nak(parsed.reference, "MISSING_FIELDS: instrument/quantity/price", originRef);
+            journal.append(new TradeJournal.Entry(expectedType, Outcome.MISSING_FIELDS, parsed.reference, null, null,
+                    null, mtMessage, nak, now, null));
+            return new ProcessResult(null, nak, Outcome.MISSING_FIELDS);
+        }
+
+        String ref = parsed.reference == null ? generateRef() : parsed.reference;
+        boolean cancel = expectedType == Trade.Type.CANCEL;
+        // the reservation comes first, so of two BUYs for one ref racing through here only one gets past it
+        boolean reserved = !cancel && parsed.reference != null;
+        boolean duplicate = reserved && !journal.reserveRef(ref);
+        if (reserved && !duplicate && isBooked(ref, expectedType)) {
+            journal.releaseRef(ref);
+            duplicate = true;
+        }
+        if (duplicate) {
+            String nak = MTResponseBuilder.nak(ref, "DUPLICATE_REF", originRef);
+            journal.append(new TradeJournal.Entry(expectedType, Outcome.DUPLICATE_REF, ref, null, null, null,
+                    mtMessage, nak, now, null));
+            return new ProcessResult(null, nak, Outcome.DUPLICATE_REF);
+        }
+        Trade trade = newTrade(ref, expectedType, cancel ? Trade.Status.CANCELLED : Trade.Status.NEW, parsed);
+        trade.setCreatedAt(now);
+        trade.setUpdatedAt(now);
+        String ack = MTResponseBuilder.ack(ref, cancel ? "CANCELLED" : "RECEIVED", originRef);
+        try {
+            journal.append(new TradeJournal.Entry(expectedType, Outcome.ACK, ref, parsed.instrument, parsed.quantity,
+                    parsed.price, mtMessage, ack, now, key));
+        } catch (RuntimeException e) {
+            if (reserved) journal.releaseRef(ref);
+            throw e;
+        }
+        return new ProcessResult(trade, ack, Outcome.ACK);
+    }
+
+    // the trade cache answers for recent trades without a query
+    private boolean isBooked(String ref, Trade.Type type) {
+        if (tradeCache != null && tradeCache.get(ref) != null) return true;
+        long t0 = System.nanoTime();
+        boolean exists = tradeRepository.existsByTradeRef(ref);
+        metrics.stage(TradeMetrics.Stage.TRADE_FIND, type, t0);
+        return exists;
+    }
+
+    /**
+     * Writes journaled messages, in journal order, the way {@link #processBatch} writes a batch: trades, audit rows
+     * with the responses already given, dedup entries, published responses, and cache and position updates after
+     * commit. Duplicate refs are NAKed before they are journaled, so a BUY/SELL whose ref exists by the time it is
+     * projected means another path (e.g. /batch) booked the ref in between. It cannot be booked any more; it is
+     * logged as an error, audited and published with a DUPLICATE_REF NAK. Returns the number of such conflicts.
+     */
+    @Transactional
+    public int applyJournaled(List<TradeJournal.Entry> entries) {
+        Set<String> refs = new HashSet<>();
+        for (TradeJournal.Entry e : entries) {
+            if (e.getTradeRef() != null) refs.add(e.getTradeRef());
+        }
+        Map<String, Trade> byRef = new HashMap<>();
+        if (!refs.isEmpty()) {
+            long t0 = System.nanoTime();
+            for (Trade t : tradeRepository.findByTradeRefIn(refs)) {
+                byRef.put(t.getTradeRef(), t);
+            }
+            metrics.stage(TradeMetrics.Stage.TRADE_FIND, null, t0);
+        }
+
+        List<Trade> toSave = new ArrayList<>();
+        List<Trade> touched = new ArrayList<>();
+        List<AuditRecord> audits = new ArrayList<>(entries.size());
+        List<String> responses = new ArrayList<>(entries.size());
+        List<IdempotencyService.Key> ackedKeys = new ArrayList<>();
+        List<String> ackedRefs = new ArrayList<>();
+        List<AuditRecord> ackedAudits = new ArrayList<>();
+        int conflicts = 0;
+
+        for (TradeJournal.Entry e : entries) {
+            String ref = e.getTradeRef();
+            if (e.getOutcome() != Outcome.ACK) {
+                audits.add(journaledRecord(ref, e.getMtMessage(), e.getMtResponse(), "NAK", e));
+                responses.add(e.getMtResponse());
+                continue;
+            }
+            Trade trade = byRef.get(ref);
+            if (e.getType() == Trade.Type.CANCEL) {
+                if (trade != null) {
+                    cancel(trade);
+                } else {
+                    trade = journaledTrade(e, Trade.Status.CANCELLED);
+                    toSave.add(trade);
+                    byRef.put(ref, trade);
+                }
+            } else if (trade != null) {
+                conflicts++;
+                log.error("Acknowledged {} {} (journal seq {}) conflicts with a trade booked after it was journaled;"
+                        + " it is NAKed with DUPLICATE_REF instead", e.getType(), ref, e.getSeq());
+                MTMessageParser.ParsedMT parsed = parser.parse(e.getMtMessage());
+                String nak = MTResponseBuilder.nak(ref, "DUPLICATE_REF", parsed.others.get("ORIG_REF"));
+                audits.add(journaledRecord(ref, e.getMtMessage(), nak, "NAK", e));
+                responses.add(nak);
+                continue;
+            } else {
+                trade = journaledTrade(e, Trade.Status.NEW);
+                toSave.add(trade);
+                byRef.put(ref, trade);
+                if (positions != null) positions.onTradeAfterCommit(trade, 1);
+            }
+            touched.add(trade);
+            AuditRecord audit = journaledRecord(ref, e.getMtMessage(), e.getMtResponse(), "ACK", e);
+            audits.add(audit);
+            responses.add(e.getMtResponse());
+            if (idempotency != null) {
+                ackedKeys.add(IdempotencyService.key(e.getMtMessage(), e.getType()));
+                ackedRefs.add(ref);
+                ackedAudits.add(audit);
+            }
+        }
+
+        long t0 = System.nanoTime();
+        tradeRepository.saveAll(toSave);
+        metrics.stage(TradeMetrics.Stage.TRADE_SAVE, null, t0);
+        for (Trade t : touched) cache(t);
+        if (auditService != null) {
+            t0 = System.nanoTime();
+            auditService.recordAll(audits);
+            metrics.stage(TradeMetrics.Stage.AUDIT, null, t0);
+        }
+        if (!ackedKeys.isEmpty()) {
+            t0 = System.nanoTime();
+            idempotency.rememberAll(ackedKeys, ackedRefs, ackedAudits);
+            metrics.stage(TradeMetrics.Stage.DEDUP, null, t0);
+        }
+        for (String r : responses) publish(r, null);
+        return conflicts;
+    }
+
+    private static Trade journaledTrade(TradeJournal.Entry e, Trade.Status status) {
+        Trade t = new Trade();
+        t.setTradeRef(e.getTradeRef());
+        t.setType(e.getType());
+        t.setStatus(status);
+        t.setInstrument(e.getInstrument());
+        t.setQuantity(e.getQuantity());
+        t.setPrice(e.getPrice());
+        t.setCreatedAt(e.getCreatedAt());
+        t.setUpdatedAt(e.getCreatedAt());
+        return t;
+    }
+
+    // audit rows carry the acceptance time, not the projection time
+    private static AuditRecord journaledRecord(String ref, String incoming, String outgoing, String status,
+                                               TradeJournal.Entry e) {
+        AuditRecord r = AuditService.newRecord(ref, incoming, outgoing, status);
+        r.setCreatedAt(e.getCreatedAt());
+        return r;
+    }
+
+    /**
+     * Processes many MT messages in a single transaction. The message type is taken from each message's TYPE field.
+     * Trades and audit rows are collected and written with saveAll so Hibernate can send them as JDBC batches;
+     * existing trades referenced by CANCELs are loaded with a single IN query.
+     * Results are returned in input order, one ACK/NAK per message.
+     */
+    @Transactional
+    public List<ProcessResult> processBatch(List<String> mtMessages) {
+        long t0 = System.nanoTime();
+        List<MTMessageParser.ParsedMT> parsedList = new ArrayList<>(mtMessages.size());
+        Set<String> refs = new HashSet<>();
+        for (String m : mtMessages) {
+            MTMessageParser.ParsedMT p = parser.parse(m);
+            parsedList.add(p);
+            if (p.reference != null) refs.add(p.reference);
+        }
+        metrics.stage(TradeMetrics.Stage.PARSE, null, t0);
+
+        // Dedup keys and the ACKs of messages seen before, with one lookup for the whole batch. Messages ACKed
+        // further up in this batch are added as they go, so a message repeated within the batch is a replay too.
+        IdempotencyService.Key[] keys = new IdempotencyService.Key[mtMessages.size()];
+        Map<IdempotencyService.Key, String> seen = new HashMap<>();
+        if (idempotency != null) {
+            t0 = System.nanoTime();
+            for (int i = 0; i < keys.length; i++) {
+                Trade.Type type = resolveType(parsedList.get(i).type);
+                if (type != null) keys[i] = IdempotencyService.key(mtMessages.get(i), type);
+            }
+            seen.putAll(idempotency.replays(Arrays.stream(keys).filter(Objects::nonNull).toList()));
+            metrics.stage(TradeMetrics.Stage.DEDUP, null, t0);
+        }
+
+        // Trades known to this batch by reference: pre-existing ones plus the ones created below
+        Map<String, Trade> byRef = new HashMap<>();
+        if (!refs.isEmpty()) {
+            t0 = System.nanoTime();
+            for (Trade t : tradeRepository.findByTradeRefIn(refs)) {
+                byRef.put(t.getTradeRef(), t);
+            }
+            metrics.stage(TradeMetrics.Stage.TRADE_FIND, null, t0);
+        }
+
+        List<ProcessResult> results = new ArrayList<>(mtMessages.size());
+        List<Trade> toSave = new ArrayList<>();
+        List<AuditRecord> audits = new ArrayList<>(mtMessages.size());
+        List<IdempotencyService.Key> ackedKeys = new ArrayList<>();
+        List<String> ackedRefs = new ArrayList<>();
+        List<AuditRecord> ackedAudits = new ArrayList<>();
+
+        for (int i = 0; i < mtMessages.size(); i++) {
+            String mtMessage = mtMessages.get(i);
+            MTMessageParser.ParsedMT parsed = parsedList.get(i);
+            String originRef = parsed.others.getOrDefault("ORIG_REF", null);
+            Trade.Type type = resolveType(parsed.type);
+
+            String original = keys[i] == null ? null : seen.get(keys[i]);
+            if (original != null) {
+                results.add(new ProcessResult(null, original, Outcome.REPLAY));
+                metrics.message(type, Outcome.REPLAY);
+                continue;
+            }
+
+            String nakReason = null;
+            Outcome outcome = null;
+            if (type == null) {
+                nakReason = "UNKNOWN_TYPE: expected BUY/SELL/CANCEL";
+                outcome = Outcome.UNKNOWN_TYPE;
+            } else if (type != Trade.Type.CANCEL
+                    && (parsed.instrument == null || parsed.quantity == null || parsed.price == null)) {
+                nakReason = "MISSING_FIELDS: instrument/quantity/price";
+                outcome = Outcome.MISSING_FIELDS;
+            } else if (type != Trade.Type.CANCEL && parsed.reference != null && byRef.containsKey(parsed.reference)) {
+                nakReason = "DUPLICATE_REF";
+                outcome = Outcome.DUPLICATE_REF;
             }
-            if (messagePublisher != null) {
-                messagePublisher.publish("mt.acks", ack);
+            if (nakReason != null) {
+                String nak = MTResponseBuilder.nak(parsed.reference, nakReason, originRef);
+                audits.add(AuditService.newRecord(parsed.reference, mtMessage, nak, "NAK"));
+                results.add(new ProcessResult(null, nak, outcome));
+                metrics.message(type, outcome);
+                continue;
             }
-            return new ProcessResult(trade, ack, true);
+
+            Trade trade;
+            String status;
+            if (type == Trade.Type.CANCEL) {
+                String ref = parsed.reference;
+                trade = ref == null ? null : byRef.get(ref);
+                if (trade != null) {
+                    // Managed (or queued for insert) already; the change is flushed with the batch
+                    cancel(trade);
+                } else {
+                    trade = newTrade(ref == null ? generateRef() : ref, Trade.Type.CANCEL, Trade.Status.CANCELLED, parsed);
+                    toSave.add(trade);
+                    byRef.put(trade.getTradeRef(), trade);
+                }
+                status = "CANCELLED";
+            } else {
+                String ref = parsed.reference == null ? generateRef() : parsed.reference;
+                trade = newTrade(ref, type, Trade.Status.NEW, parsed);
+                toSave.add(trade);
+                byRef.put(ref, trade);
+                if (positions != null) positions.onTradeAfterCommit(trade, 1);
+                status = "RECEIVED";
+            }
+            String ack = MTResponseBuilder.ack(trade.getTradeRef(), status, originRef);
+            AuditRecord audit = AuditService.newRecord(trade.getTradeRef(), mtMessage, ack, "ACK");
+            audits.add(audit);
+            if (keys[i] != null) {
+                seen.put(keys[i], ack);
+                ackedKeys.add(keys[i]);
+                ackedRefs.add(trade.getTradeRef());
+                ackedAudits.add(audit);
+            }
+            results.add(new ProcessResult(trade, ack, Outcome.ACK));
+            metrics.message(type, Outcome.ACK);
+        }
+
+        t0 = System.nanoTime();
+        tradeRepository.saveAll(toSave);
+        metrics.stage(TradeMetrics.Stage.TRADE_SAVE, null, t0);
+        for (ProcessResult r : results) {
+            if (r.getTrade() != null) cache(r.getTrade());
+        }
+        if (auditService != null) {
+            t0 = System.nanoTime();
+            auditService.recordAll(audits);
+            metrics.stage(TradeMetrics.Stage.AUDIT, null, t0);
+        }
+        if (!ackedKeys.isEmpty()) {
+            // after recordAll: the dedup rows point at the audit ids it assigned
+            t0 = System.nanoTime();
+            idempotency.rememberAll(ackedKeys, ackedRefs, ackedAudits);
+            metrics.stage(TradeMetrics.Stage.DEDUP, null, t0);
         }
+        for (ProcessResult r : results) {
+            if (r.getOutcome() != Outcome.REPLAY) publish(r.getMtResponse(), null);
+        }
+        return results;
+    }
+
+    private static Trade.Type resolveType(String type) {
+        if (type == null) return null;
+        for (Trade.Type t : Trade.Type.values()) {
+            if (t.name().equalsIgnoreCase(type)) return t;
+        }
+        return null;
+    }
+
+    /** New trade from a parsed message; shared with the reactive stack. */
+    public static Trade newTrade(String ref, Trade.Type type, Trade.Status status, MTMessageParser.ParsedMT parsed) {
+        Trade t = new Trade();
+        t.setTradeRef(ref);
+        t.setType(type);
+        t.setStatus(status);
+        t.setInstrument(parsed.instrument);
+        t.setQuantity(parsed.quantity);
+        t.setPrice(parsed.price);
+        t.setCreatedAt(LocalDateTime.now());
+        t.setUpdatedAt(LocalDateTime.now());
+        return t;
+    }
+
+    public static void markCancelled(Trade t) {
+        t.setStatus(Trade.Status.CANCELLED);
+        t.setUpdatedAt(LocalDateTime.now());
+    }
+
+    // Repository, audit and publish calls go through these helpers so each stage is timed
+
+    private Optional<Trade> findByTradeRef(String ref) {
+        long t0 = System.nanoTime();
+        Optional<Trade> t = tradeRepository.findByTradeRef(ref);
+        metrics.stage(TradeMetrics.Stage.TRADE_FIND, Trade.Type.CANCEL, t0);
+        return t;
+    }
+
+    private Trade save(Trade trade) {
+        long t0 = System.nanoTime();
+        Trade saved = tradeRepository.save(trade);
+        metrics.stage(TradeMetrics.Stage.TRADE_SAVE, trade.getType(), t0);
+        return saved;
+    }
+
+    private boolean updateStatus(Trade trade, Trade.Status status) {
+        long t0 = System.nanoTime();
+        int updated = tradeRepository.updateStatus(trade.getId(), status, LocalDateTime.now());
+        metrics.stage(TradeMetrics.Stage.TRADE_UPDATE, Trade.Type.CANCEL, t0);
+        return updated == 1;
+    }
+
+    private AuditRecord audit(String tradeRef, String incoming, String outgoing, String status, Trade.Type type) {
+        if (auditService == null) {
+            return null;
+        }
+        long t0 = System.nanoTime();
+        AuditRecord r = auditService.record(tradeRef, incoming, outgoing, status);
+        metrics.stage(TradeMetrics.Stage.AUDIT, type, t0);
+        return r;
+    }
+
+    private void remember(IdempotencyService.Key key, Trade trade, AuditRecord audit) {
+        if (key != null) {
+            long t0 = System.nanoTime();
+            idempotency.remember(key, trade.getTradeRef(), audit);
+            metrics.stage(TradeMetrics.Stage.DEDUP, trade.getType(), t0);
+        }
+    }
+
+    /**
+     * Marks a known trade cancelled, unwinding its position only if this call is the one that cancelled it. A stored
+     * trade goes through the conditional {@link #updateStatus}, so of two CANCELs for one ref racing on paths the
+     * sequencer does not order (/batch, inbound consumers, file ingestion) only one unwinds. A trade created in this
+     * transaction (no id yet) is not visible to anyone else, so its in-memory status decides.
+     */
+    private void cancel(Trade trade) {
+        boolean changed = trade.getId() == null
+                ? trade.getStatus() != Trade.Status.CANCELLED
+                : updateStatus(trade, Trade.Status.CANCELLED);
+        if (changed) unwindPosition(trade);
+        markCancelled(trade);
+    }
+
+    // Cancelling an open BUY/SELL takes it out of its instrument's position (once the cancel commits)
+    private void unwindPosition(Trade trade) {
+        if (positions != null) {
+            positions.onTradeAfterCommit(trade, -1);
+        }
+    }
+
+    private void cache(Trade trade) {
+        if (tradeCache != null) {
+            tradeCache.putAfterCommit(trade);
+        }
+    }
+
+    private void publish(String mtResponse, Trade.Type type) {
+        long t0 = System.nanoTime();
+        if (outboxService != null) {
+            outboxService.enqueue("mt.acks", mtResponse);
+        } else if (messagePublisher != null) {
+            messagePublisher.publish("mt.acks", mtResponse);
+        } else {
+            return;
+        }
+        metrics.stage(TradeMetrics.Stage.PUBLISH, type, t0);
     }
 
     private String generateRef() {
-        return "TB-" + System.currentTimeMillis();
+        String ref = refGenerator.nextRef();
+        // so a later CANCEL for the ref is routed back here; with n members this takes n draws on average
+        while (cluster != null && !cluster.isLocal(ref)) {
+            ref = refGenerator.nextRef();
+        }
+        return ref;
+    }
+
+    /** ACK or the NAK reason of a processed message (ERROR: the transaction failed). Used as metric tags. */
+    public enum Outcome {
+        ACK("ACK", "none"),
+        MISSING_FIELDS("NAK", "MISSING_FIELDS"),
+        UNKNOWN_TYPE("NAK", "UNKNOWN_TYPE"),
+        DUPLICATE_REF("NAK", "DUPLICATE_REF"),
+        // Resent message answered with its original ACK; nothing written or published
+        REPLAY("REPLAY", "none"),
+        REJECTED("NAK", "OTHER"),
+        ERROR("ERROR", "EXCEPTION");
+
+        final String status;
+        final String reason;
+
+        Outcome(String status, String reason) {
+            this.status = status;
+            this.reason = reason;
+        }
     }
 
     public static class ProcessResult {
         private final Trade trade;
         private final String mtResponse;
         private final boolean success;
+        private final Outcome outcome;
 
         public ProcessResult(Trade trade, String mtResponse, boolean success) {
+            this(trade, mtResponse, success ? Outcome.ACK : Outcome.REJECTED);
+        }
+
+        public ProcessResult(Trade trade, String mtResponse, Outcome outcome) {
             this.trade = trade;
             this.mtResponse = mtResponse;
-            this.success = success;
+            this.success = outcome == Outcome.ACK || outcome == Outcome.REPLAY;
+            this.outcome = outcome;
         }
 
         public Trade getTrade() { return trade; }
         public String getMtResponse() { return mtResponse; }
         public boolean isSuccess() { return success; }
+        public Outcome getOutcome() { return outcome; }
     }
 }
@@ -0,0 +1,136 @@
+package com.megha.bank.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit that adapts to measured latency. Every finished request reports its round-trip time, the number
+ * of requests in flight when it started and whether it failed; the limit moves between {@code minLimit} and
+ * {@code maxLimit} in response. Two algorithms:
+ *
+ * <ul>
+ *   <li>{@link #aimd} - additive increase, multiplicative decrease. A request slower than the threshold, or a failed
+ *   one, multiplies the limit by the backoff ratio; a fast one adds 1, as long as at least half of the limit is in use.</li>
+ *   <li>{@link #gradient} - compares a short-term average RTT against a long-term one. While the short-term RTT is within
+ *   the tolerance of the long-term RTT the limit grows by its square root, and as it rises above that the limit shrinks
+ *   in proportion, by up to half, smoothed over several samples. The long-term average follows slowly, so a lasting
+ *   change in the baseline is accepted rather than fought.</li>
+ * </ul>
+ *
+ * Updates take a short lock; {@link #limit} is a volatile read.
+ */
+public abstract class AdaptiveLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile int limit;
+
+    protected AdaptiveLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit <= 0 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("need 0 < minLimit <= maxLimit: " + minLimit + ", " + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = (int) clamp(initialLimit);
+    }
+
+    public static AdaptiveLimit aimd(int initialLimit, int minLimit, int maxLimit, long latencyThresholdMs,
+                                     double backoffRatio) {
+        return new Aimd(initialLimit, minLimit, maxLimit, TimeUnit.MILLISECONDS.toNanos(latencyThresholdMs), backoffRatio);
+    }
+
+    public static AdaptiveLimit gradient(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        return new Gradient(initialLimit, minLimit, maxLimit, tolerance);
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    /**
+     * Records one finished request.
+     *
+     * @param rttNanos  time the request took
+     * @param inFlight  requests in flight (including this one) when it was admitted
+     * @param dropped   the request failed, e.g. timed out waiting for a connection
+     */
+    public void onSample(long rttNanos, int inFlight, boolean dropped) {
+        lock.lock();
+        try {
+            limit = (int) clamp(next(limit, rttNanos, inFlight, dropped));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The new limit (before clamping); called under the lock. */
+    protected abstract int next(int limit, long rttNanos, int inFlight, boolean dropped);
+
+    protected double clamp(double l) {
+        return Math.max(minLimit, Math.min(maxLimit, l));
+    }
+
+    private static final class Aimd extends AdaptiveLimit {
+        private final long thresholdNanos;
+        private final double backoffRatio;
+
+        Aimd(int initialLimit, int minLimit, int maxLimit, long thresholdNanos, double backoffRatio) {
+            super(initialLimit, minLimit, maxLimit);
+            if (backoffRatio <= 0 || backoffRatio >= 1) {
+                throw new IllegalArgumentException("backoffRatio must be in (0, 1): " + backoffRatio);
+            }
+            this.thresholdNanos = thresholdNanos;
+            this.backoffRatio = backoffRatio;
+        }
+
+        @Override
+        protected int next(int limit, long rttNanos, int inFlight, boolean dropped) {
+            if (dropped || rttNanos > thresholdNanos) return (int) (limit * backoffRatio);
+            // an idle server says nothing about how much more it could take
+            return inFlight * 2 >= limit ? limit + 1 : limit;
+        }
+    }
+
+    private static final class Gradient extends AdaptiveLimit {
+        private static final double SHORT_WINDOW = 10;
+        private static final double LONG_WINDOW = 600;
+        private static final double SMOOTHING = 0.2;
+        private static final double DROP_BACKOFF = 0.9;
+
+        private final double tolerance;
+        private double estimate;
+        private double shortRtt;
+        private double longRtt;
+
+        Gradient(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+            super(initialLimit, minLimit, maxLimit);
+            if (tolerance < 1) throw new IllegalArgumentException("tolerance must be >= 1: " + tolerance);
+            this.tolerance = tolerance;
+            this.estimate = limit();
+        }
+
+        @Override
+        protected int next(int limit, long rttNanos, int inFlight, boolean dropped) {
+            if (dropped) {
+                estimate = clamp(estimate * DROP_BACKOFF);
+                return (int) estimate;
+            }
+            if (shortRtt == 0) {
+                shortRtt = rttNanos;
+                longRtt = rttNanos;
+            } else {
+                shortRtt += (rttNanos - shortRtt) / SHORT_WINDOW;
+                longRtt += (rttNanos - longRtt) / LONG_WINDOW;
+                // latency came back down after a long slow period: let the baseline catch up faster
+                if (longRtt > 2 * shortRtt) longRtt *= 0.95;
+            }
+            if (inFlight * 2 < estimate) return limit;
+
+            double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / Math.max(1, shortRtt)));
+            double target = estimate * gradient + Math.sqrt(estimate);
+            estimate = clamp(estimate * (1 - SMOOTHING) + target * SMOOTHING);
+            return (int) estimate;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.megha.bank.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over 128-bit keys given as two longs (already well mixed, e.g. a truncated SHA-256).
+ * The k probe positions come from double hashing, {@code h1 + i * h2}. Bits are only ever set, so concurrent
+ * {@link #put} and {@link #mightContain} calls need no locking; a key is reported present once its put has returned.
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+
+    /** Sized for {@code expectedEntries} at false-positive rate {@code fpp}; more entries raise the rate. */
+    public BloomFilter(long expectedEntries, double fpp) {
+        if (expectedEntries <= 0 || fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("expectedEntries > 0 and 0 < fpp < 1 required");
+        }
+        long m = (long) Math.ceil(-expectedEntries * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (m + 63) >>> 6);
+        this.words = new AtomicLongArray(words);
+        this.bits = (long) words << 6;
+        this.hashes = Math.max(1, (int) Math.round((double) bits / expectedEntries * Math.log(2)));
+    }
+
+    public void put(long h1, long h2) {
+        long h = h1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h, bits);
+            int w = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long cur = words.get(w);
+            while ((cur & mask) == 0 && !words.compareAndSet(w, cur, cur | mask)) {
+                cur = words.get(w);
+            }
+            h += h2;
+        }
+    }
+
+    public boolean mightContain(long h1, long h2) {
+        long h = h1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+            h += h2;
+        }
+        return true;
+    }
+
+    public long bitSize() {
+        return bits;
+    }
+
+    public int hashCount() {
+        return hashes;
+    }
+}
@@ -0,0 +1,119 @@
+package com.megha.bank.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary form of MT message text, used for the audit message bodies.
+ *
+ * Messages are short (60-400 bytes), too short for plain deflate to find much repetition, so they are compressed
+ * against a preset dictionary of the fixed parts of inbound messages and of our MT199 ACK/NAKs. Layout:
+ * {@code [format][varint UTF-8 length][data]}, where format {@link #RAW} stores the UTF-8 bytes as they are (used
+ * when deflate does not make the text smaller) and {@link #DEFLATE_V1} is raw deflate against {@link #DICT_V1}.
+ * Stored values must stay readable, so the dictionary of a format never changes; a new dictionary gets a new format.
+ */
+public final class CompressedText {
+
+    static final byte RAW = 0;
+    static final byte DEFLATE_V1 = 1;
+
+    // zlib finds matches at the end of the dictionary most cheaply, so the most common text comes last
+    private static final byte[] DICT_V1 = (
+            ":36B::SETT//UNIT/:90B::DEAL//ACTU/:90A::DEAL//PRCT/:20C::SEME//:22H::BUSE//SELL:22H::BUSE//BUYI:23G:CANC"
+            + "{1:F01CPTYBANKAXXX0000000000}{2:I199MEGHABANKXXXXN}{4:\r\n:20:\r\n:21:\r\n:35B:ISIN \r\n-}"
+            + "TYPE:CANCEL\nTYPE:SELL\nORIG_REF:OR-\nINST:INFY\nQTY:100\nPRC:1"
+            + "\n:79:NAK - ERR:MISSING_FIELDS: instrument/quantity/price"
+            + "\n:79:NAK - ERR:DUPLICATE_REF\n:79:ACK - STATUS:CANCELLED"
+            + "{1:F01MEGHABANKXXXX0000000000}{2:I199MEGHABANKXXXXN}{4:\n:20:TB-0\n:21:\n:30:202"
+            + "\n:79:ACK - STATUS:RECEIVED\n-}TYPE:BUY\nREF:TR-"
+    ).getBytes(StandardCharsets.US_ASCII);
+
+    // zlib streams hold native memory; one per thread, reset between uses
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(
+            () -> new Deflater(Deflater.BEST_COMPRESSION, true));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private CompressedText() {
+        // utility class
+    }
+
+    public static byte[] encode(String text) {
+        if (text == null) return null;
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        int header = 1 + varintSize(raw.length);
+        // anything not smaller than the raw form is stored raw
+        byte[] out = new byte[header + raw.length];
+        Deflater d = DEFLATER.get();
+        d.reset();
+        d.setDictionary(DICT_V1);
+        d.setInput(raw);
+        d.finish();
+        int n = d.deflate(out, header, raw.length, Deflater.NO_FLUSH);
+        byte format;
+        if (d.finished() && n < raw.length) {
+            format = DEFLATE_V1;
+        } else {
+            format = RAW;
+            System.arraycopy(raw, 0, out, header, raw.length);
+            n = raw.length;
+        }
+        out[0] = format;
+        writeVarint(out, 1, raw.length);
+        return header + n == out.length ? out : Arrays.copyOf(out, header + n);
+    }
+
+    public static String decode(byte[] data) {
+        if (data == null) return null;
+        if (data.length == 0) throw new IllegalArgumentException("Empty compressed text");
+        int length = 0;
+        int shift = 0;
+        int pos = 1;
+        byte b;
+        do {
+            b = data[pos++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        switch (data[0]) {
+            case RAW:
+                return new String(data, pos, length, StandardCharsets.UTF_8);
+            case DEFLATE_V1:
+                byte[] raw = new byte[length];
+                Inflater inf = INFLATER.get();
+                inf.reset();
+                inf.setDictionary(DICT_V1);
+                inf.setInput(data, pos, data.length - pos);
+                try {
+                    int n = 0;
+                    while (n < length) {
+                        int r = inf.inflate(raw, n, length - n);
+                        if (r == 0 && (inf.finished() || inf.needsInput())) break;
+                        n += r;
+                    }
+                    if (n != length) throw new IllegalArgumentException("Truncated compressed text");
+                } catch (DataFormatException e) {
+                    throw new IllegalArgumentException("Corrupt compressed text", e);
+                }
+                return new String(raw, StandardCharsets.UTF_8);
+            default:
+                throw new IllegalArgumentException("Unknown compressed text format " + data[0]);
+        }
+    }
+
+    private static int varintSize(int v) {
+        int n = 1;
+        while ((v >>>= 7) != 0) n++;
+        return n;
+    }
+
+    private static void writeVarint(byte[] out, int pos, int v) {
+        while ((v & ~0x7F) != 0) {
+            out[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out[pos] = (byte) v;
+    }
+}
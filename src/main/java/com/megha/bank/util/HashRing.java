@@ -0,0 +1,105 @@
+package com.megha.bank.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Immutable consistent-hash ring over node ids. Each node is placed at {@code virtualNodes} points on a 64-bit ring
+ * and a key belongs to the node at the first point at or after the key's hash (wrapping around). Adding a node only
+ * moves keys to that node, and removing one only moves that node's keys, about 1/n of them either way.
+ *
+ * Points are kept as a sorted long[] with a parallel owner array, so {@link #owner} is one hash and a binary search.
+ * Membership changes build a new ring with {@link #with} / {@link #without}.
+ */
+public final class HashRing {
+
+    private final List<String> nodes;
+    private final int virtualNodes;
+    private final long[] points;
+    private final String[] owners;
+
+    public HashRing(Collection<String> nodes, int virtualNodes) {
+        if (virtualNodes <= 0) throw new IllegalArgumentException("virtualNodes must be positive: " + virtualNodes);
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(new TreeSet<>(nodes)));
+        this.virtualNodes = virtualNodes;
+        int n = this.nodes.size() * virtualNodes;
+        long[] hashes = new long[n];
+        int[] nodeOf = new int[n];
+        for (int i = 0; i < this.nodes.size(); i++) {
+            String node = this.nodes.get(i);
+            for (int v = 0; v < virtualNodes; v++) {
+                hashes[i * virtualNodes + v] = hash(node + '#' + v);
+                nodeOf[i * virtualNodes + v] = i;
+            }
+        }
+        // sort points by hash, carrying the node index along (ties broken by node order, so the ring is deterministic)
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> {
+            int c = Long.compareUnsigned(hashes[a], hashes[b]);
+            return c != 0 ? c : Integer.compare(nodeOf[a], nodeOf[b]);
+        });
+        this.points = new long[n];
+        this.owners = new String[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = hashes[order[i]];
+            owners[i] = this.nodes.get(nodeOf[order[i]]);
+        }
+    }
+
+    /** Node owning {@code key}, or null for an empty ring. */
+    public String owner(CharSequence key) {
+        if (points.length == 0) return null;
+        long h = hash(key);
+        int lo = 0, hi = points.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Long.compareUnsigned(points[mid], h) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return owners[lo == points.length ? 0 : lo];
+    }
+
+    public HashRing with(String node) {
+        if (nodes.contains(node)) return this;
+        List<String> next = new ArrayList<>(nodes);
+        next.add(node);
+        return new HashRing(next, virtualNodes);
+    }
+
+    public HashRing without(String node) {
+        if (!nodes.contains(node)) return this;
+        List<String> next = new ArrayList<>(nodes);
+        next.remove(node);
+        return new HashRing(next, virtualNodes);
+    }
+
+    /** Member node ids, sorted. */
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    public int virtualNodes() {
+        return virtualNodes;
+    }
+
+    /** 64-bit FNV-1a over the UTF-16 chars, finished with the murmur3 fmix64 step to spread short, similar keys. */
+    static long hash(CharSequence s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            h = (h ^ (c & 0xff)) * 0x100000001b3L;
+            h = (h ^ (c >>> 8)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
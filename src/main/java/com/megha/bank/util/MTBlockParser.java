@@ -0,0 +1,323 @@
+package com.megha.bank.util;
+
+/**
+ * Tokenizer for block-structured SWIFT FIN text ({@code {1:...}{2:...}{3:{...}}{4:\n:20:...\n-}{5:{...}}}), the
+ * shape {@link MTResponseBuilder} emits. Used by {@link MTMessageParser} for messages that start with '{'.
+ *
+ * Runs in one pass over the CharSequence: blocks 1, 3 and 5 are skipped (nested braces included), block 2 gives the
+ * message type and block 4 is split into {@code :tag:value} fields, where a value runs until the next line that
+ * starts a field or the {@code -} terminator. Only mapped values and unknown fields are turned into strings.
+ *
+ * Field mapping into {@link MTMessageParser.ParsedMT}:
+ * <ul>
+ *   <li>{@code :20:} or {@code :20C::SEME//} - reference</li>
+ *   <li>{@code :21:} or {@code :20C::PREV//} - others ORIG_REF (echoed as :21: in the ACK/NAK)</li>
+ *   <li>{@code :22H::BUSE//BUYI|SELL} - type BUY/SELL; {@code :23G:CANC} - type CANCEL</li>
+ *   <li>{@code :35B:} - instrument (first line, {@code ISIN } prefix dropped)</li>
+ *   <li>{@code :36B::qual//UNIT/100,} - quantity (whole units only)</li>
+ *   <li>{@code :90A:/:90B::qual//ACTU/EUR123,45} - price (SWIFT decimal comma)</li>
+ *   <li>anything else - others, keyed by tag (e.g. {@code 79}); block 2 type as others MT (e.g. {@code 199})</li>
+ * </ul>
+ * Malformed input never throws: unparseable numbers are null and an unterminated block ends the message.
+ */
+final class MTBlockParser {
+
+    private MTBlockParser() {
+    }
+
+    /** True when the message, after leading whitespace, starts with a FIN block. */
+    static boolean isBlockFormat(CharSequence cs) {
+        int len = cs.length();
+        for (int i = 0; i < len; i++) {
+            char c = cs.charAt(i);
+            if (c > ' ') return c == '{';
+        }
+        return false;
+    }
+
+    static MTMessageParser.ParsedMT parseInto(CharSequence cs, MTMessageParser.ParsedMT p) {
+        scan(cs, p);
+        return p;
+    }
+
+    /** Reference (:20: / :20C::SEME//) only; nothing else is materialized. */
+    static String reference(CharSequence cs) {
+        return scan(cs, null);
+    }
+
+    /** Walks the blocks. With {@code p == null} only the reference is extracted and returned. */
+    private static String scan(CharSequence cs, MTMessageParser.ParsedMT p) {
+        int len = cs.length();
+        int pos = 0;
+        String ref = null;
+        while (pos < len) {
+            char c = cs.charAt(pos);
+            if (c != '{') {
+                pos++;
+                continue;
+            }
+            int colon = pos + 1;
+            while (colon < len && cs.charAt(colon) != ':' && cs.charAt(colon) != '}') colon++;
+            if (colon >= len || cs.charAt(colon) != ':') {
+                pos = colon + 1;
+                continue;
+            }
+            int bodyStart = colon + 1;
+            if (colon - pos == 2 && cs.charAt(pos + 1) == '4') {
+                int end = block4End(cs, bodyStart);
+                String r = fields(cs, bodyStart, end, p);
+                if (r != null) ref = r;
+                pos = end;
+                continue;
+            }
+            int end = closingBrace(cs, bodyStart);
+            if (p != null && colon - pos == 2 && cs.charAt(pos + 1) == '2') messageType(cs, bodyStart, end, p);
+            pos = end + 1;
+        }
+        return ref;
+    }
+
+    /** Index of the '}' that closes a block whose body starts at {@code from} (nested blocks skipped), or len. */
+    private static int closingBrace(CharSequence cs, int from) {
+        int depth = 0;
+        for (int i = from; i < cs.length(); i++) {
+            char c = cs.charAt(i);
+            if (c == '{') depth++;
+            else if (c == '}' && depth-- == 0) return i;
+        }
+        return cs.length();
+    }
+
+    /** Index of the "-}" line that ends block 4 (or of a bare '}' when the '-' is missing), or len. */
+    private static int block4End(CharSequence cs, int from) {
+        int len = cs.length();
+        for (int i = from; i < len; i++) {
+            char c = cs.charAt(i);
+            if (c == '-' && (i + 1 == len || cs.charAt(i + 1) == '}') && atLineStart(cs, from, i)) return i;
+            if (c == '}' && atLineStart(cs, from, i)) return i;
+        }
+        return len;
+    }
+
+    private static boolean atLineStart(CharSequence cs, int blockStart, int i) {
+        int j = i - 1;
+        while (j >= blockStart && (cs.charAt(j) == ' ' || cs.charAt(j) == '\t')) j--;
+        return j < blockStart || cs.charAt(j) == '\n' || cs.charAt(j) == '\r';
+    }
+
+    // {2:I199MEGHABANKXXXXN} or {2:O1991200...}: direction then the 3-digit message type
+    private static void messageType(CharSequence cs, int from, int to, MTMessageParser.ParsedMT p) {
+        if (to - from >= 4) {
+            p.others.put("MT", cs.subSequence(from + 1, from + 4).toString());
+        }
+    }
+
+    /** Splits block 4 into fields and maps them; returns the reference if one was seen. */
+    private static String fields(CharSequence cs, int from, int to, MTMessageParser.ParsedMT p) {
+        String ref = null;
+        int pos = from;
+        int tagStart = -1;
+        int tagEnd = -1;
+        while (pos <= to) {
+            int lineEnd = pos;
+            while (lineEnd < to && cs.charAt(lineEnd) != '\n') lineEnd++;
+            int tagLen = pos < to ? tagLength(cs, pos, lineEnd) : 0;
+            if (tagLen > 0 || pos >= to) {
+                if (tagStart >= 0) {
+                    String r = field(cs, tagStart, tagEnd, tagEnd + 1, pos, p);
+                    if (r != null) ref = r;
+                }
+                if (pos >= to) break;
+                tagStart = pos + 1;
+                tagEnd = pos + 1 + tagLen;
+            }
+            // an unterminated last line still gets one more pass to flush its field
+            pos = lineEnd < to ? lineEnd + 1 : to;
+        }
+        return ref;
+    }
+
+    /** Length of the tag if the line at {@code pos} starts a field ({@code :NN[a]:}), else 0. */
+    private static int tagLength(CharSequence cs, int pos, int lineEnd) {
+        if (cs.charAt(pos) != ':') return 0;
+        int i = pos + 1;
+        int digits = 0;
+        while (i < lineEnd && digits < 2 && isDigit(cs.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (digits != 2) return 0;
+        if (i < lineEnd && cs.charAt(i) >= 'A' && cs.charAt(i) <= 'Z') i++;
+        return i < lineEnd && cs.charAt(i) == ':' ? i - pos - 1 : 0;
+    }
+
+    /** Maps one field; {@code [vs, ve)} is the raw value including line breaks. Returns the reference if it is one. */
+    private static String field(CharSequence cs, int ts, int te, int vs, int ve, MTMessageParser.ParsedMT p) {
+        // trim, including the line break before the next field
+        while (vs < ve && cs.charAt(vs) <= ' ') vs++;
+        while (ve > vs && cs.charAt(ve - 1) <= ' ') ve--;
+        int tagLen = te - ts;
+        char d0 = cs.charAt(ts);
+        char d1 = cs.charAt(ts + 1);
+        char option = tagLen == 3 ? cs.charAt(ts + 2) : 0;
+
+        if (d0 == '2' && d1 == '0') {
+            if (option == 0) return value(cs, vs, ve, p);
+            if (option == 'C') {
+                int data = qualifiedData(cs, vs, ve, "SEME");
+                if (data >= 0) return value(cs, data, ve, p);
+                data = qualifiedData(cs, vs, ve, "PREV");
+                if (data >= 0 && p != null) {
+                    p.others.put("ORIG_REF", cs.subSequence(data, ve).toString());
+                    return null;
+                }
+            }
+        }
+        if (p == null) return null;
+
+        if (d0 == '2' && d1 == '1' && option == 0) {
+            p.others.put("ORIG_REF", cs.subSequence(vs, ve).toString());
+        } else if (d0 == '2' && d1 == '2' && option == 'H') {
+            int data = qualifiedData(cs, vs, ve, "BUSE");
+            if (data >= 0 && regionEquals(cs, data, ve, "BUYI")) p.type = "BUY";
+            else if (data >= 0 && regionEquals(cs, data, ve, "SELL")) p.type = "SELL";
+            else other(cs, ts, te, vs, ve, p);
+        } else if (d0 == '2' && d1 == '3' && option == 'G' && regionStartsWith(cs, vs, ve, "CANC")) {
+            p.type = "CANCEL";
+        } else if (d0 == '3' && d1 == '5' && option == 'B') {
+            int e = vs;
+            while (e < ve && cs.charAt(e) != '\n' && cs.charAt(e) != '\r') e++;
+            int s = regionStartsWith(cs, vs, e, "ISIN ") ? vs + 5 : vs;
+            p.instrument = cs.subSequence(s, e).toString().trim();
+        } else if (d0 == '3' && d1 == '6' && option == 'B') {
+            p.quantity = parseQuantity(cs, numberStart(cs, vs, ve), ve);
+        } else if (d0 == '9' && d1 == '0' && (option == 'A' || option == 'B')) {
+            p.price = parseDecimal(cs, numberStart(cs, vs, ve), ve);
+        } else {
+            other(cs, ts, te, vs, ve, p);
+        }
+        return null;
+    }
+
+    private static String value(CharSequence cs, int vs, int ve, MTMessageParser.ParsedMT p) {
+        String ref = cs.subSequence(vs, ve).toString();
+        if (p != null) p.reference = ref;
+        return ref;
+    }
+
+    private static void other(CharSequence cs, int ts, int te, int vs, int ve, MTMessageParser.ParsedMT p) {
+        p.others.put(cs.subSequence(ts, te).toString(), cs.subSequence(vs, ve).toString());
+    }
+
+    /** For {@code :QUAL//data} values: index of data if the qualifier is {@code qualifier}, else -1. */
+    private static int qualifiedData(CharSequence cs, int vs, int ve, String qualifier) {
+        int q = vs;
+        if (q < ve && cs.charAt(q) == ':') q++;
+        int n = qualifier.length();
+        if (q + n + 2 > ve || !regionStartsWith(cs, q, ve, qualifier)) return -1;
+        return cs.charAt(q + n) == '/' && cs.charAt(q + n + 1) == '/' ? q + n + 2 : -1;
+    }
+
+    /** Start of the amount in {@code ...//UNIT/100,} or {@code ...//ACTU/EUR123,45}: after the last '/' and currency. */
+    private static int numberStart(CharSequence cs, int vs, int ve) {
+        int s = ve;
+        while (s > vs && cs.charAt(s - 1) != '/') s--;
+        if (ve - s > 3 && isLetter(cs.charAt(s)) && isLetter(cs.charAt(s + 1)) && isLetter(cs.charAt(s + 2))
+                && (isDigit(cs.charAt(s + 3)) || cs.charAt(s + 3) == 'N')) {
+            s += 3;
+        }
+        return s;
+    }
+
+    /** SWIFT decimal ({@code [N]digits,[digits]}, N = negative) as a whole number; null if it has a fraction. */
+    private static Long parseQuantity(CharSequence cs, int from, int to) {
+        if (from < to && cs.charAt(from) == 'N') return negate(parseQuantity(cs, from + 1, to));
+        long v = 0;
+        int digits = 0;
+        int i = from;
+        for (; i < to && isDigit(cs.charAt(i)); i++) {
+            if (v > (Long.MAX_VALUE - 9) / 10) return null;
+            v = v * 10 + (cs.charAt(i) - '0');
+            digits++;
+        }
+        if (digits == 0) return null;
+        if (i < to && cs.charAt(i) == ',') {
+            for (i++; i < to; i++) {
+                if (cs.charAt(i) != '0') return null;
+            }
+        }
+        return i == to ? v : null;
+    }
+
+    /**
+     * SWIFT decimal ({@code [N]digits,[digits]}) as a double. Same fast path as MTMessageParser.parseDouble: an exact
+     * mantissa divided by an exact power of ten; longer numbers go through Double.parseDouble.
+     */
+    private static Double parseDecimal(CharSequence cs, int from, int to) {
+        boolean negative = from < to && cs.charAt(from) == 'N';
+        int i = negative ? from + 1 : from;
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean comma = false;
+        for (; i < to; i++) {
+            char c = cs.charAt(i);
+            if (isDigit(c)) {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (comma) fractionDigits++;
+                if (mantissa > MTMessageParser.MAX_EXACT_MANTISSA || fractionDigits >= MTMessageParser.POW10.length) {
+                    return slowParseDecimal(cs, negative ? from + 1 : from, to, negative);
+                }
+            } else if ((c == ',' || c == '.') && !comma) {
+                comma = true;
+            } else {
+                return null;
+            }
+        }
+        if (digits == 0) return null;
+        double v = fractionDigits == 0 ? (double) mantissa : mantissa / MTMessageParser.POW10[fractionDigits];
+        return negative ? -v : v;
+    }
+
+    // Long amounts; the characters past the fast path's cut-off are checked here, so a malformed one is null, not a throw
+    private static Double slowParseDecimal(CharSequence cs, int from, int to, boolean negative) {
+        boolean separator = false;
+        for (int i = from; i < to; i++) {
+            char c = cs.charAt(i);
+            if (isDigit(c)) continue;
+            if ((c != ',' && c != '.') || separator) return null;
+            separator = true;
+        }
+        try {
+            double v = Double.parseDouble(cs.subSequence(from, to).toString().replace(',', '.'));
+            return negative ? -v : v;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Long negate(Long v) {
+        return v == null ? null : -v;
+    }
+
+    private static boolean isLetter(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean regionStartsWith(CharSequence cs, int from, int to, String prefix) {
+        if (to - from < prefix.length()) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (cs.charAt(from + i) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static boolean regionEquals(CharSequence cs, int from, int to, String s) {
+        return to - from == s.length() && regionStartsWith(cs, from, to, s);
+    }
+}
@@ -2,14 +2,17 @@ package com.megha.bank.util;
 
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @Component
 public class MTMessageParser {
 
     // Very simple example parser for a custom simplified "MT" text format.
-    // Real SWIFT MT messages are more complex and require proper field parsing.
+    // Messages that start with '{' are block-structured SWIFT FIN text and go to MTBlockParser instead.
 
     public static class ParsedMT {
         public String type; // e.g., BUY, SELL, CANCEL
@@ -18,30 +21,310 @@ public class MTMessageParser {
         public Long quantity;
         public Double price;
         public Map<String, String> others = new HashMap<>();
+
+        /** Clears all fields so the instance can be reused for the next message. */
+        public ParsedMT reset() {
+            type = null;
+            reference = null;
+            instrument = null;
+            quantity = null;
+            price = null;
+            others.clear();
+            return this;
+        }
+    }
+
+    private static final int KEY_OTHER = 0;
+    private static final int KEY_TYPE = 1;
+    private static final int KEY_REF = 2;
+    private static final int KEY_INST = 3;
+    private static final int KEY_QTY = 4;
+    private static final int KEY_PRC = 5;
+
+    // Largest mantissa that is exactly representable as a double (2^53)
+    static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    // Powers of ten that are exactly representable as doubles
+    static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // ASCII characters that can appear in a string accepted by Double.parseDouble (decimal, hex, NaN, Infinity)
+    private static final boolean[] FLOAT_CHARS = new boolean[128];
+
+    static {
+        for (char c : "0123456789.+-eEfFdDxXpPabcABCNaInity".toCharArray()) {
+            FLOAT_CHARS[c] = true;
+        }
     }
 
     public ParsedMT parse(String mtRaw) {
-        ParsedMT p = new ParsedMT();
+        return parseInto(mtRaw, new ParsedMT());
+    }
+
+    /**
+     * Single-pass parse of {@code mtRaw} into {@code p}, which is reset first so callers can reuse one instance.
+     * Lines are scanned in place: no regex, no per-line strings, and known keys (TYPE/REF/INST/QTY/PRC) are
+     * matched without allocating. QTY/PRC are parsed directly; malformed numbers yield null without throwing.
+     * For key:value messages, produces exactly the same result as splitting on {@code \r?\n} and {@code :} with
+     * trimmed, upper-cased keys. FIN block messages ({@code {1:...}{4:...-}}) are detected per message and parsed by
+     * {@link MTBlockParser}.
+     */
+    public ParsedMT parseInto(CharSequence mtRaw, ParsedMT p) {
+        p.reset();
         if (mtRaw == null) return p;
+        if (MTBlockParser.isBlockFormat(mtRaw)) return MTBlockParser.parseInto(mtRaw, p);
         // For this PoC, assume messages are in key:value lines, e.g.:
         // TYPE:BUY\nREF:TR123\nINST:INFY\nQTY:100\nPRC:123.45
-        String[] lines = mtRaw.split("\\r?\\n");
-        for (String l : lines) {
-            String line = l.trim();
-            if (line.isEmpty()) continue;
-            String[] parts = line.split(":", 2);
-            if (parts.length < 2) continue;
-            String k = parts[0].trim().toUpperCase();
-            String v = parts[1].trim();
-            switch (k) {
-                case "TYPE": p.type = v; break;
-                case "REF": p.reference = v; break;
-                case "INST": p.instrument = v; break;
-                case "QTY": try { p.quantity = Long.parseLong(v); } catch (Exception e) { p.quantity = null; } break;
-                case "PRC": try { p.price = Double.parseDouble(v); } catch (Exception e) { p.price = null; } break;
-                default: p.others.put(k, v); break;
+        boolean turkic = isTurkic(Locale.getDefault());
+        int len = mtRaw.length();
+        int pos = 0;
+        while (pos < len) {
+            int lineEnd = pos;
+            while (lineEnd < len && mtRaw.charAt(lineEnd) != '\n') lineEnd++;
+            int s = pos;
+            int e = lineEnd;
+            pos = lineEnd + 1;
+
+            // trim the line (a trailing '\r' goes with the whitespace)
+            while (s < e && mtRaw.charAt(s) <= ' ') s++;
+            while (e > s && mtRaw.charAt(e - 1) <= ' ') e--;
+            if (s == e) continue;
+
+            int colon = s;
+            while (colon < e && mtRaw.charAt(colon) != ':') colon++;
+            if (colon == e) continue;
+
+            int ke = colon;
+            while (ke > s && mtRaw.charAt(ke - 1) <= ' ') ke--;
+            int vs = colon + 1;
+            while (vs < e && mtRaw.charAt(vs) <= ' ') vs++;
+
+            String upperKey = null;
+            int key = matchKey(mtRaw, s, ke, turkic);
+            if (key < 0) {
+                // non-ASCII key (or a Turkic default locale): fall back to String.toUpperCase semantics
+                upperKey = mtRaw.subSequence(s, ke).toString().toUpperCase();
+                key = keyOf(upperKey);
+            }
+            switch (key) {
+                case KEY_TYPE: p.type = mtRaw.subSequence(vs, e).toString(); break;
+                case KEY_REF: p.reference = mtRaw.subSequence(vs, e).toString(); break;
+                case KEY_INST: p.instrument = mtRaw.subSequence(vs, e).toString(); break;
+                case KEY_QTY: p.quantity = parseLong(mtRaw, vs, e); break;
+                case KEY_PRC: p.price = parseDouble(mtRaw, vs, e); break;
+                default:
+                    if (upperKey == null) upperKey = mtRaw.subSequence(s, ke).toString().toUpperCase();
+                    p.others.put(upperKey, mtRaw.subSequence(vs, e).toString());
+                    break;
             }
         }
         return p;
     }
+
+    /**
+     * The REF value of {@code mtRaw} (the last one if repeated), or null. Same result as
+     * {@code parse(mtRaw).reference}, but only the REF line is materialized; used to route a message before parsing it.
+     */
+    public String reference(CharSequence mtRaw) {
+        if (mtRaw == null) return null;
+        if (MTBlockParser.isBlockFormat(mtRaw)) return MTBlockParser.reference(mtRaw);
+        boolean turkic = isTurkic(Locale.getDefault());
+        String ref = null;
+        int len = mtRaw.length();
+        int pos = 0;
+        while (pos < len) {
+            int lineEnd = pos;
+            while (lineEnd < len && mtRaw.charAt(lineEnd) != '\n') lineEnd++;
+            int s = pos;
+            int e = lineEnd;
+            pos = lineEnd + 1;
+
+            while (s < e && mtRaw.charAt(s) <= ' ') s++;
+            while (e > s && mtRaw.charAt(e - 1) <= ' ') e--;
+            int colon = s;
+            while (colon < e && mtRaw.charAt(colon) != ':') colon++;
+            if (colon == e) continue;
+
+            int ke = colon;
+            while (ke > s && mtRaw.charAt(ke - 1) <= ' ') ke--;
+            int key = matchKey(mtRaw, s, ke, turkic);
+            if (key < 0) key = keyOf(mtRaw.subSequence(s, ke).toString().toUpperCase());
+            if (key != KEY_REF) continue;
+
+            int vs = colon + 1;
+            while (vs < e && mtRaw.charAt(vs) <= ' ') vs++;
+            ref = mtRaw.subSequence(vs, e).toString();
+        }
+        return ref;
+    }
+
+    /**
+     * Case-insensitive match of an ASCII key against the known keys. Returns -1 when the key contains characters
+     * whose upper-casing is locale or Unicode dependent, so the caller can fall back to String.toUpperCase.
+     */
+    private static int matchKey(CharSequence cs, int from, int to, boolean turkic) {
+        for (int i = from; i < to; i++) {
+            char c = cs.charAt(i);
+            if (c >= 0x80 || (turkic && c == 'i')) return -1;
+        }
+        switch (to - from) {
+            case 3:
+                if (keyEquals(cs, from, "REF")) return KEY_REF;
+                if (keyEquals(cs, from, "QTY")) return KEY_QTY;
+                if (keyEquals(cs, from, "PRC")) return KEY_PRC;
+                return KEY_OTHER;
+            case 4:
+                if (keyEquals(cs, from, "TYPE")) return KEY_TYPE;
+                if (keyEquals(cs, from, "INST")) return KEY_INST;
+                return KEY_OTHER;
+            default:
+                return KEY_OTHER;
+        }
+    }
+
+    private static boolean keyEquals(CharSequence cs, int from, String upper) {
+        for (int i = 0; i < upper.length(); i++) {
+            char c = cs.charAt(from + i);
+            if (c >= 'a' && c <= 'z') c -= 'a' - 'A';
+            if (c != upper.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int keyOf(String upperKey) {
+        switch (upperKey) {
+            case "TYPE": return KEY_TYPE;
+            case "REF": return KEY_REF;
+            case "INST": return KEY_INST;
+            case "QTY": return KEY_QTY;
+            case "PRC": return KEY_PRC;
+            default: return KEY_OTHER;
+        }
+    }
+
+    private static boolean isTurkic(Locale locale) {
+        String lang = locale.getLanguage();
+        return "tr".equals(lang) || "az".equals(lang);
+    }
+
+    /** Same result as {@code Long.parseLong} boxed, or null where it would throw. */
+    private static Long parseLong(CharSequence cs, int from, int to) {
+        if (from >= to) return null;
+        int i = from;
+        char first = cs.charAt(i);
+        boolean negative = first == '-';
+        if (negative || first == '+') {
+            if (++i == to) return null;
+        }
+        // accumulate negatively, like Long.parseLong, so Long.MIN_VALUE is representable
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multmin = limit / 10;
+        long result = 0;
+        for (; i < to; i++) {
+            char c = cs.charAt(i);
+            if (c >= '0' && c <= '9') {
+                int digit = c - '0';
+                if (result < multmin) return null;
+                result *= 10;
+                if (result < limit + digit) return null;
+                result -= digit;
+            } else if (c < 0x80) {
+                return null;
+            } else {
+                // non-ASCII Unicode digits are accepted by Long.parseLong; rare enough to take the slow path
+                return slowParseLong(cs, from, to);
+            }
+        }
+        return negative ? result : -result;
+    }
+
+    private static Long slowParseLong(CharSequence cs, int from, int to) {
+        try {
+            return Long.parseLong(cs.subSequence(from, to).toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Same result as {@code Double.parseDouble} boxed, or null where it would throw. Plain decimals
+     * ({@code [+-]digits[.digits]}) with up to 15-16 significant digits are converted directly: the mantissa and
+     * the power of ten are both exact doubles, so one division gives the correctly rounded result. Exponents,
+     * suffixes, hex, NaN/Infinity and long mantissas go through Double.parseDouble.
+     */
+    private static Double parseDouble(CharSequence cs, int from, int to) {
+        if (from >= to) return null;
+        int i = from;
+        char first = cs.charAt(i);
+        boolean negative = first == '-';
+        if (negative || first == '+') i++;
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean dot = false;
+        for (; i < to; i++) {
+            char c = cs.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (dot) fractionDigits++;
+                if (mantissa > MAX_EXACT_MANTISSA || fractionDigits >= POW10.length) {
+                    return slowParseDouble(cs, from, to);
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else if (c < 0x80 && FLOAT_CHARS[c]) {
+                return slowParseDouble(cs, from, to);
+            } else {
+                return null;
+            }
+        }
+        if (digits == 0) return null;
+        double v = fractionDigits == 0 ? (double) mantissa : mantissa / POW10[fractionDigits];
+        return negative ? -v : v;
+    }
+
+    private static Double slowParseDouble(CharSequence cs, int from, int to) {
+        try {
+            return Double.parseDouble(cs.subSequence(from, to).toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Splits a multi-message body into individual messages. Messages are separated by one or more blank lines
+     * (lines that are empty or contain only whitespace), e.g. {@code TYPE:BUY\nREF:A\n\nTYPE:SELL\nREF:B}.
+     */
+    public static List<String> splitMessages(String body) {
+        List<String> messages = new ArrayList<>();
+        if (body == null) return messages;
+        int start = -1; // start of the current message, -1 while between messages
+        int pos = 0;
+        int len = body.length();
+        while (pos < len) {
+            int eol = body.indexOf('\n', pos);
+            int end = eol < 0 ? len : eol;
+            if (isBlank(body, pos, end)) {
+                if (start >= 0) {
+                    messages.add(body.substring(start, pos));
+                    start = -1;
+                }
+            } else if (start < 0) {
+                start = pos;
+            }
+            pos = end + 1;
+        }
+        if (start >= 0) messages.add(body.substring(start));
+        return messages;
+    }
+
+    private static boolean isBlank(String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(s.charAt(i))) return false;
+        }
+        return true;
+    }
 }
@@ -1,6 +1,11 @@
 package com.megha.bank.util;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 
 /**
@@ -16,11 +21,38 @@ import java.time.format.DateTimeFormatter;
  * :79:ACK - STATUS:RECEIVED
  * -}
  * }
+ *
+ * The constant parts are precomputed (as text and as ASCII bytes), the {@code :30:} date is cached until the
+ * next local midnight and free text is sanitized in a single pass. Besides the String-returning {@link #ack} and
+ * {@link #nak}, messages can be written straight into a caller-supplied {@link StringBuilder} or {@link ByteBuffer}
+ * (UTF-8), which allocates nothing on the hot path.
  */
 public final class MTResponseBuilder {
 
     private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("yyyyMMdd");
 
+    // Basic header (example), application/MT type 199, start of text block and the :20: tag
+    private static final String HEADER = "{1:F01MEGHABANKXXXX0000000000}{2:I199MEGHABANKXXXXN}{4:\n:20:";
+    private static final String TAG_21 = "\n:21:";
+    private static final String TAG_30 = "\n:30:";
+    private static final String ACK_79 = "\n:79:ACK - STATUS:";
+    private static final String NAK_79 = "\n:79:NAK - ERR:";
+    private static final String TRAILER = "\n-}";
+
+    private static final byte[] HEADER_BYTES = ascii(HEADER);
+    private static final byte[] TAG_21_BYTES = ascii(TAG_21);
+    private static final byte[] TAG_30_BYTES = ascii(TAG_30);
+    private static final byte[] ACK_79_BYTES = ascii(ACK_79);
+    private static final byte[] NAK_79_BYTES = ascii(NAK_79);
+    private static final byte[] TRAILER_BYTES = ascii(TRAILER);
+
+    // Fixed part of every message: header, tags, 8-char date and trailer
+    private static final int FIXED_LENGTH = HEADER.length() + TAG_21.length() + TAG_30.length() + 8
+            + Math.max(ACK_79.length(), NAK_79.length()) + TRAILER.length();
+
+    private static volatile Clock clock = Clock.systemDefaultZone();
+    private static volatile CachedDate cachedDate;
+
     private MTResponseBuilder() {
         // utility class
     }
@@ -34,20 +66,8 @@ public final class MTResponseBuilder {
      * @return formatted simplified MT199 message
      */
     public static String ack(String originalReference, String status, String originReference) {
-        String ref = originalReference == null ? "-" : originalReference;
-        String orig = originReference == null ? "-" : originReference;
-        String date = LocalDate.now().format(DATE_FMT);
-
-        StringBuilder sb = new StringBuilder(256);
-        sb.append("{1:F01MEGHABANKXXXX0000000000}"); // Basic header (example)
-        sb.append("{2:I199MEGHABANKXXXXN}"); // Application/MT type 199
-        sb.append("{4:\n");
-        sb.append(":20:").append(ref).append("\n");   // Sender's reference
-        sb.append(":21:").append(orig).append("\n");  // Related/origin reference
-        sb.append(":30:").append(date).append("\n");  // Date
-        sb.append(":79:").append("ACK - STATUS:").append(safeField(status)).append("\n"); // Narrative
-        sb.append("-}");
-        return sb.toString();
+        return appendAck(new StringBuilder(capacity(originalReference, status, originReference)),
+                originalReference, status, originReference).toString();
     }
 
     /**
@@ -59,33 +79,222 @@ public final class MTResponseBuilder {
      * @return formatted simplified MT199 NAK message
      */
     public static String nak(String originalReference, String reason, String originReference) {
-        String ref = originalReference == null ? "-" : originalReference;
-        String orig = originReference == null ? "-" : originReference;
-        String date = LocalDate.now().format(DATE_FMT);
-        String safeReason = reason == null ? "UNKNOWN" : sanitizeReason(reason);
-
-        StringBuilder sb = new StringBuilder(256);
-        sb.append("{1:F01MEGHABANKXXXX0000000000}");
-        sb.append("{2:I199MEGHABANKXXXXN}");
-        sb.append("{4:\n");
-        sb.append(":20:").append(ref).append("\n");
-        sb.append(":21:").append(orig).append("\n");
-        sb.append(":30:").append(date).append("\n");
-        sb.append(":79:").append("NAK - ERR:").append(safeReason).append("\n");
-        sb.append("-}");
-        return sb.toString();
-    }
-
-    private static String sanitizeReason(String r) {
-        // remove newline chars and problematic braces/pipes that might break formatting
-        return r.replaceAll("\\r?\\n", " ")
-                .replaceAll("[\\{\\}]", " ")
-                .replaceAll("\\|", ";")
-                .trim();
-    }
-
-    private static String safeField(String s) {
-        if (s == null) return "-";
-        return s.replaceAll("\\r?\\n", " ").replaceAll("[\\{\\}]", " ").replaceAll("\\|", ";").trim();
+        return appendNak(new StringBuilder(capacity(originalReference, reason, originReference)),
+                originalReference, reason, originReference).toString();
+    }
+
+    /** Appends an ACK (same content as {@link #ack}) to {@code sb} and returns it. */
+    public static StringBuilder appendAck(StringBuilder sb, String originalReference, String status, String originReference) {
+        appendHead(sb, originalReference, originReference);
+        sb.append(ACK_79);
+        if (status == null) {
+            sb.append('-');
+        } else {
+            appendSanitized(sb, status);
+        }
+        return sb.append(TRAILER);
+    }
+
+    /** Appends a NAK (same content as {@link #nak}) to {@code sb} and returns it. */
+    public static StringBuilder appendNak(StringBuilder sb, String originalReference, String reason, String originReference) {
+        appendHead(sb, originalReference, originReference);
+        sb.append(NAK_79);
+        if (reason == null) {
+            sb.append("UNKNOWN");
+        } else {
+            appendSanitized(sb, reason);
+        }
+        return sb.append(TRAILER);
+    }
+
+    /**
+     * Writes an ACK as UTF-8 into {@code buf} at its current position.
+     *
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     */
+    public static ByteBuffer writeAck(ByteBuffer buf, String originalReference, String status, String originReference) {
+        writeHead(buf, originalReference, originReference);
+        buf.put(ACK_79_BYTES);
+        if (status == null) {
+            buf.put((byte) '-');
+        } else {
+            writeSanitized(buf, status);
+        }
+        return buf.put(TRAILER_BYTES);
+    }
+
+    /**
+     * Writes a NAK as UTF-8 into {@code buf} at its current position.
+     *
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     */
+    public static ByteBuffer writeNak(ByteBuffer buf, String originalReference, String reason, String originReference) {
+        writeHead(buf, originalReference, originReference);
+        buf.put(NAK_79_BYTES);
+        if (reason == null) {
+            writeUtf8(buf, "UNKNOWN", 0, 7);
+        } else {
+            writeSanitized(buf, reason);
+        }
+        return buf.put(TRAILER_BYTES);
+    }
+
+    private static void appendHead(StringBuilder sb, String ref, String orig) {
+        sb.append(HEADER).append(ref == null ? "-" : ref)         // Sender's reference
+                .append(TAG_21).append(orig == null ? "-" : orig) // Related/origin reference
+                .append(TAG_30).append(currentDate().text);       // Date
+    }
+
+    private static void writeHead(ByteBuffer buf, String ref, String orig) {
+        buf.put(HEADER_BYTES);
+        writeRef(buf, ref);
+        buf.put(TAG_21_BYTES);
+        writeRef(buf, orig);
+        buf.put(TAG_30_BYTES).put(currentDate().bytes);
+    }
+
+    private static void writeRef(ByteBuffer buf, String ref) {
+        if (ref == null) {
+            buf.put((byte) '-');
+        } else {
+            writeUtf8(buf, ref, 0, ref.length());
+        }
+    }
+
+    // Sanitizing maps CR LF / LF to a space, braces to a space and '|' to ';', then trims the result.
+    // Everything that maps to a char <= ' ' is trimmable, so the trimmed range is found on the raw input.
+
+    private static void appendSanitized(StringBuilder sb, String s) {
+        int start = trimStart(s);
+        int end = trimEnd(s, start);
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '\r' && i + 1 < end && s.charAt(i + 1) == '\n') {
+                i++;
+                c = ' ';
+            }
+            sb.append(sanitize(c));
+        }
+    }
+
+    private static void writeSanitized(ByteBuffer buf, String s) {
+        int start = trimStart(s);
+        int end = trimEnd(s, start);
+        int runStart = start;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            char mapped = sanitize(c);
+            boolean crlf = c == '\r' && i + 1 < end && s.charAt(i + 1) == '\n';
+            if (mapped != c || crlf) {
+                writeUtf8(buf, s, runStart, i);
+                buf.put((byte) (crlf ? ' ' : mapped));
+                if (crlf) i++;
+                runStart = i + 1;
+            }
+        }
+        writeUtf8(buf, s, runStart, end);
+    }
+
+    private static char sanitize(char c) {
+        switch (c) {
+            case '\n':
+            case '{':
+            case '}':
+                return ' ';
+            case '|':
+                return ';';
+            default:
+                return c;
+        }
+    }
+
+    private static boolean trimmable(char c) {
+        return c <= ' ' || c == '{' || c == '}';
+    }
+
+    private static int trimStart(String s) {
+        int i = 0;
+        while (i < s.length() && trimmable(s.charAt(i))) i++;
+        return i;
+    }
+
+    private static int trimEnd(String s, int start) {
+        int i = s.length();
+        while (i > start && trimmable(s.charAt(i - 1))) i--;
+        return i;
+    }
+
+    private static void writeUtf8(ByteBuffer buf, String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buf.put((byte) c);
+            } else if (c < 0x800) {
+                buf.put((byte) (0xC0 | (c >> 6)));
+                buf.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buf.put((byte) (0xF0 | (cp >> 18)));
+                buf.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                buf.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                buf.put((byte) (0x80 | (cp & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                buf.put((byte) '?'); // unpaired surrogate, same replacement as String.getBytes(UTF_8)
+            } else {
+                buf.put((byte) (0xE0 | (c >> 12)));
+                buf.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buf.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private static int capacity(String ref, String text, String orig) {
+        return FIXED_LENGTH + length(ref) + length(text) + length(orig);
+    }
+
+    private static int length(String s) {
+        return s == null ? 1 : s.length();
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static CachedDate currentDate() {
+        long now = clock.millis();
+        CachedDate d = cachedDate;
+        if (d == null || now < d.validFrom || now >= d.validUntil) {
+            d = CachedDate.at(now, clock.getZone());
+            cachedDate = d;
+        }
+        return d;
+    }
+
+    // Visible for tests
+    static void setClock(Clock c) {
+        clock = c;
+        cachedDate = null;
+    }
+
+    /** The formatted :30: date and the [start of day, next midnight) window in which it is valid. */
+    private static final class CachedDate {
+        final String text;
+        final byte[] bytes;
+        final long validFrom;
+        final long validUntil;
+
+        private CachedDate(String text, long validFrom, long validUntil) {
+            this.text = text;
+            this.bytes = ascii(text);
+            this.validFrom = validFrom;
+            this.validUntil = validUntil;
+        }
+
+        static CachedDate at(long epochMillis, ZoneId zone) {
+            LocalDate day = Instant.ofEpochMilli(epochMillis).atZone(zone).toLocalDate();
+            long from = day.atStartOfDay(zone).toInstant().toEpochMilli();
+            long until = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            return new CachedDate(day.format(DATE_FMT), from, until);
+        }
     }
 }
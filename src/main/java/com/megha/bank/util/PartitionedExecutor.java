@@ -0,0 +1,115 @@
+package com.megha.bank.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor with a fixed number of partitions, each drained by its own thread. Tasks are routed by key hash, so tasks
+ * with the same key run one at a time in submission order while tasks for other keys run in parallel on the other
+ * partitions. Tasks without a key are spread round-robin.
+ *
+ * Each partition queue is bounded; {@link #submit} blocks while the target queue is full. A task that throws only
+ * fails its own future. {@link #close} stops accepting work and lets the partitions drain what is queued.
+ */
+public class PartitionedExecutor implements AutoCloseable {
+
+    private final Partition[] partitions;
+    private final AtomicInteger roundRobin = new AtomicInteger();
+    private volatile boolean shutdown;
+
+    public PartitionedExecutor(String name, int partitionCount, int queueCapacity) {
+        if (partitionCount < 1) throw new IllegalArgumentException("partitionCount must be >= 1");
+        partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(name + "-" + i, queueCapacity);
+        }
+        for (Partition p : partitions) {
+            p.thread.start();
+        }
+    }
+
+    public int partitionCount() {
+        return partitions.length;
+    }
+
+    /** Partition that runs tasks for {@code key}; null keys take the next partition round-robin. */
+    public int partitionOf(Object key) {
+        if (key == null) {
+            return Math.floorMod(roundRobin.getAndIncrement(), partitions.length);
+        }
+        int h = key.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), partitions.length);
+    }
+
+    public <T> CompletableFuture<T> submit(Object key, Callable<T> task) {
+        if (shutdown) throw new RejectedExecutionException("executor is shut down");
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable run = () -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        };
+        try {
+            partitions[partitionOf(key)].queue.put(run);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("interrupted while waiting for queue space", e);
+        }
+        return future;
+    }
+
+    /** Tasks waiting across all partitions (excluding the ones running). */
+    public int queued() {
+        int n = 0;
+        for (Partition p : partitions) n += p.queue.size();
+        return n;
+    }
+
+    @Override
+    public void close() {
+        shutdown = true;
+        for (Partition p : partitions) {
+            try {
+                p.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private final class Partition implements Runnable {
+        final BlockingQueue<Runnable> queue;
+        final Thread thread;
+
+        Partition(String name, int queueCapacity) {
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Runnable task;
+                try {
+                    task = queue.poll(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (task != null) {
+                    task.run();
+                } else if (shutdown) {
+                    return;
+                }
+            }
+        }
+    }
+}
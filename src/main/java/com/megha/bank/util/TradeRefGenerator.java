@@ -0,0 +1,106 @@
+package com.megha.bank.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates trade references for messages that arrive without a REF. Each id is a Snowflake-style 64-bit value:
+ * 41 bits of milliseconds since 2024-01-01 UTC, 10 bits of node id ({@code mt.node-id}, 0-1023) and a 12-bit
+ * per-millisecond sequence, rendered as {@code TB-} plus 13 Crockford base32 characters. Refs are unique across
+ * nodes with distinct node ids, strictly increasing per node, and sort in generation order.
+ *
+ * Lock-free: the last id is kept in one AtomicLong and advanced with a CAS. When the 4096 ids of a millisecond are
+ * used up, or the clock steps back, the generator moves on to the next millisecond instead of blocking, so it only
+ * runs ahead of the wall clock while sustaining more than ~4M refs/s.
+ */
+@Component
+public class TradeRefGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(TradeRefGenerator.class);
+
+    static final long EPOCH_MILLIS = 1704067200000L; // 2024-01-01T00:00:00Z
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final int TIME_SHIFT = NODE_BITS + SEQUENCE_BITS;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final String PREFIX = "TB-";
+    private static final char[] BASE32 = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ID_CHARS = 13; // ceil(64 / 5)
+
+    private final long nodeBits;
+    private final LongSupplier clock;
+    private final AtomicLong last = new AtomicLong();
+
+    @Autowired
+    public TradeRefGenerator(@Value("${mt.node-id:-1}") int nodeId) {
+        this(nodeId < 0 ? derivedNodeId() : nodeId, System::currentTimeMillis);
+    }
+
+    TradeRefGenerator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("mt.node-id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    /** Next reference, e.g. {@code TB-01HV3K5Q8R000}. */
+    public String nextRef() {
+        return format(nextId());
+    }
+
+    public long nextId() {
+        while (true) {
+            long prev = last.get();
+            long now = ((clock.getAsLong() - EPOCH_MILLIS) << TIME_SHIFT) | nodeBits;
+            long next = (prev & SEQUENCE_MASK) == SEQUENCE_MASK
+                    ? (((prev >>> TIME_SHIFT) + 1) << TIME_SHIFT) | nodeBits
+                    : prev + 1;
+            if (now > next) next = now;
+            if (last.compareAndSet(prev, next)) return next;
+        }
+    }
+
+    public static String format(long id) {
+        char[] out = new char[PREFIX.length() + ID_CHARS];
+        PREFIX.getChars(0, PREFIX.length(), out, 0);
+        for (int i = out.length - 1; i >= PREFIX.length(); i--) {
+            out[i] = BASE32[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(out);
+    }
+
+    static long timestampOf(long id) {
+        return (id >>> TIME_SHIFT) + EPOCH_MILLIS;
+    }
+
+    static int nodeOf(long id) {
+        return (int) (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+
+    /** Fallback when mt.node-id is not set: hash of host name and pid. Not guaranteed unique across instances. */
+    private static int derivedNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "localhost";
+        }
+        String id = host + "/" + ManagementFactory.getRuntimeMXBean().getName();
+        int nodeId = (id.hashCode() & 0x7fffffff) % (MAX_NODE_ID + 1);
+        log.warn("mt.node-id is not set; using {} derived from {}. Set a distinct mt.node-id per instance "
+                + "to guarantee unique trade references", nodeId, id);
+        return nodeId;
+    }
+}
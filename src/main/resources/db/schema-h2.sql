@@ -0,0 +1,61 @@
+-- Schema for spring.jpa.hibernate.ddl-auto=validate (prod profile), matching the JPA entities in com.megha.bank.model.
+-- Keep in step with entity changes: ProdProfileIntegrationTest starts a prod-profile context against it.
+
+create sequence if not exists trades_seq start with 1 increment by 50;
+create sequence if not exists mt_audit_seq start with 1 increment by 50;
+create sequence if not exists mt_outbox_seq start with 1 increment by 50;
+
+create table if not exists trades (
+    id bigint not null,
+    trade_ref varchar(255) unique,
+    type varchar(255) check (type in ('BUY','SELL','CANCEL')),
+    status varchar(255) check (status in ('NEW','ACKED','REJECTED','CANCELLED')),
+    instrument varchar(255),
+    quantity bigint,
+    price float(53),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    primary key (id)
+);
+
+create index if not exists ix_trades_created_id on trades (created_at, id);
+create index if not exists ix_trades_instrument_created_id on trades (instrument, created_at, id);
+create index if not exists ix_trades_status_created_id on trades (status, created_at, id);
+create index if not exists ix_trades_type_created_id on trades (type, created_at, id);
+
+create table if not exists mt_audit (
+    id bigint not null,
+    trade_ref varchar(255),
+    incoming_message varbinary(16010),
+    outgoing_message varbinary(16010),
+    status varchar(255),
+    created_at timestamp(6),
+    audit_day integer,
+    primary key (id)
+);
+
+create index if not exists ix_mt_audit_ref_created on mt_audit (trade_ref, created_at);
+create index if not exists ix_mt_audit_day_created on mt_audit (audit_day, created_at);
+
+create table if not exists mt_dedup (
+    message_hash varchar(32) not null,
+    trade_ref varchar(255),
+    audit_id bigint,
+    created_at timestamp(6),
+    primary key (message_hash)
+);
+
+create table if not exists mt_outbox (
+    id bigint not null,
+    routing_key varchar(255),
+    payload varchar(4000),
+    created_at timestamp(6),
+    primary key (id)
+);
+
+create table if not exists mt_journal_checkpoint (
+    journal_id varchar(64) not null,
+    last_seq bigint not null,
+    updated_at timestamp(6),
+    primary key (journal_id)
+);
@@ -0,0 +1,54 @@
+package com.megha.bank.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * The prod profile on its own database: Hibernate validates the entities against db/schema-h2.sql (the context
+ * fails to start if they drift apart) and the dev-only beans are gone.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:prodprofile;DB_CLOSE_DELAY=-1;MODE=PostgreSQL")
+@ActiveProfiles("prod")
+@AutoConfigureMockMvc
+public class ProdProfileIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Test
+    public void schemaScript_matchesEntities_andTradesAreAcked() throws Exception {
+        mockMvc.perform(post("/api/trade/buy")
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .content("TYPE:BUY\nREF:PROD-1\nINST:INFY\nQTY:100\nPRC:123.45"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-MT-RESPONSE", containsString(":20:PROD-1")))
+                .andExpect(jsonPath("$.success").value(true));
+        mockMvc.perform(post("/api/trade/cancel")
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .content("TYPE:CANCEL\nREF:PROD-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.trade.status").value("CANCELLED"));
+    }
+
+    @Test
+    public void devOnlyBeans_areNotCreated() throws Exception {
+        assertFalse(context.containsBean("h2Console"));
+        assertFalse(context.containsBean("openApiResource"));
+        mockMvc.perform(get("/v3/api-docs")).andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,107 @@
+package com.megha.bank.controller;
+
+import com.megha.bank.model.Trade;
+import com.megha.bank.service.AdmissionControl;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// a fixed limit of 4, 2 of them reserved for CANCELs
+@SpringBootTest(properties = {"mt.admission.enabled=true", "mt.admission.initial-limit=4", "mt.admission.min-limit=4",
+        "mt.admission.max-limit=4", "mt.admission.cancel-reserve=0.5"})
+@AutoConfigureMockMvc
+public class AdmissionControlIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AdmissionControl admission;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // stands in for requests stuck on a slow database
+    private final List<AdmissionControl.Permit> held = new ArrayList<>();
+
+    @AfterEach
+    public void releaseHeld() {
+        held.forEach(p -> p.release(false));
+        held.clear();
+    }
+
+    @Test
+    public void buy_isAdmitted_underTheLimit() throws Exception {
+        mockMvc.perform(post("/api/trade/buy").contentType(MediaType.TEXT_PLAIN)
+                        .content("TYPE:BUY\nREF:AC-1\nINST:INFY\nQTY:1\nPRC:1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true));
+        assertEquals(0, admission.inFlight());
+    }
+
+    @Test
+    public void overloaded_buyIsNaked_whileCancelStillGetsThrough() throws Exception {
+        mockMvc.perform(post("/api/trade/buy").contentType(MediaType.TEXT_PLAIN)
+                        .content("TYPE:BUY\nREF:AC-2\nINST:INFY\nQTY:1\nPRC:1"))
+                .andExpect(status().isOk());
+        hold(2);
+        double before = rejected("SELL");
+
+        mockMvc.perform(post("/api/trade/sell").contentType(MediaType.TEXT_PLAIN)
+                        .content("TYPE:SELL\nREF:AC-3\nINST:INFY\nQTY:1\nPRC:1\nORIG_REF:X-9"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(header().string("X-MT-RESPONSE", containsString(":20:AC-3")))
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.mtResponse").value(containsString(":21:X-9")))
+                .andExpect(jsonPath("$.mtResponse").value(containsString("NAK - ERR:OVERLOADED")));
+        assertEquals(before + 1, rejected("SELL"));
+
+        mockMvc.perform(post("/api/trade/cancel").contentType(MediaType.TEXT_PLAIN)
+                        .content("TYPE:CANCEL\nREF:AC-2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.trade.status").value("CANCELLED"));
+
+        hold(2);
+        mockMvc.perform(post("/api/trade/cancel").contentType(MediaType.TEXT_PLAIN)
+                        .content("TYPE:CANCEL\nREF:AC-2"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    public void overloaded_batchIsNakedPerMessage() throws Exception {
+        hold(2);
+        mockMvc.perform(post("/api/trade/batch").contentType(MediaType.TEXT_PLAIN)
+                        .content("TYPE:BUY\nREF:AC-4\nINST:INFY\nQTY:1\nPRC:1\n\nTYPE:SELL\nREF:AC-5\nINST:INFY\nQTY:1\nPRC:1"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.rejected").value(2))
+                .andExpect(jsonPath("$.results[1].mtResponse").value(containsString(":20:AC-5")));
+        assertEquals(4.0, meterRegistry.get("mt.admission.limit").gauge().value());
+        assertEquals(2.0, meterRegistry.get("mt.admission.in-flight").gauge().value());
+    }
+
+    private void hold(int n) {
+        for (int i = 0; i < n; i++) {
+            AdmissionControl.Permit p = admission.tryAcquire(Trade.Type.CANCEL);
+            assertNotNull(p);
+            held.add(p);
+        }
+    }
+
+    private double rejected(String type) {
+        return meterRegistry.get("mt.admission.rejected").tag("type", type).counter().count();
+    }
+}
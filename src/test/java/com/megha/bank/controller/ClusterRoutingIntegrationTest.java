@@ -0,0 +1,199 @@
+package com.megha.bank.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.megha.bank.MiddleOfficeTradesApplication;
+import com.megha.bank.service.ClusterMembership;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two members in one JVM, each a full application on its own port, sharing one H2 database: node a forwards
+ * requests for refs it does not own, node b rejects them.
+ */
+public class ClusterRoutingIntegrationTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+    private static int portA;
+    private static int portB;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeAll
+    public static void startNodes() throws IOException {
+        portA = freePort();
+        portB = freePort();
+        String nodes = "a=http://localhost:" + portA + ",b=http://localhost:" + portB;
+        nodeA = start("a", 11, portA, nodes, "forward");
+        nodeB = start("b", 12, portB, nodes, "reject");
+    }
+
+    @AfterAll
+    public static void stopNodes() {
+        if (nodeA != null) nodeA.close();
+        if (nodeB != null) nodeB.close();
+    }
+
+    @Test
+    public void forwardMode_sendsForeignRefsToTheirOwner() throws Exception {
+        String ref = refOwnedBy("b", "CL-F-");
+        HttpResponse<String> res = post(portA, "/api/trade/buy", "TYPE:BUY\nREF:" + ref + "\nINST:CLUSTER\nQTY:10\nPRC:5");
+
+        assertEquals(200, res.statusCode());
+        assertTrue(res.headers().firstValue("X-MT-RESPONSE").orElse("").contains(":20:" + ref));
+        JsonNode body = JSON.readTree(res.body());
+        assertTrue(body.get("success").asBoolean());
+        assertEquals(ref, body.get("trade").get("tradeRef").asText());
+        assertTrue(requests(nodeA, "forwarded") >= 1);
+
+        // the CANCEL goes to the same owner, which finds the trade
+        HttpResponse<String> cancel = post(portA, "/api/trade/cancel", "TYPE:CANCEL\nREF:" + ref);
+        assertEquals("CANCELLED", JSON.readTree(cancel.body()).get("trade").get("status").asText());
+    }
+
+    @Test
+    public void rejectMode_answers421WithTheOwner() throws Exception {
+        String ref = refOwnedBy("a", "CL-R-");
+        HttpResponse<String> res = post(portB, "/api/trade/buy", "TYPE:BUY\nREF:" + ref + "\nINST:CLUSTER\nQTY:10\nPRC:5");
+
+        assertEquals(421, res.statusCode());
+        assertEquals("a", res.headers().firstValue(ClusterMembership.OWNER_HEADER).orElse(null));
+        JsonNode body = JSON.readTree(res.body());
+        assertFalse(body.get("success").asBoolean());
+        assertTrue(body.get("mtResponse").asText().contains("NOT_OWNER: a"));
+    }
+
+    @Test
+    public void forwardedRequest_isNotForwardedAgain() throws Exception {
+        String ref = refOwnedBy("b", "CL-L-");
+        HttpResponse<String> res = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + portA + "/api/trade/buy"))
+                .header("Content-Type", "text/plain")
+                .header(ClusterMembership.FORWARDED_HEADER, "b")
+                .POST(HttpRequest.BodyPublishers.ofString("TYPE:BUY\nREF:" + ref + "\nINST:CLUSTER\nQTY:1\nPRC:1"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(421, res.statusCode());
+    }
+
+    @Test
+    public void batch_isSplitByOwnerAndMergedInOrder() throws Exception {
+        String local = refOwnedBy("a", "CL-B-");
+        String remote = refOwnedBy("b", "CL-B-");
+        HttpResponse<String> res = post(portA, "/api/trade/batch",
+                "TYPE:BUY\nREF:" + remote + "\nINST:CLUSTER\nQTY:1\nPRC:1\n\n"
+                        + "TYPE:SELL\nREF:" + local + "\nINST:CLUSTER\nQTY:2\nPRC:1\n\n"
+                        + "TYPE:CANCEL\nREF:" + remote);
+
+        assertEquals(200, res.statusCode());
+        JsonNode body = JSON.readTree(res.body());
+        assertEquals(3, body.get("accepted").asInt());
+        JsonNode results = body.get("results");
+        assertEquals(remote, results.get(0).get("tradeRef").asText());
+        assertEquals(local, results.get(1).get("tradeRef").asText());
+        assertEquals(2, results.get(2).get("index").asInt());
+        assertTrue(results.get(2).get("mtResponse").asText().contains(":20:" + remote));
+
+        // on the rejecting node the foreign part is NAKed and the rest still processed
+        String localB = refOwnedBy("b", "CL-B2-");
+        String remoteB = refOwnedBy("a", "CL-B2-");
+        JsonNode rejected = JSON.readTree(post(portB, "/api/trade/batch",
+                "TYPE:BUY\nREF:" + remoteB + "\nINST:CLUSTER\nQTY:1\nPRC:1\n\n"
+                        + "TYPE:BUY\nREF:" + localB + "\nINST:CLUSTER\nQTY:1\nPRC:1").body());
+        assertEquals(1, rejected.get("accepted").asInt());
+        assertTrue(rejected.get("results").get(0).get("mtResponse").asText().contains("NOT_OWNER: a"));
+        assertTrue(rejected.get("results").get(1).get("success").asBoolean());
+    }
+
+    @Test
+    public void generatedRefs_areOwnedByTheGeneratingNode() throws Exception {
+        ClusterMembership cluster = nodeA.getBean(ClusterMembership.class);
+        // distinct bodies, or replay detection would answer the repeats
+        for (int i = 0; i < 5; i++) {
+            JsonNode body = JSON.readTree(post(portA, "/api/trade/buy", "TYPE:BUY\nINST:CLUSTER\nQTY:" + (i + 1) + "\nPRC:1.5").body());
+            assertEquals("a", cluster.owner(body.get("trade").get("tradeRef").asText()));
+        }
+    }
+
+    @Test
+    public void leaveAndJoin_rebalanceOwnership() throws Exception {
+        ClusterMembership a = nodeA.getBean(ClusterMembership.class);
+        String ref = refOwnedBy("b", "CL-J-");
+        try {
+            HttpResponse<String> left = client.send(HttpRequest.newBuilder(
+                            URI.create("http://localhost:" + portA + "/api/cluster/members/b")).DELETE().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, left.statusCode());
+            assertEquals("a", a.owner(ref));
+
+            // now processed on a itself
+            double forwarded = requests(nodeA, "forwarded");
+            HttpResponse<String> res = post(portA, "/api/trade/buy", "TYPE:BUY\nREF:" + ref + "\nINST:CLUSTER\nQTY:1\nPRC:1");
+            assertEquals(200, res.statusCode());
+            assertEquals(forwarded, requests(nodeA, "forwarded"));
+        } finally {
+            HttpResponse<String> joined = client.send(HttpRequest.newBuilder(
+                            URI.create("http://localhost:" + portA + "/api/cluster/members"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"id\":\"b\",\"url\":\"http://localhost:" + portB + "\"}"))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, joined.statusCode());
+        }
+        assertEquals("b", a.owner(ref));
+        assertEquals(2, JSON.readTree(client.send(HttpRequest.newBuilder(
+                URI.create("http://localhost:" + portA + "/api/cluster")).build(),
+                HttpResponse.BodyHandlers.ofString()).body()).get("members").size());
+    }
+
+    private static ConfigurableApplicationContext start(String node, int nodeId, int port, String nodes, String mode) {
+        // as command-line arguments, which take precedence over application.properties
+        return new SpringApplicationBuilder(MiddleOfficeTradesApplication.class).run(
+                "--server.port=" + port,
+                "--spring.datasource.url=jdbc:h2:mem:clusterdb;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+                "--mt.node-id=" + nodeId,
+                "--mt.cluster.enabled=true",
+                "--mt.cluster.node-id=" + node,
+                "--mt.cluster.nodes=" + nodes,
+                "--mt.cluster.mode=" + mode);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket s = new ServerSocket(0)) {
+            return s.getLocalPort();
+        }
+    }
+
+    private static String refOwnedBy(String node, String prefix) {
+        ClusterMembership cluster = nodeA.getBean(ClusterMembership.class);
+        for (int i = 0; ; i++) {
+            String ref = prefix + System.nanoTime() + "-" + i;
+            if (node.equals(cluster.owner(ref))) return ref;
+        }
+    }
+
+    private static double requests(ConfigurableApplicationContext node, String route) {
+        return node.getBean(MeterRegistry.class).counter("mt.cluster.requests", "route", route).count();
+    }
+
+    private HttpResponse<String> post(int port, String path, String body) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "text/plain")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,150 @@
+package com.megha.bank.controller;
+
+import com.megha.bank.model.Trade;
+import com.megha.bank.reactive.ReactiveTradeService;
+import com.megha.bank.repository.TradeRepository;
+import com.megha.bank.service.PositionEngine;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.main.web-application-type=reactive")
+public class ReactiveTradeControllerIntegrationTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    // JPA view of the same database: what R2DBC writes must be visible to the servlet stack's repository
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private ReactiveTradeService reactiveTradeService;
+
+    @Autowired
+    private PositionEngine positions;
+
+    @Test
+    public void buyEndpoint_createsTrade_returnsJson() {
+        client.post().uri("/api/trade/buy")
+                .contentType(MediaType.TEXT_PLAIN)
+                .bodyValue("TYPE:BUY\nREF:RX-500\nINST:INFY\nQTY:100\nPRC:123.45")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value("X-MT-RESPONSE", containsString(":20:RX-500"))
+                .expectBody()
+                .jsonPath("$.trade.tradeRef").isEqualTo("RX-500")
+                .jsonPath("$.trade.instrument").isEqualTo("INFY")
+                .jsonPath("$.success").isEqualTo(true);
+
+        Trade saved = tradeRepository.findByTradeRef("RX-500").orElseThrow();
+        assertEquals(100L, saved.getQuantity());
+        assertEquals(Trade.Status.NEW, saved.getStatus());
+    }
+
+    @Test
+    public void cancelEndpoint_marksTradeCancelled() {
+        client.post().uri("/api/trade/buy")
+                .contentType(MediaType.TEXT_PLAIN)
+                .bodyValue("TYPE:BUY\nREF:RX-600\nINST:TCS\nQTY:10\nPRC:1200.0")
+                .exchange()
+                .expectStatus().isOk();
+
+        client.post().uri("/api/trade/cancel")
+                .contentType(MediaType.TEXT_PLAIN)
+                .bodyValue("TYPE:CANCEL\nREF:RX-600")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.trade.status").isEqualTo("CANCELLED");
+
+        assertEquals(Trade.Status.CANCELLED, tradeRepository.findByTradeRef("RX-600").orElseThrow().getStatus());
+    }
+
+    @Test
+    public void resentBuy_returnsOriginalAck() {
+        String msg = "TYPE:BUY\nREF:RX-800\nINST:HCL\nQTY:4\nPRC:50.0";
+        String first = client.post().uri("/api/trade/buy")
+                .contentType(MediaType.TEXT_PLAIN)
+                .bodyValue(msg)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class).getResponseHeaders().getFirst("X-MT-RESPONSE");
+
+        // used to fail the tradeRef unique constraint
+        client.post().uri("/api/trade/buy")
+                .contentType(MediaType.TEXT_PLAIN)
+                .bodyValue(msg)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("X-MT-RESPONSE", first)
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(true);
+
+        assertEquals(Trade.Status.NEW, tradeRepository.findByTradeRef("RX-800").orElseThrow().getStatus());
+    }
+
+    @Test
+    public void concurrentCancels_unwindOnce() throws Exception {
+        reactiveTradeService.processMtMessage("TYPE:BUY\nREF:RX-900\nINST:RXRACE\nQTY:7\nPRC:2.0", Trade.Type.BUY).block();
+
+        // the reactive stack is not sequenced: the same CANCEL arrives on several threads at once, for several trades
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 10; round++) {
+                String ref = "RX-91" + round;
+                reactiveTradeService.processMtMessage("TYPE:BUY\nREF:" + ref + "\nINST:RXRACE\nQTY:50\nPRC:2.0",
+                        Trade.Type.BUY).block();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    int n = t;
+                    futures.add(pool.submit(() -> {
+                        start.await();
+                        try {
+                            reactiveTradeService.processMtMessage("TYPE:CANCEL\nREF:" + ref + "\nN:" + n,
+                                    Trade.Type.CANCEL).block();
+                        } catch (RuntimeException lockTimeout) {
+                            // a loser may time out on the row lock; it then changes nothing
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> f : futures) f.get();
+                reactiveTradeService.processMtMessage("TYPE:CANCEL\nREF:" + ref + "\nN:again", Trade.Type.CANCEL).block();
+                assertEquals(Trade.Status.CANCELLED, tradeRepository.findByTradeRef(ref).orElseThrow().getStatus());
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(7, positions.get("RXRACE").getNetQuantity());
+    }
+
+    @Test
+    public void buyWithMissingFields_returnsNak() {
+        client.post().uri("/api/trade/buy")
+                .contentType(MediaType.TEXT_PLAIN)
+                .bodyValue("TYPE:BUY\nREF:RX-700\nINST:INFY")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value("X-MT-RESPONSE", containsString("MISSING_FIELDS"))
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(false);
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -56,4 +57,24 @@ public class TradeControllerIntegrationTest {
                 .andExpect(header().string("X-MT-RESPONSE", containsString(":20:TR-600")))
                 .andExpect(jsonPath("$.trade.status").value("CANCELLED"));
     }
+
+    @Test
+    public void batchEndpoint_returnsAckOrNakPerMessage() throws Exception {
+        String body = "TYPE:BUY\nREF:TR-700\nINST:INFY\nQTY:10\nPRC:100.0\n\n"
+                + "TYPE:SELL\nREF:TR-701\nINST:TCS\n\n"
+                + "TYPE:CANCEL\nREF:TR-700\n";
+
+        mockMvc.perform(post("/api/trade/batch")
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.results[0].mtResponse").value(containsString("ACK - STATUS:RECEIVED")))
+                .andExpect(jsonPath("$.results[1].mtResponse").value(containsString("NAK - ERR:MISSING_FIELDS")))
+                .andExpect(jsonPath("$.results[2].tradeRef").value("TR-700"));
+
+        assertEquals(Trade.Status.CANCELLED,
+                tradeRepository.findByTradeRef("TR-700").orElseThrow().getStatus());
+    }
 }
@@ -0,0 +1,108 @@
+package com.megha.bank.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.megha.bank.model.Trade;
+import com.megha.bank.service.TradeService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TradeQueryControllerIntegrationTest {
+
+    // instrument unique to this test, so trades written by other tests in the shared database don't interfere
+    private static final String INST = "QRYTEST";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TradeService tradeService;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeAll
+    public void createTrades() {
+        for (int i = 0; i < 7; i++) {
+            Trade.Type type = i % 2 == 0 ? Trade.Type.BUY : Trade.Type.SELL;
+            tradeService.processMtMessage("TYPE:" + type + "\nREF:QR-" + i + "\nINST:" + INST + "\nQTY:" + (i + 1)
+                    + "\nPRC:10.0", type);
+        }
+        tradeService.processMtMessage("TYPE:CANCEL\nREF:QR-3", Trade.Type.CANCEL);
+    }
+
+    @Test
+    public void pagesFollowCursorInCreationOrder() throws Exception {
+        List<String> refs = new ArrayList<>();
+        String after = null;
+        int pages = 0;
+        do {
+            var req = get("/api/trade").param("instrument", INST).param("limit", "3");
+            if (after != null) req.param("after", after);
+            JsonNode page = mapper.readTree(mockMvc.perform(req)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            page.get("items").forEach(t -> refs.add(t.get("tradeRef").asText()));
+            after = page.get("next").isNull() ? null : page.get("next").asText();
+            pages++;
+        } while (after != null);
+
+        assertEquals(List.of("QR-0", "QR-1", "QR-2", "QR-3", "QR-4", "QR-5", "QR-6"), refs);
+        assertEquals(3, pages);
+    }
+
+    @Test
+    public void filtersByStatusAndType() throws Exception {
+        mockMvc.perform(get("/api/trade").param("instrument", INST).param("status", "CANCELLED"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].tradeRef").value("QR-3"))
+                .andExpect(jsonPath("$.next").doesNotExist());
+
+        mockMvc.perform(get("/api/trade").param("instrument", INST).param("type", "SELL"))
+                .andExpect(jsonPath("$.items.length()").value(3));
+
+        mockMvc.perform(get("/api/trade").param("instrument", INST).param("from", "2000-01-01T00:00:00")
+                        .param("to", "2000-01-02T00:00:00"))
+                .andExpect(jsonPath("$.items.length()").value(0));
+    }
+
+    @Test
+    public void streamsNdjson() throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/trade").param("instrument", INST)
+                        .accept(TradeQueryController.NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(TradeQueryController.NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(7, lines.length);
+        assertEquals("QR-6", mapper.readTree(lines[6]).get("tradeRef").asText());
+        assertEquals(INST, mapper.readTree(lines[0]).get("instrument").asText());
+    }
+
+    @Test
+    public void invalidCursor_isBadRequest() throws Exception {
+        mockMvc.perform(get("/api/trade").param("after", "nonsense"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,190 @@
+package com.megha.bank.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"mt.http.echo-response-header=false", "mt.http.zstd.enabled=true",
+                "mt.http.max-decoded-body=65536"})
+public class WireFormatIntegrationTest {
+
+    private static final CBORMapper CBOR = new CBORMapper();
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    public void cborRequestAndResponse_responseIsSmallerThanJson() throws Exception {
+        byte[] body = CBOR.writeValueAsBytes(Map.of("ref", "WF-1", "instrument", "WIRETEST", "quantity", 100, "price", 12.5));
+        HttpResponse<byte[]> cbor = send(post("/api/trade/buy", "application/cbor", body)
+                .header("Accept", "application/cbor"));
+
+        assertEquals(200, cbor.statusCode());
+        assertTrue(cbor.headers().firstValue("Content-Type").orElse("").startsWith("application/cbor"));
+        assertTrue(cbor.headers().firstValue("X-MT-RESPONSE").isEmpty());
+        JsonNode res = CBOR.readTree(cbor.body());
+        assertTrue(res.get("success").asBoolean());
+        assertEquals("WF-1", res.get("trade").get("tradeRef").asText());
+        assertEquals(100, res.get("trade").get("quantity").asLong());
+
+        String text = "TYPE:BUY\nREF:WF-2\nINST:WIRETEST\nQTY:100\nPRC:12.5";
+        HttpResponse<byte[]> json = send(post("/api/trade/buy", "text/plain", text.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(200, json.statusCode());
+        assertTrue(cbor.body().length < json.body().length);
+    }
+
+    @Test
+    public void cborBatch_takesTypePerItem() throws Exception {
+        byte[] body = CBOR.writeValueAsBytes(List.of(
+                Map.of("type", "SELL", "ref", "WF-10", "instrument", "WIRETEST", "quantity", 5, "price", 10.0),
+                Map.of("type", "CANCEL", "ref", "WF-10"),
+                Map.of("type", "BUY", "ref", "WF-11")));
+        HttpResponse<byte[]> res = send(post("/api/trade/batch", "application/cbor", body)
+                .header("Accept", "application/cbor"));
+
+        assertEquals(200, res.statusCode());
+        JsonNode batch = CBOR.readTree(res.body());
+        assertEquals(2, batch.get("accepted").asInt());
+        assertEquals(1, batch.get("rejected").asInt());
+    }
+
+    @Test
+    public void compressedRequests_areDecoded_unknownEncodingIsRejected() throws Exception {
+        byte[] text = "TYPE:BUY\nREF:WF-20\nINST:WIRETEST\nQTY:1\nPRC:1.0".getBytes(StandardCharsets.UTF_8);
+        HttpResponse<byte[]> gzip = send(post("/api/trade/buy", "text/plain", gzip(text))
+                .header("Content-Encoding", "gzip"));
+        assertEquals(200, gzip.statusCode());
+        assertTrue(JSON.readTree(gzip.body()).get("success").asBoolean());
+
+        byte[] cbor = CBOR.writeValueAsBytes(Map.of("ref", "WF-21", "instrument", "WIRETEST", "quantity", 1, "price", 1.0));
+        HttpResponse<byte[]> zstd = send(post("/api/trade/sell", "application/cbor", zstd(cbor))
+                .header("Content-Encoding", "zstd"));
+        assertEquals(200, zstd.statusCode());
+        assertEquals("WF-21", JSON.readTree(zstd.body()).get("trade").get("tradeRef").asText());
+
+        HttpResponse<byte[]> br = send(post("/api/trade/buy", "text/plain", text).header("Content-Encoding", "br"));
+        assertEquals(415, br.statusCode());
+    }
+
+    @Test
+    public void decodedBodyOverLimit_isRejected() throws Exception {
+        byte[] bomb = gzip(new byte[4 * 1024 * 1024]);
+        assertTrue(bomb.length < 65536);
+        HttpResponse<byte[]> res = send(post("/api/trade/batch", "text/plain", bomb).header("Content-Encoding", "gzip"));
+        assertEquals(413, res.statusCode());
+    }
+
+    @Test
+    public void malformedQValue_countsAsAccepted() throws Exception {
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < 30; i++) {
+            batch.append("TYPE:BUY\nREF:WF-Q").append(i).append("\nINST:WIRETEST\nQTY:1\nPRC:1.0\n\n");
+        }
+        HttpResponse<byte[]> res = send(post("/api/trade/batch", "text/plain",
+                batch.toString().getBytes(StandardCharsets.UTF_8)).header("Accept-Encoding", "gzip;q=high"));
+        assertEquals(200, res.statusCode());
+        assertEquals("gzip", res.headers().firstValue("Content-Encoding").orElse(null));
+        assertFalse(ContentEncodingFilter.accepts("gzip;q=x, zstd;q=0", "zstd"));
+    }
+
+    @Test
+    public void largeResponses_areCompressed_smallOnesAreNot() throws Exception {
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < 30; i++) {
+            batch.append("TYPE:BUY\nREF:WF-B").append(i).append("\nINST:WIRETEST\nQTY:1\nPRC:1.0\n\n");
+        }
+        HttpResponse<byte[]> gzip = send(post("/api/trade/batch", "text/plain",
+                batch.toString().getBytes(StandardCharsets.UTF_8)).header("Accept-Encoding", "gzip"));
+        assertEquals("gzip", gzip.headers().firstValue("Content-Encoding").orElse(null));
+        assertEquals(30, JSON.readTree(new GZIPInputStream(new ByteArrayInputStream(gzip.body()))).get("accepted").asInt());
+
+        HttpResponse<byte[]> zstd = send(post("/api/trade/batch", "text/plain",
+                batch.toString().replace("WF-B", "WF-C").getBytes(StandardCharsets.UTF_8))
+                .header("Accept-Encoding", "gzip, zstd"));
+        assertEquals("zstd", zstd.headers().firstValue("Content-Encoding").orElse(null));
+        assertEquals(30, JSON.readTree(unzstd(zstd.body())).get("accepted").asInt());
+
+        HttpResponse<byte[]> small = send(post("/api/trade/buy", "text/plain",
+                "TYPE:BUY\nREF:WF-30\nINST:WIRETEST\nQTY:1\nPRC:1.0".getBytes(StandardCharsets.UTF_8))
+                .header("Accept-Encoding", "gzip, zstd"));
+        assertTrue(small.headers().firstValue("Content-Encoding").isEmpty());
+        assertTrue(JSON.readTree(small.body()).get("success").asBoolean());
+    }
+
+    @Test
+    public void streamedNdjson_isZstdCompressed() throws Exception {
+        for (int i = 0; i < 40; i++) {
+            send(post("/api/trade/buy", "text/plain",
+                    ("TYPE:BUY\nREF:WF-N" + i + "\nINST:WIRENDJSON\nQTY:1\nPRC:1.0").getBytes(StandardCharsets.UTF_8)));
+        }
+        HttpResponse<byte[]> res = send(HttpRequest.newBuilder(uri("/api/trade?instrument=WIRENDJSON"))
+                .header("Accept", "application/x-ndjson")
+                .header("Accept-Encoding", "zstd"));
+
+        assertEquals(200, res.statusCode());
+        assertEquals("zstd", res.headers().firstValue("Content-Encoding").orElse(null));
+        String[] lines = new String(unzstd(res.body()).readAllBytes(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(40, lines.length);
+        assertEquals("WF-N0", JSON.readTree(lines[0]).get("tradeRef").asText());
+    }
+
+    private HttpRequest.Builder post(String path, String contentType, byte[] body) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest.Builder request) throws Exception {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] zstd(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream z = new ZstdOutputStream(out)) {
+            z.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static InputStream unzstd(byte[] data) throws IOException {
+        return new ZstdInputStream(new ByteArrayInputStream(data));
+    }
+}
@@ -0,0 +1,86 @@
+package com.megha.bank.ingest;
+
+import com.megha.bank.model.Trade;
+import com.megha.bank.repository.TradeRepository;
+import com.megha.bank.util.MTMessageParser;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the poller sleeps for an hour after its first scan; tests call scan() themselves (scans are serialized)
+@SpringBootTest(properties = {"mt.ingest.enabled=true", "mt.ingest.directory=target/ingest-test",
+        "mt.ingest.chunk-size=3", "mt.ingest.poll-interval-ms=3600000"})
+public class FileIngestionServiceIntegrationTest {
+
+    private static final Path DIR = Path.of("target/ingest-test");
+
+    @Autowired
+    private FileIngestionService ingestion;
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Test
+    public void file_isProcessedInChunks_resultsWrittenInOrder() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            sb.append("TYPE:BUY\nREF:FI-").append(i).append("\nINST:INFY\nQTY:1\nPRC:2.5\n\n");
+        }
+        sb.append("TYPE:SELL\nREF:FI-BAD\nINST:INFY\n");
+        Path input = write("a.mt", sb.toString());
+
+        ingestion.scan();
+
+        List<String> results = MTMessageParser.splitMessages(
+                Files.readString(DIR.resolve("a.mt.result"), StandardCharsets.UTF_8));
+        assertEquals(11, results.size());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(results.get(i).contains(":20:FI-" + i + "\n"), results.get(i));
+            assertTrue(results.get(i).contains("ACK"), results.get(i));
+        }
+        assertTrue(results.get(10).contains("NAK - ERR:MISSING_FIELDS"), results.get(10));
+        assertTrue(tradeRepository.findByTradeRef("FI-9").isPresent());
+        assertFalse(Files.exists(input));
+        assertTrue(Files.exists(DIR.resolve("a.mt.done")));
+        assertFalse(Files.exists(DIR.resolve("a.mt.ckpt")));
+    }
+
+    @Test
+    public void restart_resumesFromCheckpoint() throws Exception {
+        String first = "TYPE:BUY\nREF:FR-1\nINST:TCS\nQTY:1\nPRC:1.0";
+        String body = first + "\n\nTYPE:BUY\nREF:FR-2\nINST:TCS\nQTY:1\nPRC:1.0\n\nTYPE:CANCEL\nREF:FR-2\n";
+        write("b.mt", body);
+        // state left by a crash: the first message committed and checkpointed, plus a partial result write after it
+        String committed = "previous run\n\n";
+        Files.writeString(DIR.resolve("b.mt.result"), committed + "torn wri", StandardCharsets.UTF_8);
+        new IngestCheckpoint(first.length(), committed.length()).write(DIR.resolve("b.mt.ckpt"));
+
+        ingestion.scan();
+
+        List<String> results = MTMessageParser.splitMessages(
+                Files.readString(DIR.resolve("b.mt.result"), StandardCharsets.UTF_8));
+        assertEquals(3, results.size());
+        assertEquals("previous run\n", results.get(0));
+        assertTrue(results.get(1).contains(":20:FR-2"));
+        assertTrue(results.get(2).contains("CANCELLED"));
+        assertFalse(tradeRepository.findByTradeRef("FR-1").isPresent(), "FR-1 was before the checkpoint");
+        assertEquals(Trade.Status.CANCELLED, tradeRepository.findByTradeRef("FR-2").orElseThrow().getStatus());
+    }
+
+    private static Path write(String name, String body) throws Exception {
+        Files.createDirectories(DIR);
+        for (String suffix : new String[]{"", ".result", ".ckpt", ".done"}) {
+            Files.deleteIfExists(DIR.resolve(name + suffix));
+        }
+        Path file = DIR.resolve(name);
+        Files.writeString(file, body, StandardCharsets.UTF_8);
+        return file;
+    }
+}
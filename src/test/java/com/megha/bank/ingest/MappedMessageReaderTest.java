@@ -0,0 +1,77 @@
+package com.megha.bank.ingest;
+
+import com.megha.bank.util.MTMessageParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedMessageReaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void tinyWindow_matchesSplitMessages() throws Exception {
+        Random rnd = new Random(7);
+        String[] seps = {"\n", "\r\n", "\n\n", "\n \n\t\n", "\r\n\r\n"};
+        for (int n = 0; n < 200; n++) {
+            StringBuilder sb = new StringBuilder();
+            int lines = rnd.nextInt(30);
+            for (int i = 0; i < lines; i++) {
+                sb.append(rnd.nextBoolean() ? "REF:TR-" : "INST:ÄÖÜ-").append(rnd.nextInt(100_000));
+                sb.append(seps[rnd.nextInt(seps.length)]);
+            }
+            String body = sb.toString();
+            List<String> expected = new ArrayList<>();
+            for (String m : MTMessageParser.splitMessages(body)) expected.add(stripNewline(m));
+
+            // 8-byte window: most messages straddle a window boundary or need the window to grow
+            assertEquals(expected, readAll(write(body), 0, 8), body);
+        }
+    }
+
+    @Test
+    public void resumeFromPosition_continuesWithNextMessage() throws Exception {
+        Path file = write("TYPE:BUY\nREF:A\n\n\nTYPE:SELL\nREF:B\n\nTYPE:CANCEL\nREF:C");
+        long afterFirst;
+        try (MappedMessageReader reader = new MappedMessageReader(file, 0, 1 << 16)) {
+            assertEquals("TYPE:BUY\nREF:A", reader.next());
+            afterFirst = reader.position();
+        }
+        assertEquals(List.of("TYPE:SELL\nREF:B", "TYPE:CANCEL\nREF:C"), readAll(file, afterFirst, 1 << 16));
+    }
+
+    @Test
+    public void emptyAndBlankFiles_haveNoMessages() throws Exception {
+        assertEquals(List.of(), readAll(write(""), 0, 16));
+        assertEquals(List.of(), readAll(write("\n \r\n\t\n"), 0, 16));
+    }
+
+    private Path write(String body) throws Exception {
+        Path file = Files.createTempFile(dir, "in", ".mt");
+        Files.write(file, body.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<String> readAll(Path file, long offset, int window) throws Exception {
+        List<String> out = new ArrayList<>();
+        try (MappedMessageReader reader = new MappedMessageReader(file, offset, window)) {
+            String m;
+            while ((m = reader.next()) != null) out.add(m);
+            assertEquals(reader.size(), reader.position());
+        }
+        return out;
+    }
+
+    private static String stripNewline(String m) {
+        return m.endsWith("\n") ? m.substring(0, m.length() - 1) : m;
+    }
+}
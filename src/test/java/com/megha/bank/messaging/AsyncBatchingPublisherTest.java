@@ -0,0 +1,111 @@
+package com.megha.bank.messaging;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncBatchingPublisherTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void publish_batchesPerRoutingKey() throws Exception {
+        InMemoryConfirmingSender broker = new InMemoryConfirmingSender(0);
+        AsyncBatchingPublisher publisher = new AsyncBatchingPublisher(broker, registry, 100, 50, 200, 10, 3);
+        for (int i = 0; i < 6; i++) {
+            publisher.publish(i % 2 == 0 ? "mt.acks" : "mt.naks", "m" + i);
+        }
+        publisher.close();
+
+        assertEquals(List.of("m0", "m2", "m4"), broker.delivered.get("mt.acks"));
+        assertEquals(List.of("m1", "m3", "m5"), broker.delivered.get("mt.naks"));
+        assertTrue(broker.batches.size() <= 6);
+        assertEquals(6.0, registry.counter("mt.publisher.confirmed").count());
+    }
+
+    @Test
+    public void publish_insideTransaction_waitsForCommitAndDropsOnRollback() throws Exception {
+        InMemoryConfirmingSender broker = new InMemoryConfirmingSender(0);
+        AsyncBatchingPublisher publisher = new AsyncBatchingPublisher(broker, registry, 100, 50, 10, 10, 3);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            publisher.publish("mt.acks", "committed");
+            Thread.sleep(50);
+            assertEquals(0, broker.deliveredCount(), "nothing is sent before commit");
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            publisher.publish("mt.acks", "rolled-back");
+            // rollback: afterCommit is never called
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        publisher.close();
+
+        assertEquals(List.of("committed"), broker.delivered.get("mt.acks"));
+    }
+
+    @Test
+    public void publishAndConfirm_sendsInsideTransactionAndThrowsOnNack() throws Exception {
+        InMemoryConfirmingSender broker = new InMemoryConfirmingSender(1);
+        AsyncBatchingPublisher publisher = new AsyncBatchingPublisher(broker, registry, 100, 50, 10, 10, 3);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // the first message is nacked: the caller has to keep its copy
+            assertThrows(IllegalStateException.class, () -> publisher.publishAndConfirm("mt.acks", List.of("a", "b")));
+            publisher.publishAndConfirm("mt.acks", List.of("c"));
+            assertEquals(List.of("b", "c"), broker.delivered.get("mt.acks"), "sent without waiting for a commit");
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        publisher.close();
+
+        assertEquals(0, publisher.pending());
+        assertEquals(1.0, registry.counter("mt.publisher.nacked").count());
+    }
+
+    @Test
+    public void nackedMessages_areRetried() throws Exception {
+        InMemoryConfirmingSender broker = new InMemoryConfirmingSender(2);
+        AsyncBatchingPublisher publisher = new AsyncBatchingPublisher(broker, registry, 100, 50, 10, 10, 5);
+        publisher.publish("mt.acks", "a");
+        publisher.publish("mt.acks", "b");
+        publisher.publish("mt.acks", "c");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (broker.deliveredCount() < 3 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        publisher.close();
+
+        assertEquals(3, broker.deliveredCount());
+        assertEquals(2.0, registry.counter("mt.publisher.nacked").count());
+        assertEquals(0.0, registry.counter("mt.publisher.dropped").count());
+    }
+
+    @Test
+    public void retryBuffer_isBounded() throws Exception {
+        InMemoryConfirmingSender broker = new InMemoryConfirmingSender(Integer.MAX_VALUE);
+        AsyncBatchingPublisher publisher = new AsyncBatchingPublisher(broker, registry, 100, 50, 10, 2, 3);
+        for (int i = 0; i < 5; i++) publisher.publish("mt.acks", "m" + i);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (registry.counter("mt.publisher.dropped").count() < 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        publisher.close();
+
+        assertEquals(0, broker.deliveredCount());
+        assertEquals(5.0, registry.counter("mt.publisher.dropped").count());
+        assertEquals(0, publisher.pending());
+    }
+}
@@ -0,0 +1,40 @@
+package com.megha.bank.messaging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory broker stand-in: records every batch it is given and confirms each message immediately.
+ * The first {@code nacks} messages are nacked (and not recorded as delivered).
+ */
+public class InMemoryConfirmingSender implements ConfirmingSender {
+
+    public final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    public final Map<String, List<String>> delivered = new ConcurrentHashMap<>();
+    private final AtomicInteger nacks;
+
+    public InMemoryConfirmingSender(int nacks) {
+        this.nacks = new AtomicInteger(nacks);
+    }
+
+    @Override
+    public List<CompletableFuture<Boolean>> send(String routingKey, List<String> messages) {
+        batches.add(List.copyOf(messages));
+        List<CompletableFuture<Boolean>> confirms = new ArrayList<>(messages.size());
+        for (String m : messages) {
+            boolean ack = nacks.getAndDecrement() <= 0;
+            if (ack) delivered.computeIfAbsent(routingKey, k -> new CopyOnWriteArrayList<>()).add(m);
+            confirms.add(CompletableFuture.completedFuture(ack));
+        }
+        return confirms;
+    }
+
+    public int deliveredCount() {
+        return delivered.values().stream().mapToInt(List::size).sum();
+    }
+}
@@ -0,0 +1,118 @@
+package com.megha.bank.messaging;
+
+import com.rabbitmq.client.Channel;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * In-process stand-in for one RabbitMQ queue with a dead-letter queue, as seen by one consumer channel: delivers
+ * batches with increasing delivery tags, keeps them unacked until basicAck/basicNack on {@link #channel}, moves
+ * messages rejected without requeue to {@link #deadLetters}, and can redeliver everything unacked (channel lost).
+ * With {@link #failAcks} set, acks fail the way they do on a closed channel.
+ */
+public class InMemoryInboundBroker {
+
+    public final List<String> deadLetters = new ArrayList<>();
+    public final Channel channel = mock(Channel.class);
+    public volatile boolean failAcks;
+    private final Deque<Message> queue = new ArrayDeque<>();
+    private final TreeMap<Long, Message> unacked = new TreeMap<>();
+    private long nextTag = 1;
+
+    public InMemoryInboundBroker() {
+        try {
+            doAnswer(inv -> {
+                if (failAcks) throw new IOException("channel closed");
+                settle(inv.getArgument(0), inv.getArgument(1));
+                return null;
+            }).when(channel).basicAck(anyLong(), anyBoolean());
+            doAnswer(inv -> {
+                List<Message> settled = settle(inv.getArgument(0), inv.getArgument(1));
+                if ((boolean) inv.getArgument(2)) {
+                    // requeued messages go back to the head of the queue in their original order
+                    for (int i = settled.size() - 1; i >= 0; i--) {
+                        settled.get(i).getMessageProperties().setRedelivered(true);
+                        queue.addFirst(settled.get(i));
+                    }
+                } else {
+                    for (Message m : settled) deadLetters.add(body(m));
+                }
+                return null;
+            }).when(channel).basicNack(anyLong(), anyBoolean(), anyBoolean());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void publish(String body) {
+        queue.addLast(new Message(body.getBytes(StandardCharsets.UTF_8), new MessageProperties()));
+    }
+
+    /** Hands out up to {@code max} queued messages with fresh delivery tags. */
+    public List<Message> deliver(int max) {
+        List<Message> batch = new ArrayList<>();
+        while (batch.size() < max && !queue.isEmpty()) {
+            Message m = queue.pollFirst();
+            MessageProperties props = new MessageProperties();
+            props.setDeliveryTag(nextTag++);
+            props.setRedelivered(m.getMessageProperties().isRedelivered());
+            Message delivered = new Message(m.getBody(), props);
+            unacked.put(props.getDeliveryTag(), delivered);
+            batch.add(delivered);
+        }
+        return batch;
+    }
+
+    /** The consumer's channel was closed: unacked messages go back to the head of the queue, marked redelivered. */
+    public void redeliverUnacked() {
+        List<Message> back = new ArrayList<>(unacked.values());
+        unacked.clear();
+        for (int i = back.size() - 1; i >= 0; i--) {
+            back.get(i).getMessageProperties().setRedelivered(true);
+            queue.addFirst(back.get(i));
+        }
+    }
+
+    public int queued() {
+        return queue.size();
+    }
+
+    public int unacked() {
+        return unacked.size();
+    }
+
+    private List<Message> settle(long tag, boolean multiple) {
+        List<Message> settled = new ArrayList<>();
+        if (multiple) {
+            Iterator<Map.Entry<Long, Message>> it = unacked.headMap(tag, true).entrySet().iterator();
+            while (it.hasNext()) {
+                settled.add(it.next().getValue());
+                it.remove();
+            }
+        } else {
+            Message m = unacked.remove(tag);
+            if (m == null) throw new IllegalStateException("Unknown delivery tag " + tag);
+            settled.add(m);
+        }
+        return settled;
+    }
+
+    private static String body(Message m) {
+        return new String(m.getBody(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,135 @@
+package com.megha.bank.messaging;
+
+import com.megha.bank.model.Trade;
+import com.megha.bank.repository.TradeRepository;
+import com.megha.bank.service.TradeService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+public class InboundMessageListenerIntegrationTest {
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final InMemoryInboundBroker broker = new InMemoryInboundBroker();
+
+    private InboundMessageListener listener() {
+        return new InboundMessageListener(tradeService, registry, 0);
+    }
+
+    @Test
+    public void batch_isBookedAndAckedAfterCommit() {
+        broker.publish("TYPE:BUY\nREF:IN-1\nINST:INFY\nQTY:10\nPRC:100.0");
+        broker.publish("TYPE:SELL\nREF:IN-2\nINST:INFY\nQTY:5\nPRC:101.0");
+        broker.publish("TYPE:CANCEL\nREF:IN-1");
+        broker.publish("TYPE:BUY\nREF:IN-3");  // NAK (missing fields) is still a processed message
+
+        listener().onMessageBatch(broker.deliver(10), broker.channel);
+
+        assertEquals(0, broker.unacked());
+        assertTrue(broker.deadLetters.isEmpty());
+        assertEquals(Trade.Status.CANCELLED, tradeRepository.findByTradeRef("IN-1").orElseThrow().getStatus());
+        assertTrue(tradeRepository.findByTradeRef("IN-2").isPresent());
+        assertTrue(tradeRepository.findByTradeRef("IN-3").isEmpty());
+        assertEquals(4.0, registry.counter("mt.inbound.messages").count());
+    }
+
+    @Test
+    public void poisonMessage_isDeadLettered_restOfBatchIsBooked() {
+        String poison = "TYPE:BUY\nREF:IN-POISON\nINST:" + "X".repeat(300) + "\nQTY:1\nPRC:1.0";
+        broker.publish("TYPE:BUY\nREF:IN-10\nINST:INFY\nQTY:10\nPRC:100.0");
+        broker.publish(poison);
+        broker.publish("TYPE:BUY\nREF:IN-11\nINST:INFY\nQTY:10\nPRC:100.0");
+
+        listener().onMessageBatch(broker.deliver(10), broker.channel);
+
+        assertEquals(List.of(poison), broker.deadLetters);
+        assertEquals(0, broker.unacked());
+        assertTrue(tradeRepository.findByTradeRef("IN-10").isPresent());
+        assertTrue(tradeRepository.findByTradeRef("IN-11").isPresent());
+        assertTrue(tradeRepository.findByTradeRef("IN-POISON").isEmpty());
+        assertEquals(1.0, registry.counter("mt.inbound.dead-lettered").count());
+        assertEquals(1.0, registry.counter("mt.inbound.batch.fallbacks").count());
+    }
+
+    @Test
+    public void lostAck_redeliveryIsAnsweredAsReplay() {
+        broker.publish("TYPE:BUY\nREF:IN-20\nINST:TCS\nQTY:7\nPRC:50.0");
+        broker.publish("TYPE:SELL\nREF:IN-21\nINST:TCS\nQTY:3\nPRC:51.0");
+        InboundMessageListener listener = listener();
+
+        // committed, but the channel dies before the ack reaches the broker
+        broker.failAcks = true;
+        List<Message> first = broker.deliver(10);
+        assertThrows(IllegalStateException.class, () -> listener.onMessageBatch(first, broker.channel));
+        broker.failAcks = false;
+        broker.redeliverUnacked();
+        long trades = tradeRepository.count();
+
+        List<Message> again = broker.deliver(10);
+        assertTrue(again.stream().allMatch(m -> m.getMessageProperties().isRedelivered()));
+        listener.onMessageBatch(again, broker.channel);
+
+        assertEquals(0, broker.unacked());
+        assertEquals(0, broker.queued());
+        assertEquals(trades, tradeRepository.count());
+        assertEquals(7L, tradeRepository.findByTradeRef("IN-20").orElseThrow().getQuantity());
+    }
+
+    @Test
+    public void databaseOutage_requeuesInsteadOfDeadLettering() {
+        broker.publish("TYPE:BUY\nREF:IN-30\nINST:INFY\nQTY:1\nPRC:1.0");
+        broker.publish("TYPE:BUY\nREF:IN-31\nINST:INFY\nQTY:1\nPRC:1.0");
+        TradeService down = mock(TradeService.class);
+        when(down.processBatch(anyList())).thenThrow(new CannotCreateTransactionException("Could not open JDBC connection"));
+
+        new InboundMessageListener(down, registry, 0).onMessageBatch(broker.deliver(10), broker.channel);
+
+        assertTrue(broker.deadLetters.isEmpty());
+        assertEquals(0, broker.unacked());
+        assertEquals(2, broker.queued());
+        assertEquals(2.0, registry.counter("mt.inbound.requeued").count());
+        assertEquals(0.0, registry.counter("mt.inbound.batch.fallbacks").count());
+
+        // back up: the requeued messages go through in their original order
+        listener().onMessageBatch(broker.deliver(10), broker.channel);
+        assertEquals(0, broker.queued());
+        assertTrue(tradeRepository.findByTradeRef("IN-30").isPresent());
+        assertTrue(tradeRepository.findByTradeRef("IN-31").isPresent());
+    }
+
+    @Test
+    public void outageDuringOneByOneRetry_requeuesTheRest() {
+        String poison = "TYPE:BUY\nREF:IN-40\nINST:" + "X".repeat(300) + "\nQTY:1\nPRC:1.0";
+        broker.publish("TYPE:BUY\nREF:IN-41\nINST:INFY\nQTY:1\nPRC:1.0");
+        broker.publish(poison);
+        broker.publish("TYPE:BUY\nREF:IN-42\nINST:INFY\nQTY:1\nPRC:1.0");
+        TradeService flaky = mock(TradeService.class);
+        when(flaky.processBatch(anyList()))
+                .thenThrow(new IllegalStateException("constraint"))           // the batch
+                .thenReturn(List.of())                                          // IN-41
+                .thenThrow(new CannotCreateTransactionException("db down"));    // poison, before it is looked at
+
+        new InboundMessageListener(flaky, registry, 0).onMessageBatch(broker.deliver(10), broker.channel);
+
+        assertTrue(broker.deadLetters.isEmpty());
+        assertEquals(0, broker.unacked());
+        assertEquals(2, broker.queued());
+        assertEquals(2.0, registry.counter("mt.inbound.requeued").count());
+    }
+}
@@ -0,0 +1,41 @@
+package com.megha.bank.messaging;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RabbitMqPublisherTest {
+
+    @Test
+    public void asyncMode_withoutCorrelatedConfirms_failsAtStartup() {
+        CachingConnectionFactory cf = new CachingConnectionFactory("localhost");
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> publisher(cf, "async").close());
+        assertTrue(e.getMessage().contains("publisher-confirm-type=correlated"));
+
+        cf.setPublisherConfirmType(CachingConnectionFactory.ConfirmType.CORRELATED);
+        assertDoesNotThrow(() -> publisher(cf, "async").close());
+        cf.destroy();
+    }
+
+    @Test
+    public void syncMode_doesNotNeedConfirms() {
+        CachingConnectionFactory cf = new CachingConnectionFactory("localhost");
+        assertDoesNotThrow(() -> publisher(cf, "sync").close());
+        cf.destroy();
+    }
+
+    private static RabbitMqPublisher publisher(CachingConnectionFactory cf, String mode) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("rabbitTemplate", new RabbitTemplate(cf));
+        beans.addBean("meterRegistry", new SimpleMeterRegistry());
+        ObjectProvider<RabbitTemplate> template = beans.getBeanProvider(RabbitTemplate.class);
+        ObjectProvider<MeterRegistry> registry = beans.getBeanProvider(MeterRegistry.class);
+        return new RabbitMqPublisher(template, registry, mode, 100, 10, 20, 10, 3, 1000);
+    }
+}
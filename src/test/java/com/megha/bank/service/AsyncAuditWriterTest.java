@@ -0,0 +1,158 @@
+package com.megha.bank.service;
+
+import com.megha.bank.model.AuditRecord;
+import com.megha.bank.repository.AuditRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class AsyncAuditWriterTest {
+
+    @TempDir
+    Path dir;
+
+    private AuditRepository auditRepository;
+    private final List<AuditRecord> saved = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        auditRepository = mock(AuditRepository.class);
+        when(auditRepository.saveAll(anyList())).thenAnswer(i -> {
+            List<AuditRecord> batch = i.getArgument(0);
+            saved.addAll(batch);
+            return batch;
+        });
+    }
+
+    @Test
+    public void submittedRecords_areWrittenInBatchesAndFlushedOnShutdown() throws Exception {
+        AsyncAuditWriter writer = writer(dir.resolve("spill.log"), 4, 10);
+        writer.start();
+        for (int i = 0; i < 10; i++) {
+            writer.submit(AuditService.newRecord("TR-" + i, "in", "out", "ACK"));
+        }
+        writer.shutdown();
+
+        assertEquals(10, saved.size());
+        assertEquals("TR-0", saved.get(0).getTradeRef());
+        assertEquals("TR-9", saved.get(9).getTradeRef());
+        assertEquals(0, Files.size(dir.resolve("spill.log")), "spill file is truncated once everything is written");
+    }
+
+    @Test
+    public void auditService_spillsBeforeCommit_queuesOnlyAfterCommit() throws Exception {
+        Path spill = dir.resolve("spill.log");
+        AsyncAuditWriter writer = writer(spill, 4, 10);
+        writer.start();
+        AuditService auditService = new AuditService(auditRepository);
+        ReflectionTestUtils.setField(auditService, "asyncWriter", writer);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            auditService.recordAll(List.of(AuditService.newRecord("TR-RB", "in", "out", "ACK")));
+            // the commit fails after beforeCommit: the spilled record is discarded, never queued
+            TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.beforeCommit(false));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            auditService.record("TR-C", "in", "out", "ACK");
+            assertTrue(uncommitted(spill).isEmpty(), "nothing is spilled before the commit starts");
+            TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.beforeCommit(false));
+            assertEquals(List.of("TR-C"), uncommitted(spill), "spilled before the commit");
+            assertEquals(0, writer.queueDepth() + saved.size(), "nothing is queued before commit");
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        writer.shutdown();
+
+        assertEquals(List.of("TR-C"), saved.stream().map(AuditRecord::getTradeRef).toList());
+    }
+
+    @Test
+    public void crashAfterCommit_recordIsRecoveredFromSpillFile() throws Exception {
+        Path spill = dir.resolve("spill.log");
+        AsyncAuditWriter writer = writer(spill, 4, 10);
+        AuditService auditService = new AuditService(auditRepository);
+        ReflectionTestUtils.setField(auditService, "asyncWriter", writer);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            auditService.record("TR-CRASH", "in", "out", "ACK");
+            TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.beforeCommit(false));
+            // the trade commits, then the process dies before afterCommit
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        writer.shutdown();
+
+        AsyncAuditWriter restarted = writer(spill, 4, 10);
+        restarted.start();
+        restarted.shutdown();
+        assertEquals(List.of("TR-CRASH"), saved.stream().map(AuditRecord::getTradeRef).toList());
+    }
+
+    @Test
+    public void fullQueue_fallsBackToWritingOnCallerThread() throws Exception {
+        AsyncAuditWriter writer = writer(dir.resolve("spill.log"), 1, 1);
+        // writer thread not started: the queue fills up after one record
+        writer.submit(AuditService.newRecord("TR-1", "in", "out", "ACK"));
+        writer.submit(AuditService.newRecord("TR-2", "in", "out", "ACK"));
+
+        assertEquals(1, saved.size());
+        assertEquals("TR-2", saved.get(0).getTradeRef());
+        assertEquals(1, writer.queueDepth());
+    }
+
+    @Test
+    public void start_recoversUncommittedRecordsFromSpillFile() throws Exception {
+        Path spill = dir.resolve("spill.log");
+        try (AuditSpillFile file = new AuditSpillFile(spill, false)) {
+            long a = file.append(AuditService.newRecord("TR-A", "in-a", "out-a", "ACK"));
+            file.append(AuditService.newRecord("TR-B", "in-b\nline2", "out-ü", "NAK"));
+            file.append(AuditService.newRecord("TR-C", null, "out-c", "ACK"));
+            file.commit(new long[]{a}, 1);
+        }
+
+        AsyncAuditWriter writer = writer(spill, 10, 10);
+        writer.start();
+        writer.shutdown();
+
+        assertEquals(2, saved.size());
+        assertEquals("TR-B", saved.get(0).getTradeRef());
+        assertEquals("in-b\nline2", saved.get(0).getIncomingMessage());
+        assertEquals("out-ü", saved.get(0).getOutgoingMessage());
+        assertEquals("NAK", saved.get(0).getStatus());
+        assertNotNull(saved.get(0).getCreatedAt());
+        assertNull(saved.get(1).getIncomingMessage());
+    }
+
+    private static List<String> uncommitted(Path spill) throws Exception {
+        try (AuditSpillFile file = new AuditSpillFile(spill, false)) {
+            return file.readUncommitted().stream().map(AuditRecord::getTradeRef).toList();
+        }
+    }
+
+    private AsyncAuditWriter writer(Path spill, int batchSize, int capacity) {
+        return new AsyncAuditWriter(auditRepository, mock(PlatformTransactionManager.class), new SimpleMeterRegistry(),
+                capacity, batchSize, 10, 10, spill.toString(), false);
+    }
+}
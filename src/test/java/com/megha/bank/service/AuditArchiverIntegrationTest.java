@@ -0,0 +1,120 @@
+package com.megha.bank.service;
+
+import com.megha.bank.model.AuditRecord;
+import com.megha.bank.repository.AuditRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"mt.audit.archive.enabled=true", "mt.audit.archive.directory=target/audit-archive-test",
+        "mt.audit.archive.cron=-"})
+@AutoConfigureMockMvc
+public class AuditArchiverIntegrationTest {
+
+    private static final Path DIR = Path.of("target/audit-archive-test");
+
+    @Autowired
+    private AuditArchiver archiver;
+
+    @Autowired
+    private AuditService auditService;
+
+    @Autowired
+    private AuditRepository auditRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void cleanDirectory() throws IOException {
+        if (Files.exists(DIR)) {
+            try (Stream<Path> files = Files.list(DIR)) {
+                for (Path p : files.toList()) Files.delete(p);
+            }
+        }
+    }
+
+    @Test
+    public void oldDays_areMovedToArchiveFiles() throws IOException {
+        LocalDateTime old = LocalDate.now().minusDays(400).atTime(10, 30);
+        AuditRecord a = save("AR-1", "TYPE:BUY\nREF:AR-1\nINST:INFY\nQTY:1\nPRC:2.0", old);
+        AuditRecord b = save("AR-2", "TYPE:SELL\nREF:AR-2\nINST:TCS\nQTY:3\nPRC:4.0", old.plusHours(1));
+        AuditRecord c = save("AR-3", "TYPE:BUY\nREF:AR-3\nINST:WIPRO\nQTY:5\nPRC:6.0", old.plusDays(1));
+        AuditRecord recent = save("AR-4", "TYPE:BUY\nREF:AR-4\nINST:INFY\nQTY:1\nPRC:2.0", LocalDateTime.now());
+
+        assertEquals(3, archiver.archiveBefore(LocalDate.now().minusDays(30)));
+
+        assertFalse(auditRepository.existsById(a.getId()));
+        assertFalse(auditRepository.existsById(c.getId()));
+        assertTrue(auditRepository.existsById(recent.getId()));
+
+        List<AuditRecord> archived = new ArrayList<>();
+        assertEquals(2, AuditArchiveFile.read(DIR.resolve("audit-" + AuditRecord.dayOf(old) + ".arc"), archived::add));
+        assertEquals(List.of(a.getId(), b.getId()), archived.stream().map(AuditRecord::getId).toList());
+        assertEquals(b.getIncomingMessage(), archived.get(1).getIncomingMessage());
+        assertEquals(b.getOutgoingMessage(), archived.get(1).getOutgoingMessage());
+        assertEquals(old.plusHours(1), archived.get(1).getCreatedAt());
+
+        // a late row for an archived day goes to a second file instead of replacing the first
+        save("AR-5", "TYPE:BUY\nREF:AR-5\nINST:INFY\nQTY:1\nPRC:2.0", old.plusMinutes(5));
+        assertEquals(1, archiver.archiveBefore(LocalDate.now().minusDays(30)));
+        assertEquals(1, AuditArchiveFile.read(DIR.resolve("audit-" + AuditRecord.dayOf(old) + ".1.arc"), r -> { }));
+    }
+
+    @Test
+    public void truncatedArchive_isRejected() throws IOException {
+        LocalDateTime old = LocalDate.now().minusDays(500).atStartOfDay();
+        save("AR-10", "TYPE:BUY\nREF:AR-10\nINST:INFY\nQTY:1\nPRC:2.0", old);
+        archiver.archiveBefore(LocalDate.now().minusDays(30));
+        Path file = DIR.resolve("audit-" + AuditRecord.dayOf(old) + ".arc");
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertThrows(IOException.class, () -> AuditArchiveFile.read(file, r -> { }));
+    }
+
+    @Test
+    public void lookupByTradeRefAndTimeRange() throws Exception {
+        LocalDateTime t = LocalDateTime.now().minusHours(2);
+        save("AR-20", "TYPE:BUY\nREF:AR-20\nINST:INFY\nQTY:1\nPRC:2.0", t);
+        save("AR-20", "TYPE:CANCEL\nREF:AR-20", t.plusMinutes(30));
+        save("AR-21", "TYPE:BUY\nREF:AR-21\nINST:INFY\nQTY:1\nPRC:2.0", t.plusMinutes(10));
+
+        List<AuditRecord> history = auditService.history("AR-20", t.minusMinutes(1), t.plusHours(1));
+        assertEquals(2, history.size());
+        assertEquals("TYPE:CANCEL\nREF:AR-20", history.get(1).getIncomingMessage());
+        assertEquals(1, auditService.history("AR-20", t.plusMinutes(1), t.plusHours(1)).size());
+        assertEquals(3, auditService.range(t.minusSeconds(1), t.plusMinutes(31), 100).stream()
+                .filter(r -> r.getTradeRef().startsWith("AR-2")).count());
+
+        mockMvc.perform(get("/api/audit").param("tradeRef", "AR-20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].incomingMessage").value("TYPE:BUY\nREF:AR-20\nINST:INFY\nQTY:1\nPRC:2.0"));
+    }
+
+    private AuditRecord save(String ref, String incoming, LocalDateTime createdAt) {
+        AuditRecord r = AuditService.newRecord(ref, incoming, "ACK for " + ref, "ACK");
+        r.setCreatedAt(createdAt);
+        return auditRepository.save(r);
+    }
+}
@@ -0,0 +1,127 @@
+package com.megha.bank.service;
+
+import com.megha.bank.messaging.MessagePublisher;
+import com.megha.bank.model.DedupEntry;
+import com.megha.bank.model.Trade;
+import com.megha.bank.repository.AuditRepository;
+import com.megha.bank.repository.DedupRepository;
+import com.megha.bank.repository.TradeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+public class IdempotencyIntegrationTest {
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private AuditRepository auditRepository;
+
+    @Autowired
+    private DedupRepository dedupRepository;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @MockBean
+    private MessagePublisher messagePublisher;
+
+    @Test
+    public void resentBuyWithRef_returnsOriginalAck() {
+        String msg = "TYPE:BUY\nREF:ID-100\nINST:INFY\nQTY:5\nPRC:10.5";
+        TradeService.ProcessResult first = tradeService.processMtMessage(msg, Trade.Type.BUY);
+        long audits = auditRepository.count();
+
+        // used to fail the tradeRef unique constraint
+        TradeService.ProcessResult again = tradeService.processMtMessage(msg, Trade.Type.BUY);
+
+        assertEquals(TradeService.Outcome.REPLAY, again.getOutcome());
+        assertTrue(again.isSuccess());
+        assertEquals(first.getMtResponse(), again.getMtResponse());
+        assertNull(again.getTrade());
+        assertEquals(audits, auditRepository.count(), "a replay writes nothing");
+        verify(messagePublisher, times(1)).publish(eq("mt.acks"), contains(":20:ID-100"));
+    }
+
+    @Test
+    public void resentBuyWithoutRef_createsOneTrade() {
+        String msg = "TYPE:BUY\nINST:NOREF-ID\nQTY:7\nPRC:1.25";
+        TradeService.ProcessResult first = tradeService.processMtMessage(msg, Trade.Type.BUY);
+        TradeService.ProcessResult again = tradeService.processMtMessage(msg, Trade.Type.BUY);
+
+        assertEquals(first.getMtResponse(), again.getMtResponse());
+        assertEquals(1, tradeRepository.findAll().stream().filter(t -> "NOREF-ID".equals(t.getInstrument())).count());
+    }
+
+    @Test
+    public void sameTextOnAnotherEndpoint_isNotAReplay() {
+        tradeService.processMtMessage("TYPE:BUY\nREF:ID-200\nINST:TCS\nQTY:1\nPRC:2.0", Trade.Type.BUY);
+        TradeService.ProcessResult cancel = tradeService.processMtMessage("TYPE:BUY\nREF:ID-200\nINST:TCS\nQTY:1\nPRC:2.0",
+                Trade.Type.CANCEL);
+
+        assertEquals(TradeService.Outcome.ACK, cancel.getOutcome());
+        assertEquals(Trade.Status.CANCELLED, tradeRepository.findByTradeRef("ID-200").orElseThrow().getStatus());
+    }
+
+    @Test
+    public void batch_answersRepeatsWithinAndAcrossBatches() {
+        String buy = "TYPE:BUY\nREF:ID-300\nINST:WIPRO\nQTY:3\nPRC:4.0";
+        String sell = "TYPE:SELL\nREF:ID-301\nINST:WIPRO\nQTY:2\nPRC:4.5";
+        List<TradeService.ProcessResult> first = tradeService.processBatch(List.of(buy, sell, buy));
+
+        assertEquals(TradeService.Outcome.ACK, first.get(0).getOutcome());
+        assertEquals(TradeService.Outcome.REPLAY, first.get(2).getOutcome());
+        assertEquals(first.get(0).getMtResponse(), first.get(2).getMtResponse());
+
+        List<TradeService.ProcessResult> again = tradeService.processBatch(List.of(sell));
+        assertEquals(TradeService.Outcome.REPLAY, again.get(0).getOutcome());
+        assertEquals(first.get(1).getMtResponse(), again.get(0).getMtResponse());
+    }
+
+    @Test
+    public void resentAfterReplayWindow_isANewMessage() {
+        String msg = "TYPE:BUY\nINST:WINDOW-ID\nQTY:2\nPRC:3.0";
+        tradeService.processMtMessage(msg, Trade.Type.BUY);
+        DedupEntry entry = dedupRepository.findById(IdempotencyService.key(msg, Trade.Type.BUY).id()).orElseThrow();
+        entry.setCreatedAt(LocalDateTime.now().minusHours(25));
+        dedupRepository.save(entry);
+
+        TradeService.ProcessResult again = tradeService.processMtMessage(msg, Trade.Type.BUY);
+
+        assertEquals(TradeService.Outcome.ACK, again.getOutcome());
+        assertEquals(2, tradeRepository.findAll().stream().filter(t -> "WINDOW-ID".equals(t.getInstrument())).count());
+    }
+
+    @Test
+    public void purgeExpired_deletesOnlyRowsOutsideTheWindow() {
+        String old = "TYPE:BUY\nINST:PURGE-ID\nQTY:1\nPRC:1.0";
+        String recent = "TYPE:BUY\nINST:PURGE-ID\nQTY:2\nPRC:1.0";
+        tradeService.processMtMessage(old, Trade.Type.BUY);
+        tradeService.processMtMessage(recent, Trade.Type.BUY);
+        String oldId = IdempotencyService.key(old, Trade.Type.BUY).id();
+        DedupEntry entry = dedupRepository.findById(oldId).orElseThrow();
+        entry.setCreatedAt(LocalDateTime.now().minusHours(25));
+        dedupRepository.save(entry);
+
+        assertTrue(idempotencyService.purgeExpired() >= 1);
+
+        assertFalse(dedupRepository.existsById(oldId));
+        assertTrue(dedupRepository.existsById(IdempotencyService.key(recent, Trade.Type.BUY).id()));
+        assertEquals(TradeService.Outcome.REPLAY, tradeService.processMtMessage(recent, Trade.Type.BUY).getOutcome());
+        assertEquals(TradeService.Outcome.ACK, tradeService.processMtMessage(old, Trade.Type.BUY).getOutcome());
+    }
+}
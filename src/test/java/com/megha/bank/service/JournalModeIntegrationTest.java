@@ -0,0 +1,178 @@
+package com.megha.bank.service;
+
+import com.megha.bank.model.Trade;
+import com.megha.bank.repository.AuditRepository;
+import com.megha.bank.repository.JournalCheckpointRepository;
+import com.megha.bank.repository.TradeRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"mt.journal.enabled=true", "mt.journal.id=journal-it", "mt.journal.size-mb=4"})
+public class JournalModeIntegrationTest {
+
+    private static final Path DIR;
+
+    static {
+        try {
+            DIR = Files.createTempDirectory("journal-it");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void journalFile(DynamicPropertyRegistry registry) {
+        registry.add("mt.journal.file", () -> DIR.resolve("trade-journal.log").toString());
+    }
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private AuditRepository auditRepository;
+
+    @Autowired
+    private JournalCheckpointRepository checkpoints;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void ack_isImmediate_andTheTradeIsProjectedAfterwards() throws Exception {
+        TradeService.ProcessResult buy = tradeService.journalMtMessage(
+                "TYPE:BUY\nREF:JM-1\nINST:JOURNAL\nQTY:10\nPRC:2.5", Trade.Type.BUY);
+        assertTrue(buy.isSuccess());
+        assertTrue(buy.getMtResponse().contains(":20:JM-1"));
+        assertNull(buy.getTrade().getId(), "not in the database yet when acknowledged");
+
+        TradeService.ProcessResult cancel = tradeService.journalMtMessage("TYPE:CANCEL\nREF:JM-1", Trade.Type.CANCEL);
+        assertTrue(cancel.isSuccess());
+
+        Trade t = await(() -> tradeRepository.findByTradeRef("JM-1")
+                .filter(x -> x.getStatus() == Trade.Status.CANCELLED));
+        assertEquals(Trade.Type.BUY, t.getType());
+        assertEquals(10L, t.getQuantity());
+        await(() -> Optional.of(auditRepository.count()).filter(n -> n > 0));
+        assertTrue(checkpoints.findById("journal-it").orElseThrow().getLastSeq() >= 2);
+    }
+
+    @Test
+    public void resend_isAnsweredAsReplay_beforeAndAfterProjection() throws Exception {
+        String msg = "TYPE:SELL\nREF:JM-2\nINST:JOURNAL\nQTY:3\nPRC:1.5";
+        String ack = tradeService.journalMtMessage(msg, Trade.Type.SELL).getMtResponse();
+
+        TradeService.ProcessResult again = tradeService.journalMtMessage(msg, Trade.Type.SELL);
+        assertEquals(TradeService.Outcome.REPLAY, again.getOutcome());
+        assertEquals(ack, again.getMtResponse());
+
+        await(() -> tradeRepository.findByTradeRef("JM-2"));
+        assertEquals(ack, tradeService.journalMtMessage(msg, Trade.Type.SELL).getMtResponse());
+    }
+
+    @Test
+    public void duplicateRef_isNakedBeforeItIsAcknowledged() throws Exception {
+        assertTrue(tradeService.journalMtMessage("TYPE:BUY\nREF:JM-3\nINST:JOURNAL\nQTY:1\nPRC:1", Trade.Type.BUY).isSuccess());
+
+        // still in the journal only
+        TradeService.ProcessResult pending = tradeService.journalMtMessage(
+                "TYPE:BUY\nREF:JM-3\nINST:OTHER\nQTY:2\nPRC:1", Trade.Type.BUY);
+        assertEquals(TradeService.Outcome.DUPLICATE_REF, pending.getOutcome());
+        assertTrue(pending.getMtResponse().contains("DUPLICATE_REF"));
+
+        // and once it is booked
+        Trade t = await(() -> tradeRepository.findByTradeRef("JM-3"));
+        assertEquals("JOURNAL", t.getInstrument());
+        TradeService.ProcessResult booked = tradeService.journalMtMessage(
+                "TYPE:SELL\nREF:JM-3\nINST:OTHER\nQTY:3\nPRC:1", Trade.Type.SELL);
+        assertEquals(TradeService.Outcome.DUPLICATE_REF, booked.getOutcome());
+
+        await(() -> auditRepository.findAll().stream()
+                .filter(a -> "JM-3".equals(a.getTradeRef()) && a.getOutgoingMessage().contains("DUPLICATE_REF"))
+                .findFirst());
+        assertEquals("JOURNAL", tradeRepository.findByTradeRef("JM-3").orElseThrow().getInstrument());
+    }
+
+    @Test
+    public void refLookup_isTimedUnderTheMessageType() {
+        long before = meterRegistry.get("mt.stage").tags("stage", "trade.find", "type", "SELL").timer().count();
+        assertTrue(tradeService.journalMtMessage("TYPE:SELL\nREF:JM-5\nINST:JOURNAL\nQTY:1\nPRC:1", Trade.Type.SELL)
+                .isSuccess());
+        assertEquals(before + 1, meterRegistry.get("mt.stage").tags("stage", "trade.find", "type", "SELL").timer().count());
+    }
+
+    @Test
+    public void refBookedElsewhereAfterJournaling_isStillNakedOnProjection() {
+        TradeJournal.Entry late = new TradeJournal.Entry(Trade.Type.BUY, TradeService.Outcome.ACK, "JM-4", "JOURNAL",
+                1L, 1.0, "TYPE:BUY\nREF:JM-4\nINST:JOURNAL\nQTY:1\nPRC:1", ":20:JM-4", LocalDateTime.now(), null);
+        tradeService.processMtMessage("TYPE:BUY\nREF:JM-4\nINST:DIRECT\nQTY:5\nPRC:1", Trade.Type.BUY);
+
+        Integer conflicts = new TransactionTemplate(transactionManager).execute(s -> tradeService.applyJournaled(List.of(late)));
+        assertEquals(1, conflicts);
+        assertEquals("DIRECT", tradeRepository.findByTradeRef("JM-4").orElseThrow().getInstrument());
+    }
+
+    @Test
+    public void entriesNotProjected_areReplayedOnStart() throws Exception {
+        // a journal written by a "previous run" that stopped before projecting anything
+        Path file = DIR.resolve("crashed.log");
+        TradeJournal crashed = new TradeJournal(file.toString(), 1, true, 0, 1000, new SimpleMeterRegistry());
+        crashed.recover(0);
+        crashed.start();
+        for (int i = 1; i <= 3; i++) {
+            crashed.append(new TradeJournal.Entry(Trade.Type.BUY, TradeService.Outcome.ACK, "JM-R" + i, "JOURNAL",
+                    (long) i, 1.0, "TYPE:BUY\nREF:JM-R" + i + "\nINST:JOURNAL\nQTY:" + i + "\nPRC:1", ":20:JM-R" + i,
+                    LocalDateTime.now(), null));
+        }
+        crashed.close();
+
+        TradeJournal restarted = new TradeJournal(file.toString(), 1, true, 0, 1000, new SimpleMeterRegistry());
+        JournalProjector projector = new JournalProjector(restarted, tradeService, checkpoints, transactionManager,
+                new SimpleMeterRegistry(), "journal-it-replay", 100, 20);
+        projector.start();
+        try {
+            for (int i = 1; i <= 3; i++) {
+                assertEquals((long) i, tradeRepository.findByTradeRef("JM-R" + i).orElseThrow().getQuantity());
+            }
+            assertEquals(3, checkpoints.findById("journal-it-replay").orElseThrow().getLastSeq());
+            assertEquals(4, restarted.append(new TradeJournal.Entry(Trade.Type.CANCEL, TradeService.Outcome.ACK,
+                    "JM-R1", null, null, null, "TYPE:CANCEL\nREF:JM-R1", ":20:JM-R1", LocalDateTime.now(), null)).getSeq());
+            await(() -> tradeRepository.findByTradeRef("JM-R1").filter(x -> x.getStatus() == Trade.Status.CANCELLED));
+        } finally {
+            projector.shutdown();
+            restarted.close();
+        }
+    }
+
+    private static <T> T await(Supplier<Optional<T>> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            Optional<T> v = condition.get();
+            if (v.isPresent()) return v.get();
+            Thread.sleep(20);
+        }
+        return fail("condition not met within 5 s");
+    }
+}
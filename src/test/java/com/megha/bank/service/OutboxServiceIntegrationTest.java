@@ -0,0 +1,57 @@
+package com.megha.bank.service;
+
+import com.megha.bank.messaging.MessagePublisher;
+import com.megha.bank.model.Trade;
+import com.megha.bank.repository.OutboxRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatcher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = {"mt.outbox.enabled=true", "mt.outbox.poll-interval-ms=50"})
+public class OutboxServiceIntegrationTest {
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @MockBean
+    private MessagePublisher messagePublisher;
+
+    @Test
+    public void ack_isRelayedFromOutboxAfterCommit() throws Exception {
+        TradeService.ProcessResult res = tradeService.processMtMessage(
+                "TYPE:BUY\nREF:OB-100\nINST:INFY\nQTY:5\nPRC:10.5", Trade.Type.BUY);
+        assertTrue(res.isSuccess());
+
+        verify(messagePublisher, timeout(5000)).publishAndConfirm(eq("mt.acks"), argThat(containing(":20:OB-100")));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (outboxRepository.count() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(20);
+        assertEquals(0, outboxRepository.count(), "published rows are removed from the outbox");
+    }
+
+    @Test
+    public void failedTransaction_leavesNothingToPublish() {
+        tradeService.processMtMessage("TYPE:BUY\nREF:OB-200\nINST:INFY\nQTY:5\nPRC:10.5", Trade.Type.BUY);
+        verify(messagePublisher, timeout(5000)).publishAndConfirm(eq("mt.acks"), argThat(containing(":20:OB-200")));
+
+        // same ref again violates the unique constraint: the trade and its outbox row roll back together
+        assertThrows(RuntimeException.class, () -> tradeService.processMtMessage(
+                "TYPE:SELL\nREF:OB-200\nINST:TCS\nQTY:1\nPRC:1.0", Trade.Type.SELL));
+
+        verify(messagePublisher, after(500).times(1)).publishAndConfirm(eq("mt.acks"), argThat(containing(":20:OB-200")));
+    }
+
+    private static ArgumentMatcher<List<String>> containing(String text) {
+        return messages -> messages != null && messages.stream().anyMatch(m -> m.contains(text));
+    }
+}
@@ -0,0 +1,108 @@
+package com.megha.bank.service;
+
+import com.megha.bank.model.Trade;
+import com.megha.bank.repository.TradeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PositionEngineIntegrationTest {
+
+    @Autowired
+    private TradeService tradeService;
+
+    @Autowired
+    private PositionEngine positions;
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void singleAndBatchMessages_updatePositionsAndMatchRebuild() throws Exception {
+        tradeService.processMtMessage("TYPE:BUY\nREF:PE-1\nINST:POSTEST\nQTY:100\nPRC:10.0", Trade.Type.BUY);
+        tradeService.processMtMessage("TYPE:SELL\nREF:PE-2\nINST:POSTEST\nQTY:40\nPRC:11.0", Trade.Type.SELL);
+        tradeService.processMtMessage("TYPE:CANCEL\nREF:PE-2", Trade.Type.CANCEL);
+        // second cancel of the same trade changes nothing
+        tradeService.processMtMessage("TYPE:CANCEL\nREF:PE-2\nX:1", Trade.Type.CANCEL);
+        tradeService.processBatch(List.of(
+                "TYPE:BUY\nREF:PE-3\nINST:POSTEST\nQTY:5\nPRC:20.0",
+                "TYPE:SELL\nREF:PE-4\nINST:POSTEST\nQTY:1\nPRC:30.0",
+                "TYPE:CANCEL\nREF:PE-4"));
+
+        PositionEngine.Position p = positions.get("POSTEST");
+        assertEquals(105, p.getNetQuantity());
+        assertEquals(1100.0, p.getNotional(), 1e-9);
+
+        PositionEngine rebuilt = new PositionEngine(8, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(rebuilt, "tradeRepository", tradeRepository);
+        rebuilt.rebuild();
+        assertEquals(p.getNetQuantity(), rebuilt.get("POSTEST").getNetQuantity());
+        assertEquals(p.getNotional(), rebuilt.get("POSTEST").getNotional(), 1e-9);
+
+        mockMvc.perform(get("/api/positions/POSTEST"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.netQuantity").value(105))
+                .andExpect(jsonPath("$.notional").value(1100.0));
+        mockMvc.perform(get("/api/positions"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").isNumber())
+                .andExpect(jsonPath("$.positions[?(@.instrument == 'POSTEST')].netQuantity").value(105));
+        mockMvc.perform(get("/api/positions/NOSUCH"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void concurrentCancels_unwindOnce() throws Exception {
+        tradeService.processMtMessage("TYPE:BUY\nREF:PE-10\nINST:POSRACE\nQTY:50\nPRC:2.0", Trade.Type.BUY);
+        tradeService.processMtMessage("TYPE:BUY\nREF:PE-11\nINST:POSRACE\nQTY:7\nPRC:2.0", Trade.Type.BUY);
+
+        // /batch is not sequenced: the same CANCEL arrives on several threads at once
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int n = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        tradeService.processBatch(List.of("TYPE:CANCEL\nREF:PE-10\nN:" + n));
+                    } catch (RuntimeException lockTimeout) {
+                        // a loser may time out on the row lock; it then changes nothing
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) f.get();
+        } finally {
+            pool.shutdown();
+        }
+        tradeService.processBatch(List.of("TYPE:CANCEL\nREF:PE-10\nN:again", "TYPE:CANCEL\nREF:PE-10\nN:twice"));
+
+        assertEquals(Trade.Status.CANCELLED, tradeRepository.findByTradeRef("PE-10").orElseThrow().getStatus());
+        assertEquals(7, positions.get("POSRACE").getNetQuantity());
+    }
+}
@@ -0,0 +1,85 @@
+package com.megha.bank.service;
+
+import com.megha.bank.model.Trade;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionEngineTest {
+
+    private final PositionEngine engine = new PositionEngine(4, new SimpleMeterRegistry());
+
+    @Test
+    public void buySellAndCancel_adjustNetQuantityAndNotional() {
+        Trade buy = trade(Trade.Type.BUY, "INFY", 100, 10.0);
+        engine.onTrade(buy, 1);
+        engine.onTrade(trade(Trade.Type.SELL, "INFY", 30, 12.0), 1);
+        engine.onTrade(trade(Trade.Type.CANCEL, "INFY", 5, 1.0), 1);
+
+        PositionEngine.Position p = engine.get("INFY");
+        assertEquals(70, p.getNetQuantity());
+        assertEquals(1000.0 - 360.0, p.getNotional(), 1e-9);
+
+        engine.onTrade(buy, -1);
+        assertEquals(-30, engine.get("INFY").getNetQuantity());
+        assertEquals(-360.0, engine.get("INFY").getNotional(), 1e-9);
+        assertNull(engine.get("TCS"));
+    }
+
+    @Test
+    public void manyInstruments_surviveResizing() {
+        for (int i = 0; i < 5_000; i++) engine.apply("I-" + i, i, i * 0.5);
+        for (int i = 0; i < 5_000; i++) engine.apply("I-" + i, 1, 0.5);
+
+        assertEquals(5_000, engine.instruments());
+        assertEquals(4_000, engine.get("I-3999").getNetQuantity());
+        PositionEngine.Snapshot s = engine.snapshot();
+        assertEquals(5_000, s.getPositions().size());
+        assertEquals(10_000, s.getVersion());
+        assertEquals("I-0", s.getPositions().get(0).getInstrument());
+    }
+
+    @Test
+    public void snapshots_areConsistentUnderConcurrentUpdates() throws Exception {
+        // every update adds exactly 1 to some instrument, so in a consistent cut the quantities add up to the version
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < 4; w++) {
+            int seed = w;
+            Thread t = new Thread(() -> {
+                SplittableRandom rnd = new SplittableRandom(seed);
+                while (running.get()) engine.apply("X-" + rnd.nextInt(200), 1, 2.0);
+            });
+            t.start();
+            writers.add(t);
+        }
+        try {
+            for (int i = 0; i < 200; i++) {
+                PositionEngine.Snapshot s = engine.snapshot();
+                long total = s.getPositions().stream().mapToLong(PositionEngine.Position::getNetQuantity).sum();
+                double notional = s.getPositions().stream().mapToDouble(PositionEngine.Position::getNotional).sum();
+                assertEquals(s.getVersion(), total);
+                assertEquals(2.0 * total, notional, 1e-6);
+            }
+        } finally {
+            running.set(false);
+            for (Thread t : writers) t.join();
+        }
+    }
+
+    private static Trade trade(Trade.Type type, String instrument, long qty, double price) {
+        Trade t = new Trade();
+        t.setType(type);
+        t.setInstrument(instrument);
+        t.setQuantity(qty);
+        t.setPrice(price);
+        t.setStatus(Trade.Status.NEW);
+        return t;
+    }
+}
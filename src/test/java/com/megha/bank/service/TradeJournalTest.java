@@ -0,0 +1,125 @@
+package com.megha.bank.service;
+
+import com.megha.bank.model.Trade;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TradeJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void appendedEntries_areRecoveredAfterRestart() throws Exception {
+        Path file = dir.resolve("journal.log");
+        TradeJournal journal = open(file, 1);
+        journal.recover(0);
+        journal.start();
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(i, journal.append(entry("J-" + i, 100L * i)).getSeq());
+        }
+        journal.close();
+
+        TradeJournal reopened = open(file, 1);
+        List<TradeJournal.Entry> recovered = reopened.recover(1);
+        assertEquals(List.of(2L, 3L), recovered.stream().map(TradeJournal.Entry::getSeq).toList());
+        TradeJournal.Entry e = recovered.get(0);
+        assertEquals("J-2", e.getTradeRef());
+        assertEquals(Trade.Type.BUY, e.getType());
+        assertEquals(TradeService.Outcome.ACK, e.getOutcome());
+        assertEquals(200L, e.getQuantity());
+        assertEquals(12.5, e.getPrice());
+        assertNull(e.getInstrument());
+        assertEquals("TYPE:BUY\nREF:J-2", e.getMtMessage());
+        // numbering continues after the recovered entries
+        reopened.start();
+        assertEquals(4, reopened.append(entry("J-4", 1L)).getSeq());
+        reopened.close();
+    }
+
+    @Test
+    public void concurrentAppends_shareFsyncs_andStayInOrder() throws Exception {
+        TradeJournal journal = open(dir.resolve("journal.log"), 1);
+        journal.recover(0);
+        journal.start();
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 50; i++) journal.append(entry("C-" + thread + "-" + i, 1L));
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        } finally {
+            pool.shutdown();
+        }
+        List<TradeJournal.Entry> batch = new ArrayList<>();
+        while (journal.drainTo(batch, 1000, 100) > 0) {
+            // drain everything handed to the projector
+        }
+        assertEquals(800, batch.size());
+        for (int i = 0; i < batch.size(); i++) assertEquals(i + 1, batch.get(i).getSeq());
+        journal.projected(batch);
+        assertEquals(0, journal.unprojected());
+        journal.close();
+    }
+
+    @Test
+    public void fullJournal_startsOverOnceProjected() throws Exception {
+        Path file = dir.resolve("journal.log");
+        TradeJournal journal = open(file, 1);
+        journal.recover(0);
+        journal.start();
+        String padding = "X".repeat(100_000);
+        List<TradeJournal.Entry> batch = new ArrayList<>();
+        for (int i = 1; i <= 30; i++) { // ~9 MB through a 1 MB file
+            journal.append(entry("F-" + i + padding, 1L));
+            journal.drainTo(batch, 10, 1000);
+            journal.projected(batch);
+            batch.clear();
+        }
+        journal.close();
+
+        // only the current lap is read back, in order
+        List<TradeJournal.Entry> lap = open(file, 1).recover(0);
+        assertFalse(lap.isEmpty());
+        assertEquals(30, lap.get(lap.size() - 1).getSeq());
+        for (int i = 1; i < lap.size(); i++) assertEquals(lap.get(i - 1).getSeq() + 1, lap.get(i).getSeq());
+    }
+
+    @Test
+    public void fullJournal_failsAppendsWhileProjectionIsBehind() throws Exception {
+        TradeJournal journal = open(dir.resolve("journal.log"), 1);
+        journal.recover(0);
+        journal.start();
+        String padding = "X".repeat(100_000); // ref, message and response: ~300 KB per entry
+        journal.append(entry("B-1" + padding, 1L));
+        journal.append(entry("B-2" + padding, 1L));
+        journal.append(entry("B-3" + padding, 1L));
+        assertThrows(IllegalStateException.class, () -> journal.append(entry("B-4" + padding, 1L)));
+        journal.close();
+    }
+
+    private static TradeJournal open(Path file, int sizeMb) {
+        return new TradeJournal(file.toString(), sizeMb, true, 100, 200, new SimpleMeterRegistry());
+    }
+
+    private static TradeJournal.Entry entry(String ref, Long quantity) {
+        return new TradeJournal.Entry(Trade.Type.BUY, TradeService.Outcome.ACK, ref, null, quantity, 12.5,
+                "TYPE:BUY\nREF:" + ref, ":20:" + ref, LocalDateTime.now(), null);
+    }
+}
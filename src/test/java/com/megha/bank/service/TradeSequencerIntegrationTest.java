@@ -0,0 +1,57 @@
+package com.megha.bank.service;
+
+import com.megha.bank.model.Trade;
+import com.megha.bank.repository.TradeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "mt.sequencer.enabled=true")
+public class TradeSequencerIntegrationTest {
+
+    @Autowired
+    private TradeSequencer sequencer;
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Test
+    public void buyThenCancel_sameRef_fromManyProducers_allAcked() throws Exception {
+        int refs = 400;
+        int producers = 8;
+        List<CompletableFuture<TradeService.ProcessResult>> futures = new CopyOnWriteArrayList<>();
+
+        // each producer sends BUY then CANCEL back to back without waiting, so without per-ref ordering the CANCEL
+        // regularly overtakes the BUY and one of them fails on the unique tradeRef
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int owner = p;
+            threads[p] = new Thread(() -> {
+                for (int i = owner; i < refs; i += producers) {
+                    String ref = "SEQ-" + i;
+                    futures.add(sequencer.submit("TYPE:BUY\nREF:" + ref + "\nINST:INFY\nQTY:10\nPRC:1.5", Trade.Type.BUY));
+                    futures.add(sequencer.submit("TYPE:CANCEL\nREF:" + ref, Trade.Type.CANCEL));
+                }
+            });
+            threads[p].start();
+        }
+        for (Thread t : threads) t.join();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+
+        for (CompletableFuture<TradeService.ProcessResult> f : futures) {
+            assertTrue(f.get().isSuccess(), f.get().getMtResponse());
+        }
+        for (int i = 0; i < refs; i++) {
+            Trade t = tradeRepository.findByTradeRef("SEQ-" + i).orElseThrow();
+            assertEquals(Trade.Type.BUY, t.getType(), "CANCEL found the BUY instead of inserting a placeholder");
+            assertEquals(Trade.Status.CANCELLED, t.getStatus());
+        }
+    }
+}
@@ -3,8 +3,10 @@ package com.megha.bank.service;
 import com.megha.bank.model.Trade;
 import com.megha.bank.repository.TradeRepository;
 import com.megha.bank.util.MTMessageParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Optional;
 
@@ -61,4 +63,60 @@ public class TradeServiceTest {
         verify(tradeRepository, times(1)).findByTradeRef("TR-300");
         verify(tradeRepository, times(1)).save(existing);
     }
+
+    @Test
+    public void processCancel_cachedTrade_skipsLookup() {
+        TradeRefCache cache = new TradeRefCache(100, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(tradeService, "tradeCache", cache);
+        when(tradeRepository.save(any(Trade.class))).thenAnswer(i -> {
+            Trade t = i.getArgument(0);
+            t.setId(7L);
+            return t;
+        });
+        when(tradeRepository.updateStatus(eq(7L), eq(Trade.Status.CANCELLED), any())).thenReturn(1);
+
+        tradeService.processMtMessage("TYPE:BUY\nREF:TR-400\nINST:TCS\nQTY:5\nPRC:10.0", Trade.Type.BUY);
+        TradeService.ProcessResult res = tradeService.processMtMessage("TYPE:CANCEL\nREF:TR-400", Trade.Type.CANCEL);
+
+        assertEquals(Trade.Status.CANCELLED, res.getTrade().getStatus());
+        assertEquals("TCS", res.getTrade().getInstrument());
+        verify(tradeRepository, never()).findByTradeRef(anyString());
+        verify(tradeRepository, times(1)).updateStatus(eq(7L), eq(Trade.Status.CANCELLED), any());
+        assertEquals(Trade.Status.CANCELLED, cache.get("TR-400").getStatus());
+    }
+
+    @Test
+    public void tradeRefCache_evictsLeastRecentlyUsed() {
+        TradeRefCache cache = new TradeRefCache(2, new SimpleMeterRegistry());
+        for (String ref : new String[]{"A", "B"}) {
+            Trade t = new Trade();
+            t.setTradeRef(ref);
+            cache.putAfterCommit(t);
+        }
+        assertNotNull(cache.get("A")); // A is now more recently used than B
+        Trade c = new Trade();
+        c.setTradeRef("C");
+        cache.putAfterCommit(c);
+
+        assertNull(cache.get("B"));
+        assertNotNull(cache.get("A"));
+        assertNotNull(cache.get("C"));
+    }
+
+    @Test
+    public void processMessages_recordsOutcomeAndStageMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(tradeService, "metrics", new TradeMetrics(registry));
+        when(tradeRepository.save(any(Trade.class))).thenAnswer(i -> i.getArgument(0));
+
+        tradeService.processMtMessage("TYPE:BUY\nREF:TR-500\nINST:TCS\nQTY:5\nPRC:10.0", Trade.Type.BUY);
+        tradeService.processMtMessage("TYPE:SELL\nREF:TR-501\nINST:TCS", Trade.Type.SELL);
+
+        assertEquals(1, registry.get("mt.process").tags("type", "BUY", "outcome", "ACK").timer().count());
+        assertEquals(1, registry.get("mt.process")
+                .tags("type", "SELL", "outcome", "NAK", "reason", "MISSING_FIELDS").timer().count());
+        assertEquals(2, registry.get("mt.stage").tags("stage", "parse").timers().stream()
+                .mapToLong(t -> t.count()).sum());
+        assertEquals(1, registry.get("mt.stage").tags("stage", "trade.save", "type", "BUY").timer().count());
+    }
 }
@@ -0,0 +1,54 @@
+package com.megha.bank.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveLimitTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void aimd_growsWhileFastAndBusy_andBacksOffWhenSlow() {
+        AdaptiveLimit limit = AdaptiveLimit.aimd(10, 2, 50, 100, 0.5);
+        for (int i = 0; i < 5; i++) limit.onSample(5 * MS, limit.limit(), false);
+        assertEquals(15, limit.limit());
+
+        // mostly idle: fast requests alone do not raise it
+        limit.onSample(5 * MS, 1, false);
+        assertEquals(15, limit.limit());
+
+        limit.onSample(300 * MS, 15, false);
+        assertEquals(7, limit.limit());
+        limit.onSample(5 * MS, 7, true);
+        assertEquals(3, limit.limit());
+        limit.onSample(5 * MS, 3, true);
+        assertEquals(2, limit.limit(), "never below the minimum");
+    }
+
+    @Test
+    public void gradient_growsAtSteadyLatency_andShrinksWhenLatencyRises() {
+        AdaptiveLimit limit = AdaptiveLimit.gradient(20, 4, 200, 1.5);
+        for (int i = 0; i < 200; i++) limit.onSample(10 * MS, limit.limit(), false);
+        int steady = limit.limit();
+        assertTrue(steady > 20, "limit: " + steady);
+
+        // the database slows down fivefold: the short-term RTT runs away from the baseline
+        for (int i = 0; i < 50; i++) limit.onSample(50 * MS, limit.limit(), false);
+        int slow = limit.limit();
+        assertTrue(slow < steady / 2, steady + " -> " + slow);
+
+        // and recovers once latency is back to normal
+        for (int i = 0; i < 200; i++) limit.onSample(10 * MS, limit.limit(), false);
+        assertTrue(limit.limit() > slow, slow + " -> " + limit.limit());
+    }
+
+    @Test
+    public void gradient_staysWithinBounds() {
+        AdaptiveLimit limit = AdaptiveLimit.gradient(20, 4, 30, 1.5);
+        for (int i = 0; i < 500; i++) limit.onSample(MS, limit.limit(), false);
+        assertEquals(30, limit.limit());
+        for (int i = 0; i < 500; i++) limit.onSample(MS, limit.limit(), true);
+        assertEquals(4, limit.limit());
+    }
+}
@@ -0,0 +1,44 @@
+package com.megha.bank.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BloomFilterTest {
+
+    @Test
+    public void addedKeys_areAlwaysReported() {
+        BloomFilter f = new BloomFilter(10_000, 0.01);
+        SplittableRandom rnd = new SplittableRandom(7);
+        long[][] keys = new long[10_000][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new long[]{rnd.nextLong(), rnd.nextLong()};
+            f.put(keys[i][0], keys[i][1]);
+        }
+        for (long[] k : keys) {
+            assertTrue(f.mightContain(k[0], k[1]));
+        }
+    }
+
+    @Test
+    public void falsePositiveRate_staysNearTarget() {
+        BloomFilter f = new BloomFilter(10_000, 0.01);
+        SplittableRandom rnd = new SplittableRandom(11);
+        for (int i = 0; i < 10_000; i++) {
+            f.put(rnd.nextLong(), rnd.nextLong());
+        }
+        int hits = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (f.mightContain(rnd.nextLong(), rnd.nextLong())) hits++;
+        }
+        assertTrue(hits < 2_000, "false positives: " + hits);
+    }
+
+    @Test
+    public void rejectsInvalidSizing() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1.0));
+    }
+}
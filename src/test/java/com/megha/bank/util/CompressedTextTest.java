@@ -0,0 +1,49 @@
+package com.megha.bank.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressedTextTest {
+
+    @Test
+    public void roundTrips_typicalMessages_andShrinksThem() {
+        String[] messages = {
+                "TYPE:BUY\nREF:TR-1001\nINST:INFY\nQTY:100\nPRC:123.45\nORIG_REF:OR-77",
+                MTResponseBuilder.ack("TR-1001", "RECEIVED", "OR-77"),
+                MTResponseBuilder.nak("TR-1002", "MISSING_FIELDS: instrument/quantity/price", null),
+                "{1:F01CPTYBANKAXXX0000000000}{2:I199MEGHABANKXXXXN}{4:\r\n:20:TR-1001\r\n:21:OR-77\r\n"
+                        + ":22H::BUSE//BUYI\r\n:35B:ISIN INE009A01021\r\n:36B::SETT//UNIT/100,\r\n"
+                        + ":90B::DEAL//ACTU/INR123,45\r\n-}"
+        };
+        for (String m : messages) {
+            byte[] packed = CompressedText.encode(m);
+            assertEquals(m, CompressedText.decode(packed));
+            assertEquals(CompressedText.DEFLATE_V1, packed[0]);
+            assertTrue(packed.length * 2 < m.length(), packed.length + " bytes for " + m.length() + " chars");
+        }
+    }
+
+    @Test
+    public void incompressibleText_isStoredRaw() {
+        String m = "x7Q!";
+        byte[] packed = CompressedText.encode(m);
+        assertEquals(CompressedText.RAW, packed[0]);
+        assertEquals(m.length() + 2, packed.length);
+        assertEquals(m, CompressedText.decode(packed));
+    }
+
+    @Test
+    public void longAndNonAsciiText_roundTrips() {
+        String m = "INST:Zürich-€\n".repeat(300);
+        assertEquals(m, CompressedText.decode(CompressedText.encode(m)));
+        assertEquals("", CompressedText.decode(CompressedText.encode("")));
+        assertNull(CompressedText.encode(null));
+        assertNull(CompressedText.decode(null));
+    }
+
+    @Test
+    public void unknownFormat_isRejected() {
+        assertThrows(IllegalArgumentException.class, () -> CompressedText.decode(new byte[]{9, 0}));
+    }
+}
@@ -0,0 +1,64 @@
+package com.megha.bank.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashRingTest {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    public void keys_areSpreadEvenly() {
+        HashRing ring = new HashRing(List.of("a", "b", "c", "d"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.owner("TR-" + i), 1, Integer::sum);
+        }
+        assertEquals(4, counts.size());
+        for (int c : counts.values()) {
+            // 25% each, within a few percent with 128 points per node
+            assertTrue(c > KEYS * 0.20 && c < KEYS * 0.30, "share: " + counts);
+        }
+    }
+
+    @Test
+    public void join_movesKeysOnlyToTheNewNode() {
+        HashRing before = new HashRing(List.of("a", "b", "c"), 128);
+        HashRing after = before.with("d");
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "TR-" + i;
+            String was = before.owner(key), now = after.owner(key);
+            if (!was.equals(now)) {
+                assertEquals("d", now);
+                moved++;
+            }
+        }
+        assertTrue(moved > KEYS * 0.20 && moved < KEYS * 0.30, "moved: " + moved);
+    }
+
+    @Test
+    public void leave_movesOnlyTheLeavingNodesKeys() {
+        HashRing before = new HashRing(List.of("a", "b", "c"), 128);
+        HashRing after = before.without("b");
+        for (int i = 0; i < KEYS; i++) {
+            String key = "TR-" + i;
+            String was = before.owner(key);
+            if (!was.equals("b")) assertEquals(was, after.owner(key));
+            else assertNotEquals("b", after.owner(key));
+        }
+        assertEquals(List.of("a", "c"), after.nodes());
+        assertEquals(before.owner("TR-1"), new HashRing(List.of("c", "b", "a"), 128).owner("TR-1"));
+    }
+
+    @Test
+    public void emptyRing_hasNoOwner() {
+        assertNull(new HashRing(List.of(), 16).owner("TR-1"));
+        assertEquals("a", new HashRing(List.of("a"), 16).owner("TR-1"));
+    }
+}
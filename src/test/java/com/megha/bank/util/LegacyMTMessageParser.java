@@ -0,0 +1,31 @@
+package com.megha.bank.util;
+
+/**
+ * The original split/regex based parser, kept as the reference implementation for the differential test
+ * (and as a baseline for the parser benchmarks).
+ */
+public class LegacyMTMessageParser {
+
+    public MTMessageParser.ParsedMT parse(String mtRaw) {
+        MTMessageParser.ParsedMT p = new MTMessageParser.ParsedMT();
+        if (mtRaw == null) return p;
+        String[] lines = mtRaw.split("\\r?\\n");
+        for (String l : lines) {
+            String line = l.trim();
+            if (line.isEmpty()) continue;
+            String[] parts = line.split(":", 2);
+            if (parts.length < 2) continue;
+            String k = parts[0].trim().toUpperCase();
+            String v = parts[1].trim();
+            switch (k) {
+                case "TYPE": p.type = v; break;
+                case "REF": p.reference = v; break;
+                case "INST": p.instrument = v; break;
+                case "QTY": try { p.quantity = Long.parseLong(v); } catch (Exception e) { p.quantity = null; } break;
+                case "PRC": try { p.price = Double.parseDouble(v); } catch (Exception e) { p.price = null; } break;
+                default: p.others.put(k, v); break;
+            }
+        }
+        return p;
+    }
+}
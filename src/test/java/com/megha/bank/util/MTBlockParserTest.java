@@ -0,0 +1,114 @@
+package com.megha.bank.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MTBlockParserTest {
+
+    private final MTMessageParser parser = new MTMessageParser();
+
+    private static final String MT199 = "{1:F01CPTYBANKAXXX0000000000}{2:I199MEGHABANKXXXXN}{3:{108:MUR123}}{4:\r\n"
+            + ":20:TR-5001\r\n"
+            + ":21:OR-77\r\n"
+            + ":22H::BUSE//BUYI\r\n"
+            + ":35B:ISIN INE009A01021\r\nINFOSYS LTD\r\n"
+            + ":36B::SETT//UNIT/250,\r\n"
+            + ":90B::DEAL//ACTU/INR1534,75\r\n"
+            + ":79:PLEASE CONFIRM\r\nSECOND LINE\r\n"
+            + "-}{5:{CHK:ABCDEF123456}}";
+
+    @Test
+    public void parse_mt199_mapsTags() {
+        MTMessageParser.ParsedMT p = parser.parse(MT199);
+
+        assertEquals("TR-5001", p.reference);
+        assertEquals("OR-77", p.others.get("ORIG_REF"));
+        assertEquals("BUY", p.type);
+        assertEquals("INE009A01021", p.instrument);
+        assertEquals(250L, p.quantity);
+        assertEquals(1534.75, p.price);
+        assertEquals("PLEASE CONFIRM\r\nSECOND LINE", p.others.get("79"));
+        assertEquals("199", p.others.get("MT"));
+        assertEquals("TR-5001", parser.reference(MT199));
+    }
+
+    @Test
+    public void parse_ownAck_roundTrips() {
+        String ack = MTResponseBuilder.ack("TR-1", "RECEIVED", "OR-1");
+        MTMessageParser.ParsedMT p = parser.parse(ack);
+
+        assertEquals("TR-1", p.reference);
+        assertEquals("OR-1", p.others.get("ORIG_REF"));
+        assertEquals("ACK - STATUS:RECEIVED", p.others.get("79"));
+        assertNotNull(p.others.get("30"));
+    }
+
+    @Test
+    public void parse_settlementStyleTags() {
+        String msg = "  {1:F01X}{2:O5411200}{4:\n:16R:GENL\n:20C::SEME//SEME-9\n:20C::PREV//SEME-8\n:23G:CANC\n"
+                + ":16S:GENL\n:36B::SETT//FAMT/N12,\n:90A::DEAL//PRCT/99,125\n-}";
+        MTMessageParser.ParsedMT p = parser.parse(msg);
+
+        assertEquals("SEME-9", p.reference);
+        assertEquals("SEME-8", p.others.get("ORIG_REF"));
+        assertEquals("CANCEL", p.type);
+        assertEquals(-12L, p.quantity);
+        assertEquals(99.125, p.price);
+        assertEquals("541", p.others.get("MT"));
+        assertEquals("GENL", p.others.get("16S"));
+    }
+
+    @Test
+    public void parse_badNumbers_areNull() {
+        MTMessageParser.ParsedMT p = parser.parse("{4:\n:20:R\n:36B::SETT//UNIT/1,5\n:90B::DEAL//ACTU/EUR1x\n-}");
+        assertEquals("R", p.reference);
+        assertNull(p.quantity, "fractional quantity");
+        assertNull(p.price);
+    }
+
+    @Test
+    public void parse_badLongAmounts_areNull() {
+        // past the exact fast path: 20 digits, or more fraction digits than it handles
+        for (String amount : new String[]{"12345678901234567890,2.3", "12345678901234567890x", "1234567890123456789012,5,",
+                "1,2345678901234567890123.3", "1,23456789012345678901234e5", "N12345678901234567890,1,"}) {
+            MTMessageParser.ParsedMT p = parser.parse("{4:\n:20:R\n:90A::DEAL//PRCT/" + amount + "\n-}");
+            assertEquals("R", p.reference);
+            assertNull(p.price, amount);
+        }
+        MTMessageParser.ParsedMT p = parser.parse("{4:\n:20:R\n:90A::DEAL//PRCT/12345678901234567890,25\n-}");
+        assertEquals(12345678901234567890.25, p.price);
+    }
+
+    @Test
+    public void parse_decimals_matchDoubleParse() {
+        Random rnd = new Random(3);
+        for (int i = 0; i < 20_000; i++) {
+            String intPart = Long.toString(rnd.nextLong() >>> (1 + rnd.nextInt(63)));
+            String frac = Long.toString(rnd.nextLong() >>> (1 + rnd.nextInt(63)));
+            String msg = "{4:\n:90A::DEAL//PRCT/" + intPart + "," + frac + "\n-}";
+            assertEquals(Double.parseDouble(intPart + "." + frac), parser.parse(msg).price, msg);
+        }
+    }
+
+    @Test
+    public void parse_truncatedOrGarbage_doesNotThrow() {
+        for (String s : new String[]{"{", "{4:", "{4:\n:20", "{4:\n:20:", "{1:X}{", "{}{:}{4:\n:2:x\n-", "{4:\n:20:A\n}"}) {
+            MTMessageParser.ParsedMT p = parser.parse(s);
+            assertNotNull(p, s);
+        }
+        assertEquals("A", parser.parse("{4:\n:20:A\n}").reference);
+        assertEquals("A", parser.parse("{4:\n:20:A").reference);
+    }
+
+    @Test
+    public void keyValueMessages_stillUseLineParser() {
+        MTMessageParser.ParsedMT p = parser.parse("TYPE:SELL\nREF:TR-7\nINST:TCS\nQTY:5\nPRC:1.25");
+        assertEquals("SELL", p.type);
+        assertEquals("TR-7", p.reference);
+        assertEquals(5L, p.quantity);
+        assertEquals(1.25, p.price);
+    }
+}
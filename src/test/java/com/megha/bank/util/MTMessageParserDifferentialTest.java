@@ -0,0 +1,115 @@
+package com.megha.bank.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the single-pass parser against the original split/regex implementation.
+ */
+public class MTMessageParserDifferentialTest {
+
+    private final MTMessageParser parser = new MTMessageParser();
+    private final LegacyMTMessageParser legacy = new LegacyMTMessageParser();
+
+    private static final String[] CASES = {
+            "TYPE:BUY\nREF:TR-1001\nINST:INFY\nQTY:100\nPRC:123.45",
+            "type:sell\r\nref : TR-1\r\ninst:  TCS  \r\nqty:+50\r\nprc:2500.00\r\n",
+            "  TYPE :  CANCEL  \n\n\n REF:TR-9\nORIG_REF:OR-1\nnote: a:b:c ",
+            "TYPE\nREF\n:\n::\nKEY:\n:VALUE\nQTY:\nPRC:",
+            "REF:A\rB\nINST:X\r\rY\r\n",
+            "QTY:-9223372036854775808\nPRC:-0",
+            "QTY:9223372036854775808\nPRC:1e3",
+            "QTY:-\nPRC:-",
+            "QTY:+\nPRC:.",
+            "QTY:1_000\nPRC:1,5",
+            "QTY:١٢٣\nPRC:١٢٣",
+            "QTY:00042\nPRC:000.000100",
+            "PRC:.5\nQTY: 7 ",
+            "PRC:5.",
+            "PRC:NaN",
+            "PRC:-Infinity",
+            "PRC:0x1.8p1",
+            "PRC:1.5f",
+            "PRC:2d",
+            "PRC:12345678901234567890.5",
+            "PRC:9007199254740993",
+            "PRC:0.1234567890123456789012345",
+            "PRC:1.2.3",
+            "PRC:abc",
+            "PRC:€5",
+            "ınst:X\nſtatus:ok\nrEf:r",
+            "Ärger:ja\nTYPE:BUY",
+            "",
+            "\n\n",
+    };
+
+    @Test
+    public void parse_curatedCases_matchLegacy() {
+        for (String c : CASES) {
+            assertSame(c, legacy.parse(c), parser.parse(c));
+        }
+    }
+
+    @Test
+    public void parse_randomMessages_matchLegacy() {
+        Random rnd = new Random(42);
+        String[] keys = {"TYPE", "type", "REF", "Ref", "INST", "QTY", "qty", "PRC", "Prc", "ORIG_REF", "X", "", "Qty "};
+        String[] qty = {"0", "1", "-1", "+17", "99999999999999999999", "12a", "", " 5", "-", "007"};
+        String[] prc = {"0", "1.0", "-2.5", "123.45", "1e5", "1E-3", ".", "1..2", "3.14159265358979323846", "x", "1d",
+                "0.1", "100.001", "Infinity", "-0.0", "4503599627370497.5"};
+        String[] seps = {"\n", "\r\n", "\r", "\n\n", " \n", "\t\n"};
+        for (int n = 0; n < 20_000; n++) {
+            StringBuilder sb = new StringBuilder();
+            int lines = rnd.nextInt(8);
+            for (int i = 0; i < lines; i++) {
+                String k = keys[rnd.nextInt(keys.length)];
+                String v;
+                if (k.trim().equalsIgnoreCase("QTY")) v = qty[rnd.nextInt(qty.length)];
+                else if (k.equalsIgnoreCase("PRC")) v = prc[rnd.nextInt(prc.length)];
+                else v = Long.toString(rnd.nextLong(), 36);
+                if (rnd.nextInt(10) == 0) sb.append(' ');
+                sb.append(k);
+                if (rnd.nextInt(20) != 0) sb.append(rnd.nextBoolean() ? ":" : " : ");
+                sb.append(v);
+                sb.append(seps[rnd.nextInt(seps.length)]);
+            }
+            String msg = sb.toString();
+            assertSame(msg, legacy.parse(msg), parser.parse(msg));
+            assertEquals(legacy.parse(msg).reference, parser.reference(msg), msg);
+        }
+    }
+
+    @Test
+    public void parseInto_reusedInstance_matchesFreshParse() {
+        MTMessageParser.ParsedMT reused = new MTMessageParser.ParsedMT();
+        for (String c : CASES) {
+            assertSame(c, parser.parse(c), parser.parseInto(c, reused));
+        }
+    }
+
+    @Test
+    public void reference_curatedCases_matchParse() {
+        for (String c : CASES) {
+            assertEquals(legacy.parse(c).reference, parser.reference(c), c);
+        }
+        assertNull(parser.reference(null));
+    }
+
+    @Test
+    public void parse_null_returnsEmptyResult() {
+        assertSame("null", legacy.parse(null), parser.parse(null));
+    }
+
+    private static void assertSame(String input, MTMessageParser.ParsedMT expected, MTMessageParser.ParsedMT actual) {
+        String msg = "input: " + input.replace("\n", "\\n").replace("\r", "\\r");
+        assertEquals(expected.type, actual.type, msg);
+        assertEquals(expected.reference, actual.reference, msg);
+        assertEquals(expected.instrument, actual.instrument, msg);
+        assertEquals(expected.quantity, actual.quantity, msg);
+        assertEquals(expected.price, actual.price, msg);
+        assertEquals(expected.others, actual.others, msg);
+    }
+}
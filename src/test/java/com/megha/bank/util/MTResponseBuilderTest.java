@@ -0,0 +1,76 @@
+package com.megha.bank.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MTResponseBuilderTest {
+
+    private static final String[] TEXTS = {
+            "RECEIVED", "  padded  ", "a\r\nb\nc\rd", "{x}|y|", "\n{}\r\n", "", "ünïcødé 😀 ok", null
+    };
+
+    @AfterEach
+    public void resetClock() {
+        MTResponseBuilder.setClock(Clock.systemDefaultZone());
+    }
+
+    @Test
+    public void ackAndNak_matchOriginalFormat() {
+        MTResponseBuilder.setClock(Clock.fixed(Instant.parse("2025-11-27T10:15:30Z"), ZoneOffset.UTC));
+        for (String text : TEXTS) {
+            assertEquals(expected("TR-1", "OR-1", "ACK - STATUS:" + legacySanitize(text, "-")),
+                    MTResponseBuilder.ack("TR-1", text, "OR-1"));
+            assertEquals(expected("-", "-", "NAK - ERR:" + legacySanitize(text, "UNKNOWN")),
+                    MTResponseBuilder.nak(null, text, null));
+        }
+    }
+
+    @Test
+    public void writeToByteBuffer_matchesStringUtf8() {
+        ByteBuffer buf = ByteBuffer.allocate(1024);
+        for (String text : TEXTS) {
+            buf.clear();
+            MTResponseBuilder.writeAck(buf, "TR-ä", text, null);
+            assertArrayEquals(MTResponseBuilder.ack("TR-ä", text, null).getBytes(StandardCharsets.UTF_8), written(buf));
+
+            buf.clear();
+            MTResponseBuilder.writeNak(buf, null, text, "OR-2");
+            assertArrayEquals(MTResponseBuilder.nak(null, text, "OR-2").getBytes(StandardCharsets.UTF_8), written(buf));
+        }
+    }
+
+    @Test
+    public void date_rollsOverAtLocalMidnight() {
+        ZoneId zone = ZoneId.of("Asia/Kolkata");
+        MTResponseBuilder.setClock(Clock.fixed(Instant.parse("2025-11-27T18:29:59Z"), zone));
+        assertTrue(MTResponseBuilder.ack("R", "S", null).contains(":30:20251127\n"));
+        MTResponseBuilder.setClock(Clock.fixed(Instant.parse("2025-11-27T18:30:00Z"), zone));
+        assertTrue(MTResponseBuilder.ack("R", "S", null).contains(":30:20251128\n"));
+    }
+
+    private static byte[] written(ByteBuffer buf) {
+        byte[] out = new byte[buf.position()];
+        buf.flip().get(out);
+        return out;
+    }
+
+    private static String expected(String ref, String orig, String narrative) {
+        return "{1:F01MEGHABANKXXXX0000000000}{2:I199MEGHABANKXXXXN}{4:\n"
+                + ":20:" + ref + "\n:21:" + orig + "\n:30:20251127\n:79:" + narrative + "\n-}";
+    }
+
+    // The regex based sanitizer the builder used before
+    private static String legacySanitize(String s, String ifNull) {
+        if (s == null) return ifNull;
+        return s.replaceAll("\\r?\\n", " ").replaceAll("[\\{\\}]", " ").replaceAll("\\|", ";").trim();
+    }
+}
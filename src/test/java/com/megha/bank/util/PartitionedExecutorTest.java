@@ -0,0 +1,132 @@
+package com.megha.bank.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionedExecutorTest {
+
+    @Test
+    public void sameKey_runsInSubmissionOrder_oneAtATime() throws Exception {
+        int keys = 200;
+        int perKey = 50;
+        ConcurrentHashMap<String, List<Integer>> seen = new ConcurrentHashMap<>();
+        ConcurrentHashMap<String, AtomicInteger> running = new ConcurrentHashMap<>();
+        AtomicInteger overlaps = new AtomicInteger();
+        List<CompletableFuture<?>> futures = new CopyOnWriteArrayList<>();
+
+        try (PartitionedExecutor executor = new PartitionedExecutor("test", 8, 64)) {
+            // 4 producers, each owning a quarter of the keys and interleaving them
+            Thread[] producers = new Thread[4];
+            for (int p = 0; p < producers.length; p++) {
+                int owner = p;
+                producers[p] = new Thread(() -> {
+                    for (int i = 0; i < perKey; i++) {
+                        for (int k = owner; k < keys; k += 4) {
+                            String key = "TR-" + k;
+                            int seq = i;
+                            futures.add(executor.submit(key, () -> {
+                                AtomicInteger r = running.computeIfAbsent(key, x -> new AtomicInteger());
+                                if (r.incrementAndGet() > 1) overlaps.incrementAndGet();
+                                seen.computeIfAbsent(key, x -> new ArrayList<>()).add(seq);
+                                r.decrementAndGet();
+                                return null;
+                            }));
+                        }
+                    }
+                });
+                producers[p].start();
+            }
+            for (Thread t : producers) t.join();
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        }
+
+        assertEquals(0, overlaps.get(), "tasks for one key never overlap");
+        assertEquals(keys, seen.size());
+        for (List<Integer> s : seen.values()) {
+            assertEquals(perKey, s.size());
+            for (int i = 0; i < perKey; i++) assertEquals(i, s.get(i), "tasks for one key run in submission order");
+        }
+    }
+
+    @Test
+    public void differentPartitions_runConcurrently() throws Exception {
+        int n = 4;
+        CountDownLatch allStarted = new CountDownLatch(n);
+        try (PartitionedExecutor executor = new PartitionedExecutor("test", n, 16)) {
+            List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+            for (String key : keysOnDistinctPartitions(executor, n)) {
+                futures.add(executor.submit(key, () -> {
+                    allStarted.countDown();
+                    // only succeeds if all n tasks are running at the same time
+                    return allStarted.await(5, TimeUnit.SECONDS);
+                }));
+            }
+            for (CompletableFuture<Boolean> f : futures) assertTrue(f.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void throughput_scalesWithPartitions() throws Exception {
+        // tasks sleep like a blocking DB call, so the result does not depend on how many cores the build gets
+        long one = runSleepingTasks(1);
+        long eight = runSleepingTasks(8);
+        double speedup = (double) one / eight;
+        assertTrue(speedup > 5.0, "8 partitions should be close to 8x faster than 1, was " + speedup + "x");
+    }
+
+    @Test
+    public void failingTask_failsOnlyItsOwnFuture() throws Exception {
+        try (PartitionedExecutor executor = new PartitionedExecutor("test", 2, 16)) {
+            CompletableFuture<Object> bad = executor.submit("K", () -> {
+                throw new IllegalStateException("boom");
+            });
+            CompletableFuture<String> good = executor.submit("K", () -> "ok");
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> bad.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+            assertEquals("ok", good.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private static long runSleepingTasks(int partitions) throws Exception {
+        int tasks = 64;
+        try (PartitionedExecutor executor = new PartitionedExecutor("scale", partitions, tasks)) {
+            List<CompletableFuture<Object>> futures = new ArrayList<>();
+            List<String> keys = keysOnDistinctPartitions(executor, partitions);
+            long start = System.nanoTime();
+            for (int i = 0; i < tasks; i++) {
+                futures.add(executor.submit(keys.get(i % partitions), () -> {
+                    Thread.sleep(20);
+                    return null;
+                }));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+            return System.nanoTime() - start;
+        }
+    }
+
+    private static List<String> keysOnDistinctPartitions(PartitionedExecutor executor, int n) {
+        List<String> keys = new ArrayList<>();
+        boolean[] used = new boolean[executor.partitionCount()];
+        for (int i = 0; keys.size() < n; i++) {
+            String key = "TR-" + i;
+            int p = executor.partitionOf(key);
+            if (!used[p]) {
+                used[p] = true;
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,89 @@
+package com.megha.bank.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TradeRefGeneratorTest {
+
+    @Test
+    public void concurrentGeneration_noDuplicates_increasingPerThread() throws Exception {
+        int threads = 16;
+        int perThread = 250_000;
+        TradeRefGenerator generator = new TradeRefGenerator(5);
+        long[][] ids = new long[threads][perThread];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long[] out = ids[t];
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) out[i] = generator.nextId();
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread w : workers) w.join();
+
+        long[] all = new long[threads * perThread];
+        for (int t = 0; t < threads; t++) {
+            for (int i = 1; i < perThread; i++) assertTrue(ids[t][i] > ids[t][i - 1], "increasing within a thread");
+            System.arraycopy(ids[t], 0, all, t * perThread, perThread);
+        }
+        Arrays.sort(all);
+        for (int i = 1; i < all.length; i++) assertNotEquals(all[i - 1], all[i], "duplicate id");
+        for (long id : all) assertEquals(5, TradeRefGenerator.nodeOf(id));
+    }
+
+    @Test
+    public void sameMillisecond_differentNodes_differentRefs() {
+        TradeRefGenerator a = new TradeRefGenerator(1, () -> 1_750_000_000_000L);
+        TradeRefGenerator b = new TradeRefGenerator(2, () -> 1_750_000_000_000L);
+        Set<String> refs = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(refs.add(a.nextRef()));
+            assertTrue(refs.add(b.nextRef()));
+        }
+    }
+
+    @Test
+    public void sequenceExhaustedOrClockBack_staysMonotonic() {
+        AtomicLong now = new AtomicLong(1_750_000_000_000L);
+        TradeRefGenerator generator = new TradeRefGenerator(3, now::get);
+        long prev = generator.nextId();
+        for (int i = 0; i < 10_000; i++) {
+            if (i == 5_000) now.addAndGet(-60_000); // clock steps back a minute
+            long id = generator.nextId();
+            assertTrue(id > prev);
+            prev = id;
+        }
+        // 10k ids in a frozen millisecond borrow from the following ones instead of wrapping the sequence
+        assertEquals(1_750_000_000_000L + 2, TradeRefGenerator.timestampOf(prev));
+    }
+
+    @Test
+    public void format_isFixedWidthAndSortable() {
+        TradeRefGenerator generator = new TradeRefGenerator(7, () -> 1_750_000_000_000L);
+        String first = generator.nextRef();
+        String second = generator.nextRef();
+        assertTrue(first.matches("TB-[0-9A-HJKMNP-TV-Z]{13}"), first);
+        assertTrue(second.compareTo(first) > 0);
+        assertEquals("TB-0000000000000", TradeRefGenerator.format(0));
+        assertEquals("TB-FZZZZZZZZZZZZ", TradeRefGenerator.format(-1));
+    }
+
+    @Test
+    public void nodeIdOutOfRange_rejected() {
+        assertThrows(IllegalArgumentException.class, () -> new TradeRefGenerator(1024, System::currentTimeMillis));
+    }
+}